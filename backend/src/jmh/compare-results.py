@@ -0,0 +1,55 @@
+#!/usr/bin/env python3
+"""
+Compare two JMH JSON result files and flag regressions.
+
+Usage:
+    python src/jmh/compare-results.py baseline.json target/jmh-result.json [--threshold 10]
+
+Exits with status 1 if any benchmark got worse by more than the threshold (percent).
+Throughput benchmarks regress when the score drops; time-per-operation benchmarks
+regress when it rises.
+"""
+import argparse
+import json
+import sys
+
+
+def load(path):
+    with open(path) as f:
+        results = {}
+        for entry in json.load(f):
+            params = ",".join(f"{k}={v}" for k, v in sorted(entry.get("params", {}).items()))
+            key = f"{entry['benchmark']}({params})"
+            results[key] = (entry["mode"], entry["primaryMetric"]["score"], entry["primaryMetric"]["scoreUnit"])
+        return results
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument("baseline")
+    parser.add_argument("current")
+    parser.add_argument("--threshold", type=float, default=10.0, help="allowed change in percent")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    current = load(args.current)
+    regressions = 0
+    for key in sorted(current):
+        mode, score, unit = current[key]
+        if key not in baseline:
+            print(f"  new   {key}: {score:.3f} {unit}")
+            continue
+        base_score = baseline[key][1]
+        change = (score - base_score) / base_score * 100 if base_score else 0.0
+        worse = -change if mode == "thrpt" else change
+        status = "WORSE" if worse > args.threshold else "ok"
+        if status == "WORSE":
+            regressions += 1
+        print(f"  {status:5} {key}: {base_score:.3f} -> {score:.3f} {unit} ({change:+.1f}%)")
+
+    print(f"{regressions} regression(s) above {args.threshold}%")
+    sys.exit(1 if regressions else 0)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,71 @@
+package com.example.sentimentanalysis.benchmark;
+
+import com.example.sentimentanalysis.SentimentAnalysisApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Starts the application for benchmarks: embedded H2 in MySQL mode instead of MySQL,
+ * the {@link LocalMlStub} instead of the ML service, and no web server.
+ *
+ * The schema is created by Flyway, like in production. The MySQL migrations use partitioning,
+ * compression and functions H2 lacks, so the benchmarks run the H2 versions of the same
+ * migrations from db/migration-h2; startup fails if a migration has no H2 version.
+ */
+public final class BenchmarkApplication {
+
+    private static final String MIGRATIONS = "db/migration";
+    private static final String H2_MIGRATIONS = "db/migration-h2";
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(LocalMlStub mlStub) {
+        Set<String> migrations = migrationFiles(MIGRATIONS);
+        Set<String> h2Migrations = migrationFiles(H2_MIGRATIONS);
+        if (!migrations.equals(h2Migrations)) {
+            throw new IllegalStateException("The migrations in " + H2_MIGRATIONS + " " + h2Migrations
+                    + " do not match those in " + MIGRATIONS + " " + migrations);
+        }
+
+        return new SpringApplicationBuilder(SentimentAnalysisApplication.class)
+                .web(WebApplicationType.NONE)
+                // Passed as command line arguments so they override application.properties
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.flyway.locations=classpath:" + H2_MIGRATIONS,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        // Integer.MIN_VALUE asks MySQL Connector/J to stream; H2 rejects it
+                        "--feedback.export.fetch-size=1000",
+                        "--feedback.keywords.fetch-size=1000",
+                        "--logging.level.root=WARN",
+                        "--ml.service.url=" + mlStub.baseUrl() + "/analyze",
+                        "--ml.batch.url=" + mlStub.baseUrl() + "/analyze/batch");
+    }
+
+    private static Set<String> migrationFiles(String location) {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver()
+                    .getResources("classpath*:" + location + "/V*.sql");
+            return Arrays.stream(resources)
+                    .map(Resource::getFilename)
+                    .collect(Collectors.toCollection(TreeSet::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
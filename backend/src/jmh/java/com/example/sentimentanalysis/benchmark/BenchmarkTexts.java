@@ -0,0 +1,80 @@
+package com.example.sentimentanalysis.benchmark;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic feedback texts with realistic length distributions.
+ */
+public enum BenchmarkTexts {
+    /**
+     * One-liners such as "Great app, love it" (20-60 characters).
+     */
+    SHORT(1.0, 0.0),
+    /**
+     * A few sentences (100-300 characters).
+     */
+    MEDIUM(0.0, 1.0),
+    /**
+     * Long reviews close to the 1000 character limit (500-1000 characters).
+     */
+    LONG(0.0, 0.0),
+    /**
+     * What a feedback form typically receives: 80% short, 15% medium and 5% long texts.
+     */
+    MIXED(0.80, 0.15);
+
+    private static final String[] WORDS = {
+            "the", "app", "is", "really", "great", "but", "support", "was", "slow", "and", "not", "helpful",
+            "i", "love", "the", "new", "design", "checkout", "keeps", "crashing", "on", "my", "phone", "very",
+            "easy", "to", "use", "delivery", "arrived", "late", "product", "quality", "is", "excellent",
+            "price", "too", "expensive", "for", "what", "you", "get", "would", "recommend", "it", "to",
+            "friends", "terrible", "experience", "with", "customer", "service", "it", "works", "fine",
+            "most", "of", "the", "time", "battery", "life", "could", "be", "better", "don't", "like",
+            "the", "update", "search", "is", "fast", "and", "accurate", "ordered", "on", "tuesday"
+    };
+
+    private final double shortShare;
+    private final double mediumShare;
+
+    BenchmarkTexts(double shortShare, double mediumShare) {
+        this.shortShare = shortShare;
+        this.mediumShare = mediumShare;
+    }
+
+    /**
+     * Generates texts following this distribution. The same seed always gives the same texts.
+     *
+     * @param count How many texts to generate
+     * @param seed  Random seed
+     * @return The generated texts
+     */
+    public String[] generate(int count, long seed) {
+        Random random = new Random(seed);
+        String[] texts = new String[count];
+        for (int i = 0; i < count; i++) {
+            double roll = random.nextDouble();
+            int length;
+            if (roll < shortShare) {
+                length = 20 + random.nextInt(41);
+            } else if (roll < shortShare + mediumShare) {
+                length = 100 + random.nextInt(201);
+            } else {
+                length = 500 + random.nextInt(501);
+            }
+            texts[i] = sentence(random, length);
+        }
+        return texts;
+    }
+
+    private static String sentence(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            if (text.length() > 0) {
+                text.append(random.nextInt(8) == 0 ? ". " : " ");
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        text.setLength(Math.min(text.length(), 1000));
+        return text.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.sentimentanalysis.benchmark;
+
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a page of feedback the way the REST controller does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedbackJsonBenchmark {
+
+    @Param({"50", "500"})
+    public int pageSize;
+
+    @Param({"MIXED", "LONG"})
+    public BenchmarkTexts distribution;
+
+    private ObjectMapper objectMapper;
+    private List<Feedback> page;
+
+    @Setup
+    public void setUp() {
+        // Same defaults as the ObjectMapper Spring Boot configures for the controllers
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        String[] texts = distribution.generate(pageSize, 11);
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new Feedback((long) i, texts[i], null, null, "positive", 0.87, SentimentStatus.CLASSIFIED,
+                    "distilbert-base-uncased-finetuned-sst-2-english", createdAt.plusMinutes(i)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
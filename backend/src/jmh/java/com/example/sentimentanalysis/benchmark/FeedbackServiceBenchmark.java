@@ -0,0 +1,86 @@
+package com.example.sentimentanalysis.benchmark;
+
+import com.example.sentimentanalysis.dto.FeedbackDTO;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.dto.FeedbackPageDTO;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.service.FeedbackService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level hot paths against embedded H2 and the local ML stub: synchronous ingestion
+ * (classification, result mapping, insert and stats update), the stats read and the
+ * first page of the feedback listing.
+ *
+ * The 1024 distinct texts are in the ML result cache after warm-up, so processFeedback
+ * measures the Java side of ingestion rather than the stub's HTTP round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedbackServiceBenchmark {
+
+    @Param({"MIXED", "LONG"})
+    public BenchmarkTexts distribution;
+
+    private LocalMlStub mlStub;
+    private ConfigurableApplicationContext context;
+    private FeedbackService feedbackService;
+    private FeedbackDTO[] submissions;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        mlStub = new LocalMlStub();
+        context = BenchmarkApplication.start(mlStub);
+        feedbackService = context.getBean(FeedbackService.class);
+
+        String[] texts = distribution.generate(1024, 7);
+        submissions = new FeedbackDTO[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            submissions[i] = new FeedbackDTO();
+            submissions[i].setText(texts[i]);
+            feedbackService.processFeedback(submissions[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        mlStub.close();
+    }
+
+    @Benchmark
+    public Feedback processFeedback() {
+        return feedbackService.processFeedback(submissions[next++ & 1023]);
+    }
+
+    @Benchmark
+    public Map<String, Object> getSentimentStats() {
+        return feedbackService.getSentimentStats();
+    }
+
+    @Benchmark
+    public FeedbackPageDTO getFirstFeedbackPage() {
+        return feedbackService.getFeedbackPage(new FeedbackFilter(), null, 50);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.sentimentanalysis.benchmark;
+
+import com.example.sentimentanalysis.service.LexiconSentimentEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The local fallback classifier, which carries all traffic while the ML service is down.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexiconSentimentBenchmark {
+
+    @Param({"SHORT", "MEDIUM", "LONG", "MIXED"})
+    public BenchmarkTexts distribution;
+
+    private LexiconSentimentEngine engine;
+    private String[] texts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        engine = new LexiconSentimentEngine(new ClassPathResource("lexicon/sentiment-lexicon.tsv"));
+        texts = distribution.generate(1024, 42);
+    }
+
+    @Benchmark
+    public double compoundScore() {
+        return engine.compoundScore(texts[next++ & 1023]);
+    }
+
+    @Benchmark
+    public Map<String, Object> analyze() {
+        return engine.analyze(texts[next++ & 1023]);
+    }
+}
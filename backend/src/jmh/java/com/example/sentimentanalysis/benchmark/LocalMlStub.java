@@ -0,0 +1,75 @@
+package com.example.sentimentanalysis.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for the Python ML service, so benchmarks run offline and measure
+ * the Java side only. Answers /analyze and /analyze/batch with a fixed-shape result.
+ */
+public class LocalMlStub implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    public LocalMlStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/analyze/batch", this::handleBatch);
+        server.createContext("/analyze", this::handleSingle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return Base URL of the stub, without a trailing slash
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        // Its threads are not daemons and would keep the forked benchmark VM alive
+        executor.shutdownNow();
+    }
+
+    private void handleSingle(HttpExchange exchange) throws IOException {
+        Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+        respond(exchange, predict(String.valueOf(request.get("text"))));
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        Map<?, ?> request = objectMapper.readValue(exchange.getRequestBody(), Map.class);
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Object text : (List<?>) request.get("texts")) {
+            results.add(predict(String.valueOf(text)));
+        }
+        respond(exchange, Map.of("results", results));
+    }
+
+    private static Map<String, Object> predict(String text) {
+        String label = text.contains("love") ? "positive" : text.contains("terrible") ? "negative" : "neutral";
+        return Map.of("label", label, "score", 0.87, "model_version", "benchmark-stub", "fallback", false);
+    }
+
+    private void respond(HttpExchange exchange, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+-- H2 version of db/migration/V2 for the benchmarks, adding the columns and indexes one
+-- statement at a time.
+
+ALTER TABLE feedback ADD COLUMN sentiment_status VARCHAR(16) AFTER sentiment_score;
+ALTER TABLE feedback ADD COLUMN model_version VARCHAR(100) AFTER sentiment_status;
+
+CREATE INDEX idx_feedback_created_id ON feedback (created_at, id);
+CREATE INDEX idx_feedback_label_created_id ON feedback (sentiment_label, created_at, id);
+CREATE INDEX idx_feedback_status_id ON feedback (sentiment_status, id);
+
+CREATE TABLE sentiment_rollup_hourly (
+    bucket_start    DATETIME(6) NOT NULL,
+    sentiment_label VARCHAR(16) NOT NULL,
+    feedback_count  BIGINT      NOT NULL,
+    score_sum       DOUBLE      NOT NULL,
+    PRIMARY KEY (bucket_start, sentiment_label)
+) ENGINE = InnoDB;
+
+CREATE TABLE sentiment_rollup_minute (
+    bucket_start    DATETIME(6) NOT NULL,
+    sentiment_label VARCHAR(16) NOT NULL,
+    feedback_count  BIGINT      NOT NULL,
+    score_sum       DOUBLE      NOT NULL,
+    PRIMARY KEY (bucket_start, sentiment_label)
+) ENGINE = InnoDB;
+
+CREATE TABLE reclassification_job (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    target_version VARCHAR(100) NOT NULL,
+    status         VARCHAR(16)  NOT NULL,
+    last_id        BIGINT       NOT NULL,
+    total_rows     BIGINT       NOT NULL,
+    processed_rows BIGINT       NOT NULL,
+    changed_rows   BIGINT       NOT NULL,
+    failed_rows    BIGINT       NOT NULL,
+    message        VARCHAR(500),
+    started_at     DATETIME(6)  NOT NULL,
+    updated_at     DATETIME(6)  NOT NULL,
+    finished_at    DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,8 @@
+-- H2 version of db/migration/V3 for the benchmarks. H2 has no table partitioning, so only the
+-- primary key change is made; FeedbackPartitionService sees an unpartitioned table.
+
+UPDATE feedback SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL;
+
+ALTER TABLE feedback ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE feedback DROP PRIMARY KEY;
+ALTER TABLE feedback ADD PRIMARY KEY (id, created_at);
@@ -0,0 +1,13 @@
+-- H2 version of db/migration/V4 for the benchmarks, without InnoDB table compression.
+
+CREATE TABLE feedback_archive (
+    id               BIGINT        NOT NULL,
+    text             VARCHAR(1000) NOT NULL,
+    sentiment_label  VARCHAR(255),
+    sentiment_score  DOUBLE,
+    sentiment_status VARCHAR(16),
+    model_version    VARCHAR(100),
+    created_at       DATETIME(6)   NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_feedback_archive_created_id (created_at, id)
+);
@@ -0,0 +1,36 @@
+-- H2 version of db/migration/V5 for the benchmarks, using H2's hash and encoding functions.
+
+CREATE TABLE feedback_text (
+    hash                 CHAR(32)        NOT NULL,
+    content              VARBINARY(4000) NOT NULL,
+    compressed           BOOLEAN         NOT NULL,
+    text_length          INT             NOT NULL,
+    result_label         VARCHAR(255),
+    result_score         DOUBLE,
+    result_model_version VARCHAR(100),
+    PRIMARY KEY (hash)
+);
+
+-- Hot rows
+ALTER TABLE feedback ADD COLUMN text_hash CHAR(32) NULL AFTER id;
+
+UPDATE feedback SET text_hash = LEFT(RAWTOHEX(HASH('SHA-256', STRINGTOUTF8(text))), 32);
+
+INSERT IGNORE INTO feedback_text (hash, content, compressed, text_length)
+SELECT text_hash, STRINGTOUTF8(text), FALSE, CHAR_LENGTH(text)
+FROM feedback;
+
+ALTER TABLE feedback ALTER COLUMN text_hash SET NOT NULL;
+ALTER TABLE feedback DROP COLUMN text;
+
+-- Archived rows
+ALTER TABLE feedback_archive ADD COLUMN text_hash CHAR(32) NULL AFTER id;
+
+UPDATE feedback_archive SET text_hash = LEFT(RAWTOHEX(HASH('SHA-256', STRINGTOUTF8(text))), 32);
+
+INSERT IGNORE INTO feedback_text (hash, content, compressed, text_length)
+SELECT text_hash, STRINGTOUTF8(text), FALSE, CHAR_LENGTH(text)
+FROM feedback_archive;
+
+ALTER TABLE feedback_archive ALTER COLUMN text_hash SET NOT NULL;
+ALTER TABLE feedback_archive DROP COLUMN text;
@@ -1,21 +1,175 @@
 package com.example.sentimentanalysis.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import com.example.sentimentanalysis.service.AdaptiveConcurrencyLimiter;
+import com.example.sentimentanalysis.service.Bulkhead;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+
 /**
  * General application configuration class.
- * Contains bean definitions that can be used throughout the application.
+ * Contains bean definitions that can be used throughout the application,
+ * and enables the scheduled background tasks (such as the ingestion recovery sweep).
+ *
+ * Setting spring.threads.virtual.enabled=true on Java 21 or later runs request handling,
+ * async exports and scheduled tasks on virtual threads. Concurrency is then no longer capped
+ * by the Tomcat thread pool, so the ML and database bulkheads defined here are enabled by
+ * default in that mode (feedback.bulkheads.enabled overrides this).
  */
 @Configuration
+@EnableScheduling
 public class AppConfig {
+
+    private static final Logger logger = Logger.getLogger(AppConfig.class.getName());
     
     /**
-     * Creates a RestTemplate bean.
+     * Creates the RestTemplate used to call the ML service.
+     * Connections are pooled and kept alive between calls, and every phase of a call has a
+     * timeout, so a hung ML service fails calls quickly instead of blocking request threads.
+     * Automatic retries are disabled; failures are handled by the ML circuit breaker.
+     * Pool saturation is exposed as the ml.http.pool.* gauges.
+     */
+    @Bean
+    public RestTemplate restTemplate(MeterRegistry meterRegistry,
+                                     @Value("${ml.http.max-connections:50}") int maxConnections,
+                                     @Value("${ml.http.connect-timeout-ms:500}") long connectTimeoutMs,
+                                     @Value("${ml.http.read-timeout-ms:3000}") long readTimeoutMs,
+                                     @Value("${ml.http.pool-timeout-ms:200}") long poolTimeoutMs,
+                                     @Value("${ml.http.idle-timeout-seconds:30}") long idleTimeoutSeconds) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        registerPoolGauge(meterRegistry, connectionManager, "leased",
+                "ML connections currently in use", PoolStats::getLeased);
+        registerPoolGauge(meterRegistry, connectionManager, "available",
+                "Idle ML connections kept alive", PoolStats::getAvailable);
+        registerPoolGauge(meterRegistry, connectionManager, "pending",
+                "Requests waiting for an ML connection", PoolStats::getPending);
+        registerPoolGauge(meterRegistry, connectionManager, "max",
+                "Maximum number of ML connections", PoolStats::getMax);
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleTimeoutSeconds))
+                .disableAutomaticRetries()
+                .build();
+
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    /**
+     * Limits concurrent single-text ML requests made on request threads.
+     * Defaults to the size of the ML connection pool.
+     */
+    @Bean
+    public Bulkhead mlBulkhead(MeterRegistry meterRegistry, Environment environment,
+                               @Value("${ml.bulkhead.max-concurrent:${ml.http.max-connections:50}}") int maxConcurrent,
+                               @Value("${ml.bulkhead.acquire-timeout-ms:200}") long acquireTimeoutMs) {
+        return new Bulkhead("ml", bulkheadsEnabled(environment), maxConcurrent, acquireTimeoutMs, meterRegistry);
+    }
+
+    /**
+     * Limits concurrent database work done for requests. Defaults to the size of the
+     * connection pool, so callers beyond it wait here (and give up after the acquire timeout)
+     * rather than in the pool.
+     */
+    @Bean
+    public Bulkhead databaseBulkhead(MeterRegistry meterRegistry, Environment environment,
+                                     @Value("${feedback.db.bulkhead.max-concurrent:"
+                                             + "${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+                                     @Value("${feedback.db.bulkhead.acquire-timeout-ms:1000}") long acquireTimeoutMs) {
+        return new Bulkhead("database", bulkheadsEnabled(environment), maxConcurrent, acquireTimeoutMs, meterRegistry);
+    }
+
+    /**
+     * Sheds submissions while the ML analysis stage is at its adaptive concurrency limit.
+     * The maximum defaults to the request thread pool, so the limit only binds once ML
+     * latency has pushed it down.
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public AdaptiveConcurrencyLimiter mlAdmissionLimiter(MeterRegistry meterRegistry,
+                                                         @Value("${feedback.admission.enabled:false}") boolean enabled,
+                                                         @Value("${feedback.admission.ml.min-limit:8}") int minLimit,
+                                                         @Value("${feedback.admission.ml.max-limit:"
+                                                                 + "${server.tomcat.threads.max:200}}") int maxLimit,
+                                                         @Value("${feedback.admission.ml.latency-threshold-ms:1000}") long latencyThresholdMs,
+                                                         @Value("${feedback.admission.backoff-ratio:0.9}") double backoffRatio,
+                                                         @Value("${feedback.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        return new AdaptiveConcurrencyLimiter("ml", enabled, minLimit, maxLimit, latencyThresholdMs,
+                backoffRatio, retryAfterSeconds, meterRegistry);
+    }
+
+    /**
+     * Sheds submissions while the database write stage is at its adaptive concurrency limit.
+     * The maximum defaults to the size of the connection pool.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter databaseAdmissionLimiter(MeterRegistry meterRegistry,
+                                                               @Value("${feedback.admission.enabled:false}") boolean enabled,
+                                                               @Value("${feedback.admission.database.min-limit:2}") int minLimit,
+                                                               @Value("${feedback.admission.database.max-limit:"
+                                                                       + "${spring.datasource.hikari.maximum-pool-size:10}}") int maxLimit,
+                                                               @Value("${feedback.admission.database.latency-threshold-ms:250}") long latencyThresholdMs,
+                                                               @Value("${feedback.admission.backoff-ratio:0.9}") double backoffRatio,
+                                                               @Value("${feedback.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        return new AdaptiveConcurrencyLimiter("database", enabled, minLimit, maxLimit, latencyThresholdMs,
+                backoffRatio, retryAfterSeconds, meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logExecutionModel(ApplicationReadyEvent event) {
+        Environment environment = event.getApplicationContext().getEnvironment();
+        if (Threading.VIRTUAL.isActive(environment)) {
+            logger.info("Handling requests on virtual threads; bulkheads "
+                    + (bulkheadsEnabled(environment) ? "enabled" : "disabled"));
+        } else if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            logger.warning("spring.threads.virtual.enabled is set but virtual threads need Java 21 or later; "
+                    + "running on " + Runtime.version() + " with platform threads");
+        }
+    }
+
+    private static boolean bulkheadsEnabled(Environment environment) {
+        return environment.getProperty("feedback.bulkheads.enabled", Boolean.class,
+                Threading.VIRTUAL.isActive(environment));
+    }
+
+    private static void registerPoolGauge(MeterRegistry meterRegistry,
+                                          PoolingHttpClientConnectionManager connectionManager,
+                                          String name, String description, ToDoubleFunction<PoolStats> stat) {
+        Gauge.builder("ml.http.pool." + name, connectionManager, manager -> stat.applyAsDouble(manager.getTotalStats()))
+                .description(description)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package com.example.sentimentanalysis.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.config.CorsRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the non-blocking variant of the API, active with the "reactive" profile.
+ * In that profile the feedback endpoints are served by WebFlux on a few event-loop threads,
+ * the ML service is called through {@link WebClient} and feedback is persisted with R2DBC.
+ * JPA and JDBC stay available for the schema, the statistics rollups and the stats rebuild.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig implements WebFluxConfigurer {
+
+    /**
+     * Serves the API from Netty rather than from Tomcat, which would otherwise be preferred
+     * because it is on the classpath for the default profile.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Creates the JDBC connection pool used by JPA, configured by spring.datasource.*.
+     * Spring Boot skips its own datasource once an R2DBC connection factory exists,
+     * so it is declared explicitly in this profile.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Creates the WebClient used to call the ML service.
+     * The connection pool is bounded in both directions: at most {@code ml.http.max-connections}
+     * open connections, and at most {@code ml.reactive.max-pending-acquires} requests waiting for
+     * one. A request beyond that, or one that waits longer than the pool timeout, fails at once
+     * and is answered by the fallback, so a slow ML service cannot build an unbounded backlog.
+     */
+    @Bean
+    public WebClient mlWebClient(WebClient.Builder builder,
+                                 @Value("${ml.http.max-connections:50}") int maxConnections,
+                                 @Value("${ml.reactive.max-pending-acquires:1000}") int maxPendingAcquires,
+                                 @Value("${ml.http.connect-timeout-ms:500}") int connectTimeoutMs,
+                                 @Value("${ml.http.read-timeout-ms:3000}") long readTimeoutMs,
+                                 @Value("${ml.http.pool-timeout-ms:200}") long poolTimeoutMs,
+                                 @Value("${ml.http.idle-timeout-seconds:30}") long idleTimeoutSeconds) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("ml-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPendingAcquires)
+                .pendingAcquireTimeout(Duration.ofMillis(poolTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(idleTimeoutSeconds))
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry.addMapping("/api/**")                  // Same policy as WebConfig for the servlet stack
+                .allowedOrigins("http://localhost:5173")
+                .allowedMethods("GET", "POST", "PUT", "DELETE")
+                .allowedHeaders("*");
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.sentimentanalysis.controller;
+
+import com.example.sentimentanalysis.dto.TimeBucket;
+import com.example.sentimentanalysis.model.Feedback;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+
+/**
+ * Entity tags for conditional GETs on the feedback read endpoints.
+ *
+ * A single row is tagged by its content. Listings and aggregates are tagged by the data
+ * version ({@link com.example.sentimentanalysis.service.FeedbackService#getDataVersion()}),
+ * which changes with every insert and re-classification made through this application.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * @param feedback A feedback row
+     * @return A strong tag that changes when the row is re-classified
+     */
+    static String of(Feedback feedback) {
+        int hash = Objects.hash(feedback.getText(), feedback.getSentimentLabel(), feedback.getSentimentScore(),
+                feedback.getSentimentStatus(), feedback.getCreatedAt());
+        return "\"" + feedback.getId() + "-" + Integer.toHexString(hash) + "\"";
+    }
+
+    /**
+     * @param version The data version read before the response is computed
+     * @return A weak tag for a listing or aggregate computed from that version
+     */
+    static String ofVersion(String version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * Time series without an end also change when a new bucket starts, without any data changing.
+     *
+     * @param version The data version read before the series is computed
+     * @param bucket  The bucket size
+     * @param to      The requested end of the range, or null for now
+     * @return A weak tag for the series
+     */
+    static String ofTimeseries(String version, TimeBucket bucket, LocalDateTime to) {
+        if (to != null) {
+            return ofVersion(version);
+        }
+        long currentBucket = bucket.truncate(LocalDateTime.now()).toEpochSecond(ZoneOffset.UTC);
+        return "W/\"" + version + "-" + Long.toString(currentBucket, 36) + "\"";
+    }
+}
@@ -1,75 +1,473 @@
 package com.example.sentimentanalysis.controller;
 
 import com.example.sentimentanalysis.dto.FeedbackDTO;
+import com.example.sentimentanalysis.dto.FeedbackFileFormat;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.dto.FeedbackImportResultDTO;
+import com.example.sentimentanalysis.dto.FeedbackPageDTO;
+import com.example.sentimentanalysis.dto.FeedbackSearchResultDTO;
+import com.example.sentimentanalysis.dto.KeywordStatsDTO;
+import com.example.sentimentanalysis.dto.SearchOrder;
+import com.example.sentimentanalysis.dto.SentimentBucketDTO;
+import com.example.sentimentanalysis.dto.TimeBucket;
 import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.ReclassificationJob;
+import com.example.sentimentanalysis.service.ClientRateLimiter;
+import com.example.sentimentanalysis.service.FeedbackExportService;
+import com.example.sentimentanalysis.service.FeedbackIdempotencyService;
+import com.example.sentimentanalysis.service.FeedbackImportService;
+import com.example.sentimentanalysis.service.FeedbackIngestionService;
+import com.example.sentimentanalysis.service.FeedbackSearchService;
 import com.example.sentimentanalysis.service.FeedbackService;
+import com.example.sentimentanalysis.service.FeedbackStreamService;
+import com.example.sentimentanalysis.service.ReclassificationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST controller for handling feedback-related operations.
+ * Replaced by {@link ReactiveFeedbackController} when the "reactive" profile is active.
+ *
+ * The listing, single-entry and statistics reads carry an ETag (see {@link ETags}) and must be
+ * revalidated by clients ({@code Cache-Control: no-cache}); a matching {@code If-None-Match} or
+ * {@code If-Modified-Since} gets a 304 without the response being computed.
  */
 @RestController
 @RequestMapping("/api/feedback")
+@Profile("!reactive")
 public class FeedbackController {
 
     private final FeedbackService feedbackService;
+    private final FeedbackIngestionService feedbackIngestionService;
+    private final FeedbackImportService feedbackImportService;
+    private final FeedbackExportService feedbackExportService;
+    private final FeedbackStreamService feedbackStreamService;
+    private final FeedbackSearchService feedbackSearchService;
+    private final ReclassificationService reclassificationService;
+    private final ClientRateLimiter clientRateLimiter;
+    private final FeedbackIdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FeedbackController(FeedbackService feedbackService) {
+    public FeedbackController(FeedbackService feedbackService,
+                              FeedbackIngestionService feedbackIngestionService,
+                              FeedbackImportService feedbackImportService,
+                              FeedbackExportService feedbackExportService,
+                              FeedbackStreamService feedbackStreamService,
+                              FeedbackSearchService feedbackSearchService,
+                              ReclassificationService reclassificationService,
+                              ClientRateLimiter clientRateLimiter,
+                              FeedbackIdempotencyService idempotencyService,
+                              ObjectMapper objectMapper) {
         this.feedbackService = feedbackService;
+        this.feedbackIngestionService = feedbackIngestionService;
+        this.feedbackImportService = feedbackImportService;
+        this.feedbackExportService = feedbackExportService;
+        this.feedbackStreamService = feedbackStreamService;
+        this.feedbackSearchService = feedbackSearchService;
+        this.reclassificationService = reclassificationService;
+        this.clientRateLimiter = clientRateLimiter;
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * Submits new feedback and performs sentiment analysis.
+     * In asynchronous ingestion mode the feedback is only persisted here, with a PENDING
+     * sentiment status, and classified in the background. In log mode it is only appended to
+     * the ingestion log and gets its ID when it is inserted from there.
+     * Refused with 429 when the client is over its rate limit or the server is shedding load.
+     * A submission carrying an Idempotency-Key is processed at most once per key, on any
+     * instance; a retry gets the original entity back with an Idempotent-Replayed header.
      * 
      * @param feedbackDTO The feedback data from the request body
-     * @return ResponseEntity with the created Feedback entity
+     * @param idempotencyKey Client-chosen key that makes retries of this submission safe, if any
+     * @param request The request, which identifies the client for rate limiting
+     * @return ResponseEntity with the created Feedback entity (201), or the pending entity (202) in async mode;
+     *         409 if the key was used for a different request or its request is still in progress
      */
     @PostMapping
-    public ResponseEntity<Feedback> submitFeedback(@Valid @RequestBody FeedbackDTO feedbackDTO) {
-        Feedback savedFeedback = feedbackService.processFeedback(feedbackDTO);
-        return new ResponseEntity<>(savedFeedback, HttpStatus.CREATED);
+    public ResponseEntity<Feedback> submitFeedback(@Valid @RequestBody FeedbackDTO feedbackDTO,
+                                                   @RequestHeader(value = FeedbackIdempotencyService.KEY_HEADER,
+                                                           required = false) String idempotencyKey,
+                                                   HttpServletRequest request) {
+        acquireRateLimit(request);
+        HttpStatus status = feedbackIngestionService.isAsyncMode() ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+        if (!idempotencyService.applies(idempotencyKey)) {
+            return new ResponseEntity<>(submit(feedbackDTO, null), status);
+        }
+        FeedbackIdempotencyService.Result result =
+                idempotencyService.submit(idempotencyKey, feedbackDTO, onInsert -> submit(feedbackDTO, onInsert));
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (result.replayed()) {
+            response.header(FeedbackIdempotencyService.REPLAYED_HEADER, "true");
+        }
+        return response.body(result.feedback());
+    }
+
+    private Feedback submit(FeedbackDTO feedbackDTO, Consumer<Feedback> onInsert) {
+        if (feedbackIngestionService.isAsyncMode()) {
+            return feedbackIngestionService.accept(feedbackDTO, onInsert);
+        }
+        return feedbackService.processFeedback(feedbackDTO, onInsert);
     }
 
     /**
-     * Retrieves all feedback entries ordered by creation date (newest first).
+     * Imports feedback in bulk. The body is NDJSON ({@code application/x-ndjson}) or CSV
+     * ({@code text/csv}) and may be gzip-compressed ({@code Content-Encoding: gzip}).
+     * It is parsed as it streams in; invalid records are skipped and reported.
      * 
-     * @return List of all Feedback entities
+     * @param contentType The request content type, which selects the parser
+     * @param contentEncoding The request content encoding, if any
+     * @param body The raw request body
+     * @param request The request, which identifies the client for rate limiting
+     * @return ResponseEntity with accepted/rejected counts, throughput and per-record errors
+     * @throws IOException if reading the request body fails
+     */
+    @PostMapping(path = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<FeedbackImportResultDTO> importFeedback(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body,
+            HttpServletRequest request) throws IOException {
+        acquireRateLimit(request);
+        FeedbackFileFormat format = FeedbackFileFormat.forMediaType(contentType);
+        InputStream input = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+        return ResponseEntity.ok(feedbackImportService.importFeedback(input, format));
+    }
+
+    /**
+     * Retrieves one page of feedback entries ordered by creation date (newest first).
+     * All filters are optional and applied in the database.
+     * 
+     * @param cursor Cursor from the previous page's {@code nextCursor}; omit for the first page
+     * @param limit Maximum number of entries to return (capped at {@link FeedbackService#MAX_PAGE_SIZE})
+     * @param label Only return feedback with this sentiment label
+     * @param from Only return feedback created at or after this time (ISO-8601)
+     * @param to Only return feedback created before this time (ISO-8601)
+     * @param minScore Only return feedback with a sentiment score of at least this value
+     * @param maxScore Only return feedback with a sentiment score of at most this value
+     * @param request Used to answer conditional requests
+     * @return The requested page of Feedback entities and the cursor for the next page, or null if not modified
      */
     @GetMapping
-    public ResponseEntity<List<Feedback>> getAllFeedback() {
-        List<Feedback> feedbackList = feedbackService.getAllFeedback();
-        return ResponseEntity.ok(feedbackList);
+    public ResponseEntity<FeedbackPageDTO> getFeedbackPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Double maxScore,
+            WebRequest request) {
+        if (isNotModified(request)) {
+            return null;
+        }
+        FeedbackFilter filter = new FeedbackFilter();
+        filter.setSentimentLabel(label);
+        filter.setFrom(from);
+        filter.setTo(to);
+        filter.setMinScore(minScore);
+        filter.setMaxScore(maxScore);
+
+        FeedbackPageDTO page = feedbackService.getFeedbackPage(filter, cursor, limit);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(page);
+    }
+
+    /**
+     * Exports every feedback entry matching the filters, streamed straight from the database.
+     * The response is gzip-compressed when the client accepts it.
+     * 
+     * @param format Output format: ndjson or csv
+     * @param label Only export feedback with this sentiment label
+     * @param from Only export feedback created at or after this time (ISO-8601)
+     * @param to Only export feedback created before this time (ISO-8601)
+     * @param minScore Only export feedback with a sentiment score of at least this value
+     * @param maxScore Only export feedback with a sentiment score of at most this value
+     * @param acceptEncoding The client's Accept-Encoding header
+     * @return ResponseEntity whose body writes the rows as they are read
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFeedback(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Double maxScore,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        FeedbackFileFormat fileFormat = FeedbackFileFormat.parse(format);
+        FeedbackFilter filter = new FeedbackFilter();
+        filter.setSentimentLabel(label);
+        filter.setFrom(from);
+        filter.setTo(to);
+        filter.setMinScore(minScore);
+        filter.setMaxScore(maxScore);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = output -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(output, 64 * 1024);
+                feedbackExportService.export(filter, fileFormat, compressed);
+                compressed.finish();
+            } else {
+                feedbackExportService.export(filter, fileFormat, output);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(fileFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"feedback-export." + fileFormat.getExtension() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Searches feedback text, optionally restricted by sentiment, date and score.
+     * The query supports keywords (all must match), quoted phrases, OR, and exclusion
+     * with a leading minus, e.g. {@code checkout -"gift card"}.
+     *
+     * @param q The search query
+     * @param label Only return feedback with this sentiment label
+     * @param from Only return feedback created at or after this time (ISO-8601)
+     * @param to Only return feedback created before this time (ISO-8601)
+     * @param minScore Only return feedback with a sentiment score of at least this value
+     * @param maxScore Only return feedback with a sentiment score of at most this value
+     * @param sort Result order: relevance or newest
+     * @param page Zero-based page number
+     * @param size Page size (capped at {@link FeedbackSearchService#MAX_PAGE_SIZE})
+     * @return The requested page of matching feedback
+     */
+    @GetMapping("/search")
+    public ResponseEntity<FeedbackSearchResultDTO> searchFeedback(
+            @RequestParam String q,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Double maxScore,
+            @RequestParam(defaultValue = "relevance") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        FeedbackFilter filter = new FeedbackFilter();
+        filter.setSentimentLabel(label);
+        filter.setFrom(from);
+        filter.setTo(to);
+        filter.setMinScore(minScore);
+        filter.setMaxScore(maxScore);
+
+        return ResponseEntity.ok(feedbackSearchService.search(q, filter, SearchOrder.parse(sort), page, size));
+    }
+
+    /**
+     * Rebuilds the full-text search index from the feedback table.
+     * Searches keep working on the existing index while it runs.
+     *
+     * @return ResponseEntity with the number of indexed entries
+     * @throws IOException if writing the index fails
+     */
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex() throws IOException {
+        return ResponseEntity.ok(Map.of("indexed", feedbackSearchService.rebuild()));
+    }
+
+    /**
+     * Streams feedback changes and updated counts as Server-Sent Events: "feedback" events carry
+     * a saved Feedback entity with a created flag and its cursor, "stats" events the same counts as /stats, and a "reset" event asks
+     * the client to reload because the events it missed are no longer available.
+     * Events are written with non-blocking I/O, so a client that stops reading never holds up
+     * the threads sending to the others.
+     *
+     * @param lastEventIdHeader The Last-Event-ID header a browser sends when it reconnects
+     * @param lastEventId The id of the last event already seen, for clients that cannot set headers
+     * @param request The request, processed asynchronously for as long as the client stays connected
+     * @param response The response the events are written to
+     * @throws IOException if the response cannot be written to
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamFeedback(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        ServletEventStreamSink sink = ServletEventStreamSink.start(request, response,
+                feedbackStreamService.getClientTimeoutMs(), objectMapper);
+        try {
+            sink.attach(feedbackStreamService.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId, sink));
+        } catch (RuntimeException e) {
+            sink.close();
+            throw e;
+        }
     }
 
     /**
      * Retrieves a specific feedback entry by ID.
      * 
      * @param id The ID of the feedback to retrieve
-     * @return ResponseEntity with the found Feedback entity or 404 if not found
+     * @return ResponseEntity with the found Feedback entity, 304 if the client's copy is current, or 404 if not found
      */
     @GetMapping("/{id}")
     public ResponseEntity<Feedback> getFeedbackById(@PathVariable Long id) {
+        // Spring answers If-None-Match itself once the response carries an ETag
         return feedbackService.getFeedbackById(id)
-                .map(ResponseEntity::ok)
+                .map(feedback -> ResponseEntity.ok()
+                        .eTag(ETags.of(feedback))
+                        .cacheControl(CacheControl.noCache())
+                        .body(feedback))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     /**
      * Retrieves sentiment statistics.
      * 
-     * @return Map containing counts of positive, negative, and neutral feedback
+     * @param request Used to answer conditional requests
+     * @return Map containing counts of positive, negative, and neutral feedback, or null if not modified
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getSentimentStats() {
+    public ResponseEntity<Map<String, Object>> getSentimentStats(WebRequest request) {
+        if (isNotModified(request)) {
+            return null;
+        }
         Map<String, Object> stats = feedbackService.getSentimentStats();
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(stats);
+    }
+
+    /**
+     * Retrieves sentiment counts over time.
+     * 
+     * @param bucket Bucket size: minute, hour or day
+     * @param from   Inclusive start of the range (ISO date-time), defaults to the oldest available data
+     * @param to     Exclusive end of the range (ISO date-time), defaults to now
+     * @param label  Only count this sentiment label
+     * @param request Used to answer conditional requests
+     * @return ResponseEntity with one entry per bucket, including empty buckets, or null if not modified
+     */
+    @GetMapping("/stats/timeseries")
+    public ResponseEntity<List<SentimentBucketDTO>> getSentimentTimeseries(
+            @RequestParam(defaultValue = "hour") String bucket,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String label,
+            WebRequest request) {
+        TimeBucket timeBucket = TimeBucket.parse(bucket);
+        if (request.checkNotModified(ETags.ofTimeseries(feedbackService.getDataVersion(), timeBucket, to))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(feedbackService.getSentimentTimeseries(timeBucket, from, to, label));
+    }
+
+    /**
+     * Retrieves the most frequent terms per sentiment label. The counts are estimates kept in
+     * bounded memory as feedback is classified, not computed from the stored rows.
+     * 
+     * @param label Only return this sentiment label
+     * @param from  Inclusive start of the range (ISO date-time), defaults to the oldest retained window
+     * @param to    Exclusive end of the range (ISO date-time), defaults to now
+     * @param limit Maximum number of terms per label
+     * @return ResponseEntity with one entry per label that has feedback in the range
+     */
+    @GetMapping("/stats/keywords")
+    public ResponseEntity<List<KeywordStatsDTO>> getKeywordStats(
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(feedbackService.getKeywordStats(label, from, to, limit));
+    }
+
+    /**
+     * Recomputes the sentiment statistics from the raw feedback rows.
+     * Only needed after the feedback table was modified outside this application.
+     * 
+     * @return ResponseEntity with the recomputed statistics
+     */
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSentimentStats() {
+        feedbackService.rebuildSentimentStats();
+        return ResponseEntity.ok(feedbackService.getSentimentStats());
+    }
+
+    /**
+     * Starts re-scoring stored feedback with the current ML model, or resumes the
+     * unfinished job for the same model version. The job runs in the background.
+     * 
+     * @param targetVersion Model version to re-score to; defaults to the version the ML service reports
+     * @return ResponseEntity with the started job (202)
+     */
+    @PostMapping("/reclassify")
+    public ResponseEntity<ReclassificationJob> startReclassification(
+            @RequestParam(required = false) String targetVersion) {
+        return new ResponseEntity<>(reclassificationService.start(targetVersion), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Retrieves the progress of the latest re-classification job.
+     * 
+     * @return ResponseEntity with the job or 404 if none was ever started
+     */
+    @GetMapping("/reclassify")
+    public ResponseEntity<ReclassificationJob> getReclassification() {
+        return reclassificationService.getStatus()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Pauses the running re-classification job after its current batch.
+     * 
+     * @return ResponseEntity with the job or 404 if none was ever started
+     */
+    @DeleteMapping("/reclassify")
+    public ResponseEntity<ReclassificationJob> pauseReclassification() {
+        return reclassificationService.pause()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Checks the request's validators against the current data version. Sets the ETag and
+     * Last-Modified headers, and the 304 status if the client's copy is current.
+     */
+    private boolean isNotModified(WebRequest request) {
+        String etag = ETags.ofVersion(feedbackService.getDataVersion());
+        return request.checkNotModified(etag, feedbackService.getDataLastModified().toEpochMilli());
+    }
+
+    /**
+     * Takes a token from the requesting client's rate limit bucket, or throws for a 429.
+     */
+    private void acquireRateLimit(HttpServletRequest request) {
+        clientRateLimiter.acquire(request.getHeader(clientRateLimiter.getClientHeader()), request.getRemoteAddr(),
+                request.getHeader(clientRateLimiter.getForwardedHeader()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,473 @@
+package com.example.sentimentanalysis.controller;
+
+import com.example.sentimentanalysis.dto.FeedbackDTO;
+import com.example.sentimentanalysis.dto.FeedbackFileFormat;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.dto.FeedbackImportResultDTO;
+import com.example.sentimentanalysis.dto.FeedbackPageDTO;
+import com.example.sentimentanalysis.dto.FeedbackSearchResultDTO;
+import com.example.sentimentanalysis.dto.KeywordStatsDTO;
+import com.example.sentimentanalysis.dto.SearchOrder;
+import com.example.sentimentanalysis.dto.SentimentBucketDTO;
+import com.example.sentimentanalysis.dto.TimeBucket;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.ReclassificationJob;
+import com.example.sentimentanalysis.service.ClientRateLimiter;
+import com.example.sentimentanalysis.service.FeedbackIdempotencyService;
+import com.example.sentimentanalysis.service.FeedbackSearchService;
+import com.example.sentimentanalysis.service.FeedbackService;
+import com.example.sentimentanalysis.service.FeedbackStreamService;
+import com.example.sentimentanalysis.service.ReactiveFeedbackService;
+import com.example.sentimentanalysis.service.ReclassificationService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking variant of {@link FeedbackController}, served by WebFlux when the "reactive"
+ * profile is active. Paths, parameters and response bodies are the same, with two exceptions:
+ * submissions are always classified before the response (201, never 202), and bulk import
+ * accepts uncompressed NDJSON only. Response compression is left to the server
+ * (server.compression), which applies it when the client sends Accept-Encoding.
+ * Conditional GETs are answered the same way as by {@link FeedbackController}.
+ */
+@RestController
+@RequestMapping("/api/feedback")
+@Profile("reactive")
+public class ReactiveFeedbackController {
+
+    private final ReactiveFeedbackService reactiveFeedbackService;
+    private final FeedbackService feedbackService;
+    private final FeedbackStreamService feedbackStreamService;
+    private final FeedbackSearchService feedbackSearchService;
+    private final ReclassificationService reclassificationService;
+    private final ClientRateLimiter clientRateLimiter;
+    private final FeedbackIdempotencyService idempotencyService;
+
+    @Autowired
+    public ReactiveFeedbackController(ReactiveFeedbackService reactiveFeedbackService,
+                                      FeedbackService feedbackService,
+                                      FeedbackStreamService feedbackStreamService,
+                                      FeedbackSearchService feedbackSearchService,
+                                      ReclassificationService reclassificationService,
+                                      ClientRateLimiter clientRateLimiter,
+                                      FeedbackIdempotencyService idempotencyService) {
+        this.reactiveFeedbackService = reactiveFeedbackService;
+        this.feedbackService = feedbackService;
+        this.feedbackStreamService = feedbackStreamService;
+        this.feedbackSearchService = feedbackSearchService;
+        this.reclassificationService = reclassificationService;
+        this.clientRateLimiter = clientRateLimiter;
+        this.idempotencyService = idempotencyService;
+    }
+
+    /**
+     * Submits new feedback and performs sentiment analysis.
+     * Refused with 429 when the client is over its rate limit.
+     * A submission carrying an Idempotency-Key is processed at most once per key, on any
+     * instance; a retry gets the original entity back with an Idempotent-Replayed header.
+     *
+     * @param feedbackDTO The feedback data from the request body
+     * @param idempotencyKey Client-chosen key that makes retries of this submission safe, if any
+     * @param exchange The exchange, which identifies the client for rate limiting
+     * @return ResponseEntity with the created Feedback entity (201); 409 if the key was used for a
+     *         different request or its request is still in progress
+     */
+    @PostMapping
+    public Mono<ResponseEntity<Feedback>> submitFeedback(@Valid @RequestBody Mono<FeedbackDTO> feedbackDTO,
+                                                         @RequestHeader(value = FeedbackIdempotencyService.KEY_HEADER,
+                                                                 required = false) String idempotencyKey,
+                                                         ServerWebExchange exchange) {
+        acquireRateLimit(exchange);
+        if (idempotencyService.applies(idempotencyKey)) {
+            return feedbackDTO.flatMap(dto -> submitIdempotently(idempotencyKey, dto));
+        }
+        return feedbackDTO
+                .flatMap(reactiveFeedbackService::processFeedback)
+                .map(saved -> new ResponseEntity<>(saved, HttpStatus.CREATED));
+    }
+
+    private Mono<ResponseEntity<Feedback>> submitIdempotently(String idempotencyKey, FeedbackDTO feedbackDTO) {
+        // The key table is only reachable over JDBC, so claims run off the event loop
+        return Mono.fromCallable(() -> idempotencyService.begin(idempotencyKey, feedbackDTO))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(claim -> {
+                    if (claim.isReplay()) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.CREATED)
+                                .header(FeedbackIdempotencyService.REPLAYED_HEADER, "true")
+                                .body(claim.replay()));
+                    }
+                    // The key is completed in the transaction inserting the row
+                    return reactiveFeedbackService.processFeedback(feedbackDTO, claim)
+                            .onErrorMap(OptimisticLockingFailureException.class,
+                                    e -> idempotencyService.takenOver(claim))
+                            .onErrorResume(e -> Mono.fromRunnable(() -> idempotencyService.release(claim))
+                                    .subscribeOn(Schedulers.boundedElastic())
+                                    .then(Mono.<Feedback>error(e)))
+                            .map(saved -> {
+                                idempotencyService.completed(claim, saved);
+                                return new ResponseEntity<>(saved, HttpStatus.CREATED);
+                            });
+                });
+    }
+
+    /**
+     * Imports feedback in bulk from an NDJSON body ({@code application/x-ndjson}).
+     * The body is read only as fast as the records are classified and stored.
+     *
+     * @param contentEncoding The request content encoding, if any
+     * @param lines The request body, split into lines
+     * @param exchange The exchange, which identifies the client for rate limiting
+     * @return ResponseEntity with accepted/rejected counts, throughput and per-record errors
+     */
+    @PostMapping(path = "/import", consumes = "application/x-ndjson")
+    public Mono<ResponseEntity<FeedbackImportResultDTO>> importFeedback(
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            @RequestBody Flux<String> lines,
+            ServerWebExchange exchange) {
+        acquireRateLimit(exchange);
+        if (contentEncoding != null && !"identity".equalsIgnoreCase(contentEncoding)) {
+            return Mono.error(new InvalidRequestException(
+                    "Content-Encoding " + contentEncoding + " is not supported by the reactive import"));
+        }
+        return reactiveFeedbackService.importNdjson(lines).map(ResponseEntity::ok);
+    }
+
+    /**
+     * Retrieves one page of feedback entries ordered by creation date (newest first).
+     * All filters are optional and applied in the database.
+     *
+     * @param cursor Cursor from the previous page's {@code nextCursor}; omit for the first page
+     * @param limit Maximum number of entries to return (capped at {@link FeedbackService#MAX_PAGE_SIZE})
+     * @param label Only return feedback with this sentiment label
+     * @param from Only return feedback created at or after this time (ISO-8601)
+     * @param to Only return feedback created before this time (ISO-8601)
+     * @param minScore Only return feedback with a sentiment score of at least this value
+     * @param maxScore Only return feedback with a sentiment score of at most this value
+     * @param exchange Used to answer conditional requests
+     * @return The requested page of Feedback entities and the cursor for the next page, or empty if not modified
+     */
+    @GetMapping
+    public Mono<ResponseEntity<FeedbackPageDTO>> getFeedbackPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Double maxScore,
+            ServerWebExchange exchange) {
+        if (isNotModified(exchange)) {
+            return Mono.empty();
+        }
+        FeedbackFilter filter = filter(label, from, to, minScore, maxScore);
+        return reactiveFeedbackService.getFeedbackPage(filter, cursor, limit)
+                .map(page -> ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(page));
+    }
+
+    /**
+     * Exports every feedback entry matching the filters, streamed straight from the database.
+     *
+     * @param format Output format: ndjson or csv
+     * @param label Only export feedback with this sentiment label
+     * @param from Only export feedback created at or after this time (ISO-8601)
+     * @param to Only export feedback created before this time (ISO-8601)
+     * @param minScore Only export feedback with a sentiment score of at least this value
+     * @param maxScore Only export feedback with a sentiment score of at most this value
+     * @return ResponseEntity whose body emits the rows as they are read
+     */
+    @GetMapping("/export")
+    public ResponseEntity<Flux<String>> exportFeedback(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Double maxScore) {
+        FeedbackFileFormat fileFormat = FeedbackFileFormat.parse(format);
+        FeedbackFilter filter = filter(label, from, to, minScore, maxScore);
+        return ResponseEntity.ok()
+                .contentType(fileFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"feedback-export." + fileFormat.getExtension() + "\"")
+                .body(reactiveFeedbackService.export(filter, fileFormat));
+    }
+
+    /**
+     * Searches feedback text, optionally restricted by sentiment, date and score.
+     * Index reads are blocking, so the search runs on a worker thread.
+     * The query supports keywords (all must match), quoted phrases, OR, and exclusion
+     * with a leading minus, e.g. {@code checkout -"gift card"}.
+     *
+     * @param q The search query
+     * @param label Only return feedback with this sentiment label
+     * @param from Only return feedback created at or after this time (ISO-8601)
+     * @param to Only return feedback created before this time (ISO-8601)
+     * @param minScore Only return feedback with a sentiment score of at least this value
+     * @param maxScore Only return feedback with a sentiment score of at most this value
+     * @param sort Result order: relevance or newest
+     * @param page Zero-based page number
+     * @param size Page size (capped at {@link FeedbackSearchService#MAX_PAGE_SIZE})
+     * @return The requested page of matching feedback
+     */
+    @GetMapping("/search")
+    public Mono<ResponseEntity<FeedbackSearchResultDTO>> searchFeedback(
+            @RequestParam String q,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Double maxScore,
+            @RequestParam(defaultValue = "relevance") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        FeedbackFilter filter = filter(label, from, to, minScore, maxScore);
+        SearchOrder order = SearchOrder.parse(sort);
+        return Mono.fromCallable(() -> ResponseEntity.ok(feedbackSearchService.search(q, filter, order, page, size)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Rebuilds the full-text search index from the feedback table.
+     * The rebuild reads the table over JDBC, so it runs on a worker thread.
+     *
+     * @return ResponseEntity with the number of indexed entries
+     */
+    @PostMapping("/search/rebuild")
+    public Mono<ResponseEntity<Map<String, Object>>> rebuildSearchIndex() {
+        return Mono.fromCallable(() -> ResponseEntity.ok(Map.<String, Object>of("indexed", feedbackSearchService.rebuild())))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Streams feedback changes and updated counts as Server-Sent Events, like
+     * {@link FeedbackController#streamFeedback}. Events are buffered for a client only up to
+     * {@code feedback.stream.client-buffer}; a client that falls further behind is disconnected.
+     *
+     * @param lastEventIdHeader The Last-Event-ID header a browser sends when it reconnects
+     * @param lastEventId The id of the last event already seen, for clients that cannot set headers
+     * @return The event stream
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamFeedback(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId) {
+        return Flux.defer(() -> {
+            Sinks.Many<ServerSentEvent<Object>> events = Sinks.many().unicast().onBackpressureBuffer(
+                    Queues.<ServerSentEvent<Object>>get(feedbackStreamService.getClientBufferSize()).get());
+            FeedbackStreamService.Subscription subscription = feedbackStreamService.subscribe(
+                    lastEventIdHeader != null ? lastEventIdHeader : lastEventId, new FeedbackStreamService.StreamSink() {
+                        @Override
+                        public void send(FeedbackStreamService.StreamEvent event) throws IOException {
+                            if (events.tryEmitNext(toServerSentEvent(event)).isFailure()) {
+                                throw new IOException("Stream client is not keeping up");
+                            }
+                        }
+
+                        @Override
+                        public void close() {
+                            events.tryEmitComplete();
+                        }
+                    });
+            return events.asFlux()
+                    .take(Duration.ofMillis(feedbackStreamService.getClientTimeoutMs()))
+                    .doFinally(signal -> subscription.cancel());
+        });
+    }
+
+    /**
+     * Retrieves a specific feedback entry by ID.
+     *
+     * @param id The ID of the feedback to retrieve
+     * @return ResponseEntity with the found Feedback entity, 304 if the client's copy is current, or 404 if not found
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Feedback>> getFeedbackById(@PathVariable Long id) {
+        // WebFlux answers If-None-Match itself once the response carries an ETag
+        return reactiveFeedbackService.getFeedbackById(id)
+                .map(feedback -> ResponseEntity.ok()
+                        .eTag(ETags.of(feedback))
+                        .cacheControl(CacheControl.noCache())
+                        .body(feedback))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Retrieves sentiment statistics. Served from memory, so it does not block.
+     *
+     * @param exchange Used to answer conditional requests
+     * @return Map containing counts of positive, negative, and neutral feedback, or empty if not modified
+     */
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<Map<String, Object>>> getSentimentStats(ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> isNotModified(exchange) ? null : ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(feedbackService.getSentimentStats()));
+    }
+
+    /**
+     * Retrieves sentiment counts over time. Served from memory, so it does not block.
+     *
+     * @param bucket Bucket size: minute, hour or day
+     * @param from   Inclusive start of the range (ISO date-time), defaults to the oldest available data
+     * @param to     Exclusive end of the range (ISO date-time), defaults to now
+     * @param label  Only count this sentiment label
+     * @param exchange Used to answer conditional requests
+     * @return ResponseEntity with one entry per bucket, including empty buckets, or empty if not modified
+     */
+    @GetMapping("/stats/timeseries")
+    public Mono<ResponseEntity<List<SentimentBucketDTO>>> getSentimentTimeseries(
+            @RequestParam(defaultValue = "hour") String bucket,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String label,
+            ServerWebExchange exchange) {
+        return Mono.fromSupplier(() -> {
+            TimeBucket timeBucket = TimeBucket.parse(bucket);
+            if (exchange.checkNotModified(ETags.ofTimeseries(feedbackService.getDataVersion(), timeBucket, to))) {
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .body(feedbackService.getSentimentTimeseries(timeBucket, from, to, label));
+        });
+    }
+
+    /**
+     * Retrieves the most frequent terms per sentiment label. Served from memory, so it does not block.
+     *
+     * @param label Only return this sentiment label
+     * @param from  Inclusive start of the range (ISO date-time), defaults to the oldest retained window
+     * @param to    Exclusive end of the range (ISO date-time), defaults to now
+     * @param limit Maximum number of terms per label
+     * @return ResponseEntity with one entry per label that has feedback in the range
+     */
+    @GetMapping("/stats/keywords")
+    public Mono<ResponseEntity<List<KeywordStatsDTO>>> getKeywordStats(
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "20") int limit) {
+        return Mono.fromSupplier(() -> ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(feedbackService.getKeywordStats(label, from, to, limit)));
+    }
+
+    /**
+     * Recomputes the sentiment statistics from the raw feedback rows.
+     * The recomputation uses JDBC, so it runs on a worker thread rather than the event loop.
+     *
+     * @return ResponseEntity with the recomputed statistics
+     */
+    @PostMapping("/stats/rebuild")
+    public Mono<ResponseEntity<Map<String, Object>>> rebuildSentimentStats() {
+        return Mono.fromCallable(() -> {
+                    feedbackService.rebuildSentimentStats();
+                    return ResponseEntity.ok(feedbackService.getSentimentStats());
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Starts or resumes re-scoring stored feedback with the current ML model. Asking the
+     * ML service for its version and saving the job block, so this runs on a worker thread.
+     *
+     * @param targetVersion Model version to re-score to; defaults to the version the ML service reports
+     * @return ResponseEntity with the started job (202)
+     */
+    @PostMapping("/reclassify")
+    public Mono<ResponseEntity<ReclassificationJob>> startReclassification(
+            @RequestParam(required = false) String targetVersion) {
+        return Mono.fromCallable(() -> new ResponseEntity<>(
+                        reclassificationService.start(targetVersion), HttpStatus.ACCEPTED))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Retrieves the progress of the latest re-classification job.
+     *
+     * @return ResponseEntity with the job or 404 if none was ever started
+     */
+    @GetMapping("/reclassify")
+    public Mono<ResponseEntity<ReclassificationJob>> getReclassification() {
+        return Mono.fromCallable(() -> reclassificationService.getStatus()
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Pauses the running re-classification job after its current batch.
+     *
+     * @return ResponseEntity with the job or 404 if none was ever started
+     */
+    @DeleteMapping("/reclassify")
+    public Mono<ResponseEntity<ReclassificationJob>> pauseReclassification() {
+        return Mono.fromCallable(() -> reclassificationService.pause()
+                        .map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Checks the request's validators against the current data version. Sets the ETag and
+     * Last-Modified headers, and the 304 status if the client's copy is current.
+     */
+    private boolean isNotModified(ServerWebExchange exchange) {
+        String etag = ETags.ofVersion(feedbackService.getDataVersion());
+        return exchange.checkNotModified(etag, feedbackService.getDataLastModified());
+    }
+
+    /**
+     * Takes a token from the requesting client's rate limit bucket, or throws for a 429.
+     */
+    private void acquireRateLimit(ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        String address = remote == null ? "unknown"
+                : remote.getAddress() == null ? remote.getHostString() : remote.getAddress().getHostAddress();
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        clientRateLimiter.acquire(headers.getFirst(clientRateLimiter.getClientHeader()), address,
+                headers.getFirst(clientRateLimiter.getForwardedHeader()));
+    }
+
+    private static ServerSentEvent<Object> toServerSentEvent(FeedbackStreamService.StreamEvent event) {
+        if (event.isHeartbeat()) {
+            return ServerSentEvent.builder().comment("heartbeat").build();
+        }
+        return ServerSentEvent.builder(event.data()).id(event.id()).event(event.name()).build();
+    }
+
+    private static FeedbackFilter filter(String label, LocalDateTime from, LocalDateTime to,
+                                         Double minScore, Double maxScore) {
+        FeedbackFilter filter = new FeedbackFilter();
+        filter.setSentimentLabel(label);
+        filter.setFrom(from);
+        filter.setTo(to);
+        filter.setMinScore(minScore);
+        filter.setMaxScore(maxScore);
+        return filter;
+    }
+}
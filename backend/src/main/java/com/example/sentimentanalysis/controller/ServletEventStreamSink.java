@@ -0,0 +1,166 @@
+package com.example.sentimentanalysis.controller;
+
+import com.example.sentimentanalysis.service.FeedbackStreamService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes stream events to a servlet response as Server-Sent Events, using non-blocking I/O.
+ *
+ * A client that stops reading fills its socket buffer; from then on {@link #isReady()} is false
+ * and the sender thread moves on to other clients instead of blocking in a write. The container
+ * calls {@link #onWritePossible()} once the client has caught up, which resumes the subscription.
+ */
+final class ServletEventStreamSink implements FeedbackStreamService.StreamSink, WriteListener, AsyncListener {
+
+    private static final byte[] HEARTBEAT = ":heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream output;
+    private final ObjectMapper objectMapper;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    /**
+     * Whether events were written since the last flush. Only touched by the sender thread.
+     */
+    private boolean unflushed;
+    private volatile FeedbackStreamService.Subscription subscription;
+
+    private ServletEventStreamSink(AsyncContext asyncContext, ServletOutputStream output, ObjectMapper objectMapper) {
+        this.asyncContext = asyncContext;
+        this.output = output;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Starts asynchronous processing of the request and switches its response to non-blocking
+     * writes. The caller must {@link #attach} the subscription the sink was subscribed with.
+     *
+     * @param request      The stream request
+     * @param response     Its response
+     * @param timeoutMs    How long the connection may stay open
+     * @param objectMapper Serializes event payloads
+     * @return The sink
+     * @throws IOException if the response cannot be written to
+     */
+    static ServletEventStreamSink start(HttpServletRequest request, HttpServletResponse response, long timeoutMs,
+                                        ObjectMapper objectMapper) throws IOException {
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeoutMs);
+        ServletEventStreamSink sink = new ServletEventStreamSink(asyncContext, response.getOutputStream(), objectMapper);
+        asyncContext.addListener(sink);
+        sink.output.setWriteListener(sink);
+        return sink;
+    }
+
+    /**
+     * Ties the sink to its subscription, which is resumed and cancelled by the container's callbacks.
+     *
+     * @param subscription The subscription the sink was subscribed with
+     */
+    void attach(FeedbackStreamService.Subscription subscription) {
+        this.subscription = subscription;
+    }
+
+    @Override
+    public boolean isReady() throws IOException {
+        if (!output.isReady()) {
+            return false;
+        }
+        if (unflushed) {
+            // Events written while the connection was busy may still sit in the response buffer
+            unflushed = false;
+            output.flush();
+            return output.isReady();
+        }
+        return true;
+    }
+
+    @Override
+    public void send(FeedbackStreamService.StreamEvent event) throws IOException {
+        output.write(event.isHeartbeat() ? HEARTBEAT : encode(event));
+        if (output.isReady()) {
+            output.flush();
+        } else {
+            unflushed = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (completed.compareAndSet(false, true)) {
+            asyncContext.complete();
+        }
+    }
+
+    private byte[] encode(FeedbackStreamService.StreamEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        if (event.id() != null) {
+            bytes.write(("id:" + event.id() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        bytes.write(("event:" + event.name() + "\ndata:").getBytes(StandardCharsets.UTF_8));
+        // Compact JSON never contains a line break, so the payload fits on one data line
+        objectMapper.writeValue(bytes, event.data());
+        bytes.write('\n');
+        bytes.write('\n');
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void onWritePossible() {
+        FeedbackStreamService.Subscription current = subscription;
+        if (current != null) {
+            current.resume();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        end();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        end();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        // The container expects the request to be completed before this returns
+        close();
+        end();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+        end();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void end() {
+        FeedbackStreamService.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
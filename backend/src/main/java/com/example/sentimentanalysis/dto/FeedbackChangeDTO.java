@@ -0,0 +1,33 @@
+package com.example.sentimentanalysis.dto;
+
+import com.example.sentimentanalysis.model.Feedback;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Payload of a "feedback" stream event: the row as saved, plus what a client needs to merge
+ * it into a list it paginated through the REST API.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedbackChangeDTO {
+
+    /**
+     * The feedback entry, serialized inline like in a page of results.
+     */
+    @JsonUnwrapped
+    private Feedback feedback;
+
+    /**
+     * Whether the entry was newly inserted, rather than reclassified.
+     */
+    private boolean created;
+
+    /**
+     * Opaque cursor pointing just past this entry, for continuing a list that ends with it.
+     */
+    private String cursor;
+}
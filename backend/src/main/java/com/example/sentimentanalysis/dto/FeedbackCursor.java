@@ -0,0 +1,63 @@
+package com.example.sentimentanalysis.dto;
+
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import com.example.sentimentanalysis.model.Feedback;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the (created_at DESC, id DESC) ordering of the feedback table.
+ * Encoded as an opaque URL-safe string so clients never build cursors themselves.
+ *
+ * @param createdAt Creation timestamp of the last row already returned
+ * @param id        ID of the last row already returned (tie-breaker for equal timestamps)
+ */
+public record FeedbackCursor(LocalDateTime createdAt, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * Builds the cursor that points just past the given row.
+     *
+     * @param feedback The last row of the current page
+     * @return The cursor for the next page
+     */
+    public static FeedbackCursor after(Feedback feedback) {
+        return new FeedbackCursor(feedback.getCreatedAt(), feedback.getId());
+    }
+
+    /**
+     * Encodes this cursor for use in a response.
+     *
+     * @return The opaque cursor string
+     */
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     *
+     * @param encoded The opaque cursor string from the client
+     * @return The decoded cursor
+     * @throws InvalidRequestException if the cursor is malformed
+     */
+    public static FeedbackCursor decode(String encoded) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidRequestException("Invalid cursor: " + encoded);
+            }
+            return new FeedbackCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor: " + encoded, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.sentimentanalysis.dto;
+
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import org.springframework.http.MediaType;
+
+/**
+ * File formats supported by the bulk import and export endpoints.
+ */
+public enum FeedbackFileFormat {
+    /**
+     * One JSON object per line, e.g. {@code {"text": "...", "createdAt": "2024-01-31T12:00:00"}}.
+     */
+    NDJSON(MediaType.valueOf("application/x-ndjson"), "ndjson"),
+    /**
+     * Comma-separated values with a header row.
+     */
+    CSV(MediaType.valueOf("text/csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    FeedbackFileFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parses a format name such as "ndjson" or "csv", ignoring case.
+     *
+     * @param value The format name
+     * @return The matching format
+     * @throws InvalidRequestException if the name is not a supported format
+     */
+    public static FeedbackFileFormat parse(String value) {
+        for (FeedbackFileFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new InvalidRequestException("Unsupported format '" + value + "'; expected ndjson or csv");
+    }
+
+    /**
+     * Finds the format for a request content type.
+     *
+     * @param contentType The content type of a request body
+     * @return The matching format
+     * @throws InvalidRequestException if the content type is not a supported format
+     */
+    public static FeedbackFileFormat forMediaType(MediaType contentType) {
+        for (FeedbackFileFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) {
+                return format;
+            }
+        }
+        throw new InvalidRequestException("Unsupported content type '" + contentType + "'");
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.sentimentanalysis.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Server-side filter criteria for feedback listings.
+ * Every field is optional; a null field means "no restriction".
+ */
+@Data
+public class FeedbackFilter {
+
+    /**
+     * Only return feedback with this sentiment label ('positive', 'negative', 'neutral').
+     */
+    private String sentimentLabel;
+
+    /**
+     * Inclusive lower bound on the creation timestamp.
+     */
+    private LocalDateTime from;
+
+    /**
+     * Exclusive upper bound on the creation timestamp.
+     */
+    private LocalDateTime to;
+
+    /**
+     * Inclusive lower bound on the sentiment score.
+     */
+    private Double minScore;
+
+    /**
+     * Inclusive upper bound on the sentiment score.
+     */
+    private Double maxScore;
+
+    /**
+     * Returns a copy of this filter with a different lower bound on the creation timestamp.
+     *
+     * @param from The new inclusive lower bound
+     * @return The copy
+     */
+    public FeedbackFilter withFrom(LocalDateTime from) {
+        FeedbackFilter copy = new FeedbackFilter();
+        copy.setSentimentLabel(sentimentLabel);
+        copy.setFrom(from);
+        copy.setTo(to);
+        copy.setMinScore(minScore);
+        copy.setMaxScore(maxScore);
+        return copy;
+    }
+}
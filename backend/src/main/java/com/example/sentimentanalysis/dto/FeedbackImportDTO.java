@@ -0,0 +1,21 @@
+package com.example.sentimentanalysis.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * One record of a bulk feedback import.
+ * Carries the same validated text as {@link FeedbackDTO}, plus an optional original
+ * creation time so historical responses keep their place in the timeline.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class FeedbackImportDTO extends FeedbackDTO {
+
+    /**
+     * When the feedback was originally given. Defaults to the import time if absent.
+     */
+    private LocalDateTime createdAt;
+}
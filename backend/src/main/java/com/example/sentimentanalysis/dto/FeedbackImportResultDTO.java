@@ -0,0 +1,64 @@
+package com.example.sentimentanalysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk feedback import.
+ */
+@Data
+public class FeedbackImportResultDTO {
+
+    /**
+     * Number of records that were classified and stored.
+     */
+    private long accepted;
+
+    /**
+     * Number of records that were skipped because they could not be parsed or failed validation.
+     */
+    private long rejected;
+
+    /**
+     * Wall-clock time the import took, in milliseconds.
+     */
+    private long durationMs;
+
+    /**
+     * Accepted records per second over the whole import.
+     */
+    private double rowsPerSecond;
+
+    /**
+     * Why individual records were rejected. Only the first errors are listed; see {@link #errorsTruncated}.
+     */
+    private List<RecordError> errors = new ArrayList<>();
+
+    /**
+     * True if more records were rejected than are listed in {@link #errors}.
+     */
+    private boolean errorsTruncated;
+
+    /**
+     * A rejected record and the reason it was rejected.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RecordError {
+
+        /**
+         * Line of the input the record ends on (1-based, CSV header included).
+         */
+        private long line;
+
+        /**
+         * What was wrong with the record.
+         */
+        private String message;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.sentimentanalysis.dto;
+
+import com.example.sentimentanalysis.model.Feedback;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated feedback listing.
+ * Pass {@code nextCursor} back as the {@code cursor} request parameter to fetch the following page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedbackPageDTO {
+
+    /**
+     * The feedback entries on this page, newest first.
+     */
+    private List<Feedback> items;
+
+    /**
+     * Opaque cursor pointing just past the last item, or null if this is the last page.
+     */
+    private String nextCursor;
+
+    /**
+     * Whether more entries exist after this page.
+     */
+    private boolean hasMore;
+}
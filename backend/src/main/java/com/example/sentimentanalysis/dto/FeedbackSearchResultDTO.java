@@ -0,0 +1,53 @@
+package com.example.sentimentanalysis.dto;
+
+import com.example.sentimentanalysis.model.Feedback;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of full-text search results.
+ * Request the following page with {@code page + 1} while {@code hasMore} is true.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedbackSearchResultDTO {
+
+    /**
+     * The matching feedback entries on this page, in the requested order.
+     */
+    private List<Feedback> items;
+
+    /**
+     * Number of matching entries; a lower bound when {@code totalHitsExact} is false.
+     */
+    private long totalHits;
+
+    /**
+     * Whether {@code totalHits} is exact. Large result sets are only counted up to a threshold.
+     */
+    private boolean totalHitsExact;
+
+    /**
+     * The zero-based page number.
+     */
+    private int page;
+
+    /**
+     * The page size.
+     */
+    private int size;
+
+    /**
+     * Whether more entries exist after this page.
+     */
+    private boolean hasMore;
+
+    /**
+     * Time spent searching the index, in milliseconds.
+     */
+    private long tookMs;
+}
@@ -0,0 +1,77 @@
+package com.example.sentimentanalysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The most frequent terms in the feedback of one sentiment label over a time range.
+ * All figures are estimates from bounded-memory sketches, not counts over the raw rows.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeywordStatsDTO {
+
+    /**
+     * The sentiment label these figures are for.
+     */
+    private String sentimentLabel;
+
+    /**
+     * Start of the first window covered.
+     */
+    private LocalDateTime from;
+
+    /**
+     * End of the last window covered.
+     */
+    private LocalDateTime to;
+
+    /**
+     * Number of feedback entries counted.
+     */
+    private long feedbackCount;
+
+    /**
+     * Estimated number of distinct texts among them.
+     */
+    private long distinctTexts;
+
+    /**
+     * Estimated number of distinct terms used in them.
+     */
+    private long distinctTerms;
+
+    /**
+     * The most frequent terms, most frequent first.
+     */
+    private List<TermCount> topTerms;
+
+    /**
+     * A term and the number of entries that contain it.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TermCount {
+
+        /**
+         * The term, lower-cased.
+         */
+        private String term;
+
+        /**
+         * Estimated number of entries containing the term; never below the true number.
+         */
+        private long count;
+
+        /**
+         * Number of entries guaranteed to contain the term.
+         */
+        private long minCount;
+    }
+}
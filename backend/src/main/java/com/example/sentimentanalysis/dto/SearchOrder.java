@@ -0,0 +1,33 @@
+package com.example.sentimentanalysis.dto;
+
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+
+/**
+ * Orderings supported by the feedback full-text search.
+ */
+public enum SearchOrder {
+    /**
+     * Best matches first, newest first among equally good matches.
+     */
+    RELEVANCE,
+    /**
+     * Newest matches first.
+     */
+    NEWEST;
+
+    /**
+     * Parses an ordering name such as "relevance" or "newest", ignoring case.
+     *
+     * @param value The ordering name
+     * @return The matching ordering
+     * @throws InvalidRequestException if the name is not a supported ordering
+     */
+    public static SearchOrder parse(String value) {
+        for (SearchOrder order : values()) {
+            if (order.name().equalsIgnoreCase(value)) {
+                return order;
+            }
+        }
+        throw new InvalidRequestException("Unsupported sort '" + value + "'; expected relevance or newest");
+    }
+}
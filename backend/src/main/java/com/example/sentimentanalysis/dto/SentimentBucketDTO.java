@@ -0,0 +1,37 @@
+package com.example.sentimentanalysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Sentiment counts for one time bucket (an hour, a day, ...).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SentimentBucketDTO {
+
+    /**
+     * Start of the time range this bucket covers.
+     */
+    private LocalDateTime bucketStart;
+
+    /**
+     * Number of feedback entries per sentiment label.
+     */
+    private Map<String, Long> counts;
+
+    /**
+     * Total number of feedback entries in the bucket.
+     */
+    private long total;
+
+    /**
+     * Average sentiment score of the entries in the bucket, or null if the bucket is empty.
+     */
+    private Double averageScore;
+}
@@ -0,0 +1,56 @@
+package com.example.sentimentanalysis.dto;
+
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket sizes supported by the sentiment time series.
+ */
+public enum TimeBucket {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    TimeBucket(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Parses a bucket name such as "minute", "hour" or "day", ignoring case.
+     *
+     * @param value The bucket name
+     * @return The matching bucket size
+     * @throws InvalidRequestException if the name is not a supported bucket size
+     */
+    public static TimeBucket parse(String value) {
+        for (TimeBucket bucket : values()) {
+            if (bucket.name().equalsIgnoreCase(value)) {
+                return bucket;
+            }
+        }
+        throw new InvalidRequestException("Unsupported bucket '" + value + "'; expected minute, hour or day");
+    }
+
+    /**
+     * Truncates a timestamp to the start of the bucket containing it.
+     *
+     * @param time The timestamp
+     * @return The start of its bucket
+     */
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * Returns the start of the bucket following the one starting at the given time.
+     *
+     * @param bucketStart The start of a bucket
+     * @return The start of the next bucket
+     */
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.sentimentanalysis.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published periodically by {@link com.example.sentimentanalysis.service.ClusterEventService}
+ * when several instances share the database. Listeners that maintain derived data bring it in
+ * line with the tables, repairing changes of other instances whose events never arrived (e.g.
+ * because that instance crashed before recording them).
+ *
+ * @param since Rows created since this time may have changed without an event reaching this
+ *              instance; it covers the changes of an instance that crashed since the previous
+ *              resync
+ */
+public record ClusterResyncEvent(LocalDateTime since) {
+}
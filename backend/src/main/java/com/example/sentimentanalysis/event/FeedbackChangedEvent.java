@@ -0,0 +1,27 @@
+package com.example.sentimentanalysis.event;
+
+import com.example.sentimentanalysis.model.Feedback;
+
+/**
+ * Published after a feedback row has been inserted or its sentiment has changed.
+ * Listeners that maintain derived data (aggregates, indexes, caches) use the previous
+ * label and score to undo the row's old contribution.
+ *
+ * @param feedback      The feedback row as saved
+ * @param created       Whether the row was newly inserted
+ * @param previousLabel The sentiment label before this change, or null for new or unclassified rows
+ * @param previousScore The sentiment score before this change, or null for new or unclassified rows
+ * @param remote        Whether the change was made by another instance and relayed by
+ *                      {@link com.example.sentimentanalysis.service.ClusterEventService}; anything
+ *                      it persisted has already been written there
+ */
+public record FeedbackChangedEvent(Feedback feedback, boolean created, String previousLabel, Double previousScore,
+                                   boolean remote) {
+
+    /**
+     * A change made by this instance.
+     */
+    public FeedbackChangedEvent(Feedback feedback, boolean created, String previousLabel, Double previousScore) {
+        this(feedback, created, previousLabel, previousScore, false);
+    }
+}
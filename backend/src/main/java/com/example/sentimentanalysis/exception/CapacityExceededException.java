@@ -0,0 +1,17 @@
+package com.example.sentimentanalysis.exception;
+
+/**
+ * Thrown when a request cannot get a share of a limited resource, such as database
+ * connections, within its wait time; the server is too busy to handle it right now.
+ */
+public class CapacityExceededException extends RuntimeException {
+
+    /**
+     * Creates a new exception with the specified message.
+     *
+     * @param message The error message
+     */
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.sentimentanalysis.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -37,6 +41,36 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
     
+    /**
+     * Handles validation exceptions thrown by the reactive controllers,
+     * with the same response body as {@link #handleValidationExceptions}.
+     *
+     * @param ex The validation exception that was thrown
+     * @return A ResponseEntity containing validation error details and HTTP 400 Bad Request status
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Object> handleWebExchangeBindException(WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles malformed request parameters, such as an invalid pagination cursor
+     * or a date that is not ISO-8601. Other IllegalArgumentExceptions are programming
+     * errors and fall through to the generic handler.
+     * 
+     * @param ex The exception describing the bad parameter
+     * @return ResponseEntity with the error message and HTTP 400 status
+     */
+    @ExceptionHandler({InvalidRequestException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<Object> handleBadRequestParameter(Exception ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        error.put("error", "Bad Request");
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+    
     /**
      * Handles SentimentAnalysisException.
      * 
@@ -65,6 +99,67 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
     }
     
+    /**
+     * Handles IdempotencyConflictException, thrown when an idempotency key is reused for a
+     * different request or while its request is still in progress.
+     *
+     * @param ex The exception describing the conflict
+     * @return ResponseEntity with the error message and HTTP 409 status
+     */
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Object> handleIdempotencyConflictException(IdempotencyConflictException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        error.put("error", "Conflict");
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles TooManyRequestsException, thrown when a request is shed by rate limiting or
+     * admission control.
+     *
+     * @param ex The exception with the suggested retry delay
+     * @return ResponseEntity with the error message, a Retry-After header and HTTP 429 status
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Object> handleTooManyRequestsException(TooManyRequestsException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        error.put("error", "Too Many Requests");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(error);
+    }
+
+    /**
+     * Handles CapacityExceededException, thrown when the server is saturated.
+     *
+     * @param ex The exception naming the exhausted resource
+     * @return ResponseEntity with the error message and HTTP 503 status
+     */
+    @ExceptionHandler(CapacityExceededException.class)
+    public ResponseEntity<Object> handleCapacityExceededException(CapacityExceededException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getMessage());
+        error.put("error", "Service Busy");
+        return new ResponseEntity<>(error, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Handles exceptions that already carry an HTTP status, such as the WebFlux errors
+     * for a malformed request parameter or an unsupported content type.
+     *
+     * @param ex The exception with its status
+     * @return ResponseEntity with the error message and the exception's status
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Object> handleResponseStatusException(ResponseStatusException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put("message", ex.getReason());
+        error.put("error", HttpStatus.valueOf(ex.getStatusCode().value()).getReasonPhrase());
+        return new ResponseEntity<>(error, ex.getStatusCode());
+    }
+
     /**
      * Fallback handler for any unhandled exceptions.
      * This provides a generic error response for unexpected errors.
@@ -0,0 +1,17 @@
+package com.example.sentimentanalysis.exception;
+
+/**
+ * Thrown when a submission reuses an idempotency key that belongs to a different request,
+ * or whose original request is still being processed.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    /**
+     * Creates a new exception with the specified message.
+     *
+     * @param message The error message
+     */
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
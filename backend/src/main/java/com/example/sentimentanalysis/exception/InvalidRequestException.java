@@ -0,0 +1,28 @@
+package com.example.sentimentanalysis.exception;
+
+/**
+ * Thrown when a request is malformed or asks for something the API does not offer, such as
+ * an invalid cursor or an unsupported bucket size. Answered with 400, unlike an
+ * {@link IllegalArgumentException} from a programming error, which is a server error.
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    /**
+     * Creates a new exception with the specified message.
+     *
+     * @param message The error message
+     */
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    /**
+     * Creates a new exception with the specified message and cause.
+     *
+     * @param message The error message
+     * @param cause The cause of the exception
+     */
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.sentimentanalysis.exception;
+
+/**
+ * Thrown when a request is shed before any work is done for it: its client is over its
+ * rate limit, or a stage it needs is at its adaptive concurrency limit. The client should
+ * retry after the given delay.
+ */
+public class TooManyRequestsException extends CapacityExceededException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Creates a new exception with the specified message.
+     *
+     * @param message           The error message
+     * @param retryAfterSeconds How long the client should wait before retrying
+     */
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return How long the client should wait before retrying, in seconds
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
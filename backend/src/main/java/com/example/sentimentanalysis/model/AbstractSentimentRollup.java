@@ -0,0 +1,59 @@
+package com.example.sentimentanalysis.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Id;
+import jakarta.persistence.MappedSuperclass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Common columns of the pre-aggregated sentiment rollup tables.
+ * Each concrete rollup entity covers one bucket size and maps to its own table.
+ */
+@MappedSuperclass
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public abstract class AbstractSentimentRollup {
+
+    /**
+     * Start of the time range this bucket covers.
+     */
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    /**
+     * Sentiment label counted by this bucket, or "unclassified" for rows without one.
+     */
+    @Id
+    @Column(name = "sentiment_label", length = 16)
+    private String sentimentLabel;
+
+    /**
+     * Number of feedback rows in this bucket.
+     */
+    @Column(name = "feedback_count", nullable = false)
+    private long feedbackCount;
+
+    /**
+     * Sum of the sentiment scores of the rows in this bucket, for computing averages.
+     */
+    @Column(name = "score_sum", nullable = false)
+    private double scoreSum;
+
+    /**
+     * Composite primary key of a rollup bucket.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDateTime bucketStart;
+        private String sentimentLabel;
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.sentimentanalysis.model;
 
 import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.time.LocalDateTime;
 
 /**
  * Entity class representing feedback data.
- * Maps to the 'feedback' table in the database.
+ * Maps to the 'feedback' table in the database. The schema is managed by the Flyway
+ * migrations in db/migration; on MySQL the table is partitioned by month of created_at,
+ * and months older than the hot window are moved to 'feedback_archive'.
+ * The text itself is stored once per distinct text in 'feedback_text' (see {@link FeedbackText})
+ * and referenced by text_hash; rows read through JPA load it with the row.
  * 
  * Lombok annotations:
  * - @Data: Generates getters, setters, equals, hashCode, and toString methods
@@ -16,7 +23,14 @@ import java.time.LocalDateTime;
  * - @AllArgsConstructor: Generates a constructor with a parameter for each field
  */
 @Entity
-@Table(name = "feedback")
+@Table(name = "feedback", indexes = {
+        // Keyset pagination walks (created_at, id) backwards; the label-prefixed
+        // variant serves the same walk when the listing is filtered by sentiment.
+        @Index(name = "idx_feedback_created_id", columnList = "created_at, id"),
+        @Index(name = "idx_feedback_label_created_id", columnList = "sentiment_label, created_at, id"),
+        // Lets the ingestion recovery sweep find PENDING rows without scanning classified ones
+        @Index(name = "idx_feedback_status_id", columnList = "sentiment_status, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,9 +47,30 @@ public class Feedback {
     /**
      * The feedback text content.
      * Cannot be null and has a maximum length of 1000 characters.
+     * Not a column: new entries carry it until their text is stored, loaded ones read it
+     * from {@link #storedText}.
      */
-    @Column(nullable = false, length = 1000)
+    @Transient
     private String text;
+
+    /**
+     * Key of the text in 'feedback_text'.
+     */
+    @JsonIgnore
+    @Column(name = "text_hash", nullable = false, length = 32)
+    private String textHash;
+
+    /**
+     * The stored text. Read-only; written by FeedbackTextRepository before the row.
+     * There is no foreign key, since partitioned MySQL tables cannot have one.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne(fetch = FetchType.EAGER, optional = false)
+    @JoinColumn(name = "text_hash", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private FeedbackText storedText;
     
     /**
      * The sentiment label determined by the ML model.
@@ -52,11 +87,37 @@ public class Feedback {
     private Double sentimentScore;
     
     /**
-     * Timestamp when the feedback was created.
+     * Whether sentiment analysis has run for this feedback yet.
+     * Rows accepted through asynchronous ingestion start out as PENDING.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "sentiment_status", length = 16)
+    private SentimentStatus sentimentStatus;
+
+    /**
+     * Version of the model that produced the sentiment, as reported with the result
+     * (e.g. the ML service's model name, or "lexicon" for the local fallback).
+     * Null for unclassified rows and rows classified before versions were recorded.
+     */
+    @Column(name = "model_version", length = 100)
+    private String modelVersion;
+    
+    /**
+     * Timestamp when the feedback was created. Also the partitioning key.
      */
-    @Column(name = "created_at")
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     
+    /**
+     * @return The text, decoded from the stored text on first access for loaded entries
+     */
+    public String getText() {
+        if (text == null && storedText != null) {
+            text = storedText.getText();
+        }
+        return text;
+    }
+
     /**
      * JPA lifecycle callback that automatically sets the creation timestamp
      * before the entity is persisted to the database.
@@ -0,0 +1,170 @@
+package com.example.sentimentanalysis.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Entity class representing one distinct feedback text.
+ * Maps to the 'feedback_text' table in the database.
+ *
+ * Texts are content-addressed: the key is the hex-encoded first 128 bits of the SHA-256 of
+ * the exact UTF-8 text, so a text submitted many times is stored once and every feedback row
+ * references it by {@code text_hash}. Texts of at least {@code feedback.text.compress-min-bytes}
+ * bytes are stored deflated when that makes them smaller.
+ *
+ * The row also keeps the last model result for the text, so an exact duplicate submitted
+ * while that model version is current is classified without calling the ML service.
+ *
+ * Rows are written with JDBC upserts ({@code FeedbackTextRepository}); Hibernate only reads them.
+ */
+@Entity
+@Immutable
+@Table(name = "feedback_text")
+@Data
+@NoArgsConstructor
+public class FeedbackText {
+
+    @Id
+    @Column(length = 32)
+    private String hash;
+
+    /**
+     * UTF-8 bytes of the text, deflated (raw, without zlib header) if {@code compressed}.
+     */
+    @Column(nullable = false, length = 4000)
+    private byte[] content;
+
+    @Column(nullable = false)
+    private boolean compressed;
+
+    /**
+     * Length of the text in characters.
+     */
+    @Column(name = "text_length", nullable = false)
+    private int textLength;
+
+    /**
+     * Last model result recorded for the text; null until a real model result is stored.
+     */
+    @Column(name = "result_label")
+    private String resultLabel;
+
+    @Column(name = "result_score")
+    private Double resultScore;
+
+    @Column(name = "result_model_version", length = 100)
+    private String resultModelVersion;
+
+    /**
+     * Encodes a text for storage.
+     *
+     * @param text             The exact feedback text
+     * @param compressMinBytes Texts with at least this many UTF-8 bytes are deflated if that saves space
+     * @return A new, unsaved row for the text, without a result
+     */
+    public static FeedbackText of(String text, int compressMinBytes) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        FeedbackText stored = new FeedbackText();
+        stored.setHash(hashOf(bytes));
+        stored.setTextLength(text.length());
+        stored.setContent(bytes);
+        if (bytes.length >= compressMinBytes) {
+            byte[] deflated = deflate(bytes);
+            if (deflated.length < bytes.length) {
+                stored.setContent(deflated);
+                stored.setCompressed(true);
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Computes the key of a text.
+     *
+     * @param text The exact feedback text
+     * @return Hex-encoded first 128 bits of the SHA-256 of its UTF-8 bytes
+     */
+    public static String hashOf(String text) {
+        return hashOf(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hashOf(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @return The decoded text
+     */
+    public String getText() {
+        return decode(content, compressed);
+    }
+
+    /**
+     * Decodes stored text content, for callers reading 'feedback_text' without Hibernate.
+     *
+     * @param content    The stored bytes
+     * @param compressed Whether the bytes are deflated
+     * @return The text
+     */
+    public static String decode(byte[] content, boolean compressed) {
+        if (content == null) {
+            return null;
+        }
+        return new String(compressed ? inflate(content) : content, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            // Output longer than the input is discarded anyway
+            byte[] buffer = new byte[bytes.length];
+            int length = 0;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return deflater.finished() ? Arrays.copyOf(buffer, length) : bytes;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed feedback text");
+                }
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed feedback text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
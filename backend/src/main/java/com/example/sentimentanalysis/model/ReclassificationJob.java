@@ -0,0 +1,81 @@
+package com.example.sentimentanalysis.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity class representing a run of the re-classification job and its checkpoint.
+ * Maps to the 'reclassification_job' table in the database.
+ *
+ * The job walks the feedback table in ID order, so {@code lastId} is all it needs to resume.
+ */
+@Entity
+@Table(name = "reclassification_job")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReclassificationJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Model version rows are re-scored to; rows already at this version are skipped.
+     */
+    @Column(name = "target_version", nullable = false, length = 100)
+    private String targetVersion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ReclassificationStatus status;
+
+    /**
+     * Checkpoint: every row with an ID up to this one has been visited.
+     */
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    /**
+     * Number of rows that needed re-scoring when the job was created.
+     */
+    @Column(name = "total_rows", nullable = false)
+    private long totalRows;
+
+    /**
+     * Rows visited so far, including failed ones.
+     */
+    @Column(name = "processed_rows", nullable = false)
+    private long processedRows;
+
+    /**
+     * Rows whose sentiment label changed.
+     */
+    @Column(name = "changed_rows", nullable = false)
+    private long changedRows;
+
+    /**
+     * Rows the ML service could not score; they keep their old version and are retried by the next job.
+     */
+    @Column(name = "failed_rows", nullable = false)
+    private long failedRows;
+
+    /**
+     * Why the job failed or was paused by the service, if it was.
+     */
+    @Column(length = 500)
+    private String message;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,27 @@
+package com.example.sentimentanalysis.model;
+
+/**
+ * Lifecycle of a {@link ReclassificationJob}.
+ */
+public enum ReclassificationStatus {
+
+    /**
+     * The job is re-scoring rows, or was interrupted by a restart and resumes on the next start.
+     */
+    RUNNING,
+
+    /**
+     * The job was paused on request and can be resumed from its checkpoint.
+     */
+    PAUSED,
+
+    /**
+     * Every row has been visited.
+     */
+    COMPLETED,
+
+    /**
+     * The job stopped because of an error, e.g. the ML service switched models mid-run.
+     */
+    FAILED
+}
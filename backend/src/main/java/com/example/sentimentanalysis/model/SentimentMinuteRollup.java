@@ -0,0 +1,20 @@
+package com.example.sentimentanalysis.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity class representing pre-aggregated sentiment counts for one minute and one label.
+ * Maps to the 'sentiment_rollup_minute' table. Minute buckets are only kept for a limited
+ * retention window; older ones are compacted away, leaving the hourly rollups.
+ */
+@Entity
+@Table(name = "sentiment_rollup_minute")
+@IdClass(AbstractSentimentRollup.Key.class)
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class SentimentMinuteRollup extends AbstractSentimentRollup {
+}
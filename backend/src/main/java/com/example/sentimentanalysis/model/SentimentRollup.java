@@ -0,0 +1,20 @@
+package com.example.sentimentanalysis.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity class representing pre-aggregated sentiment counts for one hour and one label.
+ * Maps to the 'sentiment_rollup_hourly' table, which is maintained incrementally as
+ * feedback is saved, kept for the full history, and can be rebuilt from the 'feedback' table.
+ */
+@Entity
+@Table(name = "sentiment_rollup_hourly")
+@IdClass(AbstractSentimentRollup.Key.class)
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class SentimentRollup extends AbstractSentimentRollup {
+}
@@ -0,0 +1,17 @@
+package com.example.sentimentanalysis.model;
+
+/**
+ * Lifecycle of the sentiment data attached to a {@link Feedback} row.
+ */
+public enum SentimentStatus {
+
+    /**
+     * The row has been accepted but not yet classified.
+     */
+    PENDING,
+
+    /**
+     * The sentiment label and score have been set.
+     */
+    CLASSIFIED
+}
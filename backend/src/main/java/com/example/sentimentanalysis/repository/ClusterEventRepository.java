@@ -0,0 +1,168 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.model.Feedback;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to 'cluster_event', the changes each instance made to feedback rows, in the
+ * order they were recorded.
+ */
+@Repository
+public class ClusterEventRepository {
+
+    /**
+     * A recorded change.
+     *
+     * @param seq           Position in the table
+     * @param nodeId        The instance that made the change
+     * @param feedbackId    The changed row
+     * @param created       Whether the row was inserted
+     * @param label         The row's sentiment label after the change
+     * @param score         The row's sentiment score after the change
+     * @param previousLabel The label before the change
+     * @param previousScore The score before the change
+     */
+    public record ClusterEvent(long seq, String nodeId, long feedbackId, boolean created, String label, Double score,
+                               String previousLabel, Double previousScore) {
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO cluster_event (node_id, feedback_id, created, "
+            + "sentiment_label, sentiment_score, previous_label, previous_score, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_SQL = "SELECT seq, node_id, feedback_id, created, sentiment_label, "
+            + "sentiment_score, previous_label, previous_score FROM cluster_event";
+
+    private static final RowMapper<ClusterEvent> EVENT_MAPPER = (rs, rowNum) -> new ClusterEvent(rs.getLong(1),
+            rs.getString(2), rs.getLong(3), rs.getBoolean(4), rs.getString(5), rs.getObject(6, Double.class),
+            rs.getString(7), rs.getObject(8, Double.class));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    public ClusterEventRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Records changes made by this instance with one JDBC batch.
+     *
+     * @param nodeId This instance
+     * @param events The changes, in the order they were made
+     */
+    public void insertAll(String nodeId, List<FeedbackChangedEvent> events) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                FeedbackChangedEvent event = events.get(i);
+                Feedback feedback = event.feedback();
+                ps.setString(1, nodeId);
+                ps.setLong(2, feedback.getId());
+                ps.setBoolean(3, event.created());
+                ps.setString(4, feedback.getSentimentLabel());
+                setDouble(ps, 5, feedback.getSentimentScore());
+                ps.setString(6, event.previousLabel());
+                setDouble(ps, 7, event.previousScore());
+                ps.setTimestamp(8, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+
+    /**
+     * @param afterSeq Only return changes recorded after this position
+     * @param limit    Maximum number of changes to return
+     * @return Changes by every instance, in order
+     */
+    public List<ClusterEvent> findAfter(long afterSeq, int limit) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE seq > ? ORDER BY seq LIMIT ?", EVENT_MAPPER, afterSeq, limit);
+    }
+
+    /**
+     * @param ranges Inclusive ranges of positions, as {from, to} pairs
+     * @return Changes by every instance within the ranges, in order
+     */
+    public List<ClusterEvent> findInRanges(List<long[]> ranges) {
+        if (ranges.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder sql = new StringBuilder(SELECT_SQL).append(" WHERE ");
+        Object[] args = new Object[ranges.size() * 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            sql.append(i > 0 ? " OR " : "").append("seq BETWEEN ? AND ?");
+            args[2 * i] = ranges.get(i)[0];
+            args[2 * i + 1] = ranges.get(i)[1];
+        }
+        return jdbcTemplate.query(sql.append(" ORDER BY seq").toString(), EVENT_MAPPER, args);
+    }
+
+    /**
+     * @return The position of the newest recorded change, or 0 if there is none
+     */
+    public long findLastSeq() {
+        Long seq = jdbcTemplate.queryForObject("SELECT MAX(seq) FROM cluster_event", Long.class);
+        return seq == null ? 0 : seq;
+    }
+
+    /**
+     * Reads the current state of feedback rows in the hot table.
+     *
+     * @param ids Row IDs
+     * @return The rows found, by ID
+     */
+    public Map<Long, Feedback> findFeedback(Collection<Long> ids) {
+        Map<Long, Feedback> rows = new HashMap<>();
+        if (ids.isEmpty()) {
+            return rows;
+        }
+        namedJdbcTemplate.query("SELECT " + FeedbackArchiveRepository.COLUMNS
+                        + FeedbackArchiveRepository.fromWithText("feedback") + " WHERE f.id IN (:ids)",
+                Map.of("ids", ids),
+                rs -> {
+                    Feedback feedback = FeedbackArchiveRepository.mapRow(rs);
+                    rows.put(feedback.getId(), feedback);
+                });
+        return rows;
+    }
+
+    /**
+     * Deletes changes recorded before the given time.
+     *
+     * @param before Cutoff time
+     * @return The number of changes deleted
+     */
+    public int purge(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM cluster_event WHERE created_at < ?", before);
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value != null) {
+            ps.setDouble(index, value);
+        } else {
+            ps.setNull(index, Types.DOUBLE);
+        }
+    }
+}
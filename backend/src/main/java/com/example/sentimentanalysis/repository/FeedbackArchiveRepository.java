@@ -0,0 +1,228 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.dto.FeedbackCursor;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.FeedbackText;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * JDBC access to 'feedback_archive', the cold tier of the feedback table.
+ *
+ * Whole months are moved here once they leave the hot window of the partitioned 'feedback'
+ * table. Archived rows are never updated, so the table is compressed and carries only the
+ * primary key and the (created_at, id) index. Reads that can reach old data (lookups by ID,
+ * listings paged past the hot rows, exports and rebuilds) continue here.
+ *
+ * The table is created by the V4 migration. When it is missing (e.g. a database whose schema
+ * is not managed by Flyway), {@link #isAvailable()} is false and callers skip the archive.
+ */
+@Repository
+@DependsOnDatabaseInitialization
+public class FeedbackArchiveRepository {
+
+    private static final Logger logger = Logger.getLogger(FeedbackArchiveRepository.class.getName());
+
+    /**
+     * Name of the archive table.
+     */
+    public static final String TABLE = "feedback_archive";
+
+    /**
+     * Columns of a feedback row and its stored text, in the order {@link #mapRow} reads them.
+     * Select them {@link #fromWithText from} either table.
+     */
+    public static final String COLUMNS = "f.id, t.content, f.sentiment_label, f.sentiment_score, "
+            + "f.sentiment_status, f.model_version, f.created_at, t.compressed";
+
+    /**
+     * Columns stored in both the hot and the archive table.
+     */
+    public static final String STORED_COLUMNS =
+            "id, text_hash, sentiment_label, sentiment_score, sentiment_status, model_version, created_at";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("p\\d{6}");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean available;
+
+    @Autowired
+    public FeedbackArchiveRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.available = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, TABLE, new String[]{"TABLE"})) {
+                return tables.next();
+            }
+        }));
+        if (!available) {
+            logger.info("Table " + TABLE + " does not exist; reads are served from the feedback table only");
+        }
+    }
+
+    /**
+     * FROM clause joining a feedback table (aliased f) with its stored texts (aliased t).
+     * Feedback columns can still be referenced unqualified in WHERE and ORDER BY.
+     *
+     * @param table 'feedback' or {@link #TABLE}
+     * @return The clause, with a leading space
+     */
+    public static String fromWithText(String table) {
+        return " FROM " + table + " f JOIN feedback_text t ON t.hash = f.text_hash";
+    }
+
+    /**
+     * @return Whether the archive table exists
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Finds an archived row by ID.
+     *
+     * @param id The ID to look up
+     * @return The row, or empty if it is not archived (or there is no archive)
+     */
+    public Optional<Feedback> findById(long id) {
+        if (!available) {
+            return Optional.empty();
+        }
+        List<Feedback> rows = jdbcTemplate.query("SELECT " + COLUMNS + fromWithText(TABLE) + " WHERE id = ?",
+                (rs, rowNum) -> mapRow(rs), id);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Reads archived rows in (created_at DESC, id DESC) order, starting just past the cursor.
+     * Mirrors {@link FeedbackSpecifications#matching}.
+     *
+     * @param filter Which rows to return; null fields are ignored
+     * @param cursor Position of the last row already returned, or null to start at the newest
+     * @param limit  Maximum number of rows
+     * @return The rows, newest first; empty if there is no archive
+     */
+    public List<Feedback> findPage(FeedbackFilter filter, FeedbackCursor cursor, int limit) {
+        if (!available || limit <= 0) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + fromWithText(TABLE) + " WHERE 1 = 1");
+        appendFilter(sql, args, filter);
+        if (cursor != null) {
+            Timestamp createdAt = Timestamp.valueOf(cursor.createdAt());
+            sql.append(" AND created_at <= ? AND (created_at < ? OR (created_at = ? AND id < ?))");
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(cursor.id());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapRow(rs), args.toArray());
+    }
+
+    /**
+     * Copies every row of one monthly partition of the feedback table into the archive, in
+     * chunks of ascending IDs. Rows already archived are overwritten, so an interrupted copy
+     * can simply be repeated.
+     *
+     * @param partition Name of the partition, e.g. p202401
+     * @param chunkSize Rows copied per statement
+     * @return The number of rows copied
+     */
+    public long copyPartition(String partition, int chunkSize) {
+        if (!PARTITION_NAME.matcher(partition).matches()) {
+            throw new IllegalArgumentException("Not a monthly feedback partition: " + partition);
+        }
+        String source = "feedback PARTITION (" + partition + ")";
+        String chunkSql = "SELECT MAX(id), COUNT(*) FROM (SELECT id FROM " + source
+                + " WHERE id > ? ORDER BY id LIMIT ?) chunk";
+        String copySql = "REPLACE INTO " + TABLE + " (" + STORED_COLUMNS + ") SELECT " + STORED_COLUMNS + " FROM " + source
+                + " WHERE id > ? AND id <= ?";
+
+        long copied = 0;
+        long afterId = 0;
+        while (true) {
+            long[] chunk = jdbcTemplate.queryForObject(chunkSql,
+                    (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}, afterId, chunkSize);
+            if (chunk == null || chunk[1] == 0) {
+                return copied;
+            }
+            jdbcTemplate.update(copySql, afterId, chunk[0]);
+            copied += chunk[1];
+            afterId = chunk[0];
+        }
+    }
+
+    private static void appendFilter(StringBuilder sql, List<Object> args, FeedbackFilter filter) {
+        if (filter.getSentimentLabel() != null) {
+            sql.append(" AND sentiment_label = ?");
+            args.add(filter.getSentimentLabel());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.valueOf(filter.getTo()));
+        }
+        if (filter.getMinScore() != null) {
+            sql.append(" AND sentiment_score >= ?");
+            args.add(filter.getMinScore());
+        }
+        if (filter.getMaxScore() != null) {
+            sql.append(" AND sentiment_score <= ?");
+            args.add(filter.getMaxScore());
+        }
+    }
+
+    /**
+     * Reads the text of a row selected with {@link #COLUMNS}.
+     *
+     * @param rs The result set, positioned on a row
+     * @return The decoded text
+     * @throws SQLException if a column cannot be read
+     */
+    public static String readText(ResultSet rs) throws SQLException {
+        return FeedbackText.decode(rs.getBytes(2), rs.getBoolean(8));
+    }
+
+    /**
+     * Maps a row selected with {@link #COLUMNS}, from either table.
+     *
+     * @param rs The result set, positioned on a row
+     * @return The row as an entity
+     * @throws SQLException if a column cannot be read
+     */
+    public static Feedback mapRow(ResultSet rs) throws SQLException {
+        Feedback feedback = new Feedback();
+        feedback.setId(rs.getLong(1));
+        feedback.setText(readText(rs));
+        feedback.setSentimentLabel(rs.getString(3));
+        double score = rs.getDouble(4);
+        feedback.setSentimentScore(rs.wasNull() ? null : score);
+        String status = rs.getString(5);
+        feedback.setSentimentStatus(status == null ? null : SentimentStatus.valueOf(status));
+        feedback.setModelVersion(rs.getString(6));
+        Timestamp createdAt = rs.getTimestamp(7);
+        feedback.setCreatedAt(createdAt == null ? null : createdAt.toLocalDateTime());
+        return feedback;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.model.Feedback;
+
+import java.util.List;
+
+/**
+ * Bulk write operations for {@link Feedback} that bypass the JPA persistence context.
+ */
+public interface FeedbackBatchRepository {
+
+    /**
+     * Inserts all entries with a single JDBC batch and sets their generated IDs.
+     * Entries keep their own createdAt; a missing createdAt is set to now.
+     *
+     * @param feedback New entries without an ID, whose texts were stored with
+     *                 {@link FeedbackTextRepository#storeAll} (which sets their textHash)
+     */
+    void insertAll(List<Feedback> feedback);
+
+    /**
+     * Writes new sentiment results for existing rows with a single JDBC batch. A row is only
+     * written if it is not already at the entry's model version, so a row re-classified
+     * concurrently by the same model is left alone.
+     *
+     * @param feedback Entries with an ID and their new label, score, status and model version
+     * @return For each entry, whether its row was written
+     */
+    boolean[] updateSentiment(List<Feedback> feedback);
+}
@@ -0,0 +1,118 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.model.Feedback;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link FeedbackBatchRepository}.
+ *
+ * Hibernate cannot batch inserts of IDENTITY entities, so bulk loads go through a plain
+ * JDBC batch instead. With MySQL's rewriteBatchedStatements the batch is sent as
+ * multi-row INSERT statements.
+ */
+public class FeedbackBatchRepositoryImpl implements FeedbackBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO feedback "
+            + "(text_hash, sentiment_label, sentiment_score, sentiment_status, model_version, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SENTIMENT_SQL = "UPDATE feedback "
+            + "SET sentiment_label = ?, sentiment_score = ?, sentiment_status = ?, model_version = ? "
+            + "WHERE id = ? AND (model_version IS NULL OR model_version <> ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FeedbackBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void insertAll(List<Feedback> feedback) {
+        if (feedback.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Feedback entry = feedback.get(i);
+                        if (entry.getCreatedAt() == null) {
+                            entry.setCreatedAt(now);
+                        }
+                        ps.setString(1, entry.getTextHash());
+                        ps.setString(2, entry.getSentimentLabel());
+                        if (entry.getSentimentScore() != null) {
+                            ps.setDouble(3, entry.getSentimentScore());
+                        } else {
+                            ps.setNull(3, Types.DOUBLE);
+                        }
+                        ps.setString(4, entry.getSentimentStatus() == null ? null : entry.getSentimentStatus().name());
+                        ps.setString(5, entry.getModelVersion());
+                        ps.setTimestamp(6, Timestamp.valueOf(entry.getCreatedAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return feedback.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < feedback.size() && i < keys.size(); i++) {
+            Object id = keys.get(i).values().iterator().next();
+            feedback.get(i).setId(((Number) id).longValue());
+        }
+    }
+
+    @Override
+    public boolean[] updateSentiment(List<Feedback> feedback) {
+        boolean[] updated = new boolean[feedback.size()];
+        if (feedback.isEmpty()) {
+            return updated;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SENTIMENT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Feedback entry = feedback.get(i);
+                ps.setString(1, entry.getSentimentLabel());
+                if (entry.getSentimentScore() != null) {
+                    ps.setDouble(2, entry.getSentimentScore());
+                } else {
+                    ps.setNull(2, Types.DOUBLE);
+                }
+                ps.setString(3, entry.getSentimentStatus() == null ? null : entry.getSentimentStatus().name());
+                ps.setString(4, entry.getModelVersion());
+                ps.setLong(5, entry.getId());
+                ps.setString(6, entry.getModelVersion());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return feedback.size();
+            }
+        });
+        for (int i = 0; i < counts.length && i < updated.length; i++) {
+            // Drivers that rewrite the batch may only report that it succeeded
+            updated[i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+        }
+        return updated;
+    }
+}
@@ -1,29 +1,76 @@
 package com.example.sentimentanalysis.repository;
 
 import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * Repository interface for Feedback entities.
- * Extends JpaRepository to inherit common CRUD operations.
+ * Extends JpaRepository to inherit common CRUD operations, and JpaSpecificationExecutor
+ * so listings can be built from {@link FeedbackSpecifications}. Bulk inserts come from
+ * {@link FeedbackBatchRepository}. Queries returning entities fetch their stored text in the
+ * same statement instead of one extra select per row.
  */
 @Repository
-public interface FeedbackRepository extends JpaRepository<Feedback, Long> {
+public interface FeedbackRepository
+        extends JpaRepository<Feedback, Long>, JpaSpecificationExecutor<Feedback>, FeedbackBatchRepository {
     
     /**
-     * Finds all feedback entries ordered by creation date in descending order.
-     * This means the most recent feedback will be returned first.
-     * @return List of Feedback entities ordered by createdAt in descending order
+     * Finds feedback entries in the given sentiment state with an ID greater than the given one,
+     * in ID order. Used to walk PENDING rows in chunks.
+     * @param status The sentiment status to match
+     * @param afterId Only return entries with an ID greater than this
+     * @param limit Maximum number of entries to return
+     * @return Matching Feedback entities ordered by ID
      */
-    List<Feedback> findAllByOrderByCreatedAtDesc();
-    
+    @EntityGraph(attributePaths = "storedText")
+    List<Feedback> findBySentimentStatusAndIdGreaterThanOrderByIdAsc(SentimentStatus status, Long afterId, Limit limit);
+
+    /**
+     * Like {@link #findBySentimentStatusAndIdGreaterThanOrderByIdAsc}, but only returns entries
+     * created before the given time.
+     * @param status The sentiment status to match
+     * @param afterId Only return entries with an ID greater than this
+     * @param createdBefore Only return entries created before this time
+     * @param limit Maximum number of entries to return
+     * @return Matching Feedback entities ordered by ID
+     */
+    @EntityGraph(attributePaths = "storedText")
+    List<Feedback> findBySentimentStatusAndIdGreaterThanAndCreatedAtBeforeOrderByIdAsc(
+            SentimentStatus status, Long afterId, LocalDateTime createdBefore, Limit limit);
+
+    /**
+     * Finds classified feedback entries that were not scored by the given model version
+     * (including entries without a recorded version), in ID order. PENDING rows are left
+     * to the ingestion pipeline.
+     * @param afterId Only return entries with an ID greater than this
+     * @param version The current model version
+     * @param limit Maximum number of entries to return
+     * @return Matching Feedback entities ordered by ID
+     */
+    @Query("SELECT f FROM Feedback f JOIN FETCH f.storedText WHERE f.id > :afterId "
+            + "AND (f.modelVersion IS NULL OR f.modelVersion <> :version) "
+            + "AND (f.sentimentStatus IS NULL OR f.sentimentStatus <> SentimentStatus.PENDING) "
+            + "ORDER BY f.id")
+    List<Feedback> findOutdated(@Param("afterId") long afterId, @Param("version") String version, Limit limit);
+
     /**
-     * Counts the number of feedback entries with a specific sentiment label.
-     * @param label The sentiment label to count ('positive', 'negative','neutral')
-     * @return The count of feedback entries with the given sentiment label
+     * Counts the entries {@link #findOutdated} would return without a limit.
+     * @param afterId Only count entries with an ID greater than this
+     * @param version The current model version
+     * @return The number of matching entries
      */
-    int countBySentimentLabel(String label);
+    @Query("SELECT COUNT(f) FROM Feedback f WHERE f.id > :afterId "
+            + "AND (f.modelVersion IS NULL OR f.modelVersion <> :version) "
+            + "AND (f.sentimentStatus IS NULL OR f.sentimentStatus <> SentimentStatus.PENDING)")
+    long countOutdated(@Param("afterId") long afterId, @Param("version") String version);
 }
\ No newline at end of file
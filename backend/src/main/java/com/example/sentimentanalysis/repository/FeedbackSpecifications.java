@@ -0,0 +1,69 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.dto.FeedbackCursor;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.model.Feedback;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JPA specifications used to build filtered, keyset-paginated feedback queries.
+ */
+public final class FeedbackSpecifications {
+
+    private FeedbackSpecifications() {
+    }
+
+    /**
+     * Builds the WHERE clause for one page of a feedback listing.
+     * The label and date predicates line up with the (sentiment_label, created_at, id)
+     * and (created_at, id) indexes; the score range is applied to rows read from that
+     * index range, so it never widens the scan. The stored text is fetched in the same query.
+     *
+     * @param filter The optional filter criteria
+     * @param cursor The position after which to continue, or null for the first page
+     * @return A specification matching the requested page
+     */
+    public static Specification<Feedback> matching(FeedbackFilter filter, FeedbackCursor cursor) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (query != null && query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("storedText", JoinType.INNER);
+            }
+
+            if (filter.getSentimentLabel() != null) {
+                predicates.add(cb.equal(root.get("sentimentLabel"), filter.getSentimentLabel()));
+            }
+            if (filter.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.getFrom()));
+            }
+            if (filter.getTo() != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), filter.getTo()));
+            }
+            if (filter.getMinScore() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("sentimentScore"), filter.getMinScore()));
+            }
+            if (filter.getMaxScore() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("sentimentScore"), filter.getMaxScore()));
+            }
+
+            // Keyset condition: (created_at, id) < (cursor.createdAt, cursor.id).
+            // The redundant created_at <= bound gives the optimizer a plain index range to start from.
+            if (cursor != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), cursor.createdAt()));
+                predicates.add(cb.or(
+                        cb.lessThan(root.get("createdAt"), cursor.createdAt()),
+                        cb.and(
+                                cb.equal(root.get("createdAt"), cursor.createdAt()),
+                                cb.lessThan(root.get("id"), cursor.id()))));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
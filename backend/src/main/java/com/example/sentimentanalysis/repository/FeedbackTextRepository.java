@@ -0,0 +1,186 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.FeedbackText;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * JDBC access to 'feedback_text', the content-addressed store of feedback texts.
+ *
+ * Texts are written before the feedback rows that reference them, with an upsert, so a
+ * duplicate costs one primary-key probe instead of another copy of the text. The upsert
+ * also records the model result when the caller has a current one, which is what
+ * {@link #findResult} hands back for later exact duplicates.
+ */
+@Repository
+public class FeedbackTextRepository {
+
+    private static final String UPSERT_SQL = upsertSql(List.of("?", "?", "?", "?", "?", "?", "?"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final int compressMinBytes;
+
+    @Autowired
+    public FeedbackTextRepository(JdbcTemplate jdbcTemplate,
+                                  @Value("${feedback.text.compress-min-bytes:256}") int compressMinBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    /**
+     * Builds the upsert of one text row. An existing row keeps its stored result unless the
+     * new one carries a result, and its content is never rewritten.
+     *
+     * @param markers Bind markers for hash, content, compressed, text_length, result_label,
+     *                result_score and result_model_version, in that order
+     * @return The statement
+     */
+    public static String upsertSql(List<String> markers) {
+        return "INSERT INTO feedback_text "
+                + "(hash, content, compressed, text_length, result_label, result_score, result_model_version) "
+                + "VALUES (" + String.join(", ", markers) + ") ON DUPLICATE KEY UPDATE "
+                + "result_label = CASE WHEN VALUES(result_model_version) IS NULL "
+                + "THEN result_label ELSE VALUES(result_label) END, "
+                + "result_score = CASE WHEN VALUES(result_model_version) IS NULL "
+                + "THEN result_score ELSE VALUES(result_score) END, "
+                + "result_model_version = COALESCE(VALUES(result_model_version), result_model_version)";
+    }
+
+    /**
+     * Encodes a text for storage, compressing it if it is long enough.
+     *
+     * @param text The exact feedback text
+     * @return The row to store
+     */
+    public FeedbackText encode(String text) {
+        return FeedbackText.of(text, compressMinBytes);
+    }
+
+    /**
+     * Stores the texts of the given entries and sets their {@code textHash}. Texts that are
+     * already stored are not written again.
+     *
+     * @param feedback      Entries with their text set
+     * @param resultVersion Current model version; the results of entries scored by it are
+     *                      recorded for their text. Null to record no results.
+     */
+    public void storeAll(List<Feedback> feedback, String resultVersion) {
+        List<FeedbackText> rows = prepare(feedback, resultVersion);
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                FeedbackText row = rows.get(i);
+                ps.setString(1, row.getHash());
+                ps.setBytes(2, row.getContent());
+                ps.setBoolean(3, row.isCompressed());
+                ps.setInt(4, row.getTextLength());
+                ps.setString(5, row.getResultLabel());
+                if (row.getResultScore() != null) {
+                    ps.setDouble(6, row.getResultScore());
+                } else {
+                    ps.setNull(6, Types.DOUBLE);
+                }
+                ps.setString(7, row.getResultModelVersion());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    /**
+     * Encodes the texts of the given entries, one row per distinct text, and sets the
+     * entries' {@code textHash}. The rows are sorted by hash, so concurrent upserts lock
+     * them in the same order.
+     *
+     * @param feedback      Entries with their text set
+     * @param resultVersion See {@link #storeAll}
+     * @return The rows to upsert
+     */
+    public List<FeedbackText> prepare(List<Feedback> feedback, String resultVersion) {
+        Map<String, FeedbackText> rows = new TreeMap<>();
+        for (Feedback entry : feedback) {
+            if (entry.getTextHash() == null) {
+                entry.setTextHash(FeedbackText.hashOf(entry.getText()));
+            }
+            FeedbackText row = rows.computeIfAbsent(entry.getTextHash(), hash -> encode(entry.getText()));
+            if (resultVersion != null && resultVersion.equals(entry.getModelVersion())) {
+                row.setResultLabel(entry.getSentimentLabel());
+                row.setResultScore(entry.getSentimentScore());
+                row.setResultModelVersion(entry.getModelVersion());
+            }
+        }
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * Finds the result recorded for a text, if it was produced by the given model version.
+     *
+     * @param hash         Key of the text
+     * @param modelVersion Current model version
+     * @return A result map in the shape the sentiment analysis services return, or empty
+     */
+    public Optional<Map<String, Object>> findResult(String hash, String modelVersion) {
+        return Optional.ofNullable(findResults(List.of(hash), modelVersion).get(hash));
+    }
+
+    /**
+     * Same as {@link #findResult}, for several texts in one query.
+     *
+     * @param hashes       Keys of the texts
+     * @param modelVersion Current model version
+     * @return Result maps by key, for the texts that have one
+     */
+    public Map<String, Map<String, Object>> findResults(Collection<String> hashes, String modelVersion) {
+        Map<String, Map<String, Object>> results = new HashMap<>();
+        if (hashes.isEmpty() || modelVersion == null) {
+            return results;
+        }
+        namedJdbcTemplate.query("SELECT hash, result_label, result_score FROM feedback_text "
+                        + "WHERE hash IN (:hashes) AND result_model_version = :version",
+                Map.of("hashes", hashes, "version", modelVersion),
+                rs -> {
+                    results.put(rs.getString(1), toResult(rs.getString(2), rs.getObject(3, Double.class), modelVersion));
+                });
+        return results;
+    }
+
+    /**
+     * Builds the result map for a recorded result.
+     *
+     * @param label        Recorded label
+     * @param score        Recorded score, may be null
+     * @param modelVersion Version that produced it
+     * @return The result map
+     */
+    public static Map<String, Object> toResult(String label, Double score, String modelVersion) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("label", label);
+        result.put("score", score);
+        result.put("model_version", modelVersion);
+        return result;
+    }
+}
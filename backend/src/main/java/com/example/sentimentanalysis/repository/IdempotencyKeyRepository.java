@@ -0,0 +1,139 @@
+package com.example.sentimentanalysis.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to 'feedback_idempotency_key', the idempotency keys of feedback submissions.
+ *
+ * A key is claimed by inserting its row, so the primary key decides between concurrent
+ * submissions with the same key on any instance. The winner records the feedback it created
+ * with {@link #complete}, in the transaction that inserts the feedback, or releases the claim
+ * if the submission failed. Both are fenced on the claim time, so they do nothing once another
+ * submission has taken the claim over.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    /**
+     * A stored key.
+     *
+     * @param key         The client's idempotency key
+     * @param requestHash Hash of the text submitted with it
+     * @param feedbackId  The feedback created, or null if it is still being processed or has no ID yet
+     * @param completed   Whether the submission finished
+     * @param createdAt   When the key was claimed
+     */
+    public record StoredKey(String key, String requestHash, Long feedbackId, boolean completed,
+                            LocalDateTime createdAt) {
+    }
+
+    private static final String COMPLETE_SQL = completeSql(List.of("?", "?", "?"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claims a key for a submission that is about to be processed.
+     *
+     * @param key         The idempotency key
+     * @param requestHash Hash of the submitted text
+     * @param now         The claim time
+     * @return Whether the key was claimed; false if it is already stored
+     */
+    public boolean claim(String key, String requestHash, LocalDateTime now) {
+        try {
+            jdbcTemplate.update("INSERT INTO feedback_idempotency_key "
+                    + "(idempotency_key, request_hash, feedback_id, completed, created_at) VALUES (?, ?, NULL, FALSE, ?)",
+                    key, requestHash, now);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param key The idempotency key
+     * @return The stored key, if any
+     */
+    public Optional<StoredKey> find(String key) {
+        List<StoredKey> rows = jdbcTemplate.query("SELECT idempotency_key, request_hash, feedback_id, completed, created_at "
+                        + "FROM feedback_idempotency_key WHERE idempotency_key = ?",
+                (rs, rowNum) -> {
+                    long feedbackId = rs.getLong(3);
+                    return new StoredKey(rs.getString(1), rs.getString(2), rs.wasNull() ? null : feedbackId,
+                            rs.getBoolean(4), rs.getObject(5, LocalDateTime.class));
+                }, key);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Takes over a claim whose submission never finished, e.g. because its instance crashed.
+     * Only one caller can take over a given claim.
+     *
+     * @param stale The unfinished claim as read
+     * @param now   The new claim time
+     * @return Whether the claim was taken over
+     */
+    public boolean takeOver(StoredKey stale, LocalDateTime now) {
+        return jdbcTemplate.update("UPDATE feedback_idempotency_key SET created_at = ? "
+                + "WHERE idempotency_key = ? AND completed = FALSE AND created_at = ?",
+                now, stale.key(), stale.createdAt()) == 1;
+    }
+
+    /**
+     * Builds the statement of {@link #complete} with the given bind markers, so the reactive
+     * stack can run it in its own transaction.
+     *
+     * @param markers Placeholders for the feedback ID, the key and the claim time, in that order
+     * @return The SQL statement
+     */
+    public static String completeSql(List<String> markers) {
+        return "UPDATE feedback_idempotency_key SET feedback_id = " + markers.get(0) + ", completed = TRUE "
+                + "WHERE idempotency_key = " + markers.get(1) + " AND completed = FALSE AND created_at = " + markers.get(2);
+    }
+
+    /**
+     * Records the feedback a claimed submission created. Joins the caller's transaction, so it
+     * commits or rolls back together with the feedback row.
+     *
+     * @param key        The idempotency key
+     * @param claimedAt  When the caller claimed the key
+     * @param feedbackId The feedback created, or null if it has no ID yet
+     * @return Whether the claim was still the caller's; false if it was taken over
+     */
+    public boolean complete(String key, LocalDateTime claimedAt, Long feedbackId) {
+        return jdbcTemplate.update(COMPLETE_SQL, feedbackId, key, claimedAt) == 1;
+    }
+
+    /**
+     * Releases the claim of a submission that failed, so the client can retry it.
+     *
+     * @param key       The idempotency key
+     * @param claimedAt When the caller claimed the key; a claim taken over since is kept
+     */
+    public void release(String key, LocalDateTime claimedAt) {
+        jdbcTemplate.update("DELETE FROM feedback_idempotency_key "
+                + "WHERE idempotency_key = ? AND completed = FALSE AND created_at = ?", key, claimedAt);
+    }
+
+    /**
+     * Deletes keys claimed before the given time.
+     *
+     * @param before Cutoff time
+     * @return The number of keys deleted
+     */
+    public int purge(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM feedback_idempotency_key WHERE created_at < ?", before);
+    }
+}
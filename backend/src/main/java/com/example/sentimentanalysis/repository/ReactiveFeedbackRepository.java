@@ -0,0 +1,370 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.dto.FeedbackCursor;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.FeedbackText;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.binding.BindMarkers;
+import org.springframework.r2dbc.core.binding.BindMarkersFactoryResolver;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking access to the feedback table over R2DBC, used by the "reactive" profile.
+ * Reads and writes the same rows as {@link FeedbackRepository}; queries mirror the keyset
+ * pagination of {@link FeedbackSpecifications} and the export order of the blocking stack.
+ * Reads by ID and exports also cover the archive table of {@link FeedbackArchiveRepository}.
+ * Texts are stored in and read from 'feedback_text' the way {@link FeedbackTextRepository} does.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveFeedbackRepository {
+
+    private static final String COLUMNS = "f.id, t.content, t.compressed, f.sentiment_label, "
+            + "f.sentiment_score, f.sentiment_status, f.model_version, f.created_at";
+
+    private final DatabaseClient databaseClient;
+    private final FeedbackTextRepository textRepository;
+    private final boolean archiveAvailable;
+    private final String insertSql;
+    private final String upsertTextSql;
+    private final String completeKeySql;
+    private final int exportFetchSize;
+
+    @Autowired
+    public ReactiveFeedbackRepository(DatabaseClient databaseClient,
+                                      ConnectionFactory connectionFactory,
+                                      FeedbackArchiveRepository archiveRepository,
+                                      FeedbackTextRepository textRepository,
+                                      @Value("${feedback.reactive.export-fetch-size:1000}") int exportFetchSize) {
+        this.databaseClient = databaseClient;
+        this.textRepository = textRepository;
+        this.archiveAvailable = archiveRepository.isAvailable();
+        this.exportFetchSize = exportFetchSize;
+
+        // Batched inserts bypass DatabaseClient's named parameters, so use the driver's own markers
+        BindMarkers markers = BindMarkersFactoryResolver.resolve(connectionFactory).create();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            values.append(i == 0 ? "" : ", ").append(markers.next().getPlaceholder());
+        }
+        this.insertSql = "INSERT INTO feedback "
+                + "(text_hash, sentiment_label, sentiment_score, sentiment_status, model_version, created_at) "
+                + "VALUES (" + values + ")";
+        BindMarkers textMarkerSource = BindMarkersFactoryResolver.resolve(connectionFactory).create();
+        List<String> textMarkers = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            textMarkers.add(textMarkerSource.next().getPlaceholder());
+        }
+        this.upsertTextSql = FeedbackTextRepository.upsertSql(textMarkers);
+        BindMarkers keyMarkers = BindMarkersFactoryResolver.resolve(connectionFactory).create();
+        this.completeKeySql = IdempotencyKeyRepository.completeSql(
+                List.of(keyMarkers.next().getPlaceholder(), keyMarkers.next().getPlaceholder(),
+                        keyMarkers.next().getPlaceholder()));
+    }
+
+    /**
+     * Stores the texts of new feedback rows, then inserts the rows as one batched statement
+     * and sets their generated IDs.
+     *
+     * @param feedback      New rows with their createdAt already set
+     * @param resultVersion Current model version, see {@link FeedbackTextRepository#storeAll}
+     * @return The same rows, with IDs
+     */
+    public Mono<List<Feedback>> insertAll(List<Feedback> feedback, String resultVersion) {
+        return insertAll(feedback, resultVersion, null, null);
+    }
+
+    /**
+     * Same as {@link #insertAll(List, String)}, and completes a claimed idempotency key with
+     * the first row's ID in the same transaction, see {@link IdempotencyKeyRepository#complete}.
+     *
+     * @param feedback       New rows with their createdAt already set
+     * @param resultVersion  Current model version, see {@link FeedbackTextRepository#storeAll}
+     * @param idempotencyKey The claimed key, or null to insert without one
+     * @param claimedAt      When the key was claimed
+     * @return The same rows, with IDs; fails with {@link OptimisticLockingFailureException},
+     *         without inserting anything, if the claim was taken over
+     */
+    public Mono<List<Feedback>> insertAll(List<Feedback> feedback, String resultVersion, String idempotencyKey,
+                                          LocalDateTime claimedAt) {
+        if (feedback.isEmpty()) {
+            return Mono.just(feedback);
+        }
+        List<FeedbackText> texts = textRepository.prepare(feedback, resultVersion);
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement textStatement = connection.createStatement(upsertTextSql);
+                    for (int i = 0; i < texts.size(); i++) {
+                        bindText(textStatement, texts.get(i));
+                        if (i < texts.size() - 1) {
+                            textStatement.add();
+                        }
+                    }
+                    Statement statement = connection.createStatement(insertSql).returnGeneratedValues("id");
+                    for (int i = 0; i < feedback.size(); i++) {
+                        bindInsert(statement, feedback.get(i));
+                        if (i < feedback.size() - 1) {
+                            statement.add();
+                        }
+                    }
+                    Flux<Long> ids = Flux.from(textStatement.execute())
+                            .concatMap(Result::getRowsUpdated)
+                            .thenMany(Flux.from(statement.execute()))
+                            .concatMap(result -> result.map(row -> row.get(0, Long.class)));
+                    if (idempotencyKey == null) {
+                        return ids;
+                    }
+                    // DatabaseClient has no transaction manager in this stack, so run one by hand
+                    return Mono.from(connection.beginTransaction())
+                            .thenMany(ids)
+                            .collectList()
+                            .flatMapMany(inserted -> completeKey(connection, idempotencyKey, claimedAt, inserted.get(0))
+                                    .then(Mono.from(connection.commitTransaction()))
+                                    .thenMany(Flux.fromIterable(inserted)))
+                            .onErrorResume(e -> Mono.from(connection.rollbackTransaction()).then(Mono.error(e)));
+                })
+                .collectList()
+                .map(ids -> {
+                    if (ids.size() != feedback.size()) {
+                        throw new IllegalStateException("Inserted " + feedback.size()
+                                + " feedback rows but received " + ids.size() + " generated IDs");
+                    }
+                    for (int i = 0; i < ids.size(); i++) {
+                        feedback.get(i).setId(ids.get(i));
+                    }
+                    return feedback;
+                });
+    }
+
+    private Mono<Void> completeKey(Connection connection, String idempotencyKey, LocalDateTime claimedAt,
+                                   long feedbackId) {
+        Statement statement = connection.createStatement(completeKeySql)
+                .bind(0, feedbackId)
+                .bind(1, idempotencyKey)
+                .bind(2, claimedAt);
+        return Flux.from(statement.execute())
+                .concatMap(Result::getRowsUpdated)
+                .reduce(0L, Long::sum)
+                .flatMap(updated -> updated == 1 ? Mono.<Void>empty()
+                        : Mono.error(new OptimisticLockingFailureException(
+                                "Idempotency key " + idempotencyKey + " was taken over")));
+    }
+
+    /**
+     * Non-blocking {@link FeedbackTextRepository#findResults}.
+     *
+     * @param hashes       Keys of the texts
+     * @param modelVersion Current model version
+     * @return Result maps by key, for the texts that have one
+     */
+    public Mono<Map<String, Map<String, Object>>> findTextResults(Collection<String> hashes, String modelVersion) {
+        if (hashes.isEmpty() || modelVersion == null) {
+            return Mono.just(Map.of());
+        }
+        return databaseClient.sql("SELECT hash, result_label, result_score FROM feedback_text "
+                        + "WHERE hash IN (:hashes) AND result_model_version = :version")
+                .bind("hashes", hashes)
+                .bind("version", modelVersion)
+                .map(row -> Map.entry(row.get("hash", String.class), FeedbackTextRepository.toResult(
+                        row.get("result_label", String.class), row.get("result_score", Double.class), modelVersion)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, HashMap::new);
+    }
+
+    /**
+     * Finds a feedback row by ID, in the archive if it is not in the feedback table.
+     *
+     * @param id The ID to look up
+     * @return The row, or empty if it does not exist
+     */
+    public Mono<Feedback> findById(long id) {
+        Mono<Feedback> hot = findById("feedback", id);
+        if (!archiveAvailable) {
+            return hot;
+        }
+        return hot.switchIfEmpty(Mono.defer(() -> findById(FeedbackArchiveRepository.TABLE, id)));
+    }
+
+    private Mono<Feedback> findById(String table, long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + FeedbackArchiveRepository.fromWithText(table) + " WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveFeedbackRepository::mapRow)
+                .one();
+    }
+
+    /**
+     * Reads rows of the feedback table in (created_at DESC, id DESC) order, starting just past the cursor.
+     *
+     * @param filter Which rows to return; null fields are ignored
+     * @param cursor Position of the last row already returned, or null to start at the newest
+     * @param limit  Maximum number of rows
+     * @return The rows, newest first
+     */
+    public Flux<Feedback> findPage(FeedbackFilter filter, FeedbackCursor cursor, int limit) {
+        return findPage("feedback", filter, cursor, limit);
+    }
+
+    /**
+     * Same as {@link #findPage}, for the archive table. Archived rows are older than every row
+     * of the feedback table, so a listing continues here once the feedback table runs out.
+     *
+     * @param filter Which rows to return; null fields are ignored
+     * @param cursor Position of the last row already returned, or null to start at the newest
+     * @param limit  Maximum number of rows
+     * @return The rows, newest first; empty if there is no archive
+     */
+    public Flux<Feedback> findArchivedPage(FeedbackFilter filter, FeedbackCursor cursor, int limit) {
+        return archiveAvailable ? findPage(FeedbackArchiveRepository.TABLE, filter, cursor, limit) : Flux.empty();
+    }
+
+    private Flux<Feedback> findPage(String table, FeedbackFilter filter, FeedbackCursor cursor, int limit) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + FeedbackArchiveRepository.fromWithText(table) + " WHERE 1 = 1");
+        appendFilter(sql, params, filter);
+        if (cursor != null) {
+            // Same keyset condition, including the redundant range bound, as FeedbackSpecifications
+            sql.append(" AND created_at <= :cursorCreatedAt AND (created_at < :cursorCreatedAt"
+                    + " OR (created_at = :cursorCreatedAt AND id < :cursorId))");
+            params.put("cursorCreatedAt", cursor.createdAt());
+            params.put("cursorId", cursor.id());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT :limit");
+        params.put("limit", limit);
+        return bindAll(databaseClient.sql(sql.toString()), params)
+                .map(ReactiveFeedbackRepository::mapRow)
+                .all();
+    }
+
+    /**
+     * Streams every row matching the filter, archived rows first, each table in ID order.
+     * Rows are fetched in chunks of {@code feedback.reactive.export-fetch-size} as the
+     * subscriber requests them.
+     *
+     * @param filter Which rows to return; null fields are ignored
+     * @return The matching rows
+     */
+    public Flux<Feedback> streamAll(FeedbackFilter filter) {
+        Flux<Feedback> hot = streamAll("feedback", filter);
+        return archiveAvailable ? Flux.concat(streamAll(FeedbackArchiveRepository.TABLE, filter), hot) : hot;
+    }
+
+    private Flux<Feedback> streamAll(String table, FeedbackFilter filter) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + FeedbackArchiveRepository.fromWithText(table) + " WHERE 1 = 1");
+        appendFilter(sql, params, filter);
+        sql.append(" ORDER BY id");
+
+        return bindAll(databaseClient.sql(sql.toString()), params)
+                .filter(statement -> statement.fetchSize(exportFetchSize))
+                .map(ReactiveFeedbackRepository::mapRow)
+                .all();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindAll(DatabaseClient.GenericExecuteSpec spec,
+                                                             Map<String, Object> params) {
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            spec = spec.bind(param.getKey(), param.getValue());
+        }
+        return spec;
+    }
+
+    private static void appendFilter(StringBuilder sql, Map<String, Object> params, FeedbackFilter filter) {
+        if (filter.getSentimentLabel() != null) {
+            sql.append(" AND sentiment_label = :label");
+            params.put("label", filter.getSentimentLabel());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND created_at >= :from");
+            params.put("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND created_at < :to");
+            params.put("to", filter.getTo());
+        }
+        if (filter.getMinScore() != null) {
+            sql.append(" AND sentiment_score >= :minScore");
+            params.put("minScore", filter.getMinScore());
+        }
+        if (filter.getMaxScore() != null) {
+            sql.append(" AND sentiment_score <= :maxScore");
+            params.put("maxScore", filter.getMaxScore());
+        }
+    }
+
+    private static void bindText(Statement statement, FeedbackText text) {
+        statement.bind(0, text.getHash());
+        statement.bind(1, text.getContent());
+        statement.bind(2, text.isCompressed());
+        statement.bind(3, text.getTextLength());
+        if (text.getResultLabel() != null) {
+            statement.bind(4, text.getResultLabel());
+        } else {
+            statement.bindNull(4, String.class);
+        }
+        if (text.getResultScore() != null) {
+            statement.bind(5, text.getResultScore());
+        } else {
+            statement.bindNull(5, Double.class);
+        }
+        if (text.getResultModelVersion() != null) {
+            statement.bind(6, text.getResultModelVersion());
+        } else {
+            statement.bindNull(6, String.class);
+        }
+    }
+
+    private static void bindInsert(Statement statement, Feedback feedback) {
+        statement.bind(0, feedback.getTextHash());
+        if (feedback.getSentimentLabel() != null) {
+            statement.bind(1, feedback.getSentimentLabel());
+        } else {
+            statement.bindNull(1, String.class);
+        }
+        if (feedback.getSentimentScore() != null) {
+            statement.bind(2, feedback.getSentimentScore());
+        } else {
+            statement.bindNull(2, Double.class);
+        }
+        statement.bind(3, feedback.getSentimentStatus().name());
+        if (feedback.getModelVersion() != null) {
+            statement.bind(4, feedback.getModelVersion());
+        } else {
+            statement.bindNull(4, String.class);
+        }
+        statement.bind(5, feedback.getCreatedAt());
+    }
+
+    private static Feedback mapRow(Readable row) {
+        Feedback feedback = new Feedback();
+        feedback.setId(row.get("id", Long.class));
+        feedback.setText(FeedbackText.decode(row.get("content", byte[].class),
+                Boolean.TRUE.equals(row.get("compressed", Boolean.class))));
+        feedback.setSentimentLabel(row.get("sentiment_label", String.class));
+        feedback.setSentimentScore(row.get("sentiment_score", Double.class));
+        String status = row.get("sentiment_status", String.class);
+        feedback.setSentimentStatus(status == null ? null : SentimentStatus.valueOf(status));
+        feedback.setModelVersion(row.get("model_version", String.class));
+        feedback.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        return feedback;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.model.ReclassificationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Repository interface for ReclassificationJob entities.
+ *
+ * A RUNNING job's {@code updatedAt} doubles as the lease of the instance running it: the
+ * conditional updates below only succeed if the job is still RUNNING and nobody has touched it
+ * since the caller last did, so two instances never run the same job.
+ */
+@Repository
+public interface ReclassificationJobRepository extends JpaRepository<ReclassificationJob, Long> {
+
+    /**
+     * @return The most recently created job, if any
+     */
+    Optional<ReclassificationJob> findFirstByOrderByIdDesc();
+
+    /**
+     * Renews the lease on a running job.
+     *
+     * @param id The job
+     * @param seenUpdatedAt The job's updatedAt as last read or written by the caller
+     * @param now The new updatedAt
+     * @return 1 if renewed, 0 if the job was paused, finished or taken over by another instance
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReclassificationJob j SET j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.status = ReclassificationStatus.RUNNING "
+            + "AND j.updatedAt = :seenUpdatedAt")
+    int renewLease(@Param("id") long id,
+                   @Param("seenUpdatedAt") LocalDateTime seenUpdatedAt,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Saves a running job's checkpoint and renews its lease.
+     *
+     * @param id The job
+     * @param seenUpdatedAt The job's updatedAt as last read or written by the caller
+     * @param lastId The last row visited
+     * @param processedRows Rows visited so far
+     * @param changedRows Rows whose label changed so far
+     * @param failedRows Rows that could not be re-scored so far
+     * @param now The new updatedAt
+     * @return 1 if saved, 0 if the job was paused, finished or taken over by another instance
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReclassificationJob j SET j.lastId = :lastId, j.processedRows = :processedRows, "
+            + "j.changedRows = :changedRows, j.failedRows = :failedRows, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.status = ReclassificationStatus.RUNNING "
+            + "AND j.updatedAt = :seenUpdatedAt")
+    int checkpoint(@Param("id") long id,
+                   @Param("seenUpdatedAt") LocalDateTime seenUpdatedAt,
+                   @Param("lastId") long lastId,
+                   @Param("processedRows") long processedRows,
+                   @Param("changedRows") long changedRows,
+                   @Param("failedRows") long failedRows,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Pauses a running job, whichever instance runs it. That instance stops at its next
+     * lease renewal.
+     *
+     * @param id The job
+     * @param now The new updatedAt
+     * @return 1 if paused, 0 if the job was not running
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReclassificationJob j "
+            + "SET j.status = ReclassificationStatus.PAUSED, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.status = ReclassificationStatus.RUNNING")
+    int pauseRunning(@Param("id") long id, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,24 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.model.AbstractSentimentRollup;
+import com.example.sentimentanalysis.model.SentimentMinuteRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for per-minute SentimentMinuteRollup entities.
+ */
+@Repository
+public interface SentimentMinuteRollupRepository
+        extends JpaRepository<SentimentMinuteRollup, AbstractSentimentRollup.Key> {
+
+    /**
+     * Finds the minute buckets that are still inside the retention window.
+     * @param since Only return buckets starting at or after this time
+     * @return Matching minute rollups
+     */
+    List<SentimentMinuteRollup> findByBucketStartGreaterThanEqual(LocalDateTime since);
+}
@@ -0,0 +1,15 @@
+package com.example.sentimentanalysis.repository;
+
+import com.example.sentimentanalysis.model.AbstractSentimentRollup;
+import com.example.sentimentanalysis.model.SentimentRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for hourly SentimentRollup entities.
+ * Incremental updates go through JDBC upserts in SentimentStatsStore; this repository
+ * is used to load the rollups into memory.
+ */
+@Repository
+public interface SentimentRollupRepository extends JpaRepository<SentimentRollup, AbstractSentimentRollup.Key> {
+}
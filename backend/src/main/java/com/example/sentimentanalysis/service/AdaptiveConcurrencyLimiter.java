@@ -0,0 +1,160 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.CapacityExceededException;
+import com.example.sentimentanalysis.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for one stage of a submission (the ML analysis, the database write),
+ * with a concurrency limit that adapts to how the stage is coping (AIMD).
+ *
+ * Unlike a {@link Bulkhead}, a caller over the limit is never queued: it is refused at once
+ * with {@link TooManyRequestsException}, so overload turns into fast 429s instead of
+ * ever longer queues. Each call that completes within the latency threshold while the limit
+ * is in use raises the limit by 1/limit, i.e. by one per round of calls; a call that takes
+ * longer, or fails for lack of capacity further down, cuts it by the backoff ratio, at most
+ * once per threshold period so one burst of slow calls counts once. The limit stays between
+ * the minimum and maximum. Admission is a compare-and-set on the in-flight count.
+ *
+ * Exposes admission.limit, admission.in.flight and admission.rejected, tagged by stage.
+ * A disabled limiter runs every call directly.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final String stage;
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final long retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final AtomicLong nextDecreaseAt = new AtomicLong(System.nanoTime());
+    private final Counter rejectedCounter;
+
+    public AdaptiveConcurrencyLimiter(String stage, boolean enabled, int minLimit, int maxLimit,
+                                      long latencyThresholdMs, double backoffRatio, long retryAfterSeconds,
+                                      MeterRegistry meterRegistry) {
+        this.stage = stage;
+        this.enabled = enabled;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.backoffRatio = backoffRatio;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(this.maxLimit));
+
+        Gauge.builder("admission.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("stage", stage)
+                .register(meterRegistry);
+        Gauge.builder("admission.in.flight", inFlight, AtomicInteger::get)
+                .description("Calls currently admitted")
+                .tag("stage", stage)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("admission.rejected")
+                .description("Calls shed because the stage was at its concurrency limit")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action if the stage is under its limit.
+     *
+     * @param action The stage's work
+     * @return The action's result
+     * @throws TooManyRequestsException if the stage is at its limit
+     */
+    public <T> T call(Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        int admitted = acquire();
+        long started = System.nanoTime();
+        boolean overloaded = true;
+        try {
+            T result = action.get();
+            overloaded = false;
+            return result;
+        } catch (TooManyRequestsException e) {
+            // Shed further down the same request; says nothing about this stage
+            overloaded = false;
+            throw e;
+        } catch (CapacityExceededException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            overloaded = false;
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+            adjust(admitted, System.nanoTime() - started, overloaded);
+        }
+    }
+
+    /**
+     * Runs the action if the stage is under its limit.
+     *
+     * @param action The stage's work
+     * @throws TooManyRequestsException if the stage is at its limit
+     */
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The current limit; calls are admitted while fewer than its integer part are in flight
+     */
+    public double getLimit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    /**
+     * @return The number of calls in flight including this one
+     */
+    private int acquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) getLimit()) {
+                rejectedCounter.increment();
+                throw new TooManyRequestsException("The " + stage + " stage is overloaded, try again later",
+                        retryAfterSeconds);
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    private void adjust(int admitted, long latencyNanos, boolean overloaded) {
+        if (overloaded || latencyNanos > latencyThresholdNanos) {
+            long now = System.nanoTime();
+            long allowedAt = nextDecreaseAt.get();
+            if (now - allowedAt >= 0 && nextDecreaseAt.compareAndSet(allowedAt, now + latencyThresholdNanos)) {
+                limitBits.getAndUpdate(bits ->
+                        Double.doubleToLongBits(Math.max(minLimit, Double.longBitsToDouble(bits) * backoffRatio)));
+            }
+        } else if (admitted * 2 >= getLimit()) {
+            // Only grow while the limit is actually being used
+            limitBits.getAndUpdate(bits -> {
+                double limit = Double.longBitsToDouble(bits);
+                return Double.doubleToLongBits(Math.min(maxLimit, limit + 1 / limit));
+            });
+        }
+    }
+}
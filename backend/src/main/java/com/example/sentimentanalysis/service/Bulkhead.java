@@ -0,0 +1,106 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.CapacityExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many callers may use a resource (the ML service, the database) at the same time.
+ *
+ * With platform threads the request thread pool caps concurrency as a side effect. With
+ * virtual threads there is effectively no such cap, so every blocking call on a shared
+ * resource goes through a bulkhead instead: a fair semaphore whose permits match the
+ * resource's capacity. A caller that cannot get a permit within the acquire timeout fails
+ * fast with {@link CapacityExceededException} instead of piling up behind the resource.
+ *
+ * Exposes bulkhead.in.use, bulkhead.waiting, bulkhead.max and bulkhead.rejected, tagged by name.
+ * A disabled bulkhead runs every call directly.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+    private final Counter rejectedCounter;
+
+    public Bulkhead(String name, boolean enabled, int maxConcurrent, long acquireTimeoutMs,
+                    MeterRegistry meterRegistry) {
+        this.name = name;
+        this.enabled = enabled;
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("bulkhead.in.use", this, bulkhead -> bulkhead.maxConcurrent - bulkhead.permits.availablePermits())
+                .description("Calls currently holding a bulkhead permit")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.waiting", permits, Semaphore::getQueueLength)
+                .description("Callers waiting for a bulkhead permit")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.max", this, bulkhead -> bulkhead.maxConcurrent)
+                .description("Number of bulkhead permits")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("bulkhead.rejected")
+                .description("Calls refused because no bulkhead permit became free in time")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action while holding a permit.
+     *
+     * @param action The call to make on the protected resource
+     * @return The action's result
+     * @throws CapacityExceededException if no permit became free within the acquire timeout
+     */
+    public <T> T call(Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Runs the action while holding a permit.
+     *
+     * @param action The call to make on the protected resource
+     * @throws CapacityExceededException if no permit became free within the acquire timeout
+     */
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void acquire() {
+        try {
+            if (permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedCounter.increment();
+        throw new CapacityExceededException("Too many concurrent " + name + " calls, try again later");
+    }
+}
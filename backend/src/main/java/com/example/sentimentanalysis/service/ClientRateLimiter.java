@@ -0,0 +1,245 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Per-client token buckets for feedback submissions.
+ *
+ * Each client may submit {@code requests-per-second} on average and up to {@code burst} at once.
+ * A client is identified by the API key it sends in {@code feedback.rate-limit.client-header}
+ * only if that key is one of {@code api-keys}; any other value is ignored, since a client could
+ * otherwise get a fresh bucket per request by making keys up. Clients without a known key are
+ * identified by address. When the connection comes from one of {@code trusted-proxies}, the
+ * address is taken from {@code forwarded-header} instead: the last entry that is not itself a
+ * trusted proxy, as earlier entries can be set by the client. Forwarded headers from any other
+ * peer are ignored.
+ *
+ * The buckets live in memory, so the limit applies per instance: behind a load balancer that
+ * spreads a client over n instances, the client gets up to n times the configured rate.
+ * A bucket is kept as a single timestamp, the time at which it would be full again (the
+ * generic cell rate algorithm), so taking a token is one compare-and-set without locks.
+ * Buckets of clients that have been idle long enough to be full again are dropped, and at
+ * most {@code max-clients} are kept.
+ *
+ * Exposes rate.limit.rejected and rate.limit.clients.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private final boolean enabled;
+    private final String clientHeader;
+    private final Set<String> apiKeys;
+    private final String forwardedHeader;
+    private final List<AddressRange> trustedProxies;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Cache<String, AtomicLong> buckets;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public ClientRateLimiter(MeterRegistry meterRegistry,
+                             @Value("${feedback.rate-limit.enabled:false}") boolean enabled,
+                             @Value("${feedback.rate-limit.client-header:X-API-Key}") String clientHeader,
+                             @Value("${feedback.rate-limit.api-keys:}") String apiKeys,
+                             @Value("${feedback.rate-limit.forwarded-header:X-Forwarded-For}") String forwardedHeader,
+                             @Value("${feedback.rate-limit.trusted-proxies:}") String trustedProxies,
+                             @Value("${feedback.rate-limit.requests-per-second:20}") double requestsPerSecond,
+                             @Value("${feedback.rate-limit.burst:40}") int burst,
+                             @Value("${feedback.rate-limit.max-clients:100000}") long maxClients) {
+        this.enabled = enabled;
+        this.clientHeader = clientHeader;
+        this.apiKeys = Arrays.stream(apiKeys.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.forwardedHeader = forwardedHeader;
+        this.trustedProxies = Arrays.stream(trustedProxies.split(","))
+                .map(String::trim)
+                .filter(range -> !range.isEmpty())
+                .map(AddressRange::parse)
+                .toList();
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(burstNanos))
+                .build();
+
+        this.rejectedCounter = Counter.builder("rate.limit.rejected")
+                .description("Submissions refused because their client was over its rate limit")
+                .register(meterRegistry);
+        Gauge.builder("rate.limit.clients", buckets, Cache::estimatedSize)
+                .description("Clients with a partly used rate limit bucket")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return Header that identifies a client; clients without a known key are told apart by address
+     */
+    public String getClientHeader() {
+        return clientHeader;
+    }
+
+    /**
+     * @return Header a trusted proxy puts the client's address in
+     */
+    public String getForwardedHeader() {
+        return forwardedHeader;
+    }
+
+    /**
+     * Takes a token from the client's bucket.
+     *
+     * @param apiKey        The client's API key header, or null
+     * @param remoteAddress The address of the peer that connected
+     * @param forwardedFor  The forwarded header, or null
+     * @throws TooManyRequestsException if the bucket is empty
+     */
+    public void acquire(String apiKey, String remoteAddress, String forwardedFor) {
+        if (!enabled) {
+            return;
+        }
+        String client = apiKey != null && apiKeys.contains(apiKey.trim())
+                ? "key:" + apiKey.trim() : "addr:" + clientAddress(remoteAddress, forwardedFor);
+        AtomicLong fullAt = buckets.get(client, key -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            // A bucket that filled up again while idle starts from now
+            long base = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long next = base + intervalNanos;
+            if (next - now > burstNanos) {
+                rejectedCounter.increment();
+                long waitNanos = next - now - burstNanos;
+                throw new TooManyRequestsException("Rate limit exceeded, try again later",
+                        Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The client's address: the peer's, or the one a trusted proxy forwarded.
+     */
+    String clientAddress(String remoteAddress, String forwardedFor) {
+        if (forwardedFor == null || !isTrustedProxy(remoteAddress)) {
+            return remoteAddress;
+        }
+        String[] hops = forwardedFor.split(",");
+        String client = remoteAddress;
+        // Each proxy appends the address it received the request from, so read from the right
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (AddressRange.toAddress(hop) == null) {
+                // Not an address; nothing left of it can be trusted
+                break;
+            }
+            client = hop;
+            if (!isTrustedProxy(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (trustedProxies.isEmpty()) {
+            return false;
+        }
+        InetAddress parsed = AddressRange.toAddress(address);
+        return parsed != null && trustedProxies.stream().anyMatch(range -> range.contains(parsed));
+    }
+
+    /**
+     * An address or CIDR block, such as 10.0.0.0/8 or fd00::/8.
+     */
+    private record AddressRange(byte[] network, int prefixBits) {
+
+        private static final Pattern IPV4 = Pattern.compile("(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})");
+        private static final Pattern IPV6 = Pattern.compile("[0-9A-Fa-f:.]*:[0-9A-Fa-f:.]*");
+
+        static AddressRange parse(String range) {
+            int slash = range.indexOf('/');
+            InetAddress address = toAddress(slash < 0 ? range : range.substring(0, slash));
+            if (address == null) {
+                throw new IllegalArgumentException("Not an IP address or CIDR block: " + range);
+            }
+            byte[] network = address.getAddress();
+            int prefixBits = slash < 0 ? network.length * 8 : Integer.parseInt(range.substring(slash + 1));
+            if (prefixBits < 0 || prefixBits > network.length * 8) {
+                throw new IllegalArgumentException("Invalid prefix length in " + range);
+            }
+            return new AddressRange(network, prefixBits);
+        }
+
+        /**
+         * Parses an IP address literal without ever resolving a host name.
+         *
+         * @return The address, or null if the text is not an IP address
+         */
+        static InetAddress toAddress(String text) {
+            if (text == null) {
+                return null;
+            }
+            try {
+                Matcher ipv4 = IPV4.matcher(text);
+                if (ipv4.matches()) {
+                    byte[] bytes = new byte[4];
+                    for (int i = 0; i < 4; i++) {
+                        int octet = Integer.parseInt(ipv4.group(i + 1));
+                        if (octet > 255) {
+                            return null;
+                        }
+                        bytes[i] = (byte) octet;
+                    }
+                    return InetAddress.getByAddress(bytes);
+                }
+                // A name containing a colon is only ever parsed as an IPv6 literal
+                return IPV6.matcher(text).matches() ? InetAddress.getByName(text) : null;
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixBits / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixBits % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits) & 0xFF;
+            return (bytes[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.event.ClusterResyncEvent;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import com.example.sentimentanalysis.repository.ClusterEventRepository;
+import com.example.sentimentanalysis.repository.ClusterEventRepository.ClusterEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the in-memory state of several backend instances sharing one database in step.
+ *
+ * Statistics, the entity cache, the search index and the live stream are all maintained from
+ * {@link FeedbackChangedEvent}s, which only reach listeners in the instance that made the
+ * change. When clustering is enabled, every local change is appended to the 'cluster_event'
+ * table in small batches, and every instance polls the table and re-publishes the changes made
+ * by the others as remote events, in the order they were recorded. Listeners that persist
+ * anything (e.g. rollup deltas) skip remote events, since the originating instance has already
+ * written them.
+ *
+ * Sequence numbers are assigned when rows are inserted, not when their batch commits, so a gap
+ * in the sequence may be a batch of another instance that has not committed yet. Polling waits
+ * up to {@code gap-timeout-ms} for a gap to fill before moving past it (a rolled-back batch
+ * leaves a permanent gap), and keeps re-reading the skipped range until the table's retention
+ * has passed, applying whatever commits late.
+ *
+ * Changes still queued when an instance crashes are never recorded, so every
+ * {@code resync-interval-ms} a {@link ClusterResyncEvent} asks the listeners to bring their state
+ * in line with the tables.
+ */
+@Service
+public class ClusterEventService {
+
+    private static final Logger logger = Logger.getLogger(ClusterEventService.class.getName());
+    private static final ThrottledLog syncFailureLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+
+    /**
+     * Most skipped ranges kept for re-reading; each is one condition of the re-read query.
+     */
+    private static final int MAX_SKIPPED_RANGES = 100;
+
+    private final ClusterEventRepository eventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long syncIntervalMs;
+    private final int batchSize;
+    private final long gapTimeoutMs;
+    private final int retentionMinutes;
+    private final long resyncIntervalMs;
+
+    private final ConcurrentLinkedDeque<FeedbackChangedEvent> outbox = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService executor;
+    private final Counter publishedCounter;
+    private final Counter appliedCounter;
+    private final Counter skippedGapCounter;
+    private final Counter lateCounter;
+
+    /**
+     * Sequence number of the last change read from the table. Only touched by the sync thread.
+     */
+    private long position;
+
+    /**
+     * When the gap at {@link #position} was first seen, or 0 if there is none.
+     */
+    private long gapSeenAt;
+
+    /**
+     * Ranges skipped because they did not fill in time, oldest first. Only touched by the sync thread.
+     */
+    private final List<SkippedRange> skipped = new ArrayList<>();
+
+    /**
+     * When the skipped ranges were last re-read. Only touched by the sync thread.
+     */
+    private long skippedReadAt;
+
+    /**
+     * When the last {@link ClusterResyncEvent} was published. Only touched by the sync thread.
+     */
+    private long resyncedAt = System.currentTimeMillis();
+
+    /**
+     * Sequence numbers skipped over, which a late commit may still fill.
+     *
+     * @param from      First skipped sequence number
+     * @param to        Last skipped sequence number
+     * @param skippedAt When the range was skipped
+     */
+    private record SkippedRange(long from, long to, long skippedAt) {
+    }
+
+    @Autowired
+    public ClusterEventService(ClusterEventRepository eventRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               MeterRegistry meterRegistry,
+                               @Value("${feedback.cluster.enabled:false}") boolean enabled,
+                               @Value("${feedback.cluster.node-id:}") String nodeId,
+                               @Value("${feedback.cluster.sync-interval-ms:250}") long syncIntervalMs,
+                               @Value("${feedback.cluster.batch-size:500}") int batchSize,
+                               @Value("${feedback.cluster.gap-timeout-ms:2000}") long gapTimeoutMs,
+                               @Value("${feedback.cluster.retention-minutes:60}") int retentionMinutes,
+                               @Value("${feedback.cluster.resync-interval-ms:300000}") long resyncIntervalMs) {
+        this.eventRepository = eventRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.syncIntervalMs = syncIntervalMs;
+        this.batchSize = batchSize;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.retentionMinutes = retentionMinutes;
+        this.resyncIntervalMs = resyncIntervalMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.publishedCounter = Counter.builder("cluster.events.published")
+                .description("Feedback changes of this instance written to the cluster event table")
+                .register(meterRegistry);
+        this.appliedCounter = Counter.builder("cluster.events.applied")
+                .description("Feedback changes of other instances applied to this instance")
+                .register(meterRegistry);
+        this.skippedGapCounter = Counter.builder("cluster.events.gaps.skipped")
+                .description("Gaps in the cluster event sequence that did not fill within the gap timeout")
+                .register(meterRegistry);
+        this.lateCounter = Counter.builder("cluster.events.late")
+                .description("Feedback changes of other instances found in a skipped gap")
+                .register(meterRegistry);
+        Gauge.builder("cluster.events.outbox", outbox, ConcurrentLinkedDeque::size)
+                .description("Feedback changes of this instance not yet written to the cluster event table")
+                .register(meterRegistry);
+    }
+
+    private static String defaultNodeId() {
+        // The runtime name is "pid@host"; the pid tells apart instances on the same host
+        return hostName() + "-" + ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+    }
+
+    /**
+     * @return This machine's host name, or "unknown" if it cannot be determined
+     */
+    static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * @return Whether changes are shared with other instances
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The ID under which this instance records its changes
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Starts reading from the end of the table, since the state loaded on startup already
+     * reflects every committed change.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        position = eventRepository.findLastSeq();
+        executor.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::purgeQuietly, 1, 10, TimeUnit.MINUTES);
+        logger.info("Sharing feedback changes with other instances as node '" + nodeId + "'");
+    }
+
+    /**
+     * Writes the changes still queued and stops syncing.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        if (enabled) {
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+                publishOutbox();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Could not write " + outbox.size() + " cluster events on shutdown", e);
+            }
+        }
+    }
+
+    /**
+     * Queues a change made by this instance for the other instances.
+     *
+     * @param event The change
+     */
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        if (!enabled || event.remote() || event.feedback().getId() == null) {
+            return;
+        }
+        outbox.add(event);
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            syncFailureLog.log(Level.WARNING, () -> "Cluster event sync failed, will retry", e);
+        }
+    }
+
+    /**
+     * Writes queued changes, applies those of other instances and resyncs when due.
+     * Called by the sync thread, or by tests.
+     */
+    void sync() {
+        publishOutbox();
+        applyRemoteEvents();
+        applyLateEvents();
+        long now = System.currentTimeMillis();
+        if (now - resyncedAt >= resyncIntervalMs) {
+            // An instance that crashed since the previous resync changed rows created up to one
+            // interval before that
+            LocalDateTime since = LocalDateTime.now().minus(2 * (now - resyncedAt), ChronoUnit.MILLIS);
+            resyncedAt = now;
+            eventPublisher.publishEvent(new ClusterResyncEvent(since));
+        }
+    }
+
+    private void publishOutbox() {
+        List<FeedbackChangedEvent> batch = new ArrayList<>();
+        FeedbackChangedEvent event;
+        while (batch.size() < batchSize && (event = outbox.poll()) != null) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            eventRepository.insertAll(nodeId, batch);
+        } catch (RuntimeException e) {
+            // Put the batch back in front, in order
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                outbox.addFirst(batch.get(i));
+            }
+            throw e;
+        }
+        publishedCounter.increment(batch.size());
+    }
+
+    private void applyRemoteEvents() {
+        while (true) {
+            List<ClusterEvent> events = eventRepository.findAfter(position, batchSize);
+            List<ClusterEvent> remote = new ArrayList<>();
+            boolean blocked = false;
+            for (ClusterEvent event : events) {
+                if (event.seq() != position + 1 && !gapExpired(event.seq())) {
+                    blocked = true;
+                    break;
+                }
+                gapSeenAt = 0;
+                position = event.seq();
+                if (!nodeId.equals(event.nodeId())) {
+                    remote.add(event);
+                }
+            }
+            publishRemote(remote, false);
+            if (blocked || events.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private boolean gapExpired(long nextSeq) {
+        long now = System.currentTimeMillis();
+        if (gapSeenAt == 0) {
+            gapSeenAt = now;
+            return false;
+        }
+        if (now - gapSeenAt < gapTimeoutMs) {
+            return false;
+        }
+        skippedGapCounter.increment();
+        logger.fine("Skipping cluster events " + (position + 1) + " to " + (nextSeq - 1) + " until they commit");
+        if (skipped.size() == MAX_SKIPPED_RANGES) {
+            // The periodic resync repairs whatever it held
+            skipped.remove(0);
+        }
+        skipped.add(new SkippedRange(position + 1, nextSeq - 1, now));
+        return true;
+    }
+
+    /**
+     * Re-reads the skipped ranges, at most once per gap timeout, and applies the changes that
+     * have committed since. Ranges are forgotten once the table's retention has passed.
+     */
+    private void applyLateEvents() {
+        long now = System.currentTimeMillis();
+        skipped.removeIf(range -> now - range.skippedAt() > TimeUnit.MINUTES.toMillis(retentionMinutes));
+        if (skipped.isEmpty() || now - skippedReadAt < gapTimeoutMs) {
+            return;
+        }
+        skippedReadAt = now;
+        List<long[]> ranges = new ArrayList<>();
+        skipped.forEach(range -> ranges.add(new long[]{range.from(), range.to()}));
+        List<ClusterEvent> late = eventRepository.findInRanges(ranges);
+        if (late.isEmpty()) {
+            return;
+        }
+        // Take the found sequence numbers out of their ranges; both are in order
+        List<SkippedRange> remaining = new ArrayList<>();
+        for (SkippedRange range : skipped) {
+            long from = range.from();
+            for (ClusterEvent event : late) {
+                if (event.seq() >= from && event.seq() <= range.to()) {
+                    if (event.seq() > from) {
+                        remaining.add(new SkippedRange(from, event.seq() - 1, range.skippedAt()));
+                    }
+                    from = event.seq() + 1;
+                }
+            }
+            if (from <= range.to()) {
+                remaining.add(new SkippedRange(from, range.to(), range.skippedAt()));
+            }
+        }
+        skipped.clear();
+        skipped.addAll(remaining);
+
+        List<ClusterEvent> remote = new ArrayList<>();
+        for (ClusterEvent event : late) {
+            if (!nodeId.equals(event.nodeId())) {
+                remote.add(event);
+            }
+        }
+        lateCounter.increment(remote.size());
+        publishRemote(remote, true);
+    }
+
+    /**
+     * @param late Whether the changes were found in a skipped range, so later changes to the
+     *             same rows may already have been applied
+     */
+    private void publishRemote(List<ClusterEvent> events, boolean late) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        events.forEach(event -> ids.add(event.feedbackId()));
+        Map<Long, Feedback> rows = eventRepository.findFeedback(ids);
+        for (ClusterEvent event : events) {
+            Feedback row = rows.get(event.feedbackId());
+            if (row == null) {
+                // Archived or deleted since; the originating instance has applied the change
+                continue;
+            }
+            eventPublisher.publishEvent(new FeedbackChangedEvent(asChanged(row, event), event.created(),
+                    event.previousLabel(), event.previousScore(), true));
+            appliedCounter.increment();
+            if (late && !(Objects.equals(row.getSentimentLabel(), event.label())
+                    && Objects.equals(row.getSentimentScore(), event.score()))) {
+                // Leave listeners that keep the latest state (cache, index) at the row's current
+                // state; aggregates see no change
+                eventPublisher.publishEvent(new FeedbackChangedEvent(row, false, row.getSentimentLabel(),
+                        row.getSentimentScore(), true));
+            }
+        }
+    }
+
+    /**
+     * The row as it was right after the change. The table holds its latest state, which may
+     * already include later changes in the same batch.
+     */
+    private static Feedback asChanged(Feedback row, ClusterEvent event) {
+        Feedback feedback = new Feedback();
+        feedback.setId(row.getId());
+        feedback.setText(row.getText());
+        feedback.setTextHash(row.getTextHash());
+        feedback.setModelVersion(row.getModelVersion());
+        feedback.setCreatedAt(row.getCreatedAt());
+        feedback.setSentimentLabel(event.label());
+        feedback.setSentimentScore(event.score());
+        feedback.setSentimentStatus(event.label() != null ? SentimentStatus.CLASSIFIED : SentimentStatus.PENDING);
+        return feedback;
+    }
+
+    private void purgeQuietly() {
+        try {
+            int purged = eventRepository.purge(LocalDateTime.now().minusMinutes(retentionMinutes));
+            if (purged > 0) {
+                logger.fine("Purged " + purged + " cluster events");
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Purging cluster events failed, will retry", e);
+        }
+    }
+}
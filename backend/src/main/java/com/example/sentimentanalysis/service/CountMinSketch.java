@@ -0,0 +1,116 @@
+package com.example.sentimentanalysis.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Count-Min sketch: approximate counts of any number of keys in fixed memory.
+ *
+ * An estimate is never below the true count, and exceeds it by at most about
+ * e / width of the total with probability 1 - e^-depth. Keys are given as 64-bit hashes;
+ * the rows use the two halves of the hash as independent hash functions. Counts are
+ * added with conservative update (only the smallest counters of a key are raised), which
+ * keeps estimates tighter without breaking the bound. Sketches of the same dimensions can be
+ * merged by adding their counters. Not thread-safe.
+ */
+public final class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int[] counters;
+    private long total;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 1) {
+            throw new IllegalArgumentException("Count-Min sketch dimensions must be positive");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new int[depth * width];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The sum of all counts added
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Adds a count for a key.
+     *
+     * @param hash  64-bit hash of the key
+     * @param count The count to add
+     */
+    public void add(long hash, int count) {
+        int target = estimate(hash) + count;
+        for (int row = 0; row < depth; row++) {
+            int index = index(hash, row);
+            if (counters[index] < target) {
+                counters[index] = target;
+            }
+        }
+        total += count;
+    }
+
+    /**
+     * @param hash 64-bit hash of the key
+     * @return An upper bound on the key's count
+     */
+    public int estimate(long hash) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[index(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Adds another sketch's counts to this one.
+     *
+     * @param other A sketch with the same dimensions
+     * @throws IllegalArgumentException if the dimensions differ
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge a " + other.depth + "x" + other.width
+                    + " Count-Min sketch into a " + depth + "x" + width + " one");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = (int) Math.min(Integer.MAX_VALUE, (long) counters[i] + other.counters[i]);
+        }
+        total += other.total;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(depth);
+        out.writeInt(width);
+        out.writeLong(total);
+        for (int counter : counters) {
+            out.writeInt(counter);
+        }
+    }
+
+    public static CountMinSketch read(DataInput in) throws IOException {
+        CountMinSketch sketch = new CountMinSketch(in.readInt(), in.readInt());
+        sketch.total = in.readLong();
+        for (int i = 0; i < sketch.counters.length; i++) {
+            sketch.counters[i] = in.readInt();
+        }
+        return sketch;
+    }
+
+    private int index(long hash, int row) {
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return row * width + (combined & Integer.MAX_VALUE) % width;
+    }
+}
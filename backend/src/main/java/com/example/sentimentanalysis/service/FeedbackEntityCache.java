@@ -0,0 +1,100 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.event.ClusterResyncEvent;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.model.Feedback;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of feedback rows by ID, shared by the blocking and the reactive stack.
+ *
+ * Bounded by size and by a TTL. Concurrent misses for the same ID share a single load, and
+ * rows that do not exist are never cached. Every {@link FeedbackChangedEvent} evicts the row;
+ * events are published after the change has been saved, and a load that was still in flight
+ * when the row was evicted is not stored, so a re-classified row is never served stale.
+ *
+ * Cached entities are shared between requests and must not be modified by callers.
+ */
+@Component
+public class FeedbackEntityCache {
+
+    private final AsyncCache<Long, Feedback> cache;
+
+    @Autowired
+    public FeedbackEntityCache(MeterRegistry meterRegistry,
+                               @Value("${feedback.cache.max-size:50000}") long maxSize,
+                               @Value("${feedback.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .buildAsync();
+        // Exposes cache.gets{result=hit|miss}, cache.evictions and cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "feedback-entities");
+    }
+
+    /**
+     * Returns the cached row, loading it on the calling thread on a miss.
+     *
+     * @param id     The feedback ID
+     * @param loader Reads the row from the database; only invoked on a miss
+     * @return The row, or empty if it does not exist
+     */
+    public Optional<Feedback> get(Long id, Function<Long, Optional<Feedback>> loader) {
+        return Optional.ofNullable(cache.synchronous().get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Returns the cached row, or starts loading it on a miss.
+     *
+     * @param id     The feedback ID
+     * @param loader Starts reading the row; the future completes with null if it does not exist
+     * @return A future completed with the row, or with null if it does not exist
+     */
+    public CompletableFuture<Feedback> getAsync(Long id, Function<Long, CompletableFuture<Feedback>> loader) {
+        return cache.get(id, (key, executor) -> loader.apply(key));
+    }
+
+    /**
+     * Evicts a row that was inserted or re-classified.
+     *
+     * @param event The change
+     */
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        Long id = event.feedback().getId();
+        if (id != null) {
+            cache.synchronous().invalidate(id);
+        }
+    }
+
+    /**
+     * Drops every cached row, since other instances may have changed some without this one
+     * hearing of it.
+     *
+     * @param event The periodic resync
+     */
+    @EventListener
+    public void onClusterResync(ClusterResyncEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Drops every cached row.
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.FeedbackFileFormat;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.repository.FeedbackArchiveRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Streams feedback rows to an output stream as NDJSON or CSV.
+ *
+ * Rows are read through a forward-only, read-only JDBC cursor and written out one at a
+ * time, so memory use does not depend on how many rows match. The cursor's fetch size is
+ * {@code feedback.export.fetch-size}; MySQL Connector/J only streams instead of buffering
+ * the whole result when it is Integer.MIN_VALUE (or when the URL enables useCursorFetch).
+ * Archived rows are exported first, then the rows of the feedback table.
+ */
+@Service
+public class FeedbackExportService {
+
+    private static final Logger logger = Logger.getLogger(FeedbackExportService.class.getName());
+
+    private static final String[] COLUMNS =
+            {"id", "text", "sentimentLabel", "sentimentScore", "sentimentStatus", "modelVersion", "createdAt"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FeedbackArchiveRepository archiveRepository;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final Counter exportedCounter;
+
+    @Autowired
+    public FeedbackExportService(JdbcTemplate jdbcTemplate,
+                                 FeedbackArchiveRepository archiveRepository,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${feedback.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveRepository = archiveRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.exportedCounter = Counter.builder("feedback.export.rows")
+                .description("Rows written by feedback exports")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes every feedback row matching the filter to the output, archived rows first, each
+     * table ordered by ID.
+     * The output is flushed but not closed.
+     *
+     * @param filter Which rows to export; null fields are ignored
+     * @param format The output format
+     * @param output Where to write the rows
+     * @return The number of rows written
+     * @throws IOException if writing to the output fails
+     */
+    public long export(FeedbackFilter filter, FeedbackFileFormat format, OutputStream output) throws IOException {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.getSentimentLabel() != null) {
+            where.append(" AND sentiment_label = ?");
+            args.add(filter.getSentimentLabel());
+        }
+        if (filter.getFrom() != null) {
+            where.append(" AND created_at >= ?");
+            args.add(Timestamp.valueOf(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            where.append(" AND created_at < ?");
+            args.add(Timestamp.valueOf(filter.getTo()));
+        }
+        if (filter.getMinScore() != null) {
+            where.append(" AND sentiment_score >= ?");
+            args.add(filter.getMinScore());
+        }
+        if (filter.getMaxScore() != null) {
+            where.append(" AND sentiment_score <= ?");
+            args.add(filter.getMaxScore());
+        }
+
+        long started = System.nanoTime();
+        RowWriter writer = format == FeedbackFileFormat.NDJSON ? new NdjsonWriter(output) : new CsvWriter(output);
+        long[] rows = {0};
+        List<String> tables = archiveRepository.isAvailable()
+                ? List.of(FeedbackArchiveRepository.TABLE, "feedback") : List.of("feedback");
+        try {
+            for (String table : tables) {
+                String sql = "SELECT " + FeedbackArchiveRepository.COLUMNS
+                        + FeedbackArchiveRepository.fromWithText(table) + where + " ORDER BY id";
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    for (int i = 0; i < args.size(); i++) {
+                        statement.setObject(i + 1, args.get(i));
+                    }
+                    return statement;
+                }, (RowCallbackHandler) rs -> {
+                    try {
+                        writer.write(rs);
+                    } catch (IOException e) {
+                        // Usually the client went away; abort the query instead of reading the rest
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                });
+            }
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            exportedCounter.increment(rows[0]);
+        }
+        logger.info("Exported " + rows[0] + " feedback rows as " + format + " in "
+                + (System.nanoTime() - started) / 1_000_000 + " ms");
+        return rows[0];
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream output) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong(1));
+            generator.writeStringField("text", FeedbackArchiveRepository.readText(rs));
+            generator.writeStringField("sentimentLabel", rs.getString(3));
+            double score = rs.getDouble(4);
+            if (rs.wasNull()) {
+                generator.writeNullField("sentimentScore");
+            } else {
+                generator.writeNumberField("sentimentScore", score);
+            }
+            generator.writeStringField("sentimentStatus", rs.getString(5));
+            generator.writeStringField("modelVersion", rs.getString(6));
+            Timestamp createdAt = rs.getTimestamp(7);
+            generator.writeStringField("createdAt", createdAt == null ? null : createdAt.toLocalDateTime().toString());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvWriter implements RowWriter {
+        private final CSVPrinter printer;
+
+        CsvWriter(OutputStream output) throws IOException {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            this.printer = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(COLUMNS).get());
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            double score = rs.getDouble(4);
+            Double nullableScore = rs.wasNull() ? null : score;
+            Timestamp createdAt = rs.getTimestamp(7);
+            printer.printRecord(
+                    rs.getLong(1),
+                    FeedbackArchiveRepository.readText(rs),
+                    rs.getString(3),
+                    nullableScore,
+                    rs.getString(5),
+                    rs.getString(6),
+                    createdAt == null ? null : createdAt.toLocalDateTime());
+        }
+
+        @Override
+        public void finish() throws IOException {
+            printer.flush();
+        }
+    }
+}
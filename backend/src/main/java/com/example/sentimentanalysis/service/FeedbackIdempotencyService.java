@@ -0,0 +1,326 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.FeedbackDTO;
+import com.example.sentimentanalysis.exception.IdempotencyConflictException;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.FeedbackText;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import com.example.sentimentanalysis.repository.IdempotencyKeyRepository;
+import com.example.sentimentanalysis.repository.IdempotencyKeyRepository.StoredKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Makes feedback submissions carrying an {@code Idempotency-Key} header safe to retry.
+ *
+ * The first submission with a key claims it in 'feedback_idempotency_key' before it is
+ * processed; the table is shared by every instance, so a retry that lands on another instance
+ * behind a load balancer is recognized too. Once the submission has finished, a retry with the
+ * same key and text gets the original feedback back instead of creating a duplicate. A retry
+ * with a different text, or one that arrives while the original is still being processed, is
+ * refused with 409. If the submission fails, the claim is released so the client can retry.
+ *
+ * The key is completed in the transaction that inserts the feedback, fenced on the claim time:
+ * a submission either commits its row together with the completed key or leaves neither. A
+ * claim still open after {@code claim-timeout-ms} (its instance died, or it is very slow) is
+ * taken over by a retry; if the original submission then tries to finish, its completion finds
+ * the claim changed, its insert is rolled back and it gets 409. In "log" ingestion mode the
+ * feedback is appended to the ingestion log rather than inserted, which cannot be rolled back,
+ * so the key is completed right after the append; a crash in between still lets a retry take
+ * over the claim and append the text again.
+ *
+ * Completed keys are also cached locally, so retries hitting the same instance skip the
+ * database. Keys are kept for {@code retention-hours}.
+ */
+@Service
+public class FeedbackIdempotencyService {
+
+    private static final Logger logger = Logger.getLogger(FeedbackIdempotencyService.class.getName());
+
+    /**
+     * Request header carrying the client's idempotency key.
+     */
+    public static final String KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * Response header set on the answers to retried submissions.
+     */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    /**
+     * The result of an idempotent submission.
+     *
+     * @param feedback The feedback created by the submission
+     * @param replayed Whether it was created by an earlier submission with the same key
+     */
+    public record Result(Feedback feedback, boolean replayed) {
+    }
+
+    /**
+     * The outcome of {@link #begin}: either a claim the caller now holds, or the feedback an
+     * earlier submission with the key created.
+     *
+     * @param key         The idempotency key
+     * @param requestHash Hash of the submitted text
+     * @param claimedAt   When the caller claimed the key, or null for a replay
+     * @param replay      The earlier submission's feedback, or null if the caller holds the claim
+     */
+    public record Claim(String key, String requestHash, LocalDateTime claimedAt, Feedback replay) {
+
+        /**
+         * @return Whether an earlier submission with the key created the feedback
+         */
+        public boolean isReplay() {
+            return replay != null;
+        }
+    }
+
+    private final IdempotencyKeyRepository keyRepository;
+    private final FeedbackService feedbackService;
+    private final boolean enabled;
+    private final int retentionHours;
+    private final long claimTimeoutMs;
+    private final int maxKeyLength;
+
+    private final Cache<String, StoredKey> completedKeys;
+    private final Counter newCounter;
+    private final Counter replayedCounter;
+    private final Counter conflictCounter;
+
+    @Autowired
+    public FeedbackIdempotencyService(IdempotencyKeyRepository keyRepository,
+                                      FeedbackService feedbackService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${feedback.idempotency.enabled:true}") boolean enabled,
+                                      @Value("${feedback.idempotency.retention-hours:24}") int retentionHours,
+                                      @Value("${feedback.idempotency.claim-timeout-ms:30000}") long claimTimeoutMs,
+                                      @Value("${feedback.idempotency.max-key-length:128}") int maxKeyLength,
+                                      @Value("${feedback.idempotency.cache-max-size:10000}") long cacheMaxSize) {
+        this.keyRepository = keyRepository;
+        this.feedbackService = feedbackService;
+        this.enabled = enabled;
+        this.retentionHours = retentionHours;
+        this.claimTimeoutMs = claimTimeoutMs;
+        this.maxKeyLength = maxKeyLength;
+        this.completedKeys = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofHours(retentionHours))
+                .build();
+
+        this.newCounter = outcomeCounter(meterRegistry, "new");
+        this.replayedCounter = outcomeCounter(meterRegistry, "replayed");
+        this.conflictCounter = outcomeCounter(meterRegistry, "conflict");
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("feedback.idempotency.requests")
+                .description("Submissions carrying an idempotency key, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a submission with the given key header should go through this service.
+     *
+     * @param key The Idempotency-Key header, or null if absent
+     * @return true if idempotency keys are enabled and the header is present
+     */
+    public boolean applies(String key) {
+        return enabled && key != null;
+    }
+
+    /**
+     * Runs a submission at most once per key.
+     *
+     * @param key         The idempotency key
+     * @param feedbackDTO The submitted feedback
+     * @param submission  Processes the submission; only called if the key is new. It is given
+     *                    a hook to call with the new row in the transaction that inserts it
+     * @return The feedback created by this or an earlier submission with the key
+     * @throws InvalidRequestException      if the key is malformed
+     * @throws IdempotencyConflictException if the key belongs to another request, is in use,
+     *                                      or was taken over while this submission ran
+     */
+    public Result submit(String key, FeedbackDTO feedbackDTO, Function<Consumer<Feedback>, Feedback> submission) {
+        Claim claim = begin(key, feedbackDTO);
+        if (claim.isReplay()) {
+            return new Result(claim.replay(), true);
+        }
+        Feedback feedback;
+        try {
+            feedback = submission.apply(inserted -> complete(claim, inserted));
+        } catch (RuntimeException e) {
+            release(claim);
+            throw e;
+        }
+        completed(claim, feedback);
+        return new Result(feedback, false);
+    }
+
+    /**
+     * Claims a key for a submission about to be processed, or finds the feedback an earlier
+     * submission with the key created. Blocks on the database.
+     *
+     * @param key         The idempotency key
+     * @param feedbackDTO The submitted feedback
+     * @return The earlier submission's feedback, or a claim the caller now holds and must
+     *         {@link #complete} in the transaction inserting the feedback or {@link #release}
+     * @throws InvalidRequestException      if the key is malformed
+     * @throws IdempotencyConflictException if the key belongs to another request or is in use
+     */
+    public Claim begin(String key, FeedbackDTO feedbackDTO) {
+        validate(key);
+        String requestHash = FeedbackText.hashOf(feedbackDTO.getText());
+
+        StoredKey cached = completedKeys.getIfPresent(key);
+        if (cached != null) {
+            return new Claim(key, requestHash, null, replay(cached, requestHash, feedbackDTO));
+        }
+        // The column keeps microseconds, and the claim time is compared when completing
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (keyRepository.claim(key, requestHash, now)) {
+            newCounter.increment();
+            return new Claim(key, requestHash, now, null);
+        }
+        StoredKey stored = keyRepository.find(key).orElse(null);
+        if (stored == null) {
+            // Released between the claim and the read; the client may simply retry
+            throw conflict("Idempotency key " + key + " is in use by another request");
+        }
+        if (stored.completed()) {
+            completedKeys.put(key, stored);
+            return new Claim(key, requestHash, null, replay(stored, requestHash, feedbackDTO));
+        }
+        if (!stored.requestHash().equals(requestHash)) {
+            throw conflict("Idempotency key " + key + " was used for a different request");
+        }
+        if (stored.createdAt().isBefore(now.minusNanos(claimTimeoutMs * 1_000_000))
+                && keyRepository.takeOver(stored, now)) {
+            logger.info("Took over the abandoned claim of idempotency key " + key);
+            newCounter.increment();
+            return new Claim(key, requestHash, now, null);
+        }
+        throw conflict("A request with idempotency key " + key + " is still being processed");
+    }
+
+    /**
+     * Records the feedback a claimed submission created, so retries get it back. Must run in
+     * the transaction that inserts the feedback, which it rolls back by throwing if the claim
+     * was taken over.
+     *
+     * @param claim    The caller's claim
+     * @param feedback The feedback inserted
+     * @throws IdempotencyConflictException if another submission took over the claim
+     */
+    public void complete(Claim claim, Feedback feedback) {
+        if (!keyRepository.complete(claim.key(), claim.claimedAt(), feedback.getId())) {
+            throw takenOver(claim);
+        }
+    }
+
+    /**
+     * Remembers a key whose submission has committed, so retries on this instance skip the
+     * database.
+     *
+     * @param claim    The caller's claim
+     * @param feedback The feedback created
+     */
+    public void completed(Claim claim, Feedback feedback) {
+        completedKeys.put(claim.key(), new StoredKey(claim.key(), claim.requestHash(), feedback.getId(), true,
+                claim.claimedAt()));
+    }
+
+    /**
+     * @param claim A claim whose completion found it changed
+     * @return The error to answer the submission holding it with
+     */
+    public IdempotencyConflictException takenOver(Claim claim) {
+        return conflict("Idempotency key " + claim.key() + " was taken over by a retry before this request finished");
+    }
+
+    /**
+     * Releases the claim of a submission that failed, so the client can retry it. Does nothing
+     * if the claim has been taken over. Never throws; an unreleased claim expires after
+     * {@code claim-timeout-ms}.
+     *
+     * @param claim The caller's claim
+     */
+    public void release(Claim claim) {
+        try {
+            keyRepository.release(claim.key(), claim.claimedAt());
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to release idempotency key " + claim.key(), e);
+        }
+    }
+
+    private Feedback replay(StoredKey stored, String requestHash, FeedbackDTO feedbackDTO) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw conflict("Idempotency key " + stored.key() + " was used for a different request");
+        }
+        replayedCounter.increment();
+        if (stored.feedbackId() != null) {
+            Optional<Feedback> feedback = feedbackService.getFeedbackById(stored.feedbackId());
+            if (feedback.isPresent()) {
+                return feedback.get();
+            }
+        }
+        // Accepted into the ingestion log without an ID yet, or archived since
+        Feedback pending = new Feedback();
+        pending.setId(stored.feedbackId());
+        pending.setText(feedbackDTO.getText());
+        pending.setSentimentStatus(SentimentStatus.PENDING);
+        pending.setCreatedAt(stored.createdAt());
+        return pending;
+    }
+
+    private IdempotencyConflictException conflict(String message) {
+        conflictCounter.increment();
+        return new IdempotencyConflictException(message);
+    }
+
+    private void validate(String key) {
+        if (key.isEmpty() || key.length() > maxKeyLength) {
+            throw new InvalidRequestException("Idempotency-Key must be 1 to " + maxKeyLength + " characters");
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x21 || c > 0x7E) {
+                throw new InvalidRequestException("Idempotency-Key must only contain visible ASCII characters");
+            }
+        }
+    }
+
+    /**
+     * Deletes the keys older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${feedback.idempotency.purge-interval-ms:600000}")
+    public void purgeExpiredKeys() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int purged = keyRepository.purge(LocalDateTime.now().minusHours(retentionHours));
+            if (purged > 0) {
+                logger.fine("Purged " + purged + " expired idempotency keys");
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Purging idempotency keys failed, will retry", e);
+        }
+    }
+}
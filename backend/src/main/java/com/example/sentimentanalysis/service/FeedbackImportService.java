@@ -0,0 +1,223 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.FeedbackFileFormat;
+import com.example.sentimentanalysis.dto.FeedbackImportDTO;
+import com.example.sentimentanalysis.dto.FeedbackImportResultDTO;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import com.example.sentimentanalysis.model.Feedback;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of feedback from NDJSON or CSV.
+ *
+ * NDJSON records are objects with a 'text' and an optional 'createdAt' field; CSV input needs
+ * a header row with a 'text' and an optional 'createdAt' column. The input is parsed record
+ * by record straight from the request stream, so the body is never buffered as a whole. Each record is validated against the {@link FeedbackImportDTO}
+ * constraints; invalid records are skipped and reported. Valid records are collected into
+ * batches of {@code feedback.import.batch-size}, classified together and written with a
+ * single JDBC batch per chunk by {@link FeedbackService#importFeedback(List)}.
+ *
+ * Every batch is committed on its own, so an import that fails halfway keeps the
+ * batches written before the failure.
+ */
+@Service
+public class FeedbackImportService {
+
+    private static final Logger logger = Logger.getLogger(FeedbackImportService.class.getName());
+
+    private final FeedbackService feedbackService;
+    private final Validator validator;
+    private final ObjectReader recordReader;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public FeedbackImportService(FeedbackService feedbackService,
+                                 Validator validator,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${feedback.import.batch-size:500}") int batchSize,
+                                 @Value("${feedback.import.max-reported-errors:100}") int maxReportedErrors) {
+        this.feedbackService = feedbackService;
+        this.validator = validator;
+        this.recordReader = objectMapper.readerFor(FeedbackImportDTO.class);
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.acceptedCounter = Counter.builder("feedback.import.records")
+                .description("Records processed by bulk imports")
+                .tag("outcome", "accepted")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("feedback.import.records")
+                .description("Records processed by bulk imports")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Imports every record from the input.
+     *
+     * @param input  The UTF-8 encoded request body
+     * @param format The format of the input
+     * @return Counts, throughput and the reasons records were rejected
+     * @throws IOException if reading the input fails
+     * @throws InvalidRequestException if a CSV input has no 'text' column
+     */
+    public FeedbackImportResultDTO importFeedback(InputStream input, FeedbackFileFormat format) throws IOException {
+        ImportRun run = new ImportRun();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == FeedbackFileFormat.NDJSON) {
+            readNdjson(reader, run);
+        } else {
+            readCsv(reader, run);
+        }
+        run.flush();
+        return run.finish();
+    }
+
+    private void readNdjson(BufferedReader reader, ImportRun run) throws IOException {
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                run.accept(lineNumber, recordReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                run.reject(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, ImportRun run) throws IOException {
+        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setIgnoreEmptyLines(true)
+                .get();
+        try (CSVParser parser = CSVParser.builder().setReader(reader).setFormat(csvFormat).get()) {
+            if (!parser.getHeaderMap().containsKey("text")) {
+                throw new InvalidRequestException("CSV header must contain a 'text' column");
+            }
+            boolean hasCreatedAt = parser.getHeaderMap().containsKey("createdAt");
+            Iterator<CSVRecord> records = parser.iterator();
+            while (true) {
+                CSVRecord record;
+                try {
+                    if (!records.hasNext()) {
+                        break;
+                    }
+                    record = records.next();
+                } catch (UncheckedIOException e) {
+                    // The parser cannot resynchronize after e.g. an unterminated quote
+                    run.reject(parser.getCurrentLineNumber(), "Malformed CSV, import stopped: " + e.getMessage());
+                    break;
+                }
+                long lineNumber = parser.getCurrentLineNumber();
+                if (!record.isConsistent()) {
+                    run.reject(lineNumber, "Expected " + parser.getHeaderMap().size()
+                            + " columns but found " + record.size());
+                    continue;
+                }
+                FeedbackImportDTO dto = new FeedbackImportDTO();
+                dto.setText(record.get("text"));
+                if (hasCreatedAt && !record.get("createdAt").isBlank()) {
+                    try {
+                        dto.setCreatedAt(LocalDateTime.parse(record.get("createdAt").trim()));
+                    } catch (DateTimeParseException e) {
+                        run.reject(lineNumber, "createdAt is not an ISO-8601 date-time: " + record.get("createdAt"));
+                        continue;
+                    }
+                }
+                run.accept(lineNumber, dto);
+            }
+        }
+    }
+
+    /**
+     * State of one import: the batch being collected and the result so far.
+     */
+    private class ImportRun {
+        private final long startedAt = System.nanoTime();
+        private final FeedbackImportResultDTO result = new FeedbackImportResultDTO();
+        private final List<Feedback> batch = new ArrayList<>(batchSize);
+
+        void accept(long line, FeedbackImportDTO dto) {
+            Set<ConstraintViolation<FeedbackImportDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                reject(line, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            Feedback feedback = new Feedback();
+            feedback.setText(dto.getText());
+            feedback.setCreatedAt(dto.getCreatedAt());
+            batch.add(feedback);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long line, String message) {
+            result.setRejected(result.getRejected() + 1);
+            rejectedCounter.increment();
+            if (result.getErrors().size() < maxReportedErrors) {
+                result.getErrors().add(new FeedbackImportResultDTO.RecordError(line, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            feedbackService.importFeedback(batch);
+            result.setAccepted(result.getAccepted() + batch.size());
+            acceptedCounter.increment(batch.size());
+            batch.clear();
+        }
+
+        FeedbackImportResultDTO finish() {
+            long elapsedNanos = System.nanoTime() - startedAt;
+            result.setDurationMs(elapsedNanos / 1_000_000);
+            result.setRowsPerSecond(elapsedNanos > 0 ? result.getAccepted() * 1e9 / elapsedNanos : 0);
+            logger.info(String.format("Imported %d feedback entries (%d rejected) in %d ms, %.0f rows/s",
+                    result.getAccepted(), result.getRejected(), result.getDurationMs(), result.getRowsPerSecond()));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.CapacityExceededException;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of accepted feedback on local disk, used by the "log" ingestion mode.
+ *
+ * The log is a sequence of memory-mapped segment files of {@code feedback.ingestion.log.segment-bytes}
+ * each, named after the offset of their first byte. A record is a length, a CRC32C and the payload
+ * (creation time and UTF-8 text); records never span segments, and a zero length marks the end
+ * of a segment's data. Offsets are byte positions in the whole log.
+ *
+ * Appends only copy the record into the mapped segment. A single flusher thread forces the
+ * pages written since its last flush to disk and then wakes every appender whose record is
+ * covered, so concurrent submissions share one fsync. The consumer reads durable records only and
+ * records how far it got in a checkpoint file; segments it has read completely are deleted once
+ * they are older than {@code feedback.ingestion.log.retention-ms}. On startup the last segment is
+ * scanned up to its first incomplete record, and reading resumes at the checkpoint, so records
+ * the consumer had not checkpointed before a crash are delivered again.
+ *
+ * If forcing the log to disk fails, whether the pages reached the disk is unknown, and a later
+ * force may succeed without having written them. The log therefore stops accepting records
+ * until the application is restarted, which recovers whatever complete records are on disk.
+ * Records the consumer gives up on are appended to a dead-letter file next to the segments.
+ *
+ * Exports feedback.ingestion.log.flush, feedback.ingestion.log.flush.records and
+ * feedback.ingestion.log.backlog.
+ */
+@Component
+public class FeedbackIngestionLog {
+
+    private static final Logger logger = Logger.getLogger(FeedbackIngestionLog.class.getName());
+
+    private static final int HEADER_BYTES = 8;
+    private static final int TIMESTAMP_BYTES = 12;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "consumer.offset";
+    private static final String DEAD_LETTER_FILE = "dead-letter.tsv";
+
+    /**
+     * A record read back from the log.
+     *
+     * @param text       The feedback text
+     * @param createdAt  When the feedback was accepted
+     * @param nextOffset Offset just after the record, to checkpoint once it is processed
+     */
+    public record Entry(String text, LocalDateTime createdAt, long nextOffset) {
+    }
+
+    private record Segment(long baseOffset, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        int capacity() {
+            return buffer.capacity();
+        }
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final long maxBacklogBytes;
+    private final long retentionMs;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * Guards appends, segment rolls and the offsets below. Appends only wake the flusher, and
+     * only flushes wake the threads waiting for durable records, so a burst of appends does
+     * not wake every waiting submission once per record.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private Segment active;
+    private long writeOffset;
+    private long appendedRecords;
+    private long flushedRecords;
+    private volatile long durableOffset;
+    private volatile long checkpoint;
+    private volatile IOException flushFailure;
+    private volatile boolean closed;
+
+    private Thread flusher;
+    private Timer flushTimer;
+    private DistributionSummary flushRecordsSummary;
+
+    @Autowired
+    public FeedbackIngestionLog(MeterRegistry meterRegistry,
+                                @Value("${feedback.ingestion.mode:sync}") String mode,
+                                @Value("${feedback.ingestion.log.dir:data/ingestion-log}") String directory,
+                                @Value("${feedback.ingestion.log.segment-bytes:67108864}") int segmentBytes,
+                                @Value("${feedback.ingestion.log.max-backlog-bytes:1073741824}") long maxBacklogBytes,
+                                @Value("${feedback.ingestion.log.retention-ms:0}") long retentionMs) throws IOException {
+        this.enabled = "log".equalsIgnoreCase(mode);
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.maxBacklogBytes = maxBacklogBytes;
+        this.retentionMs = retentionMs;
+        if (!enabled) {
+            return;
+        }
+
+        Files.createDirectories(this.directory);
+        open();
+
+        this.flushTimer = Timer.builder("feedback.ingestion.log.flush")
+                .description("Time taken to force appended feedback to disk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushRecordsSummary = DistributionSummary.builder("feedback.ingestion.log.flush.records")
+                .description("Records made durable by one flush")
+                .register(meterRegistry);
+        Gauge.builder("feedback.ingestion.log.backlog", this, log -> log.durableOffset - log.checkpoint)
+                .description("Bytes of accepted feedback the consumer has not processed yet")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        this.flusher = new Thread(this::flushLoop, "feedback-log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        logger.info("Opened feedback ingestion log at " + this.directory.toAbsolutePath() + ": "
+                + (durableOffset - checkpoint) + " bytes to replay from offset " + checkpoint);
+    }
+
+    /**
+     * @return Whether feedback.ingestion.mode is "log"
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends a record. It is not durable until {@link #awaitDurable} returns for the offset.
+     *
+     * @param text      The feedback text
+     * @param createdAt When the feedback was accepted
+     * @return Offset just after the record
+     * @throws CapacityExceededException if the consumer is more than max-backlog-bytes behind
+     * @throws UncheckedIOException if an earlier flush failed
+     */
+    public long append(String text, LocalDateTime createdAt) {
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = TIMESTAMP_BYTES + textBytes.length;
+        ByteBuffer payload = ByteBuffer.allocate(length)
+                .putLong(createdAt.toEpochSecond(ZoneOffset.UTC))
+                .putInt(createdAt.getNano())
+                .put(textBytes);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array());
+        int recordBytes = HEADER_BYTES + length;
+        if (recordBytes + HEADER_BYTES > segmentBytes) {
+            throw new InvalidRequestException("Feedback of " + textBytes.length + " bytes does not fit in a log segment");
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Feedback ingestion log is closed");
+            }
+            if (flushFailure != null) {
+                throw new UncheckedIOException("Feedback ingestion log cannot be flushed; restart to recover",
+                        flushFailure);
+            }
+            if (writeOffset - checkpoint + recordBytes > maxBacklogBytes) {
+                throw new CapacityExceededException("Feedback ingestion log backlog is full");
+            }
+            // Keep room for the zero length that ends the segment's data
+            if (writeOffset - active.baseOffset() + recordBytes + HEADER_BYTES > active.capacity()) {
+                roll();
+            }
+            int position = (int) (writeOffset - active.baseOffset());
+            active.buffer().putInt(position, length);
+            active.buffer().putInt(position + 4, (int) crc.getValue());
+            active.buffer().put(position + HEADER_BYTES, payload.array());
+            writeOffset += recordBytes;
+            appendedRecords++;
+            appended.signal();
+            return writeOffset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the log is on disk up to the given offset.
+     *
+     * @param offset Offset returned by {@link #append}
+     * @throws UncheckedIOException if forcing the log to disk failed
+     */
+    public void awaitDurable(long offset) {
+        lock.lock();
+        try {
+            while (durableOffset < offset) {
+                if (flushFailure != null) {
+                    throw new UncheckedIOException("Feedback ingestion log cannot be flushed", flushFailure);
+                }
+                if (closed) {
+                    throw new IllegalStateException("Feedback ingestion log is closed");
+                }
+                try {
+                    flushed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the ingestion log", e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Offset up to which the consumer has processed the log
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Reads durable records, waiting up to the timeout for the first one.
+     *
+     * @param from       Offset to read from: the checkpoint or a previous entry's nextOffset
+     * @param maxRecords Maximum number of records to return
+     * @param timeoutMs  Longest time to wait when there is nothing to read
+     * @return The records, empty if none arrived in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<Entry> read(long from, int maxRecords, long timeoutMs) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (durableOffset <= from && !closed && remaining > 0) {
+                remaining = flushed.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        long end = durableOffset;
+        long offset = from;
+        while (entries.size() < maxRecords && offset < end) {
+            Map.Entry<Long, Segment> floor = segments.floorEntry(offset);
+            if (floor == null) {
+                throw new IllegalStateException("No ingestion log segment holds offset " + offset);
+            }
+            Segment segment = floor.getValue();
+            int position = (int) (offset - segment.baseOffset());
+            int length = position + HEADER_BYTES > segment.capacity() ? 0 : segment.buffer().getInt(position);
+            if (length == 0) {
+                // End of this segment's data; the next one starts at this offset
+                Long next = segments.higherKey(segment.baseOffset());
+                if (next == null || next != offset) {
+                    throw new IllegalStateException("Ingestion log has no data at offset " + offset);
+                }
+                continue;
+            }
+            byte[] payload = new byte[length];
+            segment.buffer().get(position + HEADER_BYTES, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.buffer().getInt(position + 4)) {
+                throw new IllegalStateException("Corrupt ingestion log record at offset " + offset);
+            }
+            offset += HEADER_BYTES + length;
+            entries.add(decode(payload, offset));
+        }
+        return entries;
+    }
+
+    /**
+     * Records that everything before the offset has been processed and deletes segments that
+     * are no longer needed.
+     *
+     * @param offset The nextOffset of the last processed entry
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void checkpoint(long offset) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, offset));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = offset;
+        deleteConsumedSegments();
+    }
+
+    /**
+     * Records an entry the consumer could not process, as a tab-separated line of the offset after it,
+     * its creation time, the reason and its text, with tabs, line breaks and backslashes escaped.
+     *
+     * @param entry  The entry
+     * @param reason Why it could not be processed
+     * @throws IOException if the dead-letter file cannot be written
+     */
+    public void deadLetter(Entry entry, String reason) throws IOException {
+        String line = entry.nextOffset() + "\t" + entry.createdAt() + "\t" + escape(String.valueOf(reason)) + "\t"
+                + escape(entry.text()) + "\n";
+        try (FileChannel channel = FileChannel.open(directory.resolve(DEAD_LETTER_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    /**
+     * Flushes what was appended and closes the segments. Unprocessed records stay in the log
+     * and are read again after the next start.
+     */
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            closed = true;
+            appended.signal();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segment segment : segments.values()) {
+            try {
+                segment.buffer().force();
+                segment.channel().close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to close ingestion log segment " + segment.path(), e);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        long savedCheckpoint = Files.exists(checkpointFile)
+                ? ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong() : 0;
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long baseOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            segments.put(baseOffset, map(baseOffset, file));
+        }
+        if (segments.isEmpty()) {
+            segments.put(savedCheckpoint, map(savedCheckpoint, segmentPath(savedCheckpoint)));
+        }
+        active = segments.lastEntry().getValue();
+        int end = recoverEnd(active);
+        writeOffset = active.baseOffset() + end;
+        durableOffset = writeOffset;
+        checkpoint = Math.max(savedCheckpoint, segments.firstKey());
+    }
+
+    /**
+     * Finds the end of the last complete record in a segment and zeroes everything after it,
+     * so a torn write or stale bytes are never mistaken for records once appends resume.
+     */
+    private int recoverEnd(Segment segment) throws IOException {
+        MappedByteBuffer buffer = segment.buffer();
+        int capacity = segment.capacity();
+        int position = 0;
+        while (position + HEADER_BYTES <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > capacity) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_BYTES, payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        if (position + HEADER_BYTES <= capacity && buffer.getInt(position) != 0) {
+            logger.warning("Discarding incomplete data at the end of ingestion log segment " + segment.path());
+        }
+        buffer.put(position, new byte[capacity - position]);
+        buffer.force();
+        return position;
+    }
+
+    /**
+     * Forces the active segment to disk and starts a new one. Must be called holding the lock.
+     */
+    private void roll() {
+        long baseOffset = writeOffset;
+        try {
+            active.buffer().force();
+            Segment next = map(baseOffset, segmentPath(baseOffset));
+            segments.put(baseOffset, next);
+            active = next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create ingestion log segment at offset " + baseOffset, e);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Segment segment;
+            long target;
+            long records;
+            lock.lock();
+            try {
+                while (writeOffset == durableOffset && !closed) {
+                    appended.awaitUninterruptibly();
+                }
+                if (writeOffset == durableOffset) {
+                    return;
+                }
+                segment = active;
+                target = writeOffset;
+                records = appendedRecords - flushedRecords;
+            } finally {
+                lock.unlock();
+            }
+            // Earlier segments were forced completely when they were rolled
+            int from = (int) (Math.max(durableOffset, segment.baseOffset()) - segment.baseOffset());
+            int to = (int) (target - segment.baseOffset());
+            long started = System.nanoTime();
+            try {
+                segment.buffer().force(from, to - from);
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Failed to flush the feedback ingestion log; "
+                        + "refusing new records until the application is restarted", e);
+                lock.lock();
+                try {
+                    flushFailure = e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause()
+                            : new IOException(e);
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            flushRecordsSummary.record(records);
+            lock.lock();
+            try {
+                durableOffset = target;
+                flushedRecords += records;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void deleteConsumedSegments() {
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments.values()) {
+            Long next = segments.higherKey(segment.baseOffset());
+            // Only segments that are not being written and were read completely
+            if (next == null || next > checkpoint) {
+                break;
+            }
+            try {
+                FileTime modified = Files.getLastModifiedTime(segment.path());
+                if (now - modified.toMillis() < retentionMs) {
+                    break;
+                }
+                segments.remove(segment.baseOffset());
+                segment.channel().close();
+                Files.deleteIfExists(segment.path());
+                logger.fine(() -> "Deleted consumed ingestion log segment " + segment.path());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to delete ingestion log segment " + segment.path(), e);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Maps a segment file, creating it with segment-bytes if it does not exist. Existing
+     * segments keep their size, in case segment-bytes was changed since they were created.
+     */
+    private Segment map(long baseOffset, Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size() > 0 ? channel.size() : segmentBytes;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        channel.force(true);
+        return new Segment(baseOffset, path, channel, buffer);
+    }
+
+    private Path segmentPath(long baseOffset) {
+        return directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+    }
+
+    private static Entry decode(byte[] payload, long nextOffset) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        String text = new String(payload, TIMESTAMP_BYTES, payload.length - TIMESTAMP_BYTES, StandardCharsets.UTF_8);
+        return new Entry(text, createdAt, nextOffset);
+    }
+}
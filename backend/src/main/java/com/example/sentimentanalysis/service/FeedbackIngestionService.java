@@ -0,0 +1,376 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.FeedbackDTO;
+import com.example.sentimentanalysis.exception.CapacityExceededException;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous ingestion pipeline for feedback.
+ *
+ * In "async" mode, submissions are saved as PENDING rows and acknowledged immediately.
+ * A bounded pool of workers then classifies them off the request thread. The work queue
+ * has a fixed capacity: when it is full, new rows simply stay PENDING in the database and
+ * are picked up by the periodic recovery sweep once capacity frees up. The same sweep
+ * recovers PENDING rows left behind by a restart. With {@code feedback.cluster.enabled}, the
+ * sweep only picks rows older than {@code feedback.ingestion.recovery-min-age-ms}, so it leaves
+ * the rows other instances have just accepted and queued themselves.
+ *
+ * In "log" mode, submissions are only appended to the local {@link FeedbackIngestionLog} and
+ * acknowledged once the log is on disk, so accepting feedback depends on neither the database
+ * nor the ML service. A single consumer thread reads the log in batches of up to
+ * {@code feedback.ingestion.log.batch-size} records, classifies and inserts each batch like a
+ * bulk import, and then checkpoints past it. A batch that fails because the database is
+ * unavailable is retried every {@code feedback.ingestion.log.retry-backoff-ms} until it is back.
+ * A batch the database rejects is written in halves, down to the entry that causes it, so one
+ * bad entry does not hold up the log; that entry is retried {@code feedback.ingestion.log.max-attempts}
+ * times and then moved to the log's dead-letter file. Delivery is at least once: a batch
+ * written just before a crash, but not checkpointed, is inserted again.
+ *
+ * The worker pool is exposed through the executor.* metrics (name "feedback.ingestion"),
+ * and feedback.ingestion.lag records how long a row waited between being saved and
+ * being classified (in log mode, between being appended and being inserted).
+ */
+@Service
+public class FeedbackIngestionService {
+
+    private static final Logger logger = Logger.getLogger(FeedbackIngestionService.class.getName());
+
+    private static final ThrottledLog consumerErrorLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+
+    private final FeedbackService feedbackService;
+    private final FeedbackIngestionLog ingestionLog;
+    private final boolean asyncMode;
+    private final int recoveryBatchSize;
+    private final long recoveryMinAgeMs;
+    private final int logBatchSize;
+    private final long logRetryBackoffMs;
+    private final int logMaxAttempts;
+    private final ThreadPoolExecutor workers;
+    private final Timer lagTimer;
+    private final Timer appendTimer;
+    private final Counter deadLetterCounter;
+    private Thread logConsumer;
+
+    /**
+     * IDs currently queued or being classified, so the recovery sweep never
+     * enqueues the same row twice.
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public FeedbackIngestionService(FeedbackService feedbackService,
+                                    FeedbackIngestionLog ingestionLog,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${feedback.ingestion.mode:sync}") String mode,
+                                    @Value("${feedback.ingestion.workers:4}") int workerCount,
+                                    @Value("${feedback.ingestion.queue-capacity:1000}") int queueCapacity,
+                                    @Value("${feedback.ingestion.recovery-batch-size:500}") int recoveryBatchSize,
+                                    @Value("${feedback.ingestion.recovery-min-age-ms:30000}") long recoveryMinAgeMs,
+                                    @Value("${feedback.cluster.enabled:false}") boolean clustered,
+                                    @Value("${feedback.ingestion.log.batch-size:500}") int logBatchSize,
+                                    @Value("${feedback.ingestion.log.retry-backoff-ms:1000}") long logRetryBackoffMs,
+                                    @Value("${feedback.ingestion.log.max-attempts:5}") int logMaxAttempts) {
+        this.feedbackService = feedbackService;
+        this.ingestionLog = ingestionLog;
+        this.asyncMode = "async".equalsIgnoreCase(mode) || ingestionLog.isEnabled();
+        this.recoveryBatchSize = recoveryBatchSize;
+        this.recoveryMinAgeMs = clustered ? recoveryMinAgeMs : 0;
+        this.logBatchSize = logBatchSize;
+        this.logRetryBackoffMs = logRetryBackoffMs;
+        this.logMaxAttempts = logMaxAttempts;
+        this.workers = new ThreadPoolExecutor(
+                workerCount, workerCount,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                namedThreads("feedback-ingest-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        new ExecutorServiceMetrics(workers, "feedback.ingestion", Tags.empty()).bindTo(meterRegistry);
+        this.lagTimer = Timer.builder("feedback.ingestion.lag")
+                .description("Time between accepting feedback asynchronously and finishing its classification")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.appendTimer = Timer.builder("feedback.ingestion.log.append")
+                .description("Time taken to append feedback to the ingestion log and wait until it is on disk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("feedback.ingestion.log.dead-lettered")
+                .description("Logged feedback entries moved to the dead-letter file after they could not be inserted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether submissions should be accepted asynchronously.
+     *
+     * @return true if feedback.ingestion.mode is "async" or "log"
+     */
+    public boolean isAsyncMode() {
+        return asyncMode;
+    }
+
+    /**
+     * Accepts new feedback: saves it as PENDING and schedules classification. In log mode it
+     * is appended to the ingestion log instead and has no ID yet.
+     *
+     * @param feedbackDTO The feedback data from the client
+     * @return The saved, still unclassified Feedback entity
+     */
+    public Feedback accept(FeedbackDTO feedbackDTO) {
+        return accept(feedbackDTO, null);
+    }
+
+    /**
+     * Same as {@link #accept(FeedbackDTO)}, running a hook in the transaction that inserts the
+     * row. In log mode there is no such transaction: the hook runs once the entry is durable,
+     * and the entry stays in the log if it throws.
+     *
+     * @param feedbackDTO The feedback data from the client
+     * @param onInsert    Called with the accepted feedback before it commits. May be null
+     * @return The saved, still unclassified Feedback entity
+     */
+    public Feedback accept(FeedbackDTO feedbackDTO, Consumer<Feedback> onInsert) {
+        if (ingestionLog.isEnabled()) {
+            Feedback accepted = appendToLog(feedbackDTO);
+            if (onInsert != null) {
+                onInsert.accept(accepted);
+            }
+            return accepted;
+        }
+        Feedback pending = feedbackService.savePendingFeedback(feedbackDTO, onInsert);
+        if (!enqueue(pending)) {
+            logger.fine("Ingestion queue full, feedback " + pending.getId() + " left for recovery sweep");
+        }
+        return pending;
+    }
+
+    /**
+     * Periodically re-enqueues PENDING rows that were not queued because the queue was full,
+     * or that survived a restart. Stops as soon as the queue is full again.
+     */
+    @Scheduled(fixedDelayString = "${feedback.ingestion.recovery-interval-ms:10000}")
+    public void recoverPendingFeedback() {
+        if (!asyncMode) {
+            return;
+        }
+        long afterId = 0;
+        int recovered = 0;
+        LocalDateTime createdBefore = recoveryMinAgeMs > 0
+                ? LocalDateTime.now().minusNanos(recoveryMinAgeMs * 1_000_000) : null;
+        while (workers.getQueue().remainingCapacity() > 0) {
+            List<Feedback> pending = feedbackService.findPendingFeedback(afterId, createdBefore, recoveryBatchSize);
+            if (pending.isEmpty()) {
+                break;
+            }
+            for (Feedback feedback : pending) {
+                afterId = feedback.getId();
+                if (inFlight.contains(feedback.getId())) {
+                    continue;
+                }
+                if (!enqueue(feedback)) {
+                    // Queue is full; the rest waits for the next sweep
+                    logRecovered(recovered);
+                    return;
+                }
+                recovered++;
+            }
+        }
+        logRecovered(recovered);
+    }
+
+    /**
+     * Runs a recovery sweep as soon as the application starts, so PENDING rows
+     * from before a restart are not left waiting for the first scheduled sweep.
+     * In log mode, also starts consuming the ingestion log from its checkpoint.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        recoverPendingFeedback();
+        if (ingestionLog.isEnabled()) {
+            logConsumer = new Thread(this::consumeLog, "feedback-log-consumer");
+            logConsumer.setDaemon(true);
+            logConsumer.start();
+        }
+    }
+
+    /**
+     * Stops the workers. Rows still queued stay PENDING and are recovered on the next start;
+     * records of the ingestion log after its checkpoint are read again.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdownNow();
+        if (logConsumer != null) {
+            logConsumer.interrupt();
+            logConsumer.join(10000);
+        }
+    }
+
+    private Feedback appendToLog(FeedbackDTO feedbackDTO) {
+        Feedback accepted = new Feedback();
+        accepted.setText(feedbackDTO.getText());
+        accepted.setSentimentStatus(SentimentStatus.PENDING);
+        accepted.setCreatedAt(LocalDateTime.now());
+        appendTimer.record(() -> ingestionLog.awaitDurable(
+                ingestionLog.append(accepted.getText(), accepted.getCreatedAt())));
+        return accepted;
+    }
+
+    private void consumeLog() {
+        long offset = ingestionLog.getCheckpoint();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<FeedbackIngestionLog.Entry> entries = ingestionLog.read(offset, logBatchSize, 1000);
+                if (entries.isEmpty()) {
+                    continue;
+                }
+                write(entries);
+                offset = entries.get(entries.size() - 1).nextOffset();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                consumerErrorLog.log(Level.SEVERE, () -> "Feedback ingestion log consumer failed", e);
+                try {
+                    Thread.sleep(logRetryBackoffMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts logged entries and checkpoints past them, splitting the batch to isolate an entry
+     * the database rejects and dead-lettering it once its attempts are used up.
+     */
+    private void write(List<FeedbackIngestionLog.Entry> entries) throws InterruptedException, IOException {
+        int attempts = 0;
+        while (true) {
+            List<Feedback> batch = new ArrayList<>(entries.size());
+            for (FeedbackIngestionLog.Entry entry : entries) {
+                Feedback feedback = new Feedback();
+                feedback.setText(entry.text());
+                feedback.setCreatedAt(entry.createdAt());
+                batch.add(feedback);
+            }
+            Exception failure;
+            try {
+                feedbackService.importFeedback(batch);
+                LocalDateTime now = LocalDateTime.now();
+                batch.forEach(feedback -> lagTimer.record(Duration.between(feedback.getCreatedAt(), now)));
+                break;
+            } catch (Exception e) {
+                failure = e;
+            }
+            if (isUnavailable(failure)) {
+                consumerErrorLog.log(Level.WARNING, () -> "Failed to write " + batch.size()
+                        + " logged feedback entries, retrying", failure);
+            } else if (entries.size() > 1) {
+                int middle = entries.size() / 2;
+                write(entries.subList(0, middle));
+                write(entries.subList(middle, entries.size()));
+                return;
+            } else if (++attempts >= logMaxAttempts) {
+                FeedbackIngestionLog.Entry entry = entries.get(0);
+                ingestionLog.deadLetter(entry, failure.toString());
+                deadLetterCounter.increment();
+                logger.log(Level.SEVERE, "Moved logged feedback entry ending at offset " + entry.nextOffset()
+                        + " to the dead-letter file after " + attempts + " failed attempts", failure);
+                break;
+            } else {
+                consumerErrorLog.log(Level.WARNING, () -> "Failed to write a logged feedback entry, retrying", failure);
+            }
+            Thread.sleep(logRetryBackoffMs);
+        }
+        ingestionLog.checkpoint(entries.get(entries.size() - 1).nextOffset());
+    }
+
+    /**
+     * Whether a failure says the database is unavailable or busy, rather than that it rejected
+     * the entries, so the same batch should simply be retried.
+     */
+    private static boolean isUnavailable(Exception e) {
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException
+                || e instanceof CapacityExceededException;
+    }
+
+    private boolean enqueue(Feedback feedback) {
+        Long id = feedback.getId();
+        if (!inFlight.add(id)) {
+            return true;
+        }
+        try {
+            workers.execute(() -> classify(feedback));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(id);
+            return false;
+        }
+    }
+
+    private void classify(Feedback feedback) {
+        try {
+            feedbackService.classifyAndSave(feedback);
+            if (feedback.getCreatedAt() != null) {
+                lagTimer.record(Duration.between(feedback.getCreatedAt(), LocalDateTime.now()));
+            }
+        } catch (CapacityExceededException e) {
+            // Shed by admission control; the row stays PENDING for the recovery sweep
+            logger.fine(() -> "Deferred feedback " + feedback.getId() + ": " + e.getMessage());
+        } catch (Exception e) {
+            // The row stays PENDING and will be retried by the recovery sweep
+            logger.log(Level.WARNING, "Failed to classify feedback " + feedback.getId(), e);
+        } finally {
+            inFlight.remove(feedback.getId());
+        }
+    }
+
+    private void logRecovered(int recovered) {
+        if (recovered > 0) {
+            logger.info("Re-enqueued " + recovered + " pending feedback entries");
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.model.ReclassificationStatus;
+import com.example.sentimentanalysis.repository.FeedbackArchiveRepository;
+import com.example.sentimentanalysis.repository.ReclassificationJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maintains the monthly partitions of the feedback table and moves old months to the archive.
+ *
+ * The V3 migration range-partitions 'feedback' by TO_DAYS(created_at), starting with a single
+ * catch-all partition (p_future). Maintenance splits it so that there is one partition per
+ * month (p202401, p202402, ...) from the oldest row up to {@code months-ahead} months past
+ * the current one, and keeps it that way as time passes. Months that are more than
+ * {@code feedback.archive.hot-months} months old are copied into 'feedback_archive' and then
+ * dropped from 'feedback', which keeps the hot table, its indexes and the listings that scan
+ * them the size of the hot window however much history accumulates.
+ *
+ * Queries restricted on created_at only touch the matching partitions; {@link #recentWindowStart}
+ * gives listings a recent range to try first so the newest page is read from the newest partitions.
+ *
+ * Maintenance runs on its own thread, on startup and then every {@code maintenance-interval-ms}.
+ * A MySQL named lock keeps several instances from running it at once, and months are not
+ * archived while a re-classification job is running, since it may still update their rows.
+ * A month is copied while it stays writable; the copy is then verified against it, brought up
+ * to date if needed and the partition dropped while both tables are locked, so rows inserted
+ * or updated during the copy are never lost.
+ * Does nothing unless the database is MySQL and the feedback table is partitioned.
+ *
+ * Exports feedback.archive.rows and feedback.partitions.
+ */
+@Service
+@DependsOnDatabaseInitialization
+public class FeedbackPartitionService {
+
+    private static final Logger logger = Logger.getLogger(FeedbackPartitionService.class.getName());
+
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'uuuuMM");
+    private static final String LOCK_NAME = "feedback_partition_maintenance";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FeedbackArchiveRepository archiveRepository;
+    private final ReclassificationJobRepository jobRepository;
+    private final boolean partitioned;
+    private final int monthsAhead;
+    private final int hotMonths;
+    private final int recentWindowMonths;
+    private final int archiveChunkSize;
+    private final long maintenanceIntervalMs;
+
+    private final ScheduledExecutorService executor;
+    private final Counter archivedCounter;
+    private final AtomicInteger partitionCount = new AtomicInteger();
+
+    @Autowired
+    public FeedbackPartitionService(JdbcTemplate jdbcTemplate,
+                                    FeedbackArchiveRepository archiveRepository,
+                                    ReclassificationJobRepository jobRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${feedback.partitioning.enabled:true}") boolean enabled,
+                                    @Value("${feedback.partitioning.months-ahead:3}") int monthsAhead,
+                                    @Value("${feedback.partitioning.recent-window-months:2}") int recentWindowMonths,
+                                    @Value("${feedback.partitioning.maintenance-interval-ms:3600000}") long maintenanceIntervalMs,
+                                    @Value("${feedback.archive.hot-months:12}") int hotMonths,
+                                    @Value("${feedback.archive.chunk-size:10000}") int archiveChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveRepository = archiveRepository;
+        this.jobRepository = jobRepository;
+        this.monthsAhead = monthsAhead;
+        this.recentWindowMonths = recentWindowMonths;
+        this.maintenanceIntervalMs = maintenanceIntervalMs;
+        this.hotMonths = hotMonths;
+        this.archiveChunkSize = archiveChunkSize;
+        this.partitioned = enabled && isFeedbackPartitioned();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "feedback-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.archivedCounter = Counter.builder("feedback.archive.rows")
+                .description("Feedback rows moved from the feedback table to the archive")
+                .register(meterRegistry);
+        Gauge.builder("feedback.partitions", partitionCount, AtomicInteger::get)
+                .description("Partitions of the feedback table, including the catch-all one")
+                .register(meterRegistry);
+    }
+
+    private boolean isFeedbackPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "MySQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName())))
+                && !partitionNames().isEmpty();
+    }
+
+    /**
+     * @return Whether the feedback table is partitioned and maintained by this service
+     */
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * Start of the recent range a newest-first listing should try before scanning every
+     * partition: the first day of the month {@code recent-window-months - 1} months before
+     * the upper bound of the listing.
+     *
+     * @param upperBound Where the listing starts (a cursor, its 'to' bound, or now)
+     * @return The start of the range, or null if listings should not be narrowed
+     */
+    public LocalDateTime recentWindowStart(LocalDateTime upperBound) {
+        if (!partitioned || recentWindowMonths <= 0) {
+            return null;
+        }
+        return YearMonth.from(upperBound).minusMonths(recentWindowMonths - 1L).atDay(1).atStartOfDay();
+    }
+
+    /**
+     * Starts the periodic maintenance.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!partitioned) {
+            logger.info("The feedback table is not partitioned; partition maintenance is disabled");
+            return;
+        }
+        executor.scheduleWithFixedDelay(this::maintainQuietly, 0, maintenanceIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Feedback partition maintenance failed, will retry", e);
+        }
+    }
+
+    /**
+     * Adds the partitions for the coming months and archives the months that left the hot
+     * window. Skipped if another instance holds the maintenance lock.
+     */
+    public void maintain() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            // Named locks belong to the connection, which is held until the work below is done
+            try (PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                lock.setString(1, LOCK_NAME);
+                try (ResultSet rs = lock.executeQuery()) {
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        logger.fine("Another instance is maintaining the feedback partitions");
+                        return null;
+                    }
+                }
+            }
+            try {
+                addPartitions();
+                archiveOldPartitions(connection);
+                partitionCount.set(partitionNames().size());
+            } finally {
+                try (PreparedStatement unlock = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    unlock.setString(1, LOCK_NAME);
+                    unlock.executeQuery().close();
+                }
+            }
+            return null;
+        });
+    }
+
+    private void addPartitions() {
+        List<YearMonth> months = monthlyPartitions();
+        YearMonth first;
+        if (months.isEmpty()) {
+            // First run after the migration: cover every row already in the catch-all partition
+            Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM feedback", Timestamp.class);
+            first = oldest == null ? YearMonth.now() : YearMonth.from(oldest.toLocalDateTime());
+        } else {
+            first = months.get(months.size() - 1).plusMonths(1);
+        }
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        if (first.isAfter(last)) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder("ALTER TABLE feedback REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (");
+        int added = 0;
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            sql.append("PARTITION ").append(month.format(PARTITION_NAME))
+                    .append(" VALUES LESS THAN (TO_DAYS('").append(month.plusMonths(1).atDay(1)).append("')), ");
+            added++;
+        }
+        sql.append("PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+
+        long started = System.nanoTime();
+        jdbcTemplate.execute(sql.toString());
+        logger.info("Added " + added + " monthly feedback partitions from " + first + " to " + last + " in "
+                + (System.nanoTime() - started) / 1_000_000 + " ms");
+    }
+
+    private void archiveOldPartitions(Connection connection) throws SQLException {
+        if (hotMonths <= 0 || !archiveRepository.isAvailable()) {
+            return;
+        }
+        YearMonth oldestHot = YearMonth.now().minusMonths(hotMonths);
+        List<YearMonth> expired = monthlyPartitions().stream().filter(month -> month.isBefore(oldestHot)).toList();
+        if (expired.isEmpty()) {
+            return;
+        }
+        boolean reclassifying = jobRepository.findFirstByOrderByIdDesc()
+                .filter(job -> job.getStatus() == ReclassificationStatus.RUNNING)
+                .isPresent();
+        if (reclassifying) {
+            logger.info("Not archiving " + expired.size() + " feedback partitions while a re-classification job runs");
+            return;
+        }
+        for (YearMonth month : expired) {
+            archivePartition(connection, month);
+        }
+    }
+
+    /**
+     * Moves one month to the archive. The bulk copy runs while the month stays writable; the
+     * final check, catch-up and drop run on the maintenance connection with both tables locked.
+     */
+    private void archivePartition(Connection connection, YearMonth month) throws SQLException {
+        String partition = month.format(PARTITION_NAME);
+        long started = System.nanoTime();
+        archiveRepository.copyPartition(partition, archiveChunkSize);
+
+        String hot = "feedback PARTITION (" + partition + ")";
+        String archived = FeedbackArchiveRepository.TABLE + " WHERE created_at >= '" + month.atDay(1)
+                + "' AND created_at < '" + month.plusMonths(1).atDay(1) + "'";
+        long rows;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LOCK TABLES feedback WRITE, " + FeedbackArchiveRepository.TABLE + " WRITE");
+            try {
+                // Row counts miss updates, so compare the content of every row
+                long[] hotChecksum = checksum(statement, hot);
+                if (!Arrays.equals(hotChecksum, checksum(statement, archived))) {
+                    logger.info("Feedback partition " + partition + " changed while it was copied; copying it again");
+                    statement.executeUpdate("REPLACE INTO " + FeedbackArchiveRepository.TABLE + " ("
+                            + FeedbackArchiveRepository.STORED_COLUMNS + ") SELECT "
+                            + FeedbackArchiveRepository.STORED_COLUMNS + " FROM " + hot);
+                }
+                rows = hotChecksum[0];
+                statement.execute("ALTER TABLE feedback DROP PARTITION " + partition);
+            } finally {
+                statement.execute("UNLOCK TABLES");
+            }
+        }
+        archivedCounter.increment(rows);
+        logger.info("Archived feedback partition " + partition + " (" + rows + " rows) in "
+                + (System.nanoTime() - started) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Counts the rows and combines a 60-bit hash of every stored column, independently of row
+     * order; 60 bits so the result fits a signed long.
+     *
+     * @param statement A statement on the locked connection
+     * @param rows      The table (and condition) to read
+     * @return The row count and the combined hash
+     */
+    private static long[] checksum(Statement statement, String rows) throws SQLException {
+        StringBuilder values = new StringBuilder();
+        for (String column : FeedbackArchiveRepository.STORED_COLUMNS.split(", ")) {
+            // QUOTE tells NULL from an empty or 'NULL' string
+            values.append(values.length() == 0 ? "" : ", ").append("QUOTE(").append(column).append(')');
+        }
+        String sql = "SELECT COUNT(*), BIT_XOR(CAST(CONV(LEFT(MD5(CONCAT_WS(',', " + values
+                + ")), 15), 16, 10) AS UNSIGNED)) FROM " + rows;
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return new long[]{rs.getLong(1), rs.getLong(2)};
+        }
+    }
+
+    private List<YearMonth> monthlyPartitions() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : partitionNames()) {
+            if (!FUTURE_PARTITION.equals(name)) {
+                months.add(YearMonth.parse(name, PARTITION_NAME));
+            }
+        }
+        return months;
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'feedback' AND PARTITION_NAME IS NOT NULL "
+                + "ORDER BY PARTITION_ORDINAL_POSITION", String.class);
+    }
+}
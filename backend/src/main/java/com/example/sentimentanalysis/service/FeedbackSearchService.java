@@ -0,0 +1,484 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.dto.FeedbackSearchResultDTO;
+import com.example.sentimentanalysis.dto.SearchOrder;
+import com.example.sentimentanalysis.event.ClusterResyncEvent;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import com.example.sentimentanalysis.repository.FeedbackArchiveRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Full-text search over feedback, backed by a Lucene index on local disk
+ * ({@code feedback.search.index-dir}).
+ *
+ * The index is updated as rows are saved, from {@link FeedbackChangedEvent}s. Updates become
+ * searchable within {@code feedback.search.refresh-interval-ms} and are committed to disk every
+ * {@code feedback.search.commit-interval-ms} and on shutdown. On startup, rows newer than the
+ * newest indexed one are added, so a crash only loses re-classifications made since the last
+ * commit; {@link #rebuild()} re-indexes the whole feedback table and its archive. Rows keep
+ * their documents when they are archived.
+ *
+ * Text is analyzed with Lucene's English analyzer, so queries match other forms of a word
+ * ("refunds" finds "refund"). Search results are built from stored fields and never touch
+ * the database.
+ */
+@Service
+public class FeedbackSearchService {
+
+    private static final Logger logger = Logger.getLogger(FeedbackSearchService.class.getName());
+
+    private static final ThrottledLog indexFailureLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+
+    /**
+     * Upper bound on the page size a client may request.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String ID = "id";
+    private static final String ID_VALUE = "id_value";
+    private static final String TEXT = "text";
+    private static final String LABEL = "label";
+    private static final String SCORE = "score";
+    private static final String STATUS = "status";
+    private static final String MODEL_VERSION = "model_version";
+    private static final String CREATED_AT = "created_at";
+    private static final String CREATED_AT_VALUE = "created_at_value";
+    private static final String GENERATION = "generation";
+
+    private static final String SELECT_SQL =
+            "SELECT " + FeedbackArchiveRepository.COLUMNS + FeedbackArchiveRepository.fromWithText("feedback");
+    private static final String SELECT_ARCHIVED_SQL = "SELECT " + FeedbackArchiveRepository.COLUMNS
+            + FeedbackArchiveRepository.fromWithText(FeedbackArchiveRepository.TABLE);
+
+    private static final Sort NEWEST_FIRST = new Sort(
+            new SortedNumericSortField(CREATED_AT_VALUE, SortField.Type.LONG, true),
+            new SortedNumericSortField(ID_VALUE, SortField.Type.LONG, true));
+    private static final Sort BEST_MATCH_FIRST = new Sort(
+            SortField.FIELD_SCORE,
+            new SortedNumericSortField(CREATED_AT_VALUE, SortField.Type.LONG, true),
+            new SortedNumericSortField(ID_VALUE, SortField.Type.LONG, true));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FeedbackArchiveRepository archiveRepository;
+    private final Path indexDir;
+    private final double ramBufferMb;
+    private final int maxResultWindow;
+    private final int fetchSize;
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final Timer searchTimer;
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    /**
+     * Stamped on every document written, so a rebuild can remove documents whose row is gone:
+     * they are the ones it did not rewrite.
+     */
+    private volatile long generation;
+
+    @Autowired
+    public FeedbackSearchService(JdbcTemplate jdbcTemplate,
+                                 FeedbackArchiveRepository archiveRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${feedback.search.index-dir:data/search-index}") String indexDir,
+                                 @Value("${feedback.search.ram-buffer-mb:32}") double ramBufferMb,
+                                 @Value("${feedback.search.max-result-window:10000}") int maxResultWindow,
+                                 @Value("${feedback.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveRepository = archiveRepository;
+        this.indexDir = Path.of(indexDir);
+        this.ramBufferMb = ramBufferMb;
+        this.maxResultWindow = maxResultWindow;
+        this.fetchSize = fetchSize;
+        this.searchTimer = Timer.builder("feedback.search.query")
+                .description("Time taken to answer a full-text search")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("feedback.search.documents", this, FeedbackSearchService::getDocumentCount)
+                .description("Feedback entries in the full-text index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens the index, creating it if it does not exist.
+     *
+     * @throws IOException if the index directory cannot be opened
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(indexDir);
+        directory = FSDirectory.open(indexDir);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(ramBufferMb);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+        generation = System.currentTimeMillis();
+        logger.info("Opened feedback search index at " + indexDir.toAbsolutePath()
+                + " with " + writer.getDocStats().numDocs + " documents");
+    }
+
+    /**
+     * Brings the index up to date with the table once the application has started:
+     * builds it from scratch if it is empty, otherwise adds the rows saved after the
+     * newest indexed one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpOnStartup() {
+        try {
+            long lastIndexedId = findLastIndexedId();
+            if (lastIndexedId < 0) {
+                rebuild();
+                return;
+            }
+            long started = System.nanoTime();
+            long indexed = indexRows(SELECT_SQL + " WHERE id > ? ORDER BY id", lastIndexedId);
+            commit();
+            refresh();
+            if (indexed > 0) {
+                logger.info("Indexed " + indexed + " feedback entries saved since the last commit in "
+                        + (System.nanoTime() - started) / 1_000_000 + " ms");
+            }
+        } catch (IOException | RuntimeException e) {
+            // Searches work on what is indexed; POST /api/feedback/search/rebuild can repair it later
+            logger.log(Level.WARNING, "Failed to bring the feedback search index up to date", e);
+        }
+    }
+
+    /**
+     * Re-indexes the rows another instance may have changed without this one hearing of it:
+     * those created since the resync's cutoff and those saved after the newest indexed one.
+     *
+     * @param event The periodic resync
+     */
+    @EventListener
+    public synchronized void onClusterResync(ClusterResyncEvent event) {
+        try {
+            indexRows(SELECT_SQL + " WHERE f.id > ? OR f.created_at >= ? ORDER BY f.id", findLastIndexedId(),
+                    event.since());
+        } catch (IOException | RuntimeException e) {
+            indexFailureLog.log(Level.WARNING, () -> "Failed to resync the feedback search index", e);
+        }
+    }
+
+    /**
+     * Adds or replaces the document for a saved row.
+     *
+     * @param event The change to index
+     */
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        Feedback feedback = event.feedback();
+        if (feedback.getId() == null) {
+            return;
+        }
+        try {
+            writer.updateDocument(new Term(ID, feedback.getId().toString()), toDocument(feedback, generation));
+        } catch (IOException | RuntimeException e) {
+            // Searches miss this row until the next rebuild
+            indexFailureLog.log(Level.WARNING, () -> "Failed to index feedback " + feedback.getId(), e);
+        }
+    }
+
+    /**
+     * Searches feedback text. The query supports keywords (all must match), quoted phrases,
+     * OR, and exclusion with a leading minus, e.g. {@code checkout -"gift card"}.
+     *
+     * @param queryText The search query
+     * @param filter    Sentiment label, date range and score range to restrict the results to
+     * @param order     How to order the results
+     * @param page      Zero-based page number
+     * @param size      Page size (capped at {@link #MAX_PAGE_SIZE})
+     * @return The requested page of matching feedback
+     * @throws InvalidRequestException if the query is empty or malformed, or the page is out of range
+     */
+    public FeedbackSearchResultDTO search(String queryText, FeedbackFilter filter, SearchOrder order,
+                                          int page, int size) {
+        if (queryText == null || queryText.isBlank()) {
+            throw new InvalidRequestException("Search query must not be empty");
+        }
+        if (page < 0) {
+            throw new InvalidRequestException("page must not be negative");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        if ((long) (page + 1) * pageSize > maxResultWindow) {
+            throw new InvalidRequestException("Only the first " + maxResultWindow
+                    + " results can be paged through; narrow the query or filters");
+        }
+        Query query = buildQuery(queryText, filter);
+
+        long started = System.nanoTime();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int wanted = (page + 1) * pageSize;
+                // Ask for one more hit than needed to learn whether another page exists
+                TopFieldDocs top = searcher.search(query, wanted + 1,
+                        order == SearchOrder.NEWEST ? NEWEST_FIRST : BEST_MATCH_FIRST, false);
+                StoredFields storedFields = searcher.storedFields();
+                List<Feedback> items = new ArrayList<>(pageSize);
+                ScoreDoc[] hits = top.scoreDocs;
+                for (int i = page * pageSize; i < Math.min(hits.length, wanted); i++) {
+                    items.add(toFeedback(storedFields.document(hits[i].doc)));
+                }
+                long tookMs = (System.nanoTime() - started) / 1_000_000;
+                return new FeedbackSearchResultDTO(items, top.totalHits.value,
+                        top.totalHits.relation == TotalHits.Relation.EQUAL_TO,
+                        page, pageSize, hits.length > wanted, tookMs);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to search feedback", e);
+        } finally {
+            searchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Re-indexes every row of the feedback table and the archive, and removes documents whose
+     * row no longer exists. Searches keep working on the existing documents while it runs.
+     *
+     * @return The number of rows indexed
+     * @throws IOException if writing the index fails
+     */
+    public synchronized long rebuild() throws IOException {
+        long started = System.nanoTime();
+        long rebuildGeneration = System.currentTimeMillis();
+        generation = rebuildGeneration;
+        long indexed = indexRows(SELECT_SQL + " ORDER BY id");
+        if (archiveRepository.isAvailable()) {
+            indexed += indexRows(SELECT_ARCHIVED_SQL + " ORDER BY id");
+        }
+        writer.deleteDocuments(LongField.newRangeQuery(GENERATION, Long.MIN_VALUE, rebuildGeneration - 1));
+        commit();
+        refresh();
+        logger.info("Rebuilt feedback search index with " + indexed + " entries in "
+                + (System.nanoTime() - started) / 1_000_000 + " ms");
+        return indexed;
+    }
+
+    /**
+     * Makes recent updates visible to searches.
+     */
+    @Scheduled(fixedDelayString = "${feedback.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to refresh the feedback search index", e);
+        }
+    }
+
+    /**
+     * Persists recent updates to disk.
+     */
+    @Scheduled(fixedDelayString = "${feedback.search.commit-interval-ms:60000}")
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to commit the feedback search index", e);
+        }
+    }
+
+    /**
+     * Commits pending updates and closes the index.
+     *
+     * @throws IOException if closing the index fails
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private int getDocumentCount() {
+        return writer.isOpen() ? writer.getDocStats().numDocs : 0;
+    }
+
+    private Query buildQuery(String queryText, FeedbackFilter filter) {
+        // QueryParser is not thread-safe, so each search gets its own
+        QueryParser parser = new QueryParser(TEXT, analyzer);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        Query textQuery;
+        try {
+            textQuery = parser.parse(queryText);
+        } catch (ParseException e) {
+            throw new InvalidRequestException("Invalid search query: " + queryText, e);
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+        if (filter.getSentimentLabel() != null) {
+            query.add(new TermQuery(new Term(LABEL, filter.getSentimentLabel())), BooleanClause.Occur.FILTER);
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            long from = filter.getFrom() == null ? Long.MIN_VALUE : toEpochMilli(filter.getFrom());
+            long to = filter.getTo() == null ? Long.MAX_VALUE : toEpochMilli(filter.getTo()) - 1;
+            query.add(LongField.newRangeQuery(CREATED_AT_VALUE, from, to), BooleanClause.Occur.FILTER);
+        }
+        if (filter.getMinScore() != null || filter.getMaxScore() != null) {
+            double min = filter.getMinScore() == null ? Double.NEGATIVE_INFINITY : filter.getMinScore();
+            double max = filter.getMaxScore() == null ? Double.POSITIVE_INFINITY : filter.getMaxScore();
+            query.add(DoubleField.newRangeQuery(SCORE, min, max), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+
+    private long findLastIndexedId() throws IOException {
+        searcherManager.maybeRefreshBlocking();
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs top = searcher.search(new MatchAllDocsQuery(), 1,
+                    new Sort(new SortedNumericSortField(ID_VALUE, SortField.Type.LONG, true)));
+            if (top.scoreDocs.length == 0) {
+                return -1;
+            }
+            return Long.parseLong(searcher.storedFields().document(top.scoreDocs[0].doc).get(ID));
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Streams the rows selected by the query into the index.
+     */
+    private long indexRows(String sql, Object... args) throws IOException {
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                Feedback feedback = FeedbackArchiveRepository.mapRow(rs);
+                try {
+                    writer.updateDocument(new Term(ID, feedback.getId().toString()), toDocument(feedback, generation));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    private static Document toDocument(Feedback feedback, long generation) {
+        Document document = new Document();
+        document.add(new StringField(ID, feedback.getId().toString(), Field.Store.YES));
+        document.add(new LongField(ID_VALUE, feedback.getId(), Field.Store.NO));
+        document.add(new TextField(TEXT, feedback.getText(), Field.Store.YES));
+        document.add(new LongField(GENERATION, generation, Field.Store.NO));
+        if (feedback.getSentimentLabel() != null) {
+            document.add(new StringField(LABEL, feedback.getSentimentLabel(), Field.Store.YES));
+        }
+        if (feedback.getSentimentScore() != null) {
+            document.add(new DoubleField(SCORE, feedback.getSentimentScore(), Field.Store.YES));
+        }
+        if (feedback.getSentimentStatus() != null) {
+            document.add(new StoredField(STATUS, feedback.getSentimentStatus().name()));
+        }
+        if (feedback.getModelVersion() != null) {
+            document.add(new StoredField(MODEL_VERSION, feedback.getModelVersion()));
+        }
+        if (feedback.getCreatedAt() != null) {
+            document.add(new StoredField(CREATED_AT, feedback.getCreatedAt().toString()));
+            document.add(new LongField(CREATED_AT_VALUE, toEpochMilli(feedback.getCreatedAt()), Field.Store.NO));
+        }
+        return document;
+    }
+
+    private static Feedback toFeedback(Document document) {
+        Feedback feedback = new Feedback();
+        feedback.setId(Long.parseLong(document.get(ID)));
+        feedback.setText(document.get(TEXT));
+        feedback.setSentimentLabel(document.get(LABEL));
+        Number score = document.getField(SCORE) == null ? null : document.getField(SCORE).numericValue();
+        feedback.setSentimentScore(score == null ? null : score.doubleValue());
+        String status = document.get(STATUS);
+        feedback.setSentimentStatus(status == null ? null : SentimentStatus.valueOf(status));
+        feedback.setModelVersion(document.get(MODEL_VERSION));
+        String createdAt = document.get(CREATED_AT);
+        feedback.setCreatedAt(createdAt == null ? null : LocalDateTime.parse(createdAt));
+        return feedback;
+    }
+
+    /**
+     * Timestamps are stored without a zone, so they are indexed as if they were UTC;
+     * only their order and differences matter.
+     */
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -1,33 +1,171 @@
 package com.example.sentimentanalysis.service;
 
+import com.example.sentimentanalysis.dto.FeedbackCursor;
 import com.example.sentimentanalysis.dto.FeedbackDTO;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.dto.FeedbackPageDTO;
+import com.example.sentimentanalysis.dto.KeywordStatsDTO;
+import com.example.sentimentanalysis.dto.SentimentBucketDTO;
+import com.example.sentimentanalysis.dto.TimeBucket;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
 import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.FeedbackText;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import com.example.sentimentanalysis.repository.FeedbackArchiveRepository;
 import com.example.sentimentanalysis.repository.FeedbackRepository;
+import com.example.sentimentanalysis.repository.FeedbackSpecifications;
+import com.example.sentimentanalysis.repository.FeedbackTextRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Service class for handling feedback-related business logic.
+ *
+ * Records feedback.process (end-to-end latency of synchronous submissions) and
+ * feedback.stats.query (tagged by query). Per-request details are only logged at FINE;
+ * warnings that would repeat for every request are throttled.
+ *
+ * Repository calls made for a request go through the database {@link Bulkhead}; the ML call
+ * happens outside it, so a slow ML service never holds database permits.
+ *
+ * The analysis and the write of a single submission each pass an
+ * {@link AdaptiveConcurrencyLimiter} first, which refuses the submission while that stage is
+ * overloaded. Bulk imports are not shed part way through.
+ *
+ * Single rows are read through the {@link FeedbackEntityCache}. Aggregate responses are
+ * cached under the {@link SentimentStatsStore} version they were computed from, so repeated
+ * polls between two changes are answered without recomputing them.
+ *
+ * Reads fall through from the hot feedback table to the archive of old months kept by
+ * {@link FeedbackPartitionService}.
+ *
+ * Texts are stored once per distinct text through {@link FeedbackTextRepository} before the
+ * rows that reference them. An exact duplicate of a text the current model has already scored
+ * reuses the stored result instead of calling the ML service (feedback.text.reused).
  */
 @Service
 public class FeedbackService {
 
     private static final Logger logger = Logger.getLogger(FeedbackService.class.getName());
 
+    /**
+     * Upper bound on the page size a client may request.
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final Sort PAGE_ORDER = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    private static final ThrottledLog analysisErrorLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+    private static final ThrottledLog malformedResultLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+
     private final FeedbackRepository feedbackRepository;
+    private final FeedbackArchiveRepository archiveRepository;
+    private final FeedbackTextRepository textRepository;
+    private final FeedbackPartitionService partitionService;
     private final SentimentAnalysisService sentimentAnalysisService;
+    private final SentimentResultCache sentimentResultCache;
+    private final SentimentStatsStore sentimentStatsStore;
+    private final KeywordSketchStore keywordSketchStore;
+    private final FeedbackEntityCache feedbackEntityCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Bulkhead databaseBulkhead;
+    private final AdaptiveConcurrencyLimiter mlAdmissionLimiter;
+    private final AdaptiveConcurrencyLimiter databaseAdmissionLimiter;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer processTimer;
+    private final Counter reusedCounter;
+    private final Timer totalsQueryTimer;
+    private final Timer timeseriesQueryTimer;
+    private final Timer keywordsQueryTimer;
+
+    /**
+     * Aggregate responses keyed by query and data version. Entries of older versions are
+     * never read again and are evicted by size.
+     */
+    private final Cache<List<Object>, Object> aggregateCache;
 
     @Autowired
     public FeedbackService(FeedbackRepository feedbackRepository, 
-                          SentimentAnalysisService sentimentAnalysisService) {
+                          FeedbackArchiveRepository archiveRepository,
+                          FeedbackTextRepository textRepository,
+                          FeedbackPartitionService partitionService,
+                          SentimentAnalysisService sentimentAnalysisService,
+                          SentimentResultCache sentimentResultCache,
+                          SentimentStatsStore sentimentStatsStore,
+                          KeywordSketchStore keywordSketchStore,
+                          FeedbackEntityCache feedbackEntityCache,
+                          ApplicationEventPublisher eventPublisher,
+                          @Qualifier("databaseBulkhead") Bulkhead databaseBulkhead,
+                          @Qualifier("mlAdmissionLimiter") AdaptiveConcurrencyLimiter mlAdmissionLimiter,
+                          @Qualifier("databaseAdmissionLimiter") AdaptiveConcurrencyLimiter databaseAdmissionLimiter,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${feedback.cache.aggregate-max-size:1000}") long aggregateMaxSize) {
         this.feedbackRepository = feedbackRepository;
+        this.archiveRepository = archiveRepository;
+        this.textRepository = textRepository;
+        this.partitionService = partitionService;
         this.sentimentAnalysisService = sentimentAnalysisService;
+        this.sentimentResultCache = sentimentResultCache;
+        this.sentimentStatsStore = sentimentStatsStore;
+        this.keywordSketchStore = keywordSketchStore;
+        this.feedbackEntityCache = feedbackEntityCache;
+        this.eventPublisher = eventPublisher;
+        this.databaseBulkhead = databaseBulkhead;
+        this.mlAdmissionLimiter = mlAdmissionLimiter;
+        this.databaseAdmissionLimiter = databaseAdmissionLimiter;
+        this.transactionTemplate = transactionTemplate;
+        this.processTimer = Timer.builder("feedback.process")
+                .description("End-to-end latency of processing a feedback submission synchronously")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.reusedCounter = Counter.builder("feedback.text.reused")
+                .description("Submissions classified with the result stored for an identical text")
+                .register(meterRegistry);
+        this.totalsQueryTimer = statsQueryTimer(meterRegistry, "totals");
+        this.timeseriesQueryTimer = statsQueryTimer(meterRegistry, "timeseries");
+        this.keywordsQueryTimer = statsQueryTimer(meterRegistry, "keywords");
+        this.aggregateCache = Caffeine.newBuilder()
+                .maximumSize(aggregateMaxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, aggregateCache, "feedback-aggregates");
+    }
+
+    private static Timer statsQueryTimer(MeterRegistry meterRegistry, String query) {
+        return Timer.builder("feedback.stats.query")
+                .description("Time taken to answer a sentiment statistics query")
+                .tag("query", query)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     /**
@@ -37,94 +175,357 @@ public class FeedbackService {
      * @return The saved Feedback entity with sentiment analysis results
      */
     public Feedback processFeedback(FeedbackDTO feedbackDTO) {
-        logger.info("Processing feedback: " + feedbackDTO.getText());
-        
-        // Create new feedback entity
+        return processFeedback(feedbackDTO, null);
+    }
+
+    /**
+     * Same as {@link #processFeedback(FeedbackDTO)}, running a hook in the transaction that
+     * inserts the row.
+     * 
+     * @param feedbackDTO The feedback data from the client
+     * @param onInsert    Called with the inserted row before it commits; throwing rolls the
+     *                    insert back. May be null
+     * @return The saved Feedback entity with sentiment analysis results
+     */
+    public Feedback processFeedback(FeedbackDTO feedbackDTO, Consumer<Feedback> onInsert) {
+        return processTimer.record(() -> {
+            logger.fine(() -> "Processing feedback of " + feedbackDTO.getText().length() + " characters");
+            
+            // Create new feedback entity
+            Feedback feedback = new Feedback();
+            feedback.setText(feedbackDTO.getText());
+            
+            return classifyAndSave(feedback, onInsert);
+        });
+    }
+
+    /**
+     * Saves new feedback without analyzing it. The row is stored with a PENDING
+     * sentiment status and is expected to be passed to {@link #classifyAndSave(Feedback)} later.
+     * 
+     * @param feedbackDTO The feedback data from the client
+     * @return The saved, still unclassified Feedback entity
+     */
+    public Feedback savePendingFeedback(FeedbackDTO feedbackDTO) {
+        return savePendingFeedback(feedbackDTO, null);
+    }
+
+    /**
+     * Same as {@link #savePendingFeedback(FeedbackDTO)}, running a hook in the transaction
+     * that inserts the row.
+     * 
+     * @param feedbackDTO The feedback data from the client
+     * @param onInsert    Called with the inserted row before it commits; throwing rolls the
+     *                    insert back. May be null
+     * @return The saved, still unclassified Feedback entity
+     */
+    public Feedback savePendingFeedback(FeedbackDTO feedbackDTO, Consumer<Feedback> onInsert) {
         Feedback feedback = new Feedback();
         feedback.setText(feedbackDTO.getText());
+        feedback.setSentimentStatus(SentimentStatus.PENDING);
+        
+        Feedback savedFeedback = databaseAdmissionLimiter.call(() -> databaseBulkhead.call(() -> save(() -> {
+            textRepository.storeAll(List.of(feedback), null);
+            return feedbackRepository.save(feedback);
+        }, onInsert)));
+        logger.fine(() -> "Saved pending feedback with ID: " + savedFeedback.getId());
+        eventPublisher.publishEvent(new FeedbackChangedEvent(savedFeedback, true, null, null));
+        return savedFeedback;
+    }
+
+    /**
+     * Analyzes the sentiment of a feedback entity and saves the result.
+     * Works for both new entities and PENDING rows that were saved earlier.
+     * 
+     * @param feedback The feedback to classify
+     * @return The saved Feedback entity with sentiment analysis results
+     */
+    public Feedback classifyAndSave(Feedback feedback) {
+        return classifyAndSave(feedback, null);
+    }
+
+    private Feedback classifyAndSave(Feedback feedback, Consumer<Feedback> onInsert) {
+        boolean created = feedback.getId() == null;
+        String previousLabel = feedback.getSentimentLabel();
+        Double previousScore = feedback.getSentimentScore();
         
+        // Skip the analysis if the same text was already scored by the current model
+        Map<String, Object> reused = findReusableResults(List.of(feedback)).get(feedback.getTextHash());
+        // Analyze sentiment; refused outright while the ML stage is over its admission limit
+        Map<String, Object> sentimentResult = reused != null ? reused
+                : mlAdmissionLimiter.call(() -> sentimentAnalysisService.analyzeSentiment(feedback.getText()));
         try {
-            // Analyze sentiment
-            Map<String, Object> sentimentResult = sentimentAnalysisService.analyzeSentiment(feedbackDTO.getText());
-            logger.info("Sentiment analysis result: " + sentimentResult);
+            logger.fine(() -> "Sentiment analysis result: " + sentimentResult);
             
-            // Set sentiment data with proper type checking
-            if (sentimentResult != null) {
-                if (sentimentResult.containsKey("label")) {
-                    Object labelObj = sentimentResult.get("label");
-                    if (labelObj != null) {
-                        feedback.setSentimentLabel(labelObj.toString());
-                    } else {
-                        logger.warning("Sentiment label is null");
-                    }
+            applySentimentResult(feedback, sentimentResult);
+        } catch (Exception e) {
+            analysisErrorLog.log(Level.SEVERE, () -> "Error during sentiment analysis: " + e.getMessage());
+            // Continue anyway, saving the feedback without sentiment data
+        }
+        feedback.setSentimentStatus(SentimentStatus.CLASSIFIED);
+        
+        // Save and return
+        Feedback savedFeedback = databaseAdmissionLimiter.call(() -> databaseBulkhead.call(() -> save(() -> {
+            textRepository.storeAll(List.of(feedback), sentimentResultCache.getModelVersion());
+            return feedbackRepository.save(feedback);
+        }, onInsert)));
+        logger.fine(() -> "Saved feedback with ID: " + savedFeedback.getId());
+        eventPublisher.publishEvent(new FeedbackChangedEvent(savedFeedback, created, previousLabel, previousScore));
+        return savedFeedback;
+    }
+
+    /**
+     * Runs a save, together with the hook in one transaction if there is a hook.
+     */
+    private Feedback save(Supplier<Feedback> save, Consumer<Feedback> onInsert) {
+        if (onInsert == null) {
+            return save.get();
+        }
+        return transactionTemplate.execute(status -> {
+            Feedback saved = save.get();
+            onInsert.accept(saved);
+            return saved;
+        });
+    }
+
+    /**
+     * Classifies and inserts a batch of new feedback entries. The texts are analyzed
+     * together and the rows are written with one JDBC batch instead of one insert each.
+     * 
+     * @param feedback New, unsaved entries; a preset createdAt is kept
+     * @return The same entries with their IDs and sentiment results set
+     */
+    public List<Feedback> importFeedback(List<Feedback> feedback) {
+        Map<String, Map<String, Object>> reused = findReusableResults(feedback);
+        List<Feedback> unscored = feedback.stream()
+                .filter(entry -> !reused.containsKey(entry.getTextHash()))
+                .toList();
+        List<Map<String, Object>> results = unscored.isEmpty() ? List.of()
+                : sentimentAnalysisService.analyzeSentimentBatch(unscored.stream().map(Feedback::getText).toList());
+        int next = 0;
+        for (Feedback entry : feedback) {
+            Map<String, Object> result = reused.get(entry.getTextHash());
+            applySentimentResult(entry, result != null ? result : results.get(next++));
+            entry.setSentimentStatus(SentimentStatus.CLASSIFIED);
+        }
+        
+        databaseBulkhead.run(() -> {
+            textRepository.storeAll(feedback, sentimentResultCache.getModelVersion());
+            feedbackRepository.insertAll(feedback);
+        });
+        logger.fine(() -> "Imported " + feedback.size() + " feedback entries");
+        feedback.forEach(saved -> eventPublisher.publishEvent(new FeedbackChangedEvent(saved, true, null, null)));
+        return feedback;
+    }
+
+    /**
+     * Looks up the results the current model recorded for exact duplicates of the entries'
+     * texts, and sets the entries' textHash. Texts with a result in the in-memory
+     * {@link SentimentResultCache} are not looked up, since analyzing them is as cheap; nothing
+     * is reused until a model result has reported the current version.
+     *
+     * @param feedback Entries with their text set
+     * @return Reusable results by text hash
+     */
+    private Map<String, Map<String, Object>> findReusableResults(List<Feedback> feedback) {
+        String modelVersion = sentimentResultCache.getModelVersion();
+        List<String> hashes = new ArrayList<>();
+        for (Feedback entry : feedback) {
+            if (entry.getTextHash() == null) {
+                entry.setTextHash(FeedbackText.hashOf(entry.getText()));
+            }
+            if (modelVersion != null && !sentimentResultCache.isCached(entry.getText())) {
+                hashes.add(entry.getTextHash());
+            }
+        }
+        if (hashes.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Map<String, Object>> reused = databaseBulkhead.call(
+                () -> textRepository.findResults(hashes, modelVersion));
+        if (!reused.isEmpty()) {
+            reusedCounter.increment(feedback.stream().filter(entry -> reused.containsKey(entry.getTextHash())).count());
+        }
+        return reused;
+    }
+
+    /**
+     * Copies the label, score and model version from a sentiment analysis result onto a
+     * feedback entity, tolerating missing keys and loosely typed scores.
+     * 
+     * @param feedback The feedback entity to update
+     * @param sentimentResult The result map returned by {@link SentimentAnalysisService}
+     */
+    void applySentimentResult(Feedback feedback, Map<String, Object> sentimentResult) {
+        // Set sentiment data with proper type checking
+        if (sentimentResult != null) {
+            if (sentimentResult.containsKey("label")) {
+                Object labelObj = sentimentResult.get("label");
+                if (labelObj != null) {
+                    feedback.setSentimentLabel(labelObj.toString());
                 } else {
-                    logger.warning("Sentiment result does not contain 'label' key");
+                    malformedResultLog.log(Level.WARNING, () -> "Sentiment label is null");
                 }
-                
-                if (sentimentResult.containsKey("score")) {
-                    Object scoreObj = sentimentResult.get("score");
-                    if (scoreObj != null) {
-                        if (scoreObj instanceof Double) {
-                            feedback.setSentimentScore((Double) scoreObj);
-                        } else if (scoreObj instanceof Number) {
-                            feedback.setSentimentScore(((Number) scoreObj).doubleValue());
-                        } else {
-                            try {
-                                feedback.setSentimentScore(Double.parseDouble(scoreObj.toString()));
-                            } catch (NumberFormatException e) {
-                                logger.warning("Could not parse sentiment score: " + scoreObj);
-                            }
-                        }
+            } else {
+                malformedResultLog.log(Level.WARNING, () -> "Sentiment result does not contain 'label' key");
+            }
+            
+            if (sentimentResult.containsKey("score")) {
+                Object scoreObj = sentimentResult.get("score");
+                if (scoreObj != null) {
+                    if (scoreObj instanceof Double) {
+                        feedback.setSentimentScore((Double) scoreObj);
+                    } else if (scoreObj instanceof Number) {
+                        feedback.setSentimentScore(((Number) scoreObj).doubleValue());
                     } else {
-                        logger.warning("Sentiment score is null");
+                        try {
+                            feedback.setSentimentScore(Double.parseDouble(scoreObj.toString()));
+                        } catch (NumberFormatException e) {
+                            malformedResultLog.log(Level.WARNING, () -> "Could not parse sentiment score: " + scoreObj);
+                        }
                     }
                 } else {
-                    logger.warning("Sentiment result does not contain 'score' key");
+                    malformedResultLog.log(Level.WARNING, () -> "Sentiment score is null");
                 }
             } else {
-                logger.warning("Sentiment analysis returned null result");
+                malformedResultLog.log(Level.WARNING, () -> "Sentiment result does not contain 'score' key");
             }
-        } catch (Exception e) {
-            logger.severe("Error during sentiment analysis: " + e.getMessage());
-            // Continue anyway, saving the feedback without sentiment data
+
+            Object versionObj = sentimentResult.get("model_version");
+            feedback.setModelVersion(versionObj == null ? null : versionObj.toString());
+        } else {
+            malformedResultLog.log(Level.WARNING, () -> "Sentiment analysis returned null result");
         }
-        
-        // Save and return
-        Feedback savedFeedback = feedbackRepository.save(feedback);
-        logger.info("Saved feedback with ID: " + savedFeedback.getId());
-        return savedFeedback;
     }
 
     /**
-     * Retrieves all feedback entries, ordered by creation date (newest first).
+     * Finds the next chunk of PENDING feedback after the given ID.
      * 
-     * @return List of all Feedback entities
+     * @param afterId Only return entries with an ID greater than this
+     * @param createdBefore Only return entries created before this time, or null for all
+     * @param limit Maximum number of entries to return
+     * @return PENDING Feedback entities ordered by ID
      */
-    public List<Feedback> getAllFeedback() {
-        return feedbackRepository.findAllByOrderByCreatedAtDesc();
+    public List<Feedback> findPendingFeedback(long afterId, LocalDateTime createdBefore, int limit) {
+        if (createdBefore != null) {
+            return feedbackRepository.findBySentimentStatusAndIdGreaterThanAndCreatedAtBeforeOrderByIdAsc(
+                    SentimentStatus.PENDING, afterId, createdBefore, Limit.of(limit));
+        }
+        return feedbackRepository.findBySentimentStatusAndIdGreaterThanOrderByIdAsc(
+                SentimentStatus.PENDING, afterId, Limit.of(limit));
     }
 
     /**
-     * Retrieves a specific feedback entry by ID.
+     * Retrieves one page of feedback entries, ordered by creation date (newest first).
+     * Uses keyset pagination on (createdAt, id), so every page is an index range scan
+     * regardless of how deep the client has paged. On a partitioned table the recent
+     * partitions are tried first; a page that runs past the oldest hot row continues in the
+     * archive, whose rows are all older.
+     * 
+     * @param filter Optional server-side filter criteria
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of entries to return
+     * @return The requested page and the cursor for the next one
+     */
+    public FeedbackPageDTO getFeedbackPage(FeedbackFilter filter, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        FeedbackCursor position = cursor == null || cursor.isBlank() ? null : FeedbackCursor.decode(cursor);
+
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        List<Feedback> rows = databaseBulkhead.call(() -> findHotRows(filter, position, pageSize + 1));
+        if (rows.size() <= pageSize && archiveRepository.isAvailable()) {
+            FeedbackCursor archivePosition = rows.isEmpty() ? position : FeedbackCursor.after(rows.get(rows.size() - 1));
+            int remaining = pageSize + 1 - rows.size();
+            List<Feedback> archived = databaseBulkhead.call(
+                    () -> archiveRepository.findPage(filter, archivePosition, remaining));
+            if (!archived.isEmpty()) {
+                rows = new ArrayList<>(rows);
+                rows.addAll(archived);
+            }
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Feedback> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? FeedbackCursor.after(items.get(items.size() - 1)).encode() : null;
+        return new FeedbackPageDTO(items, nextCursor, hasMore);
+    }
+
+    private List<Feedback> findHotRows(FeedbackFilter filter, FeedbackCursor position, int limit) {
+        LocalDateTime upperBound = position != null ? position.createdAt()
+                : filter.getTo() != null ? filter.getTo() : LocalDateTime.now();
+        LocalDateTime windowStart = partitionService.recentWindowStart(upperBound);
+        if (windowStart != null && (filter.getFrom() == null || filter.getFrom().isBefore(windowStart))) {
+            // A full page from the newest partitions is also the first page over all of them
+            List<Feedback> recent = feedbackRepository.findBy(
+                    FeedbackSpecifications.matching(filter.withFrom(windowStart), position),
+                    query -> query.sortBy(PAGE_ORDER).limit(limit).all());
+            if (recent.size() >= limit) {
+                return recent;
+            }
+        }
+        return feedbackRepository.findBy(
+                FeedbackSpecifications.matching(filter, position),
+                query -> query.sortBy(PAGE_ORDER).limit(limit).all());
+    }
+
+    /**
+     * Retrieves a specific feedback entry by ID, through the {@link FeedbackEntityCache}.
+     * Only a cache miss takes a database permit; rows not in the feedback table are looked
+     * up in the archive.
      * 
      * @param id The ID of the feedback to retrieve
      * @return Optional containing the Feedback if found, empty Optional otherwise
      */
     public Optional<Feedback> getFeedbackById(Long id) {
-        return feedbackRepository.findById(id);
+        return feedbackEntityCache.get(id, key -> databaseBulkhead.call(
+                () -> feedbackRepository.findById(key).or(() -> archiveRepository.findById(key))));
     }
 
     /**
      * Calculates sentiment statistics.
+     * Served from the incrementally maintained {@link SentimentStatsStore}, so this
+     * does not query the feedback table.
      * 
      * @return Map containing counts of positive, negative, and neutral feedback
      *         and the total count
      */
     public Map<String, Object> getSentimentStats() {
-        int positiveCount = feedbackRepository.countBySentimentLabel("positive");
-        int negativeCount = feedbackRepository.countBySentimentLabel("negative");
-        int neutralCount = feedbackRepository.countBySentimentLabel("neutral");
-        long totalCount = feedbackRepository.count();
+        return totalsQueryTimer.record(() -> cachedAggregate(this::computeSentimentStats, "totals"));
+    }
+
+    /**
+     * Returns a version that changes whenever a feedback row is inserted or re-classified,
+     * or the statistics are rebuilt. Anything read after this call is at least as new as
+     * the version, so it can be used to tag listings and aggregates.
+     *
+     * @return The current data version
+     */
+    public String getDataVersion() {
+        return sentimentStatsStore.getVersion();
+    }
+
+    /**
+     * Returns when the data version last changed.
+     *
+     * @return The time of the last change
+     */
+    public Instant getDataLastModified() {
+        return sentimentStatsStore.getLastModified();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cachedAggregate(Supplier<T> compute, Object... query) {
+        // Read the version first: an entry may then be newer than its key, but never older
+        List<Object> key = Arrays.asList(getDataVersion(), Arrays.asList(query));
+        return (T) aggregateCache.get(key, k -> compute.get());
+    }
+
+    private Map<String, Object> computeSentimentStats() {
+        Map<String, Long> totals = sentimentStatsStore.getTotals();
+        long positiveCount = totals.getOrDefault("positive", 0L);
+        long negativeCount = totals.getOrDefault("negative", 0L);
+        long neutralCount = totals.getOrDefault("neutral", 0L);
+        long totalCount = totals.values().stream().mapToLong(Long::longValue).sum();
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("positive", positiveCount);
@@ -141,4 +542,47 @@ public class FeedbackService {
         
         return stats;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns sentiment counts and average scores per time bucket, served from the
+     * incrementally maintained rollups.
+     *
+     * @param bucket The bucket size
+     * @param from   Inclusive start of the range, or null for the oldest available data
+     * @param to     Exclusive end of the range, or null for now
+     * @param label  Only count this sentiment label, or null for all labels
+     * @return Buckets ordered by start time, including empty ones
+     */
+    public List<SentimentBucketDTO> getSentimentTimeseries(TimeBucket bucket, LocalDateTime from,
+                                                           LocalDateTime to, String label) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new InvalidRequestException("'from' must be before 'to'");
+        }
+        // Open-ended series also change as time passes, at most once per bucket
+        LocalDateTime end = to == null ? bucket.truncate(LocalDateTime.now()) : to;
+        return timeseriesQueryTimer.record(() -> cachedAggregate(
+                () -> sentimentStatsStore.getBuckets(bucket, from, to, label),
+                "timeseries", bucket, from, end, to == null, label));
+    }
+
+    /**
+     * Returns the most frequent terms per sentiment label, estimated from the
+     * {@link KeywordSketchStore} sketches without reading feedback rows.
+     *
+     * @param label Only return this sentiment label, or null for all labels
+     * @param from  Inclusive start of the range, or null for the oldest retained window
+     * @param to    Exclusive end of the range, or null for now
+     * @param limit Maximum number of terms per label
+     * @return One entry per label with feedback in the range
+     */
+    public List<KeywordStatsDTO> getKeywordStats(String label, LocalDateTime from, LocalDateTime to, int limit) {
+        return keywordsQueryTimer.record(() -> keywordSketchStore.getKeywordStats(label, from, to, limit));
+    }
+
+    /**
+     * Recomputes the sentiment statistics from the raw feedback rows.
+     */
+    public void rebuildSentimentStats() {
+        sentimentStatsStore.rebuild();
+    }
+}
@@ -0,0 +1,461 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.FeedbackChangeDTO;
+import com.example.sentimentanalysis.dto.FeedbackCursor;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.model.Feedback;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes feedback changes and aggregate counts to connected dashboards as Server-Sent Events.
+ *
+ * Every {@link FeedbackChangedEvent} becomes a "feedback" event whose id is its position in the
+ * stream, and whose {@link FeedbackChangeDTO} payload tells inserts from reclassifications. The last {@code feedback.stream.replay-size} events are kept in memory, so a client
+ * that reconnects with the last id it saw receives only what it missed. A client whose id is too
+ * old, or from before a restart, receives a "reset" event and reloads through the REST API
+ * instead. Aggregate counts are sent as a "stats" event, at most every
+ * {@code feedback.stream.stats-interval-ms} and only when they changed.
+ *
+ * Each client has its own queue of {@code feedback.stream.client-buffer} events, drained by a
+ * small pool of sender threads. Sinks never block: a sender moves on as soon as a client's
+ * connection cannot take more, and the client is drained again once it can. A client whose
+ * queue overflows, or whose connection has not been writable for
+ * {@code feedback.stream.send-timeout-ms}, is disconnected instead of holding up the others;
+ * it reconnects and resumes from its last id.
+ */
+@Service
+public class FeedbackStreamService {
+
+    private static final Logger logger = Logger.getLogger(FeedbackStreamService.class.getName());
+
+    public static final String FEEDBACK_EVENT = "feedback";
+    public static final String STATS_EVENT = "stats";
+    public static final String RESET_EVENT = "reset";
+
+    /**
+     * One event for a client. Heartbeats have neither an id nor a name and carry no data.
+     *
+     * @param id   Stream position to resume from, or null for events that cannot be replayed
+     * @param name Event name, or null for a heartbeat
+     * @param data Event payload, serialized as JSON
+     */
+    public record StreamEvent(String id, String name, Object data) {
+
+        public boolean isHeartbeat() {
+            return name == null;
+        }
+    }
+
+    /**
+     * Writes events to one client connection. Implemented by the web layer.
+     * Its methods are only ever called from one sender thread at a time.
+     */
+    public interface StreamSink {
+
+        /**
+         * Tells whether the connection can take another event without blocking. A sink that
+         * returns false must call {@link Subscription#resume()} once it can.
+         *
+         * @return true if {@link #send} may be called
+         * @throws IOException if the client can no longer be written to
+         */
+        default boolean isReady() throws IOException {
+            return true;
+        }
+
+        /**
+         * Sends one event without blocking. Only called after {@link #isReady()} returned true.
+         *
+         * @param event The event to send
+         * @throws IOException if the client can no longer be written to
+         */
+        void send(StreamEvent event) throws IOException;
+
+        /**
+         * Ends the connection. Called once, after the last event.
+         */
+        void close();
+    }
+
+    /**
+     * A connected client.
+     */
+    public final class Subscription {
+
+        private final StreamSink sink;
+        private final ArrayBlockingQueue<StreamEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean sinkClosed = new AtomicBoolean();
+        private final AtomicBoolean resumed = new AtomicBoolean();
+        private volatile boolean closed;
+
+        /**
+         * When the sink last refused an event, or 0 if it took everything queued.
+         */
+        private volatile long stalledSince;
+
+        private Subscription(StreamSink sink, int capacity) {
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Stops sending to this client. Called by the web layer when the connection ends.
+         */
+        public void cancel() {
+            remove(this);
+        }
+
+        /**
+         * Resumes sending after the sink was not ready. Called by the web layer when the
+         * connection can be written to again.
+         */
+        public void resume() {
+            resumed.set(true);
+            scheduleDrain(this);
+        }
+    }
+
+    private record Entry(long position, StreamEvent event) {
+    }
+
+    private final FeedbackService feedbackService;
+    private final int replaySize;
+    private final int clientBufferSize;
+    private final long clientTimeoutMs;
+    private final long sendTimeoutMs;
+    private final ExecutorService senders;
+    private final Counter droppedCounter;
+
+    /**
+     * Identifies this process in stream ids, so ids issued before a restart are not mistaken
+     * for positions in the new stream.
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // Guarded by this
+    private final ArrayDeque<Entry> replay = new ArrayDeque<>();
+    private final Set<Subscription> subscribers = new LinkedHashSet<>();
+    private long position;
+
+    private final AtomicBoolean statsChanged = new AtomicBoolean();
+
+    @Autowired
+    public FeedbackStreamService(FeedbackService feedbackService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${feedback.stream.replay-size:1000}") int replaySize,
+                                 @Value("${feedback.stream.client-buffer:2048}") int clientBufferSize,
+                                 @Value("${feedback.stream.client-timeout-ms:1800000}") long clientTimeoutMs,
+                                 @Value("${feedback.stream.send-timeout-ms:30000}") long sendTimeoutMs,
+                                 @Value("${feedback.stream.sender-threads:4}") int senderThreads) {
+        this.feedbackService = feedbackService;
+        this.replaySize = replaySize;
+        this.clientBufferSize = clientBufferSize;
+        this.clientTimeoutMs = clientTimeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.senders = Executors.newFixedThreadPool(senderThreads, namedThreads("feedback-stream-"));
+
+        new ExecutorServiceMetrics(senders, "feedback.stream.senders", Tags.empty()).bindTo(meterRegistry);
+        Gauge.builder("feedback.stream.clients", this, FeedbackStreamService::getClientCount)
+                .description("Dashboards connected to the feedback stream")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("feedback.stream.dropped")
+                .description("Stream clients disconnected because they did not keep up")
+                .register(meterRegistry);
+    }
+
+    /**
+     * How long a client connection may stay open before the server ends it.
+     * Browsers reconnect automatically and resume from their last event id.
+     *
+     * @return The timeout in milliseconds
+     */
+    public long getClientTimeoutMs() {
+        return clientTimeoutMs;
+    }
+
+    /**
+     * The number of events that may be queued for one client before it is disconnected.
+     *
+     * @return The per-client buffer size
+     */
+    public int getClientBufferSize() {
+        return clientBufferSize;
+    }
+
+    /**
+     * Connects a client. It is sent the events it missed since {@code lastEventId}, or a
+     * "reset" event if they are no longer available, followed by the current counts.
+     *
+     * @param lastEventId The id of the last event the client received, or null for a fresh connection
+     * @param sink        Writes events to the client
+     * @return The subscription, to cancel when the connection ends
+     */
+    public Subscription subscribe(String lastEventId, StreamSink sink) {
+        Subscription subscription = new Subscription(sink, clientBufferSize);
+        synchronized (this) {
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                List<StreamEvent> missed = eventsSince(lastEventId);
+                if (missed == null || missed.size() >= clientBufferSize) {
+                    subscription.queue.add(new StreamEvent(null, RESET_EVENT, Map.of("reason", "resume unavailable")));
+                } else {
+                    subscription.queue.addAll(missed);
+                }
+            }
+            subscribers.add(subscription);
+        }
+        offer(subscription, new StreamEvent(null, STATS_EVENT, feedbackService.getSentimentStats()));
+        return subscription;
+    }
+
+    /**
+     * Queues a "feedback" event for every connected client.
+     *
+     * @param event The change to publish
+     */
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        statsChanged.set(true);
+        Feedback snapshot = snapshot(event.feedback());
+        FeedbackChangeDTO change = new FeedbackChangeDTO(snapshot, event.created(),
+                FeedbackCursor.after(snapshot).encode());
+        synchronized (this) {
+            position++;
+            StreamEvent streamEvent = new StreamEvent(epoch + "-" + position, FEEDBACK_EVENT, change);
+            replay.addLast(new Entry(position, streamEvent));
+            if (replay.size() > replaySize) {
+                replay.removeFirst();
+            }
+            broadcast(streamEvent);
+        }
+    }
+
+    /**
+     * Sends the current counts to every client if they changed since the last time.
+     */
+    @Scheduled(fixedDelayString = "${feedback.stream.stats-interval-ms:1000}")
+    public void publishStats() {
+        if (getClientCount() == 0 || !statsChanged.getAndSet(false)) {
+            return;
+        }
+        StreamEvent stats = new StreamEvent(null, STATS_EVENT, feedbackService.getSentimentStats());
+        synchronized (this) {
+            broadcast(stats);
+        }
+    }
+
+    /**
+     * Sends a heartbeat to every client, so connections to clients that went away are noticed
+     * and idle connections are not closed by proxies. Disconnects the clients whose connection
+     * has not been writable for longer than the send timeout.
+     */
+    @Scheduled(fixedDelayString = "${feedback.stream.heartbeat-interval-ms:15000}")
+    public void publishHeartbeat() {
+        List<Subscription> stalled = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (Subscription subscription : subscribers) {
+                long stalledSince = subscription.stalledSince;
+                if (stalledSince != 0 && now - stalledSince > sendTimeoutMs) {
+                    stalled.add(subscription);
+                }
+            }
+            broadcast(new StreamEvent(null, null, null));
+        }
+        for (Subscription subscription : stalled) {
+            droppedCounter.increment();
+            logger.fine("Disconnecting a feedback stream client that stopped reading");
+            remove(subscription);
+        }
+    }
+
+    /**
+     * Disconnects every client and stops the sender threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<Subscription> connected;
+        synchronized (this) {
+            connected = new ArrayList<>(subscribers);
+        }
+        connected.forEach(this::remove);
+        senders.shutdown();
+    }
+
+    private synchronized int getClientCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Returns the replayable events after the given id, or null if the client has to reload
+     * because the id is from another process or older than the replay buffer.
+     */
+    private List<StreamEvent> eventsSince(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return null;
+        }
+        long lastPosition;
+        try {
+            lastPosition = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long oldest = replay.isEmpty() ? position + 1 : replay.peekFirst().position();
+        if (lastPosition > position || lastPosition < oldest - 1) {
+            return null;
+        }
+        List<StreamEvent> missed = new ArrayList<>();
+        for (Entry entry : replay) {
+            if (entry.position() > lastPosition) {
+                missed.add(entry.event());
+            }
+        }
+        return missed;
+    }
+
+    private void broadcast(StreamEvent event) {
+        for (Subscription subscription : new ArrayList<>(subscribers)) {
+            offer(subscription, event);
+        }
+    }
+
+    private void offer(Subscription subscription, StreamEvent event) {
+        if (subscription.closed) {
+            return;
+        }
+        if (!subscription.queue.offer(event)) {
+            droppedCounter.increment();
+            logger.fine("Disconnecting a feedback stream client that is not keeping up");
+            remove(subscription);
+            return;
+        }
+        scheduleDrain(subscription);
+    }
+
+    private void remove(Subscription subscription) {
+        synchronized (this) {
+            if (!subscribers.remove(subscription)) {
+                return;
+            }
+        }
+        subscription.closed = true;
+        subscription.queue.clear();
+        // The sink is closed by the sender thread, after any send still in progress
+        scheduleDrain(subscription);
+    }
+
+    private void scheduleDrain(Subscription subscription) {
+        if (!subscription.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            senders.execute(() -> drain(subscription));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            subscription.draining.set(false);
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        boolean stalled = false;
+        subscription.resumed.set(false);
+        try {
+            StreamEvent event;
+            while (!subscription.closed) {
+                if (!subscription.sink.isReady()) {
+                    stalled = true;
+                    break;
+                }
+                if ((event = subscription.queue.poll()) == null) {
+                    break;
+                }
+                subscription.sink.send(event);
+            }
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Feedback stream client went away", e);
+            subscription.closed = true;
+            synchronized (this) {
+                subscribers.remove(subscription);
+            }
+        } finally {
+            if (!stalled) {
+                subscription.stalledSince = 0;
+            } else if (subscription.stalledSince == 0) {
+                subscription.stalledSince = System.currentTimeMillis();
+            }
+            subscription.draining.set(false);
+        }
+
+        if (subscription.closed) {
+            if (subscription.sinkClosed.compareAndSet(false, true)) {
+                try {
+                    subscription.sink.close();
+                } catch (Exception e) {
+                    logger.log(Level.FINE, "Failed to close a feedback stream connection", e);
+                }
+            }
+        } else if (stalled) {
+            // The sink may have become ready, and called resume(), before the flag was cleared
+            if (subscription.resumed.getAndSet(false)) {
+                scheduleDrain(subscription);
+            }
+        } else if (!subscription.queue.isEmpty()) {
+            // An event queued after the last poll but before the flag was cleared
+            scheduleDrain(subscription);
+        }
+    }
+
+
+    /**
+     * Copies the entity, since it is serialized later on a sender thread and the
+     * caller may still change it.
+     */
+    private static Feedback snapshot(Feedback feedback) {
+        Feedback copy = new Feedback();
+        copy.setId(feedback.getId());
+        copy.setText(feedback.getText());
+        copy.setSentimentLabel(feedback.getSentimentLabel());
+        copy.setSentimentScore(feedback.getSentimentScore());
+        copy.setModelVersion(feedback.getModelVersion());
+        copy.setSentimentStatus(feedback.getSentimentStatus());
+        copy.setCreatedAt(feedback.getCreatedAt());
+        return copy;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.sentimentanalysis.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * HyperLogLog: approximate number of distinct keys in fixed memory.
+ *
+ * Keeps 2^precision one-byte registers, for a standard error of about
+ * 1.04 / sqrt(2^precision) (1.6% at precision 12). Keys are given as 64-bit hashes.
+ * Small cardinalities are counted exactly enough by linear counting. Sketches of the
+ * same precision can be merged by taking the larger of each register. Not thread-safe.
+ */
+public final class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @param hash 64-bit hash of the key
+     */
+    public void offer(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Position of the first set bit after the index bits, capped for an all-zero remainder
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << precision), 64 - precision) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * @return The estimated number of distinct keys offered
+     */
+    public long cardinality() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Adds another sketch's keys to this one.
+     *
+     * @param other A sketch with the same precision
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge a HyperLogLog of precision " + other.precision
+                    + " into one of precision " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(precision);
+        out.write(registers);
+    }
+
+    public static HyperLogLog read(DataInput in) throws IOException {
+        HyperLogLog sketch = new HyperLogLog(in.readInt());
+        in.readFully(sketch.registers);
+        return sketch;
+    }
+}
@@ -0,0 +1,671 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.KeywordStatsDTO;
+import com.example.sentimentanalysis.dto.TimeBucket;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.FeedbackText;
+import com.example.sentimentanalysis.repository.FeedbackArchiveRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Approximate keyword statistics per sentiment label and time window, in bounded memory.
+ *
+ * Every newly classified row is tokenized once (lower-cased, English stop words, numbers and
+ * terms shorter than {@code min-term-length} dropped) and each distinct term of the text is
+ * counted once in the sketches of the row's label and {@code feedback.keywords.window}: a
+ * {@link SpaceSavingSketch} for the most frequent terms, a {@link CountMinSketch} that tightens
+ * their counts, and {@link HyperLogLog}s of the distinct terms and distinct texts. Windows older
+ * than {@code retention-hours} are dropped, so memory is bounded by the number of windows times
+ * the number of labels times the sketch sizes (about 25 KB each at the defaults). Queries merge
+ * the sketches of the requested windows and never read raw rows.
+ *
+ * A row counts under the label it was first classified with; later re-classifications are
+ * not applied, since the sketches cannot remove a text.
+ *
+ * Sketches are snapshotted to {@code snapshot-dir}/{@code node-id}.sketches and loaded back on
+ * startup, after which rows saved since the snapshot are counted from the database. Rows saved
+ * while that catch-up runs may be seen by both the query and the change events; the IDs counted
+ * meanwhile are remembered (one bit per ID since the snapshot) until the first snapshot after
+ * the catch-up, so that each row is counted once.
+ *
+ * With {@code feedback.cluster.enabled}, each instance counts only the rows it saved itself and
+ * ignores changes relayed from the others, which reach queries through their snapshots: those
+ * of other nodes found in the same directory (e.g. on a shared volume) are merged into every
+ * query, so each node answers for all of them. The startup catch-up is skipped in that mode,
+ * since it cannot tell which instance saved a row; a crashed instance loses the rows it counted
+ * since its last snapshot. A single instance counts every row itself and ignores other
+ * snapshots in the directory, which would count the same rows twice.
+ */
+@Service
+public class KeywordSketchStore {
+
+    private static final Logger logger = Logger.getLogger(KeywordSketchStore.class.getName());
+
+    private static final ThrottledLog updateFailureLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+
+    private static final int SNAPSHOT_MAGIC = 0x4B575331;
+    private static final String SNAPSHOT_SUFFIX = ".sketches";
+
+    private static final String CATCH_UP_SQL = "SELECT " + FeedbackArchiveRepository.COLUMNS
+            + FeedbackArchiveRepository.fromWithText("feedback")
+            + " WHERE f.id > ? AND f.created_at >= ? AND f.sentiment_label IS NOT NULL ORDER BY f.id";
+
+    /**
+     * Sketches of one label in one window. Updates and reads take its lock.
+     */
+    private static final class WindowSketch {
+        long texts;
+        final SpaceSavingSketch topTerms;
+        final CountMinSketch termCounts;
+        final HyperLogLog distinctTerms;
+        final HyperLogLog distinctTexts;
+
+        WindowSketch(int topTermsCapacity, int countMinDepth, int countMinWidth, int hllPrecision) {
+            this(new SpaceSavingSketch(topTermsCapacity), new CountMinSketch(countMinDepth, countMinWidth),
+                    new HyperLogLog(hllPrecision), new HyperLogLog(hllPrecision));
+        }
+
+        private WindowSketch(SpaceSavingSketch topTerms, CountMinSketch termCounts,
+                             HyperLogLog distinctTerms, HyperLogLog distinctTexts) {
+            this.topTerms = topTerms;
+            this.termCounts = termCounts;
+            this.distinctTerms = distinctTerms;
+            this.distinctTexts = distinctTexts;
+        }
+
+        synchronized void add(List<String> terms, long[] termHashes, long textHash) {
+            texts++;
+            distinctTexts.offer(textHash);
+            for (int i = 0; i < termHashes.length; i++) {
+                topTerms.add(terms.get(i), 1);
+                termCounts.add(termHashes[i], 1);
+                distinctTerms.offer(termHashes[i]);
+            }
+        }
+
+        synchronized void mergeInto(WindowSketch target) {
+            target.texts += texts;
+            target.topTerms.merge(topTerms);
+            target.termCounts.merge(termCounts);
+            target.distinctTerms.merge(distinctTerms);
+            target.distinctTexts.merge(distinctTexts);
+        }
+
+        synchronized void write(DataOutput out) throws IOException {
+            out.writeLong(texts);
+            topTerms.write(out);
+            termCounts.write(out);
+            distinctTerms.write(out);
+            distinctTexts.write(out);
+        }
+
+        static WindowSketch read(DataInput in) throws IOException {
+            long texts = in.readLong();
+            WindowSketch sketch = new WindowSketch(SpaceSavingSketch.read(in), CountMinSketch.read(in),
+                    HyperLogLog.read(in), HyperLogLog.read(in));
+            sketch.texts = texts;
+            return sketch;
+        }
+    }
+
+    /**
+     * The windows of a snapshot file, with its modification time when it was read.
+     */
+    private record Snapshot(long lastAppliedId, NavigableMap<LocalDateTime, Map<String, WindowSketch>> windows,
+                            FileTime modified) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final boolean clustered;
+    private final TimeBucket window;
+    private final int retentionHours;
+    private final int topTermsCapacity;
+    private final int countMinDepth;
+    private final int countMinWidth;
+    private final int hllPrecision;
+    private final int minTermLength;
+    private final int maxTermsPerText;
+    private final Path snapshotDir;
+    private final Path snapshotFile;
+    private final int fetchSize;
+    private final Analyzer analyzer = new StandardAnalyzer(EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
+    private final Timer snapshotTimer;
+
+    private final ConcurrentSkipListMap<LocalDateTime, ConcurrentHashMap<String, WindowSketch>> windows =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * Latest snapshots of the other nodes, by file.
+     */
+    private final ConcurrentHashMap<Path, Snapshot> peers = new ConcurrentHashMap<>();
+
+    /**
+     * Highest row ID counted; rows above the one restored from the snapshot are counted on startup.
+     */
+    private final AtomicLong lastAppliedId = new AtomicLong();
+    private volatile long restoredLastAppliedId;
+
+    /**
+     * IDs counted since startup, as offsets from {@link #countedBase}, while the catch-up may
+     * still count them again; null once that is over. Guarded by itself.
+     */
+    private volatile BitSet counted;
+    private volatile long countedBase;
+    private volatile boolean caughtUp;
+
+    @Autowired
+    public KeywordSketchStore(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${feedback.keywords.enabled:true}") boolean enabled,
+                              @Value("${feedback.keywords.window:hour}") String window,
+                              @Value("${feedback.keywords.retention-hours:72}") int retentionHours,
+                              @Value("${feedback.keywords.top-terms-capacity:200}") int topTermsCapacity,
+                              @Value("${feedback.keywords.count-min.depth:4}") int countMinDepth,
+                              @Value("${feedback.keywords.count-min.width:1024}") int countMinWidth,
+                              @Value("${feedback.keywords.hll-precision:11}") int hllPrecision,
+                              @Value("${feedback.keywords.min-term-length:3}") int minTermLength,
+                              @Value("${feedback.keywords.max-terms-per-text:256}") int maxTermsPerText,
+                              @Value("${feedback.keywords.snapshot-dir:data/keyword-sketches}") String snapshotDir,
+                              @Value("${feedback.keywords.node-id:}") String nodeId,
+                              @Value("${feedback.keywords.fetch-size:1000}") int fetchSize,
+                              @Value("${feedback.cluster.enabled:false}") boolean clustered,
+                              @Value("${feedback.cluster.node-id:}") String clusterNodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.clustered = clustered;
+        this.window = TimeBucket.parse(window);
+        this.retentionHours = retentionHours;
+        this.topTermsCapacity = topTermsCapacity;
+        this.countMinDepth = countMinDepth;
+        this.countMinWidth = countMinWidth;
+        this.hllPrecision = hllPrecision;
+        this.minTermLength = minTermLength;
+        this.maxTermsPerText = maxTermsPerText;
+        this.snapshotDir = Path.of(snapshotDir);
+        this.snapshotFile = this.snapshotDir.resolve(snapshotName(nodeId, clusterNodeId, clustered) + SNAPSHOT_SUFFIX);
+        this.fetchSize = fetchSize;
+        this.snapshotTimer = Timer.builder("feedback.keywords.snapshot")
+                .description("Time taken to snapshot the keyword sketches and read those of other nodes")
+                .register(meterRegistry);
+        Gauge.builder("feedback.keywords.windows", windows, Map::size)
+                .description("Time windows with keyword sketches held by this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Names the snapshot after the configured node ID, else the cluster node ID. Without
+     * either, a cluster node uses its host name (the generated cluster node ID changes on every
+     * restart) and a single instance "local".
+     */
+    private static String snapshotName(String nodeId, String clusterNodeId, boolean clustered) {
+        if (!nodeId.isBlank()) {
+            return nodeId;
+        }
+        if (!clusterNodeId.isBlank()) {
+            return clusterNodeId;
+        }
+        return clustered ? ClusterEventService.hostName() : "local";
+    }
+
+    /**
+     * Loads this node's last snapshot and, in cluster mode, those of the other nodes.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshotDir);
+            if (Files.exists(snapshotFile)) {
+                Snapshot snapshot = readSnapshot(snapshotFile);
+                if (snapshot != null) {
+                    snapshot.windows().forEach((start, labels) ->
+                            windows.put(start, new ConcurrentHashMap<>(labels)));
+                    lastAppliedId.set(snapshot.lastAppliedId());
+                    logger.info("Loaded keyword sketches for " + windows.size() + " windows from " + snapshotFile);
+                }
+            }
+            if (clustered) {
+                loadPeers();
+            } else {
+                List<Path> others = otherSnapshots();
+                if (!others.isEmpty()) {
+                    logger.warning("Ignoring keyword sketches of other nodes in " + snapshotDir + " " + others
+                            + ": they are only merged with feedback.cluster.enabled");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Rows within the retention window are counted again from the database
+            logger.log(Level.WARNING, "Failed to load the keyword sketch snapshot " + snapshotFile, e);
+            windows.clear();
+            lastAppliedId.set(0);
+        }
+        restoredLastAppliedId = lastAppliedId.get();
+        if (!clustered) {
+            countedBase = catchUpStart();
+            counted = new BitSet();
+        }
+    }
+
+    /**
+     * @return The lowest ID the catch-up may count, so that remembering counted IDs takes one
+     *         bit per row since then rather than per row ever saved
+     */
+    private long catchUpStart() {
+        try {
+            Long first = jdbcTemplate.queryForObject("SELECT MIN(id) FROM feedback WHERE id > ? AND created_at >= ?",
+                    Long.class, restoredLastAppliedId, retentionCutoff());
+            return first != null ? first : restoredLastAppliedId + 1;
+        } catch (RuntimeException e) {
+            // The catch-up will most likely fail too; IDs below the base are simply not remembered
+            logger.log(Level.FINE, "Could not find the first feedback entry to count on startup", e);
+            return restoredLastAppliedId + 1;
+        }
+    }
+
+    /**
+     * Counts the rows saved after the snapshot was taken, or every row in the retention
+     * window if there was none.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpOnStartup() {
+        if (!enabled || clustered) {
+            return;
+        }
+        long started = System.nanoTime();
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        CATCH_UP_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setLong(1, restoredLastAppliedId);
+                statement.setObject(2, retentionCutoff());
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                if (apply(FeedbackArchiveRepository.mapRow(rs))) {
+                    rows[0]++;
+                }
+            });
+            if (rows[0] > 0) {
+                logger.info("Counted keywords of " + rows[0] + " feedback entries saved since the last snapshot in "
+                        + (System.nanoTime() - started) / 1_000_000 + " ms");
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to bring the keyword sketches up to date", e);
+        } finally {
+            caughtUp = true;
+        }
+    }
+
+    /**
+     * Counts the terms of a newly classified row saved by this instance.
+     *
+     * @param event The change to apply
+     */
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        if (!enabled || event.remote() || (!event.created() && event.previousLabel() != null)) {
+            return;
+        }
+        try {
+            apply(event.feedback());
+        } catch (RuntimeException e) {
+            // The statistics miss this row; the submission itself has been saved
+            updateFailureLog.log(Level.WARNING, () -> "Failed to count the keywords of feedback "
+                    + event.feedback().getId(), e);
+        }
+    }
+
+    /**
+     * Returns the most frequent terms per sentiment label over a time range.
+     *
+     * @param label Only return this label, or null for all labels
+     * @param from  Inclusive start of the range, or null for the start of the retention window
+     * @param to    Exclusive end of the range, or null for now
+     * @param limit Maximum number of terms per label (capped at {@code top-terms-capacity})
+     * @return One entry per label with data in the range, ordered by label
+     * @throws InvalidRequestException if the range is empty or starts before the retention window
+     */
+    public List<KeywordStatsDTO> getKeywordStats(String label, LocalDateTime from, LocalDateTime to, int limit) {
+        if (!enabled) {
+            throw new InvalidRequestException("Keyword statistics are disabled (feedback.keywords.enabled)");
+        }
+        LocalDateTime cutoff = retentionCutoff();
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        if (from != null && from.isBefore(cutoff)) {
+            throw new InvalidRequestException("Keyword statistics are only kept for the last "
+                    + retentionHours + " hours");
+        }
+        LocalDateTime start = window.truncate(from == null ? cutoff : from);
+        if (!start.isBefore(end)) {
+            throw new InvalidRequestException("'from' must be before 'to'");
+        }
+
+        Map<String, WindowSketch> merged = new TreeMap<>();
+        List<NavigableMap<LocalDateTime, ? extends Map<String, WindowSketch>>> sources = new ArrayList<>();
+        sources.add(windows);
+        peers.values().forEach(peer -> sources.add(peer.windows()));
+        for (NavigableMap<LocalDateTime, ? extends Map<String, WindowSketch>> source : sources) {
+            source.subMap(start, true, end, false).values().forEach(labels -> labels.forEach((l, sketch) -> {
+                if (label == null || label.equals(l)) {
+                    sketch.mergeInto(merged.computeIfAbsent(l, k -> newSketch()));
+                }
+            }));
+        }
+
+        int terms = Math.max(1, Math.min(limit, topTermsCapacity));
+        List<KeywordStatsDTO> result = new ArrayList<>(merged.size());
+        merged.forEach((l, sketch) -> result.add(new KeywordStatsDTO(l, start, end, sketch.texts,
+                sketch.distinctTexts.cardinality(), sketch.distinctTerms.cardinality(), topTerms(sketch, terms))));
+        return result;
+    }
+
+    /**
+     * Drops windows that have left the retention window, writes this node's snapshot and
+     * reads the other nodes' snapshots that changed.
+     */
+    @Scheduled(fixedDelayString = "${feedback.keywords.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        snapshotTimer.record(() -> {
+            if (caughtUp) {
+                // Events of rows the catch-up read have been delivered by now
+                counted = null;
+            }
+            LocalDateTime expired = window.truncate(retentionCutoff());
+            windows.headMap(expired, false).clear();
+            peers.values().forEach(peer -> peer.windows().headMap(expired, false).clear());
+            try {
+                writeSnapshot();
+                if (clustered) {
+                    loadPeers();
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to snapshot the keyword sketches to " + snapshotDir, e);
+            }
+        });
+    }
+
+    /**
+     * Writes a final snapshot.
+     */
+    @PreDestroy
+    public void close() {
+        snapshot();
+    }
+
+    /**
+     * @return Whether the row was counted, i.e. it is classified, within the retention window
+     *         and not counted already
+     */
+    private boolean apply(Feedback feedback) {
+        String label = feedback.getSentimentLabel();
+        LocalDateTime createdAt = feedback.getCreatedAt();
+        if (label == null || createdAt == null || createdAt.isBefore(retentionCutoff())
+                || !firstCount(feedback.getId())) {
+            return false;
+        }
+        String text = feedback.getText();
+        List<String> terms = terms(text);
+        long[] termHashes = new long[terms.size()];
+        for (int i = 0; i < termHashes.length; i++) {
+            termHashes[i] = hash(terms.get(i));
+        }
+        String textHash = feedback.getTextHash() != null ? feedback.getTextHash() : FeedbackText.hashOf(text);
+
+        windows.computeIfAbsent(window.truncate(createdAt), w -> new ConcurrentHashMap<>())
+                .computeIfAbsent(label, l -> newSketch())
+                .add(terms, termHashes, Long.parseUnsignedLong(textHash.substring(0, 16), 16));
+        if (feedback.getId() != null) {
+            lastAppliedId.accumulateAndGet(feedback.getId(), Math::max);
+        }
+        return true;
+    }
+
+    /**
+     * @return False if the row was counted before while the catch-up may count it again
+     */
+    private boolean firstCount(Long id) {
+        BitSet seen = counted;
+        if (seen == null || id == null || id < countedBase || id - countedBase > Integer.MAX_VALUE) {
+            return true;
+        }
+        int offset = (int) (id - countedBase);
+        synchronized (seen) {
+            if (seen.get(offset)) {
+                return false;
+            }
+            seen.set(offset);
+            return true;
+        }
+    }
+
+    /**
+     * @return The distinct terms of the text, in order of first occurrence
+     */
+    private List<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        try (TokenStream stream = analyzer.tokenStream("text", text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (terms.size() < maxTermsPerText && stream.incrementToken()) {
+                if (term.length() >= minTermLength && !Character.isDigit(term.charAt(0))) {
+                    terms.add(term.toString());
+                }
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Takes the Space-Saving candidates and caps each count at the Count-Min estimate; both are
+     * upper bounds, so the smaller one is the better estimate.
+     */
+    private static List<KeywordStatsDTO.TermCount> topTerms(WindowSketch sketch, int limit) {
+        List<KeywordStatsDTO.TermCount> terms = new ArrayList<>();
+        for (SpaceSavingSketch.Counter counter : sketch.topTerms.top(sketch.topTerms.getCapacity())) {
+            long count = Math.min(counter.count(), sketch.termCounts.estimate(hash(counter.key())));
+            terms.add(new KeywordStatsDTO.TermCount(counter.key(), count,
+                    Math.min(count, counter.count() - counter.error())));
+        }
+        terms.sort(Comparator.comparingLong(KeywordStatsDTO.TermCount::getCount).reversed()
+                .thenComparing(KeywordStatsDTO.TermCount::getTerm));
+        return terms.size() > limit ? terms.subList(0, limit) : terms;
+    }
+
+    private void writeSnapshot() throws IOException {
+        // Read before the sketches: rows counted while writing are counted again after a crash, never lost
+        long appliedId = lastAppliedId.get();
+        Path temp = snapshotDir.resolve(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(appliedId);
+            NavigableMap<LocalDateTime, ConcurrentHashMap<String, WindowSketch>> current = windows.clone();
+            out.writeInt(current.size());
+            for (Map.Entry<LocalDateTime, ConcurrentHashMap<String, WindowSketch>> entry : current.entrySet()) {
+                Map<String, WindowSketch> labels = Map.copyOf(entry.getValue());
+                out.writeLong(entry.getKey().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(labels.size());
+                for (Map.Entry<String, WindowSketch> sketch : labels.entrySet()) {
+                    out.writeUTF(sketch.getKey());
+                    sketch.getValue().write(out);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Re-reads the snapshots of other nodes that changed since they were last read.
+     */
+    private void loadPeers() throws IOException {
+        List<Path> present = otherSnapshots();
+        for (Path file : present) {
+            FileTime modified = Files.getLastModifiedTime(file);
+            Snapshot known = peers.get(file);
+            if (known != null && known.modified().equals(modified)) {
+                continue;
+            }
+            try {
+                Snapshot snapshot = readSnapshot(file);
+                if (snapshot != null) {
+                    peers.put(file, new Snapshot(snapshot.lastAppliedId(), snapshot.windows(), modified));
+                }
+            } catch (IOException | RuntimeException e) {
+                // Probably being replaced; the next snapshot reads it again
+                logger.log(Level.FINE, "Could not read keyword sketches of another node from " + file, e);
+            }
+        }
+        peers.keySet().retainAll(new HashSet<>(present));
+    }
+
+    /**
+     * @return The snapshot files of other nodes in the snapshot directory
+     */
+    private List<Path> otherSnapshots() throws IOException {
+        List<Path> others = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(snapshotDir, "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                if (!file.getFileName().equals(snapshotFile.getFileName())) {
+                    others.add(file);
+                }
+            }
+        }
+        return others;
+    }
+
+    /**
+     * @return The snapshot, with windows aligned to this node's window size, or null if it does
+     *         not use the same sketch dimensions
+     */
+    private Snapshot readSnapshot(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a keyword sketch snapshot: " + file);
+            }
+            long appliedId = in.readLong();
+            int windowCount = in.readInt();
+            WindowSketch reference = newSketch();
+            NavigableMap<LocalDateTime, Map<String, WindowSketch>> read = new ConcurrentSkipListMap<>();
+            for (int i = 0; i < windowCount; i++) {
+                LocalDateTime start = window.truncate(LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC));
+                int labelCount = in.readInt();
+                for (int j = 0; j < labelCount; j++) {
+                    String label = in.readUTF();
+                    WindowSketch sketch = WindowSketch.read(in);
+                    if (sketch.termCounts.getDepth() != reference.termCounts.getDepth()
+                            || sketch.termCounts.getWidth() != reference.termCounts.getWidth()
+                            || sketch.distinctTerms.getPrecision() != reference.distinctTerms.getPrecision()) {
+                        logger.warning("Ignoring keyword sketches in " + file + ": they were built with other "
+                                + "Count-Min or HyperLogLog dimensions");
+                        return null;
+                    }
+                    Map<String, WindowSketch> labels = read.computeIfAbsent(start, s -> new ConcurrentHashMap<>());
+                    WindowSketch existing = labels.get(label);
+                    if (existing == null) {
+                        labels.put(label, sketch);
+                    } else {
+                        sketch.mergeInto(existing);
+                    }
+                }
+            }
+            return new Snapshot(appliedId, read, null);
+        }
+    }
+
+    private WindowSketch newSketch() {
+        return new WindowSketch(topTermsCapacity, countMinDepth, countMinWidth, hllPrecision);
+    }
+
+    private LocalDateTime retentionCutoff() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(retentionHours);
+    }
+
+    /**
+     * 64-bit FNV-1a of the term's UTF-8 bytes, finished with MurmurHash3's mixer so that all
+     * bits are usable by the sketches.
+     */
+    private static long hash(String term) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : term.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
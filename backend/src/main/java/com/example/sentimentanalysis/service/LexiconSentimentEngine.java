@@ -0,0 +1,285 @@
+package com.example.sentimentanalysis.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Embedded lexicon-based sentiment analysis, used whenever the ML service cannot answer.
+ *
+ * The lexicon is compiled once into a character trie stored in flat arrays. Analysis is a
+ * single pass over the text: tokens (runs of letters and apostrophes) are matched against
+ * the trie while they are being read, so no substrings, lowercase copies or token lists
+ * are created and only whole words match ("unlike" does not match "like").
+ *
+ * Sentiment words add their valence to a running sum. An intensifier scales the next
+ * sentiment word; a negator (or any word ending in n't) flips the next
+ * {@value #NEGATION_SCOPE} words. Clause punctuation ends both effects. The sum is
+ * squashed into a compound score in [-1, 1].
+ */
+@Component
+public class LexiconSentimentEngine {
+
+    private static final Logger logger = Logger.getLogger(LexiconSentimentEngine.class.getName());
+
+    /**
+     * Compound scores at least this far from zero are labeled positive or negative.
+     */
+    static final double NEUTRAL_THRESHOLD = 0.05;
+
+    /**
+     * Model version reported with every result of this engine.
+     */
+    public static final String MODEL_VERSION = "lexicon";
+
+    /**
+     * Number of following tokens a negator applies to.
+     */
+    static final int NEGATION_SCOPE = 3;
+
+    /**
+     * Negated words keep most, but not all, of their strength with the opposite sign.
+     */
+    private static final double NEGATION_FACTOR = -0.74;
+
+    /**
+     * Controls how quickly the compound score approaches +/-1 as valence accumulates.
+     */
+    private static final double NORMALIZATION_ALPHA = 15.0;
+
+    private static final byte NONE = 0;
+    private static final byte WORD = 1;
+    private static final byte NEGATOR = 2;
+    private static final byte INTENSIFIER = 3;
+
+    /**
+     * 'a' to 'z', then the apostrophe.
+     */
+    private static final int ALPHABET = 27;
+    private static final int APOSTROPHE = 26;
+
+    /**
+     * children[node * ALPHABET + symbol] is the child node, or 0 for none (the root is never a child).
+     */
+    private final int[] children;
+    private final byte[] kinds;
+    private final float[] values;
+    private final int size;
+
+    @Autowired
+    public LexiconSentimentEngine(
+            @Value("${sentiment.lexicon.location:classpath:lexicon/sentiment-lexicon.tsv}") Resource lexicon) {
+        TrieBuilder builder = new TrieBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(lexicon.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                builder.add(line.split("\t"), lineNumber);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read sentiment lexicon " + lexicon, e);
+        }
+        this.children = Arrays.copyOf(builder.children, builder.nodeCount * ALPHABET);
+        this.kinds = Arrays.copyOf(builder.kinds, builder.nodeCount);
+        this.values = Arrays.copyOf(builder.values, builder.nodeCount);
+        this.size = builder.entries;
+        logger.info("Loaded " + size + " sentiment lexicon entries (" + builder.nodeCount + " trie nodes)");
+    }
+
+    /**
+     * Analyzes the text and returns a result in the same shape as the ML service:
+     * a label and a confidence score between 0.5 and 1 for the chosen label.
+     *
+     * @param text The text to analyze
+     * @return A map containing the sentiment label and score, flagged as a fallback result
+     */
+    public Map<String, Object> analyze(CharSequence text) {
+        double compound = compoundScore(text);
+        String label;
+        double score;
+        if (compound >= NEUTRAL_THRESHOLD) {
+            label = "positive";
+            score = 0.5 + compound / 2;
+        } else if (compound <= -NEUTRAL_THRESHOLD) {
+            label = "negative";
+            score = 0.5 - compound / 2;
+        } else {
+            label = "neutral";
+            score = 0.5;
+        }
+
+        Map<String, Object> result = new HashMap<>(8);
+        result.put("label", label);
+        result.put("score", score);
+        result.put("model_version", MODEL_VERSION);
+        result.put("fallback", true);
+        return result;
+    }
+
+    /**
+     * Computes the compound sentiment of the text without allocating.
+     *
+     * @param text The text to analyze
+     * @return A score from -1 (most negative) to 1 (most positive); 0 if no sentiment words were found
+     */
+    public double compoundScore(CharSequence text) {
+        double sum = 0;
+        double boost = 1.0;
+        int negationLeft = 0;
+
+        boolean inToken = false;
+        int node = 0;
+        int last = -1;
+        int secondLast = -1;
+        int thirdLast = -1;
+
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            int symbol = symbolOf(c);
+            if (symbol >= 0 || Character.isLetter(c)) {
+                if (!inToken) {
+                    inToken = true;
+                    node = 0;
+                    last = secondLast = thirdLast = -1;
+                }
+                // Once a token leaves the trie (node -1) it can no longer match an entry
+                if (node >= 0) {
+                    node = symbol >= 0 ? children[node * ALPHABET + symbol] : 0;
+                    if (node == 0) {
+                        node = -1;
+                    }
+                }
+                thirdLast = secondLast;
+                secondLast = last;
+                last = symbol;
+                continue;
+            }
+
+            if (inToken) {
+                inToken = false;
+                byte kind = node > 0 ? kinds[node] : NONE;
+                boolean endsInNt = thirdLast == 'n' - 'a' && secondLast == APOSTROPHE && last == 't' - 'a';
+                if (kind == NEGATOR || endsInNt) {
+                    negationLeft = NEGATION_SCOPE;
+                } else if (kind == INTENSIFIER) {
+                    boost *= values[node];
+                } else {
+                    if (kind == WORD) {
+                        double valence = values[node] * boost;
+                        sum += negationLeft > 0 ? valence * NEGATION_FACTOR : valence;
+                    }
+                    boost = 1.0;
+                    if (negationLeft > 0) {
+                        negationLeft--;
+                    }
+                }
+            }
+
+            if (isClauseBreak(c)) {
+                boost = 1.0;
+                negationLeft = 0;
+            }
+        }
+
+        return sum == 0 ? 0 : sum / Math.sqrt(sum * sum + NORMALIZATION_ALPHA);
+    }
+
+    /**
+     * Number of entries in the lexicon.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Maps a character to its trie symbol, folding ASCII case and typographic apostrophes.
+     *
+     * @return The symbol, or -1 if the character cannot occur in a lexicon term
+     */
+    private static int symbolOf(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c == '\'' || c == '’') {
+            return APOSTROPHE;
+        }
+        return -1;
+    }
+
+    private static boolean isClauseBreak(char c) {
+        return c == '.' || c == ',' || c == ';' || c == ':' || c == '!' || c == '?' || c == '\n';
+    }
+
+    /**
+     * Growable trie used while the lexicon is loaded.
+     */
+    private static final class TrieBuilder {
+        int[] children = new int[64 * ALPHABET];
+        byte[] kinds = new byte[64];
+        float[] values = new float[64];
+        int nodeCount = 1;
+        int entries;
+
+        void add(String[] fields, int lineNumber) {
+            if (fields.length < 2) {
+                throw new IllegalArgumentException("Lexicon line " + lineNumber + " needs a kind and a term");
+            }
+            byte kind = switch (fields[0]) {
+                case "word" -> WORD;
+                case "negator" -> NEGATOR;
+                case "intensifier" -> INTENSIFIER;
+                default -> throw new IllegalArgumentException(
+                        "Lexicon line " + lineNumber + " has unknown kind '" + fields[0] + "'");
+            };
+            if (kind != NEGATOR && fields.length < 3) {
+                throw new IllegalArgumentException("Lexicon line " + lineNumber + " needs a value");
+            }
+
+            int node = 0;
+            for (char c : fields[1].toCharArray()) {
+                int symbol = symbolOf(c);
+                if (symbol < 0) {
+                    throw new IllegalArgumentException(
+                            "Lexicon line " + lineNumber + " has unsupported character '" + c + "'");
+                }
+                int slot = node * ALPHABET + symbol;
+                if (children[slot] == 0) {
+                    children[slot] = newNode();
+                }
+                node = children[slot];
+            }
+            kinds[node] = kind;
+            values[node] = kind == NEGATOR ? 0 : Float.parseFloat(fields[2]);
+            entries++;
+        }
+
+        private int newNode() {
+            if (nodeCount == kinds.length) {
+                kinds = Arrays.copyOf(kinds, nodeCount * 2);
+                values = Arrays.copyOf(values, nodeCount * 2);
+                children = Arrays.copyOf(children, nodeCount * 2 * ALPHABET);
+            }
+            return nodeCount++;
+        }
+    }
+}
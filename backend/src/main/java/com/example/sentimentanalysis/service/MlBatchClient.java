@@ -0,0 +1,247 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.SentimentAnalysisException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Micro-batching client for the ML service.
+ *
+ * Concurrent callers submit single texts and each get their own future. A dispatcher thread
+ * groups queued texts into one batch of up to {@code ml.batch.max-size} items, waiting at most
+ * {@code ml.batch.max-wait-ms} after the first item arrives, and sends the batch to the
+ * ML service's /analyze/batch endpoint. When every sender is busy the dispatcher sends the
+ * batch itself, which lets the queue build up and naturally produces larger batches under load.
+ * Each batch request asks the {@link MlCircuitBreaker} for permission right before it is sent
+ * and is reported to it as one call, so a text that never makes it into a batch (e.g. because
+ * the queue is full) can never hold the breaker's half-open trial permit.
+ *
+ * On shutdown every text that has not been sent, whether queued, being batched or handed to a
+ * sender that no longer runs, has its future failed so the caller can fall back.
+ */
+@Component
+public class MlBatchClient {
+
+    private static final Logger logger = Logger.getLogger(MlBatchClient.class.getName());
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final RestTemplate restTemplate;
+    private final MlCircuitBreaker circuitBreaker;
+    private final String batchUrl;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingAnalysis> queue;
+    private final ThreadPoolExecutor senders;
+    private final Thread dispatcher;
+    private volatile boolean shuttingDown;
+
+    private final DistributionSummary batchSizeSummary;
+    private final Timer queueDelayTimer;
+
+    /**
+     * A text waiting to be sent, together with the future its caller is blocked on.
+     */
+    private record PendingAnalysis(String text, CompletableFuture<Map<String, Object>> result, long enqueuedAt) {
+    }
+
+    @Autowired
+    public MlBatchClient(RestTemplate restTemplate,
+                         MlCircuitBreaker circuitBreaker,
+                         MeterRegistry meterRegistry,
+                         @Value("${ml.batch.url:http://localhost:5000/analyze/batch}") String batchUrl,
+                         @Value("${ml.batch.max-size:32}") int maxBatchSize,
+                         @Value("${ml.batch.max-wait-ms:10}") long maxWaitMs,
+                         @Value("${ml.batch.queue-capacity:10000}") int queueCapacity,
+                         @Value("${ml.batch.max-in-flight:4}") int maxInFlight) {
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.batchUrl = batchUrl;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(
+                maxInFlight, maxInFlight,
+                60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ml-batch-sender-" + senderCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    // Run the batch on the dispatcher when every sender is busy, unless shut down
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("ML batch senders are shut down");
+                    }
+                    runnable.run();
+                });
+
+        this.batchSizeSummary = DistributionSummary.builder("ml.batch.size")
+                .description("Number of texts sent to the ML service per batch request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueDelayTimer = Timer.builder("ml.batch.queue.delay")
+                .description("Time a text waits in the batch queue before its batch is sent")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("ml.batch.queue.depth", queue, BlockingQueue::size)
+                .description("Texts waiting to be batched")
+                .register(meterRegistry);
+        new ExecutorServiceMetrics(senders, "ml.batch.senders", Tags.empty()).bindTo(meterRegistry);
+
+        this.dispatcher = new Thread(this::dispatchLoop, "ml-batch-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Queues a text for batched analysis.
+     *
+     * @param text The text to analyze
+     * @return A future completed with this text's result map, or exceptionally if the batch fails
+     *         or the circuit breaker refuses it
+     */
+    public CompletableFuture<Map<String, Object>> submit(String text) {
+        PendingAnalysis pending = new PendingAnalysis(text, new CompletableFuture<>(), System.nanoTime());
+        if (shuttingDown) {
+            pending.result().completeExceptionally(new SentimentAnalysisException("ML batch client is shutting down"));
+        } else if (!queue.offer(pending)) {
+            pending.result().completeExceptionally(new SentimentAnalysisException("ML batch queue is full"));
+        }
+        return pending.result();
+    }
+
+    /**
+     * Stops the dispatcher, gives the batches in flight a few seconds to finish and fails
+     * anything still queued so callers can fall back.
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        dispatcher.interrupt();
+        try {
+            // The dispatcher may be sending a batch itself; don't wait for a hung ML service
+            dispatcher.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+            senders.shutdown();
+            if (!senders.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("ML batch requests still in flight after " + SHUTDOWN_TIMEOUT_SECONDS + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            senders.shutdown();
+            List<PendingAnalysis> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            fail(remaining, new SentimentAnalysisException("ML batch client is shutting down"));
+        }
+    }
+
+    private void dispatchLoop() {
+        List<PendingAnalysis> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                PendingAnalysis first = queue.take();
+                batch.add(first);
+
+                // Fill the batch until it is full or the first item has waited long enough
+                long deadline = first.enqueuedAt() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingAnalysis next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                List<PendingAnalysis> toSend = List.copyOf(batch);
+                batch.clear();
+                try {
+                    senders.execute(() -> send(toSend));
+                } catch (RejectedExecutionException e) {
+                    fail(toSend, new SentimentAnalysisException("ML batch client is shutting down", e));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Interrupted while filling a batch
+        fail(batch, new SentimentAnalysisException("ML batch client is shutting down"));
+    }
+
+    private static void fail(List<PendingAnalysis> batch, Exception cause) {
+        batch.forEach(pending -> pending.result().completeExceptionally(cause));
+    }
+
+    private void send(List<PendingAnalysis> batch) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            fail(batch, new SentimentAnalysisException("ML circuit breaker is open"));
+            return;
+        }
+        long now = System.nanoTime();
+        batchSizeSummary.record(batch.size());
+        List<String> texts = new ArrayList<>(batch.size());
+        for (PendingAnalysis pending : batch) {
+            queueDelayTimer.record(now - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+            texts.add(pending.text());
+        }
+
+        try {
+            List<Map<String, Object>> results = callBatchEndpoint(texts);
+            if (results == null || results.size() != batch.size()) {
+                throw new SentimentAnalysisException("ML service returned "
+                        + (results == null ? "no" : results.size()) + " results for a batch of " + batch.size());
+            }
+            circuitBreaker.recordCall("batch", System.nanoTime() - now, true);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (Exception e) {
+            circuitBreaker.recordCall("batch", System.nanoTime() - now, false);
+            logger.log(Level.FINE, "ML batch request failed", e);
+            fail(batch, e);
+        }
+    }
+
+    private List<Map<String, Object>> callBatchEndpoint(List<String> texts) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        HttpEntity<Map<String, List<String>>> request = new HttpEntity<>(Map.of("texts", texts), headers);
+
+        ResponseEntity<Map> response = restTemplate.postForEntity(batchUrl, request, Map.class);
+
+        Map<?, ?> body = response.getBody();
+        //noinspection unchecked
+        return body == null ? null : (List<Map<String, Object>>) body.get("results");
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.sentimentanalysis.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker in front of the ML service.
+ *
+ * While CLOSED every call is let through and its outcome is recorded in a sliding window
+ * of the last {@code ml.circuit-breaker.window-size} calls. Once at least
+ * {@code minimum-calls} have been recorded and the failure rate reaches
+ * {@code failure-rate-threshold} percent, the breaker OPENs: callers are refused
+ * immediately and use the local fallback instead of waiting for timeouts. After
+ * {@code open-duration-ms} the breaker goes HALF_OPEN and lets a single trial call
+ * through; its outcome either closes the breaker again or re-opens it.
+ *
+ * Exposes ml.circuit.state (0 = closed, 1 = open, 2 = half-open), ml.circuit.rejected
+ * and the ml.request latency timer tagged by endpoint and outcome.
+ */
+@Component
+public class MlCircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger(MlCircuitBreaker.class.getName());
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean enabled;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+
+    /**
+     * Outcomes of the most recent calls, used as a ring buffer; true means the call failed.
+     */
+    private final boolean[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public MlCircuitBreaker(MeterRegistry meterRegistry,
+                            @Value("${ml.circuit-breaker.enabled:true}") boolean enabled,
+                            @Value("${ml.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                            @Value("${ml.circuit-breaker.window-size:20}") int windowSize,
+                            @Value("${ml.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                            @Value("${ml.circuit-breaker.open-duration-ms:10000}") long openDurationMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+
+        Gauge.builder("ml.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("ML circuit breaker state: 0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("ml.circuit.rejected")
+                .description("ML calls refused because the circuit breaker was open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Asks whether a call to the ML service may be made now. A caller that gets
+     * {@code true} must report the outcome with {@link #recordCall(String, long, boolean)}.
+     *
+     * @return true if the call may go ahead, false if the caller should use the fallback
+     */
+    public boolean tryAcquirePermission() {
+        if (!enabled || state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos) {
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Tells whether {@link #tryAcquirePermission()} would currently let a call through, without
+     * taking the permission. Lets callers that only make the call later (e.g. after queueing)
+     * turn work away early while the breaker is open.
+     *
+     * @return false if the breaker is open, or half-open with its trial call in flight
+     */
+    public boolean isCallPermitted() {
+        if (!enabled || state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            boolean permitted;
+            if (state == State.OPEN) {
+                permitted = System.nanoTime() - openedAt >= openDurationNanos;
+            } else {
+                permitted = state == State.CLOSED || !trialInFlight;
+            }
+            if (!permitted) {
+                rejectedCounter.increment();
+            }
+            return permitted;
+        }
+    }
+
+    /**
+     * Gives back a permission whose call was abandoned before it had an outcome, e.g. because
+     * it was cancelled on shutdown. Frees the half-open trial slot without deciding anything.
+     */
+    public void releasePermission() {
+        if (!enabled || state == State.CLOSED) {
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+            }
+        }
+    }
+
+    /**
+     * Records the outcome and latency of a call that was permitted.
+     *
+     * @param endpoint      Which ML endpoint was called, used as a metric tag
+     * @param durationNanos How long the call took
+     * @param success       Whether the call returned a usable result
+     */
+    public void recordCall(String endpoint, long durationNanos, boolean success) {
+        Timer.builder("ml.request")
+                .description("Latency of calls to the ML service")
+                .tag("endpoint", endpoint)
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (!enabled) {
+            return;
+        }
+
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+                transitionTo(success ? State.CLOSED : State.OPEN);
+                return;
+            }
+            if (state == State.OPEN) {
+                // A call that started before the breaker opened; it does not change anything
+                return;
+            }
+
+            if (windowCount == window.length) {
+                if (window[windowPosition]) {
+                    windowFailures--;
+                }
+            } else {
+                windowCount++;
+            }
+            window[windowPosition] = !success;
+            if (!success) {
+                windowFailures++;
+            }
+            windowPosition = (windowPosition + 1) % window.length;
+
+            if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Must be called while holding this object's lock.
+     */
+    private void transitionTo(State next) {
+        State previous = state;
+        if (previous == next) {
+            return;
+        }
+        state = next;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (next == State.CLOSED) {
+            windowPosition = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+        logger.info("ML circuit breaker " + previous + " -> " + next);
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.sentimentanalysis.service;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.example.sentimentanalysis.exception.CapacityExceededException;
+import com.example.sentimentanalysis.exception.SentimentAnalysisException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process sentiment model: the ML service's DistilBERT, exported to ONNX
+ * (ml-service/export_onnx.py) and run with ONNX Runtime on the CPU.
+ *
+ * Used instead of the HTTP call to the ML service when {@code ml.backend=onnx}; otherwise it
+ * loads nothing. Texts are tokenized by {@link WordPieceTokenizer} and queued; each of the
+ * {@code ml.onnx.threads} inference threads takes whatever is queued (up to
+ * {@code ml.onnx.batch.max-size} texts) and runs it as one padded batch. There is no batching
+ * delay: a lone text runs at once, and under load the queue builds up while the threads are
+ * busy, which makes the batches larger. Once {@code ml.onnx.queue-capacity} texts are waiting,
+ * new ones fail with {@link CapacityExceededException} and get the fallback.
+ *
+ * Results have the same shape as the ML service's, including the softmax over the model's
+ * labels and the model version ({@code ml.onnx.model-version}, which should name the exported model).
+ *
+ * Exports ml.onnx.batch.size, ml.onnx.inference and ml.onnx.queue.depth.
+ */
+@Component
+public class OnnxSentimentClassifier {
+
+    private static final Logger logger = Logger.getLogger(OnnxSentimentClassifier.class.getName());
+
+    private static final List<String> STANDARD_LABELS = List.of("negative", "neutral", "positive");
+
+    /**
+     * A text waiting for inference, together with the future its caller is waiting on.
+     */
+    private record PendingAnalysis(String text, int[] tokenIds, CompletableFuture<Map<String, Object>> result) {
+    }
+
+    private final boolean enabled;
+    private final String modelVersion;
+    private final List<String> labels;
+    private final int maxLength;
+    private final int maxBatchSize;
+
+    private OrtEnvironment environment;
+    private OrtSession session;
+    private boolean needsTokenTypes;
+    private WordPieceTokenizer tokenizer;
+    private BlockingQueue<PendingAnalysis> queue;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private DistributionSummary batchSizeSummary;
+    private Timer inferenceTimer;
+
+    @Autowired
+    public OnnxSentimentClassifier(MeterRegistry meterRegistry,
+                                   @Value("${ml.backend:http}") String backend,
+                                   @Value("${ml.onnx.model-dir:models/sentiment}") String modelDir,
+                                   @Value("${ml.onnx.model-version:distilbert-base-uncased-finetuned-sst-2-english}") String modelVersion,
+                                   @Value("${ml.onnx.labels:negative,positive}") String labels,
+                                   @Value("${ml.onnx.max-length:512}") int maxLength,
+                                   @Value("${ml.onnx.batch.max-size:32}") int maxBatchSize,
+                                   @Value("${ml.onnx.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${ml.onnx.threads:2}") int threads,
+                                   @Value("${ml.onnx.intra-op-threads:0}") int intraOpThreads) {
+        this.enabled = "onnx".equalsIgnoreCase(backend.trim());
+        this.modelVersion = modelVersion;
+        this.labels = Arrays.stream(labels.split(",")).map(label -> label.trim().toLowerCase(Locale.ROOT)).toList();
+        this.maxLength = maxLength;
+        this.maxBatchSize = maxBatchSize;
+        if (!enabled) {
+            return;
+        }
+
+        Path directory = Path.of(modelDir);
+        // Parallelism comes from the inference threads; by default split the cores between them
+        int opThreads = intraOpThreads > 0 ? intraOpThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, threads));
+        try {
+            this.tokenizer = WordPieceTokenizer.load(directory.resolve("vocab.txt"));
+            this.environment = OrtEnvironment.getEnvironment();
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            options.setIntraOpNumThreads(opThreads);
+            this.session = environment.createSession(directory.resolve("model.onnx").toString(), options);
+            this.needsTokenTypes = session.getInputNames().contains("token_type_ids");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the ONNX model vocabulary in " + directory, e);
+        } catch (OrtException e) {
+            throw new IllegalStateException("Cannot load the ONNX model in " + directory, e);
+        }
+
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizeSummary = DistributionSummary.builder("ml.onnx.batch.size")
+                .description("Number of texts per in-process inference batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.inferenceTimer = Timer.builder("ml.onnx.inference")
+                .description("Time taken by one in-process inference batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("ml.onnx.queue.depth", queue, BlockingQueue::size)
+                .description("Texts waiting for in-process inference")
+                .register(meterRegistry);
+
+        for (int i = 1; i <= threads; i++) {
+            Thread worker = new Thread(this::inferenceLoop, "onnx-inference-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        logger.info("Loaded ONNX sentiment model " + modelVersion + " from " + directory + " ("
+                + threads + " inference threads, " + opThreads + " intra-op threads each)");
+    }
+
+    /**
+     * @return Whether analyses run in process instead of calling the ML service
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The version reported with every result
+     */
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    /**
+     * Queues a text for inference.
+     *
+     * @param text The text to analyze
+     * @return A future completed with the result map, or exceptionally if inference fails
+     */
+    public CompletableFuture<Map<String, Object>> submit(String text) {
+        if (!enabled) {
+            return CompletableFuture.failedFuture(new SentimentAnalysisException("The ONNX backend is not enabled"));
+        }
+        String cleanText = text.toLowerCase(Locale.ROOT);
+        PendingAnalysis pending = new PendingAnalysis(
+                cleanText, tokenizer.encode(cleanText, maxLength), new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            pending.result().completeExceptionally(new CapacityExceededException("ONNX inference queue is full"));
+        }
+        return pending.result();
+    }
+
+    /**
+     * Stops the inference threads, fails anything still queued and releases the model.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        workers.forEach(Thread::interrupt);
+        List<PendingAnalysis> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pending -> pending.result().completeExceptionally(
+                new SentimentAnalysisException("ONNX classifier is shutting down")));
+        for (Thread worker : workers) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        try {
+            session.close();
+        } catch (OrtException e) {
+            logger.log(Level.WARNING, "Failed to close the ONNX session", e);
+        }
+    }
+
+    private void inferenceLoop() {
+        List<PendingAnalysis> batch = new ArrayList<>(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            try {
+                List<Map<String, Object>> results = inferenceTimer.recordCallable(() -> classify(batch));
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).result().complete(results.get(i));
+                }
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "ONNX inference failed for a batch of " + batch.size(), e);
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+            }
+            batchSizeSummary.record(batch.size());
+            batch.clear();
+        }
+    }
+
+    private List<Map<String, Object>> classify(List<PendingAnalysis> batch) throws OrtException {
+        int width = 0;
+        for (PendingAnalysis pending : batch) {
+            width = Math.max(width, pending.tokenIds().length);
+        }
+        long[] shape = {batch.size(), width};
+        LongBuffer inputIds = LongBuffer.allocate(batch.size() * width);
+        LongBuffer attentionMask = LongBuffer.allocate(batch.size() * width);
+        for (PendingAnalysis pending : batch) {
+            int[] ids = pending.tokenIds();
+            for (int i = 0; i < width; i++) {
+                inputIds.put(i < ids.length ? ids[i] : tokenizer.padId());
+                attentionMask.put(i < ids.length ? 1 : 0);
+            }
+        }
+        inputIds.flip();
+        attentionMask.flip();
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, inputIds, shape));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, attentionMask, shape));
+            if (needsTokenTypes) {
+                inputs.put("token_type_ids",
+                        OnnxTensor.createTensor(environment, LongBuffer.allocate(batch.size() * width), shape));
+            }
+            try (OrtSession.Result output = session.run(inputs)) {
+                float[][] logits = (float[][]) output.get(0).getValue();
+                List<Map<String, Object>> results = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    results.add(buildResult(batch.get(i).text(), softmax(logits[i])));
+                }
+                return results;
+            }
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    private static double[] softmax(float[] logits) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (float logit : logits) {
+            max = Math.max(max, logit);
+        }
+        double[] probs = new double[logits.length];
+        double sum = 0;
+        for (int i = 0; i < logits.length; i++) {
+            probs[i] = Math.exp(logits[i] - max);
+            sum += probs[i];
+        }
+        for (int i = 0; i < probs.length; i++) {
+            probs[i] /= sum;
+        }
+        return probs;
+    }
+
+    /**
+     * Same result as the ML service's EnhancedSentimentAnalyzer._build_result.
+     */
+    private Map<String, Object> buildResult(String cleanText, double[] probs) {
+        int predicted = 0;
+        for (int i = 1; i < probs.length; i++) {
+            if (probs[i] > probs[predicted]) {
+                predicted = i;
+            }
+        }
+        Map<String, Double> labelProbs = new HashMap<>();
+        for (String label : STANDARD_LABELS) {
+            labelProbs.put(label, 0.0);
+        }
+        for (int i = 0; i < probs.length; i++) {
+            labelProbs.merge(standardLabel(i), probs[i], Double::sum);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("text", cleanText);
+        result.put("label", standardLabel(predicted));
+        result.put("score", probs[predicted]);
+        result.put("probabilities", labelProbs);
+        result.put("model_version", modelVersion);
+        result.put("fallback", false);
+        return result;
+    }
+
+    private String standardLabel(int index) {
+        String label = index < labels.size() ? labels.get(index) : "";
+        if (label.contains("positive")) {
+            return "positive";
+        }
+        if (label.contains("negative")) {
+            return "negative";
+        }
+        return "neutral";
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.FeedbackCursor;
+import com.example.sentimentanalysis.dto.FeedbackDTO;
+import com.example.sentimentanalysis.dto.FeedbackFileFormat;
+import com.example.sentimentanalysis.dto.FeedbackFilter;
+import com.example.sentimentanalysis.dto.FeedbackImportDTO;
+import com.example.sentimentanalysis.dto.FeedbackImportResultDTO;
+import com.example.sentimentanalysis.dto.FeedbackPageDTO;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.FeedbackText;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import com.example.sentimentanalysis.repository.ReactiveFeedbackRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.commons.csv.CSVFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of {@link FeedbackService}, {@link FeedbackImportService} and
+ * {@link FeedbackExportService} for the "reactive" profile.
+ *
+ * New rows are written through {@link ReactiveFeedbackRepository} and announced with the same
+ * {@link FeedbackChangedEvent}s, so the in-memory statistics stay current and the statistics
+ * endpoints keep being served by {@link FeedbackService}. Submissions are always classified
+ * before they are saved; the async ingestion mode does not apply to this stack. Like the
+ * blocking stack, exact duplicates of texts the current model has scored reuse the stored result.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveFeedbackService {
+
+    private static final Logger logger = Logger.getLogger(ReactiveFeedbackService.class.getName());
+
+    private final ReactiveFeedbackRepository feedbackRepository;
+    private final ReactiveSentimentAnalysisService sentimentAnalysisService;
+    private final SentimentResultCache sentimentResultCache;
+    private final FeedbackService feedbackService;
+    private final FeedbackEntityCache feedbackEntityCache;
+    private final FeedbackPartitionService partitionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader importReader;
+    private final int importBatchSize;
+    private final int maxReportedErrors;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer processTimer;
+    private final Counter reusedCounter;
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter exportedCounter;
+
+    @Autowired
+    public ReactiveFeedbackService(ReactiveFeedbackRepository feedbackRepository,
+                                   ReactiveSentimentAnalysisService sentimentAnalysisService,
+                                   SentimentResultCache sentimentResultCache,
+                                   FeedbackService feedbackService,
+                                   FeedbackEntityCache feedbackEntityCache,
+                                   FeedbackPartitionService partitionService,
+                                   ApplicationEventPublisher eventPublisher,
+                                   Validator validator,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${feedback.import.batch-size:500}") int importBatchSize,
+                                   @Value("${feedback.import.max-reported-errors:100}") int maxReportedErrors) {
+        this.feedbackRepository = feedbackRepository;
+        this.sentimentAnalysisService = sentimentAnalysisService;
+        this.sentimentResultCache = sentimentResultCache;
+        this.feedbackService = feedbackService;
+        this.feedbackEntityCache = feedbackEntityCache;
+        this.partitionService = partitionService;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.importReader = objectMapper.readerFor(FeedbackImportDTO.class);
+        this.importBatchSize = importBatchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.meterRegistry = meterRegistry;
+        this.processTimer = Timer.builder("feedback.process")
+                .description("End-to-end latency of processing a feedback submission synchronously")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.reusedCounter = Counter.builder("feedback.text.reused")
+                .description("Submissions classified with the result stored for an identical text")
+                .register(meterRegistry);
+        this.acceptedCounter = Counter.builder("feedback.import.records")
+                .description("Records processed by bulk imports")
+                .tag("outcome", "accepted")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("feedback.import.records")
+                .description("Records processed by bulk imports")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+        this.exportedCounter = Counter.builder("feedback.export.rows")
+                .description("Rows written by feedback exports")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Analyzes and saves new feedback.
+     *
+     * @param feedbackDTO The feedback data from the client
+     * @return A Mono emitting the saved Feedback entity with sentiment analysis results
+     */
+    public Mono<Feedback> processFeedback(FeedbackDTO feedbackDTO) {
+        return processFeedback(feedbackDTO, null);
+    }
+
+    /**
+     * Analyzes and saves new feedback, completing an idempotency key in the transaction that
+     * inserts it.
+     *
+     * @param feedbackDTO The feedback data from the client
+     * @param claim       The claimed key, or null
+     * @return A Mono emitting the saved Feedback entity with sentiment analysis results; fails
+     *         with {@link org.springframework.dao.OptimisticLockingFailureException}, without
+     *         saving anything, if the claim was taken over
+     */
+    public Mono<Feedback> processFeedback(FeedbackDTO feedbackDTO, FeedbackIdempotencyService.Claim claim) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Feedback feedback = new Feedback();
+            feedback.setText(feedbackDTO.getText());
+            return findReusableResults(List.of(feedback))
+                    .flatMap(reused -> analyze(feedback, reused))
+                    .flatMap(result -> {
+                        classified(feedback, result);
+                        return save(List.of(feedback), claim);
+                    })
+                    .map(saved -> saved.get(0))
+                    .doFinally(signal -> sample.stop(processTimer));
+        });
+    }
+
+    /**
+     * Imports NDJSON records. Lines are read from the request only as fast as batches are
+     * classified and written, so a slow ML service or database slows down the upload
+     * instead of filling memory. Invalid records are skipped and reported by line number.
+     *
+     * @param lines The request body, one line per element
+     * @return A Mono emitting counts, throughput and the reasons records were rejected
+     */
+    public Mono<FeedbackImportResultDTO> importNdjson(Flux<String> lines) {
+        return Mono.defer(() -> {
+            ImportRun run = new ImportRun();
+            return lines.index()
+                    .<Feedback>handle((line, sink) -> {
+                        Feedback feedback = run.parse(line.getT1() + 1, line.getT2());
+                        if (feedback != null) {
+                            sink.next(feedback);
+                        }
+                    })
+                    .buffer(importBatchSize)
+                    // Every text of a batch is submitted before any result is awaited, so cache
+                    // misses reach the ML service as full batches; one batch is in progress at a time
+                    .concatMap(batch -> findReusableResults(batch)
+                            .flatMapMany(reused -> Flux.fromIterable(batch)
+                                    .flatMap(feedback -> analyze(feedback, reused)
+                                            .doOnNext(result -> classified(feedback, result)), batch.size()))
+                            .then(Mono.defer(() -> save(batch))))
+                    .doOnNext(saved -> run.accepted(saved.size()))
+                    .then(Mono.fromSupplier(run::finish));
+        });
+    }
+
+    /**
+     * Retrieves one page of feedback entries, ordered by creation date (newest first).
+     * Like {@link FeedbackService#getFeedbackPage}, tries the recent partitions first and
+     * continues in the archive once the feedback table runs out.
+     *
+     * @param filter Optional server-side filter criteria
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param limit  Maximum number of entries to return
+     * @return A Mono emitting the requested page and the cursor for the next one
+     */
+    public Mono<FeedbackPageDTO> getFeedbackPage(FeedbackFilter filter, String cursor, int limit) {
+        return Mono.defer(() -> {
+            int pageSize = Math.max(1, Math.min(limit, FeedbackService.MAX_PAGE_SIZE));
+            FeedbackCursor position = cursor == null || cursor.isBlank() ? null : FeedbackCursor.decode(cursor);
+
+            // Fetch one extra row to learn whether another page exists without a COUNT query
+            return findHotRows(filter, position, pageSize + 1)
+                    .flatMap(rows -> {
+                        if (rows.size() > pageSize) {
+                            return Mono.just(rows);
+                        }
+                        FeedbackCursor archivePosition = rows.isEmpty()
+                                ? position : FeedbackCursor.after(rows.get(rows.size() - 1));
+                        return feedbackRepository.findArchivedPage(filter, archivePosition, pageSize + 1 - rows.size())
+                                .collectList()
+                                .map(archived -> {
+                                    List<Feedback> all = new ArrayList<>(rows);
+                                    all.addAll(archived);
+                                    return all;
+                                });
+                    })
+                    .map(rows -> {
+                        boolean hasMore = rows.size() > pageSize;
+                        List<Feedback> items = hasMore ? rows.subList(0, pageSize) : rows;
+                        String nextCursor = hasMore ? FeedbackCursor.after(items.get(items.size() - 1)).encode() : null;
+                        return new FeedbackPageDTO(items, nextCursor, hasMore);
+                    });
+        });
+    }
+
+    private Mono<List<Feedback>> findHotRows(FeedbackFilter filter, FeedbackCursor position, int limit) {
+        LocalDateTime upperBound = position != null ? position.createdAt()
+                : filter.getTo() != null ? filter.getTo() : LocalDateTime.now();
+        LocalDateTime windowStart = partitionService.recentWindowStart(upperBound);
+        Mono<List<Feedback>> all = Mono.defer(() -> feedbackRepository.findPage(filter, position, limit).collectList());
+        if (windowStart == null || (filter.getFrom() != null && !filter.getFrom().isBefore(windowStart))) {
+            return all;
+        }
+        // A full page from the newest partitions is also the first page over all of them
+        return feedbackRepository.findPage(filter.withFrom(windowStart), position, limit)
+                .collectList()
+                .flatMap(recent -> recent.size() >= limit ? Mono.just(recent) : all);
+    }
+
+    /**
+     * Retrieves a specific feedback entry by ID, through the {@link FeedbackEntityCache}.
+     *
+     * @param id The ID of the feedback to retrieve
+     * @return A Mono emitting the Feedback, or empty if not found
+     */
+    public Mono<Feedback> getFeedbackById(long id) {
+        // Cancelling one subscriber must not cancel a load other requests are waiting on
+        return Mono.fromFuture(() -> feedbackEntityCache.getAsync(id,
+                key -> feedbackRepository.findById(key).toFuture()), true);
+    }
+
+    /**
+     * Streams every feedback row matching the filter as NDJSON or CSV text, archived rows
+     * first, each table ordered by ID.
+     * Rows are read from the database only as fast as the client consumes them.
+     *
+     * @param filter Which rows to export; null fields are ignored
+     * @param format The output format
+     * @return The export, as chunks of complete lines
+     */
+    public Flux<String> export(FeedbackFilter filter, FeedbackFileFormat format) {
+        Flux<String> rows = feedbackRepository.streamAll(filter)
+                .map(format == FeedbackFileFormat.NDJSON ? this::toNdjson : ReactiveFeedbackService::toCsv)
+                .doOnNext(row -> exportedCounter.increment());
+        if (format == FeedbackFileFormat.CSV) {
+            rows = Flux.concat(Mono.just(CSVFormat.DEFAULT.format(
+                    "id", "text", "sentimentLabel", "sentimentScore", "sentimentStatus", "modelVersion", "createdAt")
+                    + "\r\n"), rows);
+        }
+        // Write a few hundred rows per network write instead of one
+        return rows.buffer(256).map(lines -> String.join("", lines));
+    }
+
+    /**
+     * Non-blocking counterpart of the lookup in {@link FeedbackService}: finds the results the
+     * current model recorded for exact duplicates of texts that are not in the in-memory cache,
+     * and sets the entries' textHash.
+     */
+    private Mono<Map<String, Map<String, Object>>> findReusableResults(List<Feedback> feedback) {
+        String modelVersion = sentimentResultCache.getModelVersion();
+        List<String> hashes = new ArrayList<>();
+        for (Feedback entry : feedback) {
+            entry.setTextHash(FeedbackText.hashOf(entry.getText()));
+            if (modelVersion != null && !sentimentResultCache.isCached(entry.getText())) {
+                hashes.add(entry.getTextHash());
+            }
+        }
+        return feedbackRepository.findTextResults(hashes, modelVersion);
+    }
+
+    private Mono<Map<String, Object>> analyze(Feedback feedback, Map<String, Map<String, Object>> reused) {
+        Map<String, Object> result = reused.get(feedback.getTextHash());
+        if (result != null) {
+            reusedCounter.increment();
+            return Mono.just(result);
+        }
+        return sentimentAnalysisService.analyze(feedback.getText());
+    }
+
+    private void classified(Feedback feedback, Map<String, Object> sentimentResult) {
+        feedbackService.applySentimentResult(feedback, sentimentResult);
+        feedback.setSentimentStatus(SentimentStatus.CLASSIFIED);
+    }
+
+    private Mono<List<Feedback>> save(List<Feedback> feedback) {
+        return save(feedback, null);
+    }
+
+    private Mono<List<Feedback>> save(List<Feedback> feedback, FeedbackIdempotencyService.Claim claim) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Feedback entry : feedback) {
+            if (entry.getCreatedAt() == null) {
+                entry.setCreatedAt(now);
+            }
+        }
+        String modelVersion = sentimentResultCache.getModelVersion();
+        Mono<List<Feedback>> inserted = claim == null ? feedbackRepository.insertAll(feedback, modelVersion)
+                : feedbackRepository.insertAll(feedback, modelVersion, claim.key(), claim.claimedAt());
+        return inserted
+                .doOnNext(saved -> saved.forEach(entry ->
+                        eventPublisher.publishEvent(new FeedbackChangedEvent(entry, true, null, null))));
+    }
+
+    private String toNdjson(Feedback feedback) {
+        try {
+            return objectMapper.writeValueAsString(feedback) + "\n";
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toCsv(Feedback feedback) {
+        return CSVFormat.DEFAULT.format(
+                feedback.getId(),
+                feedback.getText(),
+                feedback.getSentimentLabel(),
+                feedback.getSentimentScore(),
+                feedback.getSentimentStatus(),
+                feedback.getModelVersion(),
+                feedback.getCreatedAt()) + "\r\n";
+    }
+
+    /**
+     * State of one import: the result so far. Only touched from the import's own signals,
+     * which Reactor delivers one at a time.
+     */
+    private class ImportRun {
+        private final long startedAt = System.nanoTime();
+        private final FeedbackImportResultDTO result = new FeedbackImportResultDTO();
+
+        /**
+         * @return The record as a new Feedback entity, or null if the line is blank or invalid
+         */
+        Feedback parse(long line, String text) {
+            if (text.isBlank()) {
+                return null;
+            }
+            FeedbackImportDTO dto;
+            try {
+                dto = importReader.readValue(text);
+            } catch (JsonProcessingException e) {
+                reject(line, "Malformed JSON: " + e.getOriginalMessage());
+                return null;
+            }
+            Set<ConstraintViolation<FeedbackImportDTO>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                reject(line, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return null;
+            }
+            Feedback feedback = new Feedback();
+            feedback.setText(dto.getText());
+            feedback.setCreatedAt(dto.getCreatedAt());
+            return feedback;
+        }
+
+        void reject(long line, String message) {
+            result.setRejected(result.getRejected() + 1);
+            rejectedCounter.increment();
+            if (result.getErrors().size() < maxReportedErrors) {
+                result.getErrors().add(new FeedbackImportResultDTO.RecordError(line, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+
+        void accepted(int count) {
+            result.setAccepted(result.getAccepted() + count);
+            acceptedCounter.increment(count);
+        }
+
+        FeedbackImportResultDTO finish() {
+            long elapsedNanos = System.nanoTime() - startedAt;
+            result.setDurationMs(elapsedNanos / 1_000_000);
+            result.setRowsPerSecond(elapsedNanos > 0 ? result.getAccepted() * 1e9 / elapsedNanos : 0);
+            logger.info(String.format("Imported %d feedback entries (%d rejected) in %d ms, %.0f rows/s",
+                    result.getAccepted(), result.getRejected(), result.getDurationMs(), result.getRowsPerSecond()));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.CapacityExceededException;
+import com.example.sentimentanalysis.exception.SentimentAnalysisException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking counterpart of {@link SentimentAnalysisService} for the "reactive" profile.
+ *
+ * Results come from the same {@link SentimentResultCache}, calls go through the same
+ * {@link MlCircuitBreaker} and failures fall back to the same {@link LexiconSentimentEngine}.
+ * With batching enabled, texts are pushed into a bounded sink that is cut into batches of up to
+ * {@code ml.batch.max-size} texts (or whatever arrived within {@code ml.batch.max-wait-ms}), and
+ * at most {@code ml.batch.max-in-flight} batch requests run at once. Batches are only requested
+ * from the sink when a request slot is free, so a slow ML service backs up into the sink; once
+ * the sink's {@code ml.batch.queue-capacity} is reached new texts get the fallback immediately.
+ * Each batch asks the {@link MlCircuitBreaker} for permission when it is sent, so texts that
+ * never make it into a batch cannot hold the breaker's half-open trial permit.
+ * No thread waits on the ML service at any point.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveSentimentAnalysisService {
+
+    private static final Logger logger = Logger.getLogger(ReactiveSentimentAnalysisService.class.getName());
+
+    private static final ThrottledLog fallbackLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> RESULT_TYPE =
+            new ParameterizedTypeReference<>() {
+            };
+
+    /**
+     * A text waiting to be batched, together with the future its caller subscribed to.
+     */
+    private record PendingAnalysis(String text, CompletableFuture<Map<String, Object>> result) {
+    }
+
+    private final WebClient mlWebClient;
+    private final OnnxSentimentClassifier onnxClassifier;
+    private final SentimentResultCache resultCache;
+    private final MlCircuitBreaker circuitBreaker;
+    private final LexiconSentimentEngine lexiconEngine;
+    private final String mlServiceUrl;
+    private final String batchUrl;
+    private final boolean batchingEnabled;
+    private final boolean cacheEnabled;
+    private final long latencyBudgetMs;
+
+    private final Sinks.Many<PendingAnalysis> batchQueue;
+    private final Disposable batchPipeline;
+    private volatile boolean shuttingDown;
+
+    private final DistributionSummary batchSizeSummary;
+    private final Counter budgetExceededCounter;
+    private final Counter mlResultCounter;
+    private final Counter errorFallbackCounter;
+    private final Counter circuitOpenFallbackCounter;
+    private final Counter budgetFallbackCounter;
+    private final Counter capacityFallbackCounter;
+
+    @Autowired
+    public ReactiveSentimentAnalysisService(@Qualifier("mlWebClient") WebClient mlWebClient,
+                                            OnnxSentimentClassifier onnxClassifier,
+                                            SentimentResultCache resultCache,
+                                            MlCircuitBreaker circuitBreaker,
+                                            LexiconSentimentEngine lexiconEngine,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${ml.service.url:http://localhost:5000/analyze}") String mlServiceUrl,
+                                            @Value("${ml.batch.url:http://localhost:5000/analyze/batch}") String batchUrl,
+                                            @Value("${ml.batch.enabled:true}") boolean batchingEnabled,
+                                            @Value("${ml.cache.enabled:true}") boolean cacheEnabled,
+                                            @Value("${ml.latency-budget-ms:0}") long latencyBudgetMs,
+                                            @Value("${ml.batch.max-size:32}") int maxBatchSize,
+                                            @Value("${ml.batch.max-wait-ms:10}") long maxWaitMs,
+                                            @Value("${ml.batch.queue-capacity:10000}") int queueCapacity,
+                                            @Value("${ml.batch.max-in-flight:4}") int maxInFlight) {
+        this.mlWebClient = mlWebClient;
+        this.onnxClassifier = onnxClassifier;
+        this.resultCache = resultCache;
+        this.circuitBreaker = circuitBreaker;
+        this.lexiconEngine = lexiconEngine;
+        this.mlServiceUrl = mlServiceUrl;
+        this.batchUrl = batchUrl;
+        this.batchingEnabled = batchingEnabled;
+        this.cacheEnabled = cacheEnabled;
+        this.latencyBudgetMs = latencyBudgetMs;
+
+        this.batchSizeSummary = DistributionSummary.builder("ml.batch.size")
+                .description("Number of texts sent to the ML service per batch request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.budgetExceededCounter = Counter.builder("ml.latency.budget.exceeded")
+                .description("Analyses answered with the fallback because the ML call exceeded its latency budget")
+                .register(meterRegistry);
+        this.mlResultCounter = resultCounter(meterRegistry, "ml", "none");
+        this.errorFallbackCounter = resultCounter(meterRegistry, "fallback", "error");
+        this.circuitOpenFallbackCounter = resultCounter(meterRegistry, "fallback", "circuit_open");
+        this.budgetFallbackCounter = resultCounter(meterRegistry, "fallback", "budget");
+        this.capacityFallbackCounter = resultCounter(meterRegistry, "fallback", "capacity");
+
+        this.batchQueue = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingAnalysis>get(queueCapacity).get());
+        this.batchPipeline = batchQueue.asFlux()
+                .bufferTimeout(maxBatchSize, Duration.ofMillis(maxWaitMs), true)
+                .flatMap(this::sendBatch, maxInFlight)
+                // Texts still queued or being batched when the pipeline is disposed on shutdown
+                .doOnDiscard(PendingAnalysis.class, pending -> pending.result().completeExceptionally(
+                        new SentimentAnalysisException("Sentiment analysis is shutting down")))
+                .subscribe();
+    }
+
+    private static Counter resultCounter(MeterRegistry meterRegistry, String source, String reason) {
+        return Counter.builder("sentiment.analysis.results")
+                .description("Sentiment analyses by where the result came from and, for fallbacks, why")
+                .tag("source", source)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Analyzes the sentiment of the given text without blocking.
+     * Falls back to the lexicon engine if the ML call fails, the circuit breaker is open,
+     * the batch queue is full or the call exceeds the latency budget.
+     *
+     * @param text The text to analyze
+     * @return A Mono emitting a map containing the sentiment label and score; it never errors
+     */
+    public Mono<Map<String, Object>> analyze(String text) {
+        // Cancelling this Mono must not cancel the shared future other callers may be waiting on
+        Mono<Map<String, Object>> analysis = Mono.fromFuture(() -> cacheEnabled
+                ? resultCache.getAsync(text, this::startMlAnalysis)
+                : startMlAnalysis(text), true);
+        if (latencyBudgetMs > 0) {
+            analysis = analysis.timeout(Duration.ofMillis(latencyBudgetMs));
+        }
+        return analysis
+                .doOnNext(result -> mlResultCounter.increment())
+                .onErrorResume(e -> Mono.fromSupplier(() -> fallback(text, e)));
+    }
+
+    /**
+     * Stops the batching pipeline. Texts still queued and batches still in flight are failed,
+     * so their callers are answered by the fallback.
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        batchPipeline.dispose();
+    }
+
+    private Map<String, Object> fallback(String text, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException) {
+            // The ML call keeps running and still fills the cache for the next request
+            budgetExceededCounter.increment();
+            budgetFallbackCounter.increment();
+        } else if (cause instanceof CapacityExceededException) {
+            capacityFallbackCounter.increment();
+        } else if (circuitBreaker.getState() == MlCircuitBreaker.State.CLOSED) {
+            errorFallbackCounter.increment();
+            fallbackLog.log(Level.WARNING, () -> "ML service unavailable. Using fallback analysis.", cause);
+        } else {
+            circuitOpenFallbackCounter.increment();
+        }
+        return lexiconEngine.analyze(text);
+    }
+
+    /**
+     * Starts an ML request, batched or as a single request, and returns without waiting for it.
+     * Fails immediately while the ML circuit breaker is open or the batch queue is full.
+     * With the ONNX backend the text goes to {@link OnnxSentimentClassifier} instead, whose
+     * inference threads complete the future off the event loop.
+     *
+     * @param text The text to analyze
+     * @return A future completed with the ML service's result
+     */
+    private CompletableFuture<Map<String, Object>> startMlAnalysis(String text) {
+        if (onnxClassifier.isEnabled()) {
+            return onnxClassifier.submit(text);
+        }
+        if (!batchingEnabled) {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return circuitOpen();
+            }
+            return callSingle(text).toFuture();
+        }
+        // Batches take the breaker's permission when they are sent
+        if (!circuitBreaker.isCallPermitted()) {
+            return circuitOpen();
+        }
+        if (shuttingDown) {
+            return CompletableFuture.failedFuture(new SentimentAnalysisException("Sentiment analysis is shutting down"));
+        }
+        PendingAnalysis pending = new PendingAnalysis(text, new CompletableFuture<>());
+        Sinks.EmitResult emitted;
+        // Sinks reject concurrent emission rather than wait, so producers take turns
+        synchronized (batchQueue) {
+            emitted = batchQueue.tryEmitNext(pending);
+        }
+        if (emitted.isFailure()) {
+            pending.result().completeExceptionally(new CapacityExceededException("ML batch queue is full"));
+        }
+        return pending.result();
+    }
+
+    private static CompletableFuture<Map<String, Object>> circuitOpen() {
+        return CompletableFuture.failedFuture(new SentimentAnalysisException("ML circuit breaker is open"));
+    }
+
+    private Mono<Map<String, Object>> callSingle(String text) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return mlWebClient.post()
+                    .uri(mlServiceUrl)
+                    .bodyValue(Map.of("text", text))
+                    .retrieve()
+                    .bodyToMono(RESULT_TYPE)
+                    .switchIfEmpty(Mono.error(() -> new SentimentAnalysisException("ML service returned no result")))
+                    .doOnSuccess(result -> circuitBreaker.recordCall("single", System.nanoTime() - started, true))
+                    .doOnError(e -> circuitBreaker.recordCall("single", System.nanoTime() - started, false));
+        });
+    }
+
+    /**
+     * Sends one batch and completes its callers' futures. Never errors, so a failed batch
+     * does not terminate the pipeline.
+     */
+    private Mono<Void> sendBatch(List<PendingAnalysis> batch) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            fail(batch, new SentimentAnalysisException("ML circuit breaker is open"));
+            return Mono.empty();
+        }
+        batchSizeSummary.record(batch.size());
+        List<String> texts = new ArrayList<>(batch.size());
+        for (PendingAnalysis pending : batch) {
+            texts.add(pending.text());
+        }
+
+        long started = System.nanoTime();
+        return mlWebClient.post()
+                .uri(batchUrl)
+                .bodyValue(Map.of("texts", texts))
+                .retrieve()
+                .bodyToMono(RESULT_TYPE)
+                .map(body -> {
+                    Object results = body.get("results");
+                    if (!(results instanceof List<?> list) || list.size() != batch.size()) {
+                        throw new SentimentAnalysisException("ML service returned an unexpected result for a batch of "
+                                + batch.size());
+                    }
+                    //noinspection unchecked
+                    return (List<Map<String, Object>>) list;
+                })
+                .switchIfEmpty(Mono.error(() -> new SentimentAnalysisException("ML service returned no result")))
+                .doOnNext(results -> {
+                    circuitBreaker.recordCall("batch", System.nanoTime() - started, true);
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).result().complete(results.get(i));
+                    }
+                })
+                .onErrorResume(e -> {
+                    circuitBreaker.recordCall("batch", System.nanoTime() - started, false);
+                    logger.log(Level.FINE, "ML batch request failed", e);
+                    fail(batch, e);
+                    return Mono.empty();
+                })
+                .doOnCancel(() -> {
+                    // Cancelled by shutdown before the ML service answered
+                    circuitBreaker.releasePermission();
+                    fail(batch, new SentimentAnalysisException("Sentiment analysis is shutting down"));
+                })
+                .then();
+    }
+
+    private static void fail(List<PendingAnalysis> batch, Throwable cause) {
+        batch.forEach(pending -> pending.result().completeExceptionally(cause));
+    }
+}
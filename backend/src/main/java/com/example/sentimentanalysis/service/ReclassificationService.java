@@ -0,0 +1,571 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import com.example.sentimentanalysis.exception.SentimentAnalysisException;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.ReclassificationJob;
+import com.example.sentimentanalysis.model.ReclassificationStatus;
+import com.example.sentimentanalysis.model.SentimentStatus;
+import com.example.sentimentanalysis.repository.FeedbackRepository;
+import com.example.sentimentanalysis.repository.ReclassificationJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background job that re-scores stored feedback after the ML model changes.
+ *
+ * Every classified row records the model version that scored it. The job walks the feedback
+ * table in ID order, reading {@code feedback.reclassify.chunk-size} rows at a time whose
+ * version differs from the target (rows scored by an older model, by the fallback, or before
+ * versions were recorded), and sends them to the ML service {@code ml-batch-size} texts at a
+ * time. After every batch the new results are written with one JDBC batch, a
+ * {@link FeedbackChangedEvent} is published for each rewritten row (so the statistics, caches,
+ * search index and live stream follow), and the checkpoint is saved to 'reclassification_job'.
+ * A job interrupted by a restart resumes from its checkpoint on the next start.
+ *
+ * With {@code feedback.cluster.enabled}, instances sharing the database coordinate through the
+ * job row: a RUNNING job's {@code updatedAt} is the lease of the instance running it, renewed
+ * before every write and checkpoint with a conditional update. Starting the job on any instance
+ * while the lease is fresh returns it instead of running it twice, pausing it on any instance
+ * stops it at the running instance's next renewal, and a job whose lease has not been renewed
+ * for {@code lease-ms} (its instance died) is taken over by another instance.
+ *
+ * To leave capacity for live traffic the job runs on a single thread, never sends more than
+ * one batch at a time and stays under {@code max-rows-per-second}. It bypasses the result
+ * cache and never uses the fallback: while the ML circuit breaker is open it waits, and rows
+ * that still fail after {@code max-attempts} keep their old version for the next job. An outage
+ * longer than {@code max-outage-ms} pauses the job, so it can be resumed once the ML service is back.
+ * Rows already moved to the archive are not re-scored, and months are not archived while a
+ * job runs (see {@link FeedbackPartitionService}).
+ *
+ * Progress is exported as feedback.reclassify.rows (tagged by outcome),
+ * feedback.reclassify.remaining, feedback.reclassify.active and feedback.reclassify.batch.
+ */
+@Service
+public class ReclassificationService {
+
+    private static final Logger logger = Logger.getLogger(ReclassificationService.class.getName());
+
+    private final FeedbackRepository feedbackRepository;
+    private final ReclassificationJobRepository jobRepository;
+    private final FeedbackService feedbackService;
+    private final SentimentAnalysisService sentimentAnalysisService;
+    private final OnnxSentimentClassifier onnxClassifier;
+    private final MlCircuitBreaker circuitBreaker;
+    private final RestTemplate restTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String healthUrl;
+    private final int chunkSize;
+    private final int mlBatchSize;
+    private final double maxRowsPerSecond;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long maxOutageMs;
+    private final boolean clustered;
+    private final long leaseMs;
+
+    private final ExecutorService executor;
+    private final Counter changedCounter;
+    private final Counter unchangedCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+    private final AtomicLong remaining = new AtomicLong();
+
+    /**
+     * Whether a job is running on the executor. Only changed while holding this object's lock.
+     */
+    private volatile boolean active;
+    private volatile boolean stopRequested;
+    private volatile boolean shuttingDown;
+
+    @Autowired
+    public ReclassificationService(FeedbackRepository feedbackRepository,
+                                   ReclassificationJobRepository jobRepository,
+                                   FeedbackService feedbackService,
+                                   SentimentAnalysisService sentimentAnalysisService,
+                                   OnnxSentimentClassifier onnxClassifier,
+                                   MlCircuitBreaker circuitBreaker,
+                                   RestTemplate restTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ml.health.url:http://localhost:5000/health}") String healthUrl,
+                                   @Value("${feedback.reclassify.chunk-size:1000}") int chunkSize,
+                                   @Value("${feedback.reclassify.ml-batch-size:32}") int mlBatchSize,
+                                   @Value("${feedback.reclassify.max-rows-per-second:100}") double maxRowsPerSecond,
+                                   @Value("${feedback.reclassify.max-attempts:3}") int maxAttempts,
+                                   @Value("${feedback.reclassify.retry-backoff-ms:5000}") long retryBackoffMs,
+                                   @Value("${feedback.reclassify.max-outage-ms:600000}") long maxOutageMs,
+                                   @Value("${feedback.reclassify.lease-ms:120000}") long leaseMs,
+                                   @Value("${feedback.cluster.enabled:false}") boolean clustered) {
+        this.feedbackRepository = feedbackRepository;
+        this.jobRepository = jobRepository;
+        this.feedbackService = feedbackService;
+        this.sentimentAnalysisService = sentimentAnalysisService;
+        this.onnxClassifier = onnxClassifier;
+        this.circuitBreaker = circuitBreaker;
+        this.restTemplate = restTemplate;
+        this.eventPublisher = eventPublisher;
+        this.healthUrl = healthUrl;
+        this.chunkSize = chunkSize;
+        this.mlBatchSize = mlBatchSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxOutageMs = maxOutageMs;
+        this.leaseMs = leaseMs;
+        this.clustered = clustered;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "feedback-reclassify");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.changedCounter = rowCounter(meterRegistry, "changed");
+        this.unchangedCounter = rowCounter(meterRegistry, "unchanged");
+        this.failedCounter = rowCounter(meterRegistry, "failed");
+        this.batchTimer = Timer.builder("feedback.reclassify.batch")
+                .description("Time taken to re-score and write one batch, including throttling")
+                .register(meterRegistry);
+        Gauge.builder("feedback.reclassify.remaining", remaining, AtomicLong::get)
+                .description("Rows the running re-classification job has yet to visit (estimated)")
+                .register(meterRegistry);
+        Gauge.builder("feedback.reclassify.active", this, service -> service.active ? 1 : 0)
+                .description("Whether a re-classification job is running")
+                .register(meterRegistry);
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("feedback.reclassify.rows")
+                .description("Rows visited by re-classification jobs, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts re-scoring every row not scored by the target model version. Resumes the latest
+     * job from its checkpoint if it was for the same version and did not finish.
+     *
+     * @param targetVersion The model version to re-score to, or null to ask the ML service
+     * @return The started or resumed job, or the job another instance is running for the same version
+     * @throws InvalidRequestException if a job for another version is running
+     */
+    public synchronized ReclassificationJob start(String targetVersion) {
+        String target = targetVersion == null || targetVersion.isBlank()
+                ? currentModelVersion() : targetVersion.trim();
+        Optional<ReclassificationJob> latest = jobRepository.findFirstByOrderByIdDesc();
+        if (active) {
+            ReclassificationJob running = latest.orElseThrow();
+            if (!running.getTargetVersion().equals(target)) {
+                throw new InvalidRequestException("A re-classification to model version "
+                        + running.getTargetVersion() + " is running; pause it before starting another");
+            }
+            // A pause that has not taken effect yet is simply cancelled
+            stopRequested = false;
+            return running;
+        }
+
+        LocalDateTime now = now();
+        ReclassificationJob job = latest.filter(ReclassificationService::isUnfinished).orElse(null);
+        if (job != null && isLeasedElsewhere(job, now)) {
+            if (!job.getTargetVersion().equals(target)) {
+                throw new InvalidRequestException("A re-classification to model version " + job.getTargetVersion()
+                        + " is running on another instance; pause it before starting another");
+            }
+            return job;
+        }
+        if (job != null && job.getTargetVersion().equals(target)) {
+            logger.info("Resuming re-classification job " + job.getId() + " after feedback " + job.getLastId());
+        } else {
+            if (job != null) {
+                job.setStatus(ReclassificationStatus.FAILED);
+                job.setMessage("Superseded by a job for model version " + target);
+                job.setFinishedAt(now);
+                jobRepository.save(job);
+            }
+            job = new ReclassificationJob();
+            job.setTargetVersion(target);
+            job.setTotalRows(feedbackRepository.countOutdated(0, target));
+            job.setStartedAt(now);
+            logger.info("Starting re-classification of " + job.getTotalRows() + " feedback entries to model version "
+                    + target);
+        }
+        job.setStatus(ReclassificationStatus.RUNNING);
+        job.setMessage(null);
+        job.setUpdatedAt(now);
+        job = jobRepository.save(job);
+        launch(job.getId());
+        return job;
+    }
+
+    /**
+     * Asks the running job to stop after its current batch. It can be resumed with
+     * {@link #start(String)}. In a cluster, a job running on another instance is paused
+     * through the job row.
+     *
+     * @return The latest job, if any
+     */
+    public synchronized Optional<ReclassificationJob> pause() {
+        if (active) {
+            stopRequested = true;
+        } else if (clustered) {
+            jobRepository.findFirstByOrderByIdDesc()
+                    .filter(job -> job.getStatus() == ReclassificationStatus.RUNNING)
+                    .ifPresent(job -> {
+                        if (jobRepository.pauseRunning(job.getId(), now()) == 1) {
+                            logger.info("Paused re-classification job " + job.getId() + " running on another instance");
+                        }
+                    });
+        }
+        return jobRepository.findFirstByOrderByIdDesc();
+    }
+
+    /**
+     * @return The latest job and its progress, if any job was ever started
+     */
+    public Optional<ReclassificationJob> getStatus() {
+        return jobRepository.findFirstByOrderByIdDesc();
+    }
+
+    /**
+     * Resumes a job that was still running when the application stopped. In a cluster, only
+     * once its lease has expired, since another instance may be running it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void resumeOnStartup() {
+        try {
+            jobRepository.findFirstByOrderByIdDesc()
+                    .filter(job -> job.getStatus() == ReclassificationStatus.RUNNING)
+                    .filter(job -> !clustered || takeOver(job))
+                    .ifPresent(job -> {
+                        logger.info("Resuming re-classification job " + job.getId() + " after feedback "
+                                + job.getLastId());
+                        launch(job.getId());
+                    });
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not check for an interrupted re-classification job", e);
+        }
+    }
+
+    /**
+     * In a cluster, takes over a running job whose instance stopped renewing its lease.
+     */
+    @Scheduled(fixedDelayString = "${feedback.reclassify.lease-ms:120000}")
+    public synchronized void resumeAbandoned() {
+        if (!clustered || active) {
+            return;
+        }
+        try {
+            jobRepository.findFirstByOrderByIdDesc()
+                    .filter(job -> job.getStatus() == ReclassificationStatus.RUNNING)
+                    .filter(this::takeOver)
+                    .ifPresent(job -> {
+                        logger.info("Took over abandoned re-classification job " + job.getId() + " after feedback "
+                                + job.getLastId());
+                        launch(job.getId());
+                    });
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not check for an abandoned re-classification job", e);
+        }
+    }
+
+    private boolean isLeasedElsewhere(ReclassificationJob job, LocalDateTime now) {
+        return clustered && job.getStatus() == ReclassificationStatus.RUNNING
+                && job.getUpdatedAt().isAfter(now.minusNanos(leaseMs * 1_000_000));
+    }
+
+    /**
+     * Claims a running job whose lease has expired. Only one instance can claim it.
+     */
+    private boolean takeOver(ReclassificationJob job) {
+        LocalDateTime now = now();
+        return !isLeasedElsewhere(job, now) && jobRepository.renewLease(job.getId(), job.getUpdatedAt(), now) == 1;
+    }
+
+    /**
+     * Renews the lease on the running job before writing anything.
+     *
+     * @throws LeaseLostException if the job was paused or taken over elsewhere
+     */
+    private void renewLease(ReclassificationJob job) {
+        LocalDateTime now = now();
+        if (jobRepository.renewLease(job.getId(), job.getUpdatedAt(), now) != 1) {
+            throw new LeaseLostException();
+        }
+        job.setUpdatedAt(now);
+    }
+
+    /**
+     * Database timestamps keep microseconds, so the lease is compared at that precision.
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * The job row says another instance paused or took over the job.
+     */
+    private static final class LeaseLostException extends RuntimeException {
+    }
+
+    /**
+     * The ML circuit breaker stayed open for longer than {@code max-outage-ms}.
+     */
+    private static final class OutageTimeoutException extends RuntimeException {
+    }
+
+    /**
+     * Stops the job without pausing it, so it resumes on the next start.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        stopRequested = true;
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static boolean isUnfinished(ReclassificationJob job) {
+        return job.getStatus() == ReclassificationStatus.RUNNING || job.getStatus() == ReclassificationStatus.PAUSED;
+    }
+
+    private String currentModelVersion() {
+        if (onnxClassifier.isEnabled()) {
+            return onnxClassifier.getModelVersion();
+        }
+        Map<?, ?> health = restTemplate.getForObject(healthUrl, Map.class);
+        Object version = health == null ? null : health.get("model_version");
+        if (version == null) {
+            throw new SentimentAnalysisException("ML service at " + healthUrl + " did not report a model version");
+        }
+        return version.toString();
+    }
+
+    /**
+     * Must be called while holding this object's lock.
+     */
+    private void launch(long jobId) {
+        active = true;
+        stopRequested = false;
+        executor.execute(() -> run(jobId));
+    }
+
+    private void run(long jobId) {
+        ReclassificationJob job = null;
+        try {
+            job = jobRepository.findById(jobId).orElseThrow();
+            remaining.set(Math.max(0, job.getTotalRows() - job.getProcessedRows()));
+            List<Feedback> chunk;
+            do {
+                chunk = feedbackRepository.findOutdated(job.getLastId(), job.getTargetVersion(), Limit.of(chunkSize));
+                for (int from = 0; from < chunk.size(); ) {
+                    List<Feedback> batch = chunk.subList(from, Math.min(from + mlBatchSize, chunk.size()));
+                    boolean done = rescore(job, batch);
+                    if (stopRequested && stop(job)) {
+                        return;
+                    }
+                    if (done) {
+                        from += batch.size();
+                    }
+                }
+            } while (!chunk.isEmpty());
+            finish(job, ReclassificationStatus.COMPLETED, null);
+        } catch (InterruptedException e) {
+            // Shutting down; the job stays RUNNING and resumes from its checkpoint on the next start
+            Thread.currentThread().interrupt();
+            finish(null, null, null);
+        } catch (LeaseLostException e) {
+            logger.info("Re-classification job " + jobId + " was paused or taken over by another instance");
+            finish(null, null, null);
+        } catch (OutageTimeoutException e) {
+            pauseAfterOutage(job);
+        } catch (RuntimeException e) {
+            if (shuttingDown) {
+                finish(null, null, null);
+                return;
+            }
+            logger.log(Level.SEVERE, "Re-classification job " + jobId + " failed", e);
+            finish(job, ReclassificationStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Re-scores one batch, writes the results and saves the checkpoint.
+     *
+     * @return false if the job was asked to stop before the batch was done; nothing was written then
+     */
+    private boolean rescore(ReclassificationJob job, List<Feedback> batch) throws InterruptedException {
+        long started = System.nanoTime();
+        List<Feedback> pending = batch;
+        List<Feedback> rescored = new ArrayList<>(batch.size());
+        List<String> previousLabels = new ArrayList<>(batch.size());
+        List<Double> previousScores = new ArrayList<>(batch.size());
+        int attempts = 1;
+        long outageStarted = 0;
+        while (true) {
+            List<Map<String, Object>> results =
+                    sentimentAnalysisService.analyzeWithModel(pending.stream().map(Feedback::getText).toList());
+            List<Feedback> failed = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                Feedback feedback = pending.get(i);
+                Map<String, Object> result = results.get(i);
+                if (result == null || Boolean.TRUE.equals(result.get("fallback"))) {
+                    failed.add(feedback);
+                    continue;
+                }
+                Object version = result.get("model_version");
+                if (!job.getTargetVersion().equals(String.valueOf(version))) {
+                    throw new IllegalStateException("ML service now reports model version " + version
+                            + " instead of " + job.getTargetVersion());
+                }
+                previousLabels.add(feedback.getSentimentLabel());
+                previousScores.add(feedback.getSentimentScore());
+                feedbackService.applySentimentResult(feedback, result);
+                feedback.setSentimentStatus(SentimentStatus.CLASSIFIED);
+                rescored.add(feedback);
+            }
+            pending = failed;
+            if (pending.isEmpty()) {
+                break;
+            }
+            // Waiting out an ML outage does not use up the rows' attempts
+            boolean outage = circuitBreaker.getState() != MlCircuitBreaker.State.CLOSED;
+            if (!outage && attempts++ >= maxAttempts) {
+                break;
+            }
+            if (!outage) {
+                outageStarted = 0;
+            } else if (outageStarted == 0) {
+                outageStarted = System.nanoTime();
+            } else if (System.nanoTime() - outageStarted >= TimeUnit.MILLISECONDS.toNanos(maxOutageMs)) {
+                // Nothing of this batch is written, so the job resumes with it
+                throw new OutageTimeoutException();
+            }
+            if (stopRequested) {
+                return false;
+            }
+            renewLease(job);
+            Thread.sleep(retryBackoffMs);
+        }
+
+        renewLease(job);
+        boolean[] written = feedbackRepository.updateSentiment(rescored);
+        long changed = 0;
+        for (int i = 0; i < rescored.size(); i++) {
+            if (!written[i]) {
+                continue;
+            }
+            Feedback feedback = rescored.get(i);
+            String previousLabel = previousLabels.get(i);
+            if (previousLabel == null || !previousLabel.equals(feedback.getSentimentLabel())) {
+                changed++;
+            }
+            eventPublisher.publishEvent(new FeedbackChangedEvent(feedback, false, previousLabel, previousScores.get(i)));
+        }
+        changedCounter.increment(changed);
+        unchangedCounter.increment(batch.size() - pending.size() - changed);
+        failedCounter.increment(pending.size());
+
+        job.setLastId(batch.get(batch.size() - 1).getId());
+        job.setProcessedRows(job.getProcessedRows() + batch.size());
+        job.setChangedRows(job.getChangedRows() + changed);
+        job.setFailedRows(job.getFailedRows() + pending.size());
+        LocalDateTime now = now();
+        if (jobRepository.checkpoint(job.getId(), job.getUpdatedAt(), job.getLastId(), job.getProcessedRows(),
+                job.getChangedRows(), job.getFailedRows(), now) != 1) {
+            throw new LeaseLostException();
+        }
+        job.setUpdatedAt(now);
+        remaining.set(Math.max(0, job.getTotalRows() - job.getProcessedRows()));
+
+        // Stay under the configured rate so live requests keep most of the ML capacity
+        long minimumNanos = (long) (batch.size() / maxRowsPerSecond * 1_000_000_000L);
+        long elapsed = System.nanoTime() - started;
+        if (elapsed < minimumNanos) {
+            TimeUnit.NANOSECONDS.sleep(minimumNanos - elapsed);
+        }
+        batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /**
+     * Stops the job if that was requested, recording it as paused unless the application is shutting down.
+     *
+     * @return Whether the job stopped
+     */
+    private synchronized boolean stop(ReclassificationJob job) {
+        if (!stopRequested) {
+            return false;
+        }
+        active = false;
+        if (!shuttingDown) {
+            job.setStatus(ReclassificationStatus.PAUSED);
+            job.setUpdatedAt(LocalDateTime.now());
+            jobRepository.save(job);
+            logger.info("Paused re-classification job " + job.getId() + " after feedback " + job.getLastId());
+        }
+        return true;
+    }
+
+    /**
+     * Pauses the job because the ML service has been unavailable for too long.
+     */
+    private synchronized void pauseAfterOutage(ReclassificationJob job) {
+        active = false;
+        if (shuttingDown) {
+            return;
+        }
+        job.setStatus(ReclassificationStatus.PAUSED);
+        job.setMessage("Paused after the ML service was unavailable for " + maxOutageMs + " ms");
+        job.setUpdatedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        logger.warning("Paused re-classification job " + job.getId() + " after feedback " + job.getLastId()
+                + ": the ML service was unavailable for " + maxOutageMs + " ms");
+    }
+
+    /**
+     * Marks the job as no longer running and records its final status, if given.
+     */
+    private synchronized void finish(ReclassificationJob job, ReclassificationStatus status, String message) {
+        active = false;
+        if (job == null || status == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(status);
+        job.setMessage(message);
+        job.setUpdatedAt(now);
+        job.setFinishedAt(now);
+        jobRepository.save(job);
+        if (status == ReclassificationStatus.COMPLETED) {
+            remaining.set(0);
+        }
+        logger.info("Re-classification job " + job.getId() + " " + status + ": " + job.getProcessedRows()
+                + " entries visited, " + job.getChangedRows() + " changed label, " + job.getFailedRows() + " failed");
+    }
+}
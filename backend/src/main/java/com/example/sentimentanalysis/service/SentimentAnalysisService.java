@@ -1,6 +1,11 @@
 package com.example.sentimentanalysis.service;
 
+import com.example.sentimentanalysis.exception.CapacityExceededException;
+import com.example.sentimentanalysis.exception.SentimentAnalysisException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -10,43 +15,252 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Service for communicating with the Python ML service for sentiment analysis.
- * If the ML service is unavailable, it falls back to a simple rule-based analysis.
+ * If the ML service is unavailable, it falls back to the embedded {@link LexiconSentimentEngine}.
+ * With {@code ml.backend=onnx} the model runs in process in {@link OnnxSentimentClassifier}
+ * instead, and the HTTP settings below do not apply.
+ *
+ * Every analysis is counted in sentiment.analysis.results, tagged with source (ml or fallback)
+ * and the reason for a fallback (error, circuit_open, budget or capacity), so the fallback
+ * rate can be derived from the metric instead of from the logs.
  */
 @Service
 public class SentimentAnalysisService {
 
     private static final Logger logger = Logger.getLogger(SentimentAnalysisService.class.getName());
 
+    /**
+     * While the ML service is down every request falls back, so the warning is throttled.
+     */
+    private static final ThrottledLog fallbackLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+
     @Value("${ml.service.url:http://localhost:5000/analyze}")
     private String mlServiceUrl;
 
+    @Value("${ml.batch.enabled:true}")
+    private boolean batchingEnabled;
+
+    @Value("${ml.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    /**
+     * Longest time to wait for an ML result before answering with the fallback; 0 waits for
+     * the call to finish or time out. Only applies to batched calls, since a single
+     * request runs on the caller's thread and is bounded by the HTTP read timeout instead.
+     */
+    @Value("${ml.latency-budget-ms:0}")
+    private long latencyBudgetMs;
+
     private final RestTemplate restTemplate;
+    private final MlBatchClient mlBatchClient;
+    private final OnnxSentimentClassifier onnxClassifier;
+    private final SentimentResultCache resultCache;
+    private final MlCircuitBreaker circuitBreaker;
+    private final LexiconSentimentEngine lexiconEngine;
+    private final Bulkhead mlBulkhead;
+    private final Counter budgetExceededCounter;
+    private final Counter mlResultCounter;
+    private final Counter errorFallbackCounter;
+    private final Counter circuitOpenFallbackCounter;
+    private final Counter budgetFallbackCounter;
+    private final Counter capacityFallbackCounter;
 
     @Autowired
-    public SentimentAnalysisService(RestTemplate restTemplate) {
+    public SentimentAnalysisService(RestTemplate restTemplate,
+                                    MlBatchClient mlBatchClient,
+                                    OnnxSentimentClassifier onnxClassifier,
+                                    SentimentResultCache resultCache,
+                                    MlCircuitBreaker circuitBreaker,
+                                    LexiconSentimentEngine lexiconEngine,
+                                    @Qualifier("mlBulkhead") Bulkhead mlBulkhead,
+                                    MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
+        this.mlBatchClient = mlBatchClient;
+        this.onnxClassifier = onnxClassifier;
+        this.resultCache = resultCache;
+        this.circuitBreaker = circuitBreaker;
+        this.lexiconEngine = lexiconEngine;
+        this.mlBulkhead = mlBulkhead;
+        this.budgetExceededCounter = Counter.builder("ml.latency.budget.exceeded")
+                .description("Analyses answered with the fallback because the ML call exceeded its latency budget")
+                .register(meterRegistry);
+        this.mlResultCounter = resultCounter(meterRegistry, "ml", "none");
+        this.errorFallbackCounter = resultCounter(meterRegistry, "fallback", "error");
+        this.circuitOpenFallbackCounter = resultCounter(meterRegistry, "fallback", "circuit_open");
+        this.budgetFallbackCounter = resultCounter(meterRegistry, "fallback", "budget");
+        this.capacityFallbackCounter = resultCounter(meterRegistry, "fallback", "capacity");
+    }
+
+    private static Counter resultCounter(MeterRegistry meterRegistry, String source, String reason) {
+        return Counter.builder("sentiment.analysis.results")
+                .description("Sentiment analyses by where the result came from and, for fallbacks, why")
+                .tag("source", source)
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 
     /**
      * Analyzes the sentiment of the given text.
-     * Tries to use the ML service first, falls back to simple analysis if that fails.
+     * Tries to use the ML service first, falls back to the lexicon engine if that fails,
+     * if the ML circuit breaker is open, or if the call exceeds the latency budget.
+     * Results for texts seen before are served from {@link SentimentResultCache}.
+     * When batching is enabled, the call is grouped with concurrent calls into a single
+     * ML request by {@link MlBatchClient}.
      * 
      * @param text The text to analyze
      * @return A map containing the sentiment label and score
      */
     public Map<String, Object> analyzeSentiment(String text) {
         try {
-            return callMlService(text);
+            CompletableFuture<Map<String, Object>> analysis =
+                    cacheEnabled ? resultCache.getAsync(text, this::startMlAnalysis) : startMlAnalysis(text);
+            Map<String, Object> result =
+                    latencyBudgetMs > 0 ? analysis.get(latencyBudgetMs, TimeUnit.MILLISECONDS) : analysis.join();
+            mlResultCounter.increment();
+            return result;
+        } catch (TimeoutException e) {
+            // The ML call keeps running and still fills the cache for the next request
+            budgetExceededCounter.increment();
+            budgetFallbackCounter.increment();
+            return lexiconEngine.analyze(text);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errorFallbackCounter.increment();
+            return lexiconEngine.analyze(text);
         } catch (Exception e) {
-            logger.log(Level.WARNING, "ML service unavailable. Using fallback analysis.", e);
-            return simpleSentimentAnalysis(text);
+            if (e.getCause() instanceof CapacityExceededException) {
+                capacityFallbackCounter.increment();
+            } else if (circuitBreaker.getState() == MlCircuitBreaker.State.CLOSED) {
+                errorFallbackCounter.increment();
+                fallbackLog.log(Level.WARNING, () -> "ML service unavailable. Using fallback analysis.", e);
+            } else {
+                circuitOpenFallbackCounter.increment();
+                logger.fine("ML circuit breaker is not closed. Using fallback analysis.");
+            }
+            return lexiconEngine.analyze(text);
+        }
+    }
+
+    /**
+     * Analyzes many texts at once. All texts are submitted before any result is awaited,
+     * so cache misses reach the ML service as full batches instead of one call per text.
+     * Texts whose ML call fails get the fallback analysis individually.
+     * 
+     * @param texts The texts to analyze
+     * @return One result map per text, in the same order
+     */
+    public List<Map<String, Object>> analyzeSentimentBatch(List<String> texts) {
+        List<CompletableFuture<Map<String, Object>>> pending = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            pending.add(cacheEnabled ? resultCache.getAsync(text, this::startMlAnalysis) : startMlAnalysis(text));
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>(texts.size());
+        int fallbacks = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            try {
+                results.add(pending.get(i).join());
+            } catch (Exception e) {
+                fallbacks++;
+                results.add(lexiconEngine.analyze(texts.get(i)));
+            }
+        }
+        mlResultCounter.increment(texts.size() - fallbacks);
+        if (fallbacks > 0) {
+            boolean circuitOpen = circuitBreaker.getState() != MlCircuitBreaker.State.CLOSED;
+            (circuitOpen ? circuitOpenFallbackCounter : errorFallbackCounter).increment(fallbacks);
+            int fallbackCount = fallbacks;
+            fallbackLog.log(Level.WARNING, () -> "ML service unavailable for " + fallbackCount + " of "
+                    + texts.size() + " texts. Used fallback analysis.");
+        }
+        return results;
+    }
+
+    /**
+     * Analyzes texts with the ML model only, for re-scoring stored feedback. Bypasses the
+     * result cache, whose entries may have come from an older model, and never falls back:
+     * texts whose ML call fails get null instead.
+     * 
+     * @param texts The texts to analyze
+     * @return One result map per text, in the same order, or null where the ML call failed
+     */
+    public List<Map<String, Object>> analyzeWithModel(List<String> texts) {
+        List<CompletableFuture<Map<String, Object>>> pending = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            pending.add(startMlAnalysis(text));
+        }
+        List<Map<String, Object>> results = new ArrayList<>(texts.size());
+        for (CompletableFuture<Map<String, Object>> analysis : pending) {
+            try {
+                Map<String, Object> result = analysis.join();
+                mlResultCounter.increment();
+                results.add(result);
+            } catch (Exception e) {
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Starts an ML request without waiting for it, batched or as a single request.
+     * Without batching the single request runs on the calling thread, inside the ML bulkhead.
+     * Fails immediately while the ML circuit breaker is open. With the ONNX backend the text
+     * is queued for in-process inference instead, which the breaker does not guard.
+     * 
+     * @param text The text to analyze
+     * @return A future completed with the ML service's result
+     */
+    private CompletableFuture<Map<String, Object>> startMlAnalysis(String text) {
+        if (onnxClassifier.isEnabled()) {
+            return onnxClassifier.submit(text);
+        }
+        if (batchingEnabled) {
+            // The batch client takes the breaker's permission per batch, when it is sent
+            if (!circuitBreaker.isCallPermitted()) {
+                return circuitOpen();
+            }
+            return mlBatchClient.submit(text);
+        }
+        try {
+            // The permit is taken before asking the breaker, so a caller turned away by the
+            // bulkhead never holds the breaker's half-open trial slot
+            return mlBulkhead.call(() -> callMlServiceGuarded(text));
+        } catch (CapacityExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static CompletableFuture<Map<String, Object>> circuitOpen() {
+        return CompletableFuture.failedFuture(new SentimentAnalysisException("ML circuit breaker is open"));
+    }
+
+    /**
+     * Makes a single ML request on the calling thread and reports its outcome to the circuit breaker.
+     */
+    private CompletableFuture<Map<String, Object>> callMlServiceGuarded(String text) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return circuitOpen();
+        }
+        long started = System.nanoTime();
+        try {
+            Map<String, Object> result = callMlService(text);
+            circuitBreaker.recordCall("single", System.nanoTime() - started, result != null);
+            return CompletableFuture.completedFuture(result);
+        } catch (RuntimeException e) {
+            circuitBreaker.recordCall("single", System.nanoTime() - started, false);
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -75,56 +289,4 @@ public class SentimentAnalysisService {
         //noinspection unchecked
         return response.getBody();
     }
-
-    /**
-     * Simple rule-based sentiment analysis as a fallback.
-     * This is used when the ML service is unavailable.
-     * 
-     * @param text The text to analyze
-     * @return A map containing the sentiment label and score
-     */
-    private Map<String, Object> simpleSentimentAnalysis(String text) {
-        String lowercaseText = text.toLowerCase();
-        Map<String, Object> result = new HashMap<>();
-
-        // Simple positive and negative word lists
-        String[] positiveWords = {"good", "great", "excellent", "amazing", "love", "happy", "best", "like", "awesome"};
-        String[] negativeWords = {"bad", "terrible", "awful", "horrible", "hate", "worst", "dislike", "poor", "disappointing"};
-
-        int positiveCount = 0;
-        int negativeCount = 0;
-
-        // Count positive and negative words
-        for (String word : positiveWords) {
-            if (lowercaseText.contains(word)) {
-                positiveCount++;
-            }
-        }
-
-        for (String word : negativeWords) {
-            if (lowercaseText.contains(word)) {
-                negativeCount++;
-            }
-        }
-
-        // Determine sentiment based on word counts
-        String label;
-        double score;
-
-        if (positiveCount > negativeCount) {
-            label = "positive";
-            score = 0.5 + (0.5 * (double) positiveCount / (positiveCount + negativeCount));
-        } else if (negativeCount > positiveCount) {
-            label = "negative";
-            score = 0.5 * (double) negativeCount / (positiveCount + negativeCount);
-        } else {
-            label = "neutral";
-            score = 0.5;
-        }
-
-        result.put("label", label);
-        result.put("score", score);
-
-        return result;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.SentimentAnalysisException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed cache of ML sentiment results.
+ *
+ * Entries are keyed by the SHA-256 of the normalized text (trimmed, lowercased, whitespace
+ * collapsed), so duplicates and trivially different copies share one entry. Eviction is
+ * Caffeine's W-TinyLFU, bounded by size and by a TTL. Concurrent lookups of the same text
+ * share a single in-flight ML call. The whole cache is dropped when the ML service starts
+ * reporting a different model version.
+ *
+ * Only real model results are cached; failed calls and results the ML service itself
+ * marked as fallbacks are never stored.
+ */
+@Component
+public class SentimentResultCache {
+
+    private static final Logger logger = Logger.getLogger(SentimentResultCache.class.getName());
+
+    private final AsyncCache<String, Map<String, Object>> cache;
+    private volatile String modelVersion;
+
+    @Autowired
+    public SentimentResultCache(MeterRegistry meterRegistry,
+                                @Value("${ml.cache.max-size:100000}") long maxSize,
+                                @Value("${ml.cache.ttl-minutes:1440}") long ttlMinutes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .buildAsync();
+        // Exposes cache.gets{result=hit|miss}, cache.evictions and cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "sentiment-results");
+    }
+
+    /**
+     * Returns the cached result for the text, or starts loading it. If another caller is
+     * already loading the same text, the returned future completes with that load instead
+     * of starting a new one. The caller decides how long to wait.
+     *
+     * @param text   The text to analyze
+     * @param loader Starts loading the ML result; only invoked if no entry or load exists yet
+     * @return A future completed with the sentiment result map
+     */
+    public CompletableFuture<Map<String, Object>> getAsync(
+            String text, Function<String, CompletableFuture<Map<String, Object>>> loader) {
+        String key = keyFor(text);
+        CompletableFuture<Map<String, Object>> placeholder = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> result = cache.get(key, (k, executor) -> placeholder);
+
+        if (result != placeholder) {
+            return result.thenApply(shared -> {
+                if (shared == null) {
+                    throw new SentimentAnalysisException("Coalesced ML request failed");
+                }
+                return shared;
+            });
+        }
+
+        // This caller owns the load; everyone else with the same key is waiting on it
+        CompletableFuture<Map<String, Object>> load;
+        try {
+            load = loader.apply(text);
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        return load.whenComplete((loaded, error) -> {
+            if (error != null) {
+                // Completing with null removes the entry without Caffeine logging the failure again
+                placeholder.complete(null);
+                return;
+            }
+            observeModelVersion(loaded);
+            placeholder.complete(loaded);
+            if (!isCacheable(loaded)) {
+                cache.synchronous().invalidate(key);
+            }
+        });
+    }
+
+    /**
+     * @param text The text to look up
+     * @return Whether a result for the text is cached or being loaded
+     */
+    public boolean isCached(String text) {
+        return cache.getIfPresent(keyFor(text)) != null;
+    }
+
+    /**
+     * @return The model version the ML service last reported, or null if no model result
+     *         has been seen since startup
+     */
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Computes the cache key for a text.
+     *
+     * @param text The raw feedback text
+     * @return Hex-encoded SHA-256 of the normalized text
+     */
+    static String keyFor(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Normalizes text so trivially different copies map to the same key:
+     * trims, lowercases and collapses runs of whitespace into one space.
+     *
+     * @param text The raw text
+     * @return The normalized text
+     */
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(Character.toLowerCase(c));
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isCacheable(Map<String, Object> result) {
+        return result != null && !Boolean.TRUE.equals(result.get("fallback"));
+    }
+
+    /**
+     * Invalidates the cache when a real model result reports a model version
+     * different from the one the cached entries were produced by.
+     */
+    private void observeModelVersion(Map<String, Object> result) {
+        if (!isCacheable(result) || result.get("model_version") == null) {
+            return;
+        }
+        String version = result.get("model_version").toString();
+        String previous = modelVersion;
+        if (!version.equals(previous)) {
+            modelVersion = version;
+            if (previous != null) {
+                logger.info("ML model version changed from " + previous + " to " + version + ", clearing result cache");
+                invalidateAll();
+            }
+        }
+    }
+}
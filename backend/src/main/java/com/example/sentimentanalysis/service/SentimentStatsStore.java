@@ -0,0 +1,711 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.SentimentBucketDTO;
+import com.example.sentimentanalysis.dto.TimeBucket;
+import com.example.sentimentanalysis.event.ClusterResyncEvent;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.exception.InvalidRequestException;
+import com.example.sentimentanalysis.model.AbstractSentimentRollup;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.repository.FeedbackArchiveRepository;
+import com.example.sentimentanalysis.repository.SentimentMinuteRollupRepository;
+import com.example.sentimentanalysis.repository.SentimentRollupRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Incrementally maintained sentiment aggregates.
+ *
+ * Every insert or re-classification adjusts striped in-memory counters: per-label totals,
+ * per-hour buckets for the full history and per-minute buckets for a recent retention window.
+ * Reads never touch the database. The same adjustments are queued as deltas and periodically
+ * upserted into the 'sentiment_rollup_hourly' and 'sentiment_rollup_minute' tables, so the
+ * aggregates survive restarts. On startup the tables are loaded back into memory and the most
+ * recent hours are recomputed from the 'feedback' table, which repairs any deltas that were not
+ * flushed before a crash. Changes to older rows (e.g. re-classifications) fall outside that
+ * window, so their deltas are written right away instead of being queued. Minute buckets older
+ * than the retention window are compacted away periodically. {@link #rebuild()} recomputes
+ * everything from raw rows.
+ *
+ * With {@code feedback.cluster.enabled}, several instances share the rollup tables. Deltas of
+ * hours inside the reconcile window are then not written at all: on every
+ * {@link ClusterResyncEvent}, each instance reloads the older hours from the tables and
+ * recomputes the window from raw rows, and one instance at a time (holding a MySQL named lock)
+ * rewrites the window's rollup rows from that recompute. Its totals therefore never include a
+ * delta another instance is about to flush. Older hours get their deltas written right away.
+ * A change to the window's oldest hour made after the last resync before that hour leaves the
+ * window is not written, so the window should cover the delay of late classifications.
+ *
+ * Every change bumps a version, so callers can tell whether anything derived from the feedback
+ * table (aggregates, listings) may have changed without recomputing it.
+ */
+@Service
+public class SentimentStatsStore {
+
+    private static final Logger logger = Logger.getLogger(SentimentStatsStore.class.getName());
+    private static final ThrottledLog writeFailureLog = new ThrottledLog(logger, 30, TimeUnit.SECONDS);
+
+    /**
+     * MySQL named lock held by the instance rewriting rollup rows from raw rows.
+     */
+    private static final String ROLLUP_LOCK = "sentiment_rollup_rewrite";
+
+    /**
+     * How long a starting instance waits for another one to finish rewriting the rollups.
+     */
+    private static final int STARTUP_LOCK_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Label under which rows without a sentiment label (e.g. PENDING rows) are counted.
+     */
+    public static final String UNCLASSIFIED = "unclassified";
+
+    /**
+     * Upper bound on the number of buckets a single time series query may return.
+     */
+    public static final int MAX_BUCKETS = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FeedbackArchiveRepository archiveRepository;
+    private final SentimentRollupRepository hourlyRepository;
+    private final SentimentMinuteRollupRepository minuteRepository;
+    private final int reconcileHours;
+    private final int minuteRetentionHours;
+    private final boolean clustered;
+
+    private final ConcurrentHashMap<String, LongAdder> totals = new ConcurrentHashMap<>();
+    private final Resolution hourly = new Resolution("sentiment_rollup_hourly", ChronoUnit.HOURS);
+    private final Resolution minutely = new Resolution("sentiment_rollup_minute", ChronoUnit.MINUTES);
+
+    /**
+     * Taken shared by every update and flush, and exclusively while recomputing from raw rows,
+     * so a recompute never sees deltas that are neither in memory nor in the tables yet.
+     */
+    private final ReentrantReadWriteLock recomputeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Distinguishes versions issued by this process from those of an earlier run.
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile Instant lastModified = Instant.now();
+
+    private static final class BucketCounter {
+        final LongAdder count = new LongAdder();
+        final DoubleAdder scoreSum = new DoubleAdder();
+    }
+
+    private static final class Delta {
+        long count;
+        double scoreSum;
+    }
+
+    /**
+     * In-memory buckets of one size, the deltas not yet written to its table, and the SQL to maintain it.
+     */
+    private static final class Resolution {
+        final String table;
+        final ChronoUnit unit;
+        final String upsertSql;
+        final String aggregateSql;
+        final ConcurrentSkipListMap<LocalDateTime, ConcurrentHashMap<String, BucketCounter>> buckets =
+                new ConcurrentSkipListMap<>();
+
+        /**
+         * Changes not yet written to the table. Deltas are only mutated inside
+         * {@code compute}, so removing one during a flush can never lose a concurrent update.
+         */
+        final ConcurrentHashMap<AbstractSentimentRollup.Key, Delta> pendingDeltas = new ConcurrentHashMap<>();
+
+        Resolution(String table, ChronoUnit unit) {
+            this.table = table;
+            this.unit = unit;
+            this.upsertSql = "INSERT INTO " + table + " (bucket_start, sentiment_label, feedback_count, score_sum) "
+                    + "VALUES (?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE feedback_count = feedback_count + VALUES(feedback_count), "
+                    + "score_sum = score_sum + VALUES(score_sum)";
+            boolean minutes = unit == ChronoUnit.MINUTES;
+            this.aggregateSql = "SELECT CAST(created_at AS DATE) AS bucket_day, "
+                    + "EXTRACT(HOUR FROM created_at) AS bucket_hour, "
+                    + (minutes ? "EXTRACT(MINUTE FROM created_at)" : "0") + " AS bucket_minute, "
+                    + "sentiment_label, COUNT(*) AS feedback_count, COALESCE(SUM(sentiment_score), 0) AS score_sum "
+                    + "FROM feedback WHERE created_at >= ? "
+                    + "GROUP BY CAST(created_at AS DATE), EXTRACT(HOUR FROM created_at), "
+                    + (minutes ? "EXTRACT(MINUTE FROM created_at), " : "") + "sentiment_label";
+        }
+    }
+
+    @Autowired
+    public SentimentStatsStore(JdbcTemplate jdbcTemplate,
+                               FeedbackArchiveRepository archiveRepository,
+                               SentimentRollupRepository hourlyRepository,
+                               SentimentMinuteRollupRepository minuteRepository,
+                               @Value("${stats.reconcile-hours:2}") int reconcileHours,
+                               @Value("${stats.minute-retention-hours:48}") int minuteRetentionHours,
+                               @Value("${feedback.cluster.enabled:false}") boolean clustered) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveRepository = archiveRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.minuteRepository = minuteRepository;
+        this.reconcileHours = reconcileHours;
+        this.minuteRetentionHours = minuteRetentionHours;
+        this.clustered = clustered;
+    }
+
+    /**
+     * Loads the persisted rollups and repairs the most recent hours from raw rows.
+     * Falls back to a full rebuild if no rollups have been persisted yet.
+     */
+    @PostConstruct
+    public void initialize() {
+        List<? extends AbstractSentimentRollup> hourlyRollups = hourlyRepository.findAll();
+        if (hourlyRollups.isEmpty()) {
+            rebuild();
+            return;
+        }
+        LocalDateTime since = reconcileStart();
+        recomputeLock.writeLock().lock();
+        try {
+            load(hourlyRollups, since);
+        } finally {
+            recomputeLock.writeLock().unlock();
+        }
+        reconcileSince(since, STARTUP_LOCK_TIMEOUT_SECONDS);
+        logger.info("Loaded " + hourlyRollups.size() + " hourly sentiment rollup buckets");
+    }
+
+    /**
+     * Brings the aggregates in line with the database in cluster mode, repairing any change of
+     * another instance whose event never arrived: hours before the reconcile window are
+     * reloaded from the rollup tables and the window is recomputed from raw rows. Counters are
+     * adjusted in place, so readers never see them empty.
+     *
+     * @param event The periodic resync
+     */
+    @EventListener
+    public void onClusterResync(ClusterResyncEvent event) {
+        if (!clustered) {
+            return;
+        }
+        LocalDateTime since = reconcileStart();
+        recomputeLock.writeLock().lock();
+        try {
+            flush();
+            load(hourlyRepository.findAll(), since);
+            // Another instance rewriting the window right now repairs it in the tables; this
+            // one still recomputes its memory
+            reconcileSince(since, 0);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to resync the sentiment aggregates, will retry", e);
+        } finally {
+            recomputeLock.writeLock().unlock();
+            markModified();
+        }
+    }
+
+    /**
+     * Applies a saved or re-classified feedback row to the aggregates. Changes relayed from
+     * other instances only update memory; the originating instance persists their deltas.
+     *
+     * @param event The change to apply
+     */
+    @EventListener
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        Feedback feedback = event.feedback();
+        if (feedback.getCreatedAt() == null) {
+            return;
+        }
+        String label = labelOf(feedback.getSentimentLabel());
+        double score = scoreOf(feedback.getSentimentScore());
+        boolean persist = !event.remote();
+
+        recomputeLock.readLock().lock();
+        try {
+            if (!event.created()) {
+                String previousLabel = labelOf(event.previousLabel());
+                double previousScore = scoreOf(event.previousScore());
+                if (previousLabel.equals(label) && previousScore == score) {
+                    return;
+                }
+                apply(feedback.getCreatedAt(), previousLabel, -1, -previousScore, persist);
+            }
+            apply(feedback.getCreatedAt(), label, 1, score, persist);
+        } finally {
+            recomputeLock.readLock().unlock();
+            markModified();
+        }
+    }
+
+    /**
+     * Returns an opaque version that changes whenever a feedback row is inserted or
+     * re-classified, or the aggregates are recomputed. Read it before reading the data
+     * it describes: the version is bumped after the change has been applied.
+     *
+     * @return The current version
+     */
+    public String getVersion() {
+        return epoch + "-" + version.get();
+    }
+
+    /**
+     * Returns when the version last changed.
+     *
+     * @return The time of the last change
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    private void markModified() {
+        lastModified = Instant.now();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of feedback rows per sentiment label, including {@link #UNCLASSIFIED}.
+     *
+     * @return Map from label to count
+     */
+    public Map<String, Long> getTotals() {
+        Map<String, Long> result = new HashMap<>();
+        totals.forEach((label, count) -> result.put(label, count.sum()));
+        return result;
+    }
+
+    /**
+     * Returns a dense time series of sentiment counts: one bucket per step between
+     * {@code from} and {@code to}, including empty ones. Minute buckets are served from the
+     * minute rollups and only reach back {@code stats.minute-retention-hours}; hour and day
+     * buckets are served from the hourly rollups.
+     *
+     * @param bucket The bucket size
+     * @param from   Inclusive start of the range, or null to start at the oldest available bucket
+     * @param to     Exclusive end of the range, or null for now
+     * @param label  Only count this sentiment label, or null for all labels
+     * @return Buckets ordered by start time
+     * @throws InvalidRequestException if the range is outside the retention window or too large
+     */
+    public List<SentimentBucketDTO> getBuckets(TimeBucket bucket, LocalDateTime from, LocalDateTime to, String label) {
+        Resolution source = bucket == TimeBucket.MINUTE ? minutely : hourly;
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        LocalDateTime start = from;
+        if (bucket == TimeBucket.MINUTE) {
+            LocalDateTime cutoff = minuteCutoff();
+            if (start != null && start.isBefore(cutoff)) {
+                throw new InvalidRequestException("Minute buckets are only kept for the last "
+                        + minuteRetentionHours + " hours; use hour or day buckets for older data");
+            }
+            start = start == null ? cutoff : start;
+        } else if (start == null) {
+            start = source.buckets.isEmpty() ? end : source.buckets.firstKey();
+        }
+        start = bucket.truncate(start);
+
+        // Group the source buckets by the requested bucket size
+        NavigableMap<LocalDateTime, ConcurrentHashMap<String, BucketCounter>> range =
+                source.buckets.subMap(start, true, end, false);
+        Map<LocalDateTime, List<Map<String, BucketCounter>>> grouped = new HashMap<>();
+        range.forEach((time, counters) ->
+                grouped.computeIfAbsent(bucket.truncate(time), t -> new ArrayList<>()).add(counters));
+
+        List<SentimentBucketDTO> series = new ArrayList<>();
+        for (LocalDateTime time = start; time.isBefore(end); time = bucket.next(time)) {
+            if (series.size() >= MAX_BUCKETS) {
+                throw new InvalidRequestException("Time range spans more than " + MAX_BUCKETS
+                        + " buckets; use a larger bucket or a shorter range");
+            }
+            series.add(toBucket(time, grouped.getOrDefault(time, List.of()), label));
+        }
+        return series;
+    }
+
+    /**
+     * Writes queued deltas to the rollup tables. Deltas that fail to write are re-queued.
+     */
+    @Scheduled(fixedDelayString = "${stats.flush-interval-ms:5000}")
+    public void flush() {
+        recomputeLock.readLock().lock();
+        try {
+            flush(hourly);
+            flush(minutely);
+        } finally {
+            recomputeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops minute buckets that have left the retention window, in memory and in the
+     * database. The hourly rollups already hold the same counts at coarser resolution.
+     */
+    @Scheduled(fixedDelayString = "${stats.compaction-interval-ms:600000}")
+    public void compact() {
+        LocalDateTime cutoff = minuteCutoff();
+        NavigableMap<LocalDateTime, ConcurrentHashMap<String, BucketCounter>> expired =
+                minutely.buckets.headMap(cutoff, false);
+        if (!expired.isEmpty()) {
+            expired.clear();
+            markModified();
+        }
+        minutely.pendingDeltas.keySet().removeIf(key -> key.getBucketStart().isBefore(cutoff));
+        int removed = jdbcTemplate.update("DELETE FROM " + minutely.table + " WHERE bucket_start < ?", cutoff);
+        if (removed > 0) {
+            logger.fine("Compacted " + removed + " minute rollup rows older than " + cutoff);
+        }
+    }
+
+    /**
+     * Recomputes every aggregate from the 'feedback' and 'feedback_archive' tables and replaces
+     * the rollup tables. In cluster mode, the tables are only replaced if no other instance is
+     * rewriting them; this instance's memory is recomputed either way.
+     * Updates are blocked while this runs.
+     */
+    public void rebuild() {
+        recomputeLock.writeLock().lock();
+        try {
+            if (!clustered || !withRollupLock(STARTUP_LOCK_TIMEOUT_SECONDS, () -> rebuild(true))) {
+                rebuild(!clustered);
+            }
+        } finally {
+            recomputeLock.writeLock().unlock();
+            markModified();
+        }
+    }
+
+    private void rebuild(boolean writeRollups) {
+        totals.clear();
+        for (Resolution resolution : List.of(hourly, minutely)) {
+            resolution.pendingDeltas.clear();
+            resolution.buckets.clear();
+            if (writeRollups) {
+                jdbcTemplate.update("DELETE FROM " + resolution.table);
+            }
+        }
+        Map<AbstractSentimentRollup.Key, Delta> hourlyAggregates = aggregateRawRows(hourly, null);
+        Map<AbstractSentimentRollup.Key, Delta> minuteAggregates = aggregateRawRows(minutely, minuteCutoff());
+        setBuckets(hourly, hourly.buckets, hourlyAggregates);
+        setBuckets(minutely, minutely.buckets, minuteAggregates);
+        if (writeRollups) {
+            writeRollups(hourly, hourlyAggregates);
+            writeRollups(minutely, minuteAggregates);
+        }
+        logger.info("Rebuilt sentiment rollups from raw feedback (" + hourlyAggregates.size() + " hourly buckets)");
+    }
+
+    /**
+     * Recomputes the buckets from the given hour onwards from raw rows, replacing both
+     * the in-memory counters and the persisted rollups for that range. In cluster mode the
+     * rollups are only replaced while holding the rollup lock, so two instances never rewrite
+     * them at once; if another instance holds it past the timeout, only memory is recomputed.
+     */
+    private void reconcileSince(LocalDateTime since, int lockTimeoutSeconds) {
+        recomputeLock.writeLock().lock();
+        try {
+            flush();
+            if (!clustered || !withRollupLock(lockTimeoutSeconds, () -> recompute(since, true))) {
+                recompute(since, !clustered);
+            }
+        } finally {
+            recomputeLock.writeLock().unlock();
+            markModified();
+        }
+    }
+
+    private void recompute(LocalDateTime since, boolean writeRollups) {
+        for (Resolution resolution : List.of(hourly, minutely)) {
+            Map<AbstractSentimentRollup.Key, Delta> aggregates = aggregateRawRows(resolution, since);
+            setBuckets(resolution, resolution.buckets.tailMap(since, true), aggregates);
+            if (writeRollups) {
+                jdbcTemplate.update("DELETE FROM " + resolution.table + " WHERE bucket_start >= ?", since);
+                writeRollups(resolution, aggregates);
+            }
+        }
+    }
+
+    /**
+     * Sets the buckets before {@code until} to the persisted rollups plus the deltas not
+     * written yet.
+     */
+    private void load(List<? extends AbstractSentimentRollup> hourlyRollups, LocalDateTime until) {
+        List<? extends AbstractSentimentRollup> minuteRollups =
+                minuteRepository.findByBucketStartGreaterThanEqual(minuteCutoff());
+        Map<Resolution, List<? extends AbstractSentimentRollup>> rollups = Map.of(hourly, hourlyRollups,
+                minutely, minuteRollups);
+        rollups.forEach((resolution, rows) -> {
+            Map<AbstractSentimentRollup.Key, Delta> counts = new HashMap<>();
+            for (AbstractSentimentRollup rollup : rows) {
+                if (rollup.getBucketStart().isBefore(until)) {
+                    add(counts, new AbstractSentimentRollup.Key(rollup.getBucketStart(), rollup.getSentimentLabel()),
+                            rollup.getFeedbackCount(), rollup.getScoreSum());
+                }
+            }
+            resolution.pendingDeltas.forEach((key, delta) -> {
+                if (key.getBucketStart().isBefore(until)) {
+                    add(counts, key, delta.count, delta.scoreSum);
+                }
+            });
+            setBuckets(resolution, resolution.buckets.headMap(until, false), counts);
+        });
+    }
+
+    /**
+     * Sets the given range of a resolution's buckets to the given counts by adding the
+     * difference to each counter, so readers never see the range empty. Totals follow the
+     * hourly buckets.
+     */
+    private void setBuckets(Resolution resolution,
+                            NavigableMap<LocalDateTime, ConcurrentHashMap<String, BucketCounter>> range,
+                            Map<AbstractSentimentRollup.Key, Delta> counts) {
+        Map<AbstractSentimentRollup.Key, Delta> differences = new HashMap<>();
+        range.forEach((start, counters) -> counters.forEach((label, counter) ->
+                add(differences, new AbstractSentimentRollup.Key(start, label),
+                        -counter.count.sum(), -counter.scoreSum.sum())));
+        counts.forEach((key, delta) -> add(differences, key, delta.count, delta.scoreSum));
+        differences.forEach((key, difference) -> {
+            if (difference.count == 0 && difference.scoreSum == 0) {
+                return;
+            }
+            addToBucket(resolution, key.getBucketStart(), key.getSentimentLabel(), difference.count,
+                    difference.scoreSum);
+            if (resolution == hourly) {
+                totals.computeIfAbsent(key.getSentimentLabel(), l -> new LongAdder()).add(difference.count);
+            }
+        });
+    }
+
+    private static void add(Map<AbstractSentimentRollup.Key, Delta> deltas, AbstractSentimentRollup.Key key,
+                            long count, double scoreSum) {
+        Delta delta = deltas.computeIfAbsent(key, k -> new Delta());
+        delta.count += count;
+        delta.scoreSum += scoreSum;
+    }
+
+    /**
+     * Runs the task holding the MySQL named lock that lets one instance at a time rewrite
+     * rollup rows. The lock belongs to the connection it was taken on, so it is released if
+     * this instance dies.
+     *
+     * @return Whether the lock was obtained within the timeout and the task run
+     */
+    private boolean withRollupLock(int timeoutSeconds, Runnable task) {
+        Boolean ran = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                lock.setString(1, ROLLUP_LOCK);
+                lock.setInt(2, timeoutSeconds);
+                try (ResultSet rs = lock.executeQuery()) {
+                    // 0 on timeout, NULL on error
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        return false;
+                    }
+                }
+            }
+            try {
+                task.run();
+                return true;
+            } finally {
+                try (PreparedStatement release = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    release.setString(1, ROLLUP_LOCK);
+                    release.execute();
+                }
+            }
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    private void flush(Resolution resolution) {
+        List<Object[]> batch = new ArrayList<>();
+        Map<AbstractSentimentRollup.Key, Delta> drained = new HashMap<>();
+        for (AbstractSentimentRollup.Key key : resolution.pendingDeltas.keySet()) {
+            Delta delta = resolution.pendingDeltas.remove(key);
+            if (delta == null || (delta.count == 0 && delta.scoreSum == 0)) {
+                continue;
+            }
+            drained.put(key, delta);
+            batch.add(new Object[]{key.getBucketStart(), key.getSentimentLabel(), delta.count, delta.scoreSum});
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(resolution.upsertSql, batch);
+        } catch (Exception e) {
+            LocalDateTime boundary = reconcileBoundary();
+            long unrepairable = drained.keySet().stream().filter(key -> key.getBucketStart().isBefore(boundary)).count();
+            logger.log(Level.WARNING, "Failed to flush " + resolution.table + ", will retry"
+                    + (unrepairable > 0 ? "; " + unrepairable + " buckets are past the reconcile window"
+                    + " and will be lost if the process stops first" : ""), e);
+            drained.forEach((key, delta) -> queueDelta(resolution, key, delta.count, delta.scoreSum));
+        }
+    }
+
+    /**
+     * Aggregates the raw rows created since the given time, or all rows (including archived
+     * ones) if it is null. Archived months are always older than the reconcile window.
+     */
+    private Map<AbstractSentimentRollup.Key, Delta> aggregateRawRows(Resolution resolution, LocalDateTime since) {
+        Map<AbstractSentimentRollup.Key, Delta> aggregates = new HashMap<>();
+        String sql = since == null
+                ? resolution.aggregateSql.replace("created_at >= ?", "created_at IS NOT NULL")
+                : resolution.aggregateSql;
+        Object[] args = since == null ? new Object[0] : new Object[]{since};
+        List<String> sources = since == null && archiveRepository.isAvailable()
+                ? List.of(sql, sql.replace("FROM feedback ", "FROM " + FeedbackArchiveRepository.TABLE + " "))
+                : List.of(sql);
+        for (String source : sources) {
+            jdbcTemplate.query(source, rs -> {
+                LocalDateTime bucketStart = rs.getObject("bucket_day", LocalDate.class)
+                        .atTime(rs.getInt("bucket_hour"), rs.getInt("bucket_minute"));
+                Delta delta = new Delta();
+                delta.count = rs.getLong("feedback_count");
+                delta.scoreSum = rs.getDouble("score_sum");
+                aggregates.merge(new AbstractSentimentRollup.Key(bucketStart, labelOf(rs.getString("sentiment_label"))),
+                        delta, (a, b) -> {
+                            a.count += b.count;
+                            a.scoreSum += b.scoreSum;
+                            return a;
+                        });
+            }, args);
+        }
+        return aggregates;
+    }
+
+    private void writeRollups(Resolution resolution, Map<AbstractSentimentRollup.Key, Delta> aggregates) {
+        List<Object[]> batch = new ArrayList<>(aggregates.size());
+        aggregates.forEach((key, delta) ->
+                batch.add(new Object[]{key.getBucketStart(), key.getSentimentLabel(), delta.count, delta.scoreSum}));
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(resolution.upsertSql, batch);
+        }
+    }
+
+    private void apply(LocalDateTime createdAt, String label, long count, double scoreSum, boolean persist) {
+        totals.computeIfAbsent(label, l -> new LongAdder()).add(count);
+
+        LocalDateTime hour = createdAt.truncatedTo(ChronoUnit.HOURS);
+        boolean writeNow;
+        if (clustered) {
+            // The window's rollup rows are only written by the resync's recompute
+            writeNow = persist && hour.isBefore(reconcileStart());
+            persist = writeNow;
+        } else {
+            // A restart only repairs the hours still in the reconcile window, so older ones are written now
+            writeNow = persist && hour.isBefore(reconcileBoundary());
+        }
+        addToBucket(hourly, hour, label, count, scoreSum);
+        if (persist) {
+            persistDelta(hourly, new AbstractSentimentRollup.Key(hour, label), count, scoreSum, writeNow);
+        }
+
+        // Re-classifying old rows only touches the hourly rollups; their minutes are already compacted
+        LocalDateTime minute = createdAt.truncatedTo(ChronoUnit.MINUTES);
+        if (!minute.isBefore(minuteCutoff())) {
+            addToBucket(minutely, minute, label, count, scoreSum);
+            if (persist) {
+                persistDelta(minutely, new AbstractSentimentRollup.Key(minute, label), count, scoreSum, writeNow);
+            }
+        }
+    }
+
+    private void persistDelta(Resolution resolution, AbstractSentimentRollup.Key key, long count, double scoreSum,
+                              boolean writeNow) {
+        if (writeNow) {
+            try {
+                jdbcTemplate.update(resolution.upsertSql, key.getBucketStart(), key.getSentimentLabel(), count, scoreSum);
+                return;
+            } catch (RuntimeException e) {
+                writeFailureLog.log(Level.WARNING, () -> "Failed to write a delta for " + resolution.table
+                        + " at " + key.getBucketStart() + ", queued for the next flush", e);
+            }
+        }
+        queueDelta(resolution, key, count, scoreSum);
+    }
+
+    private static void addToBucket(Resolution resolution, LocalDateTime bucketStart, String label,
+                                    long count, double scoreSum) {
+        BucketCounter counter = resolution.buckets
+                .computeIfAbsent(bucketStart, b -> new ConcurrentHashMap<>())
+                .computeIfAbsent(label, l -> new BucketCounter());
+        counter.count.add(count);
+        counter.scoreSum.add(scoreSum);
+    }
+
+    private static void queueDelta(Resolution resolution, AbstractSentimentRollup.Key key,
+                                   long count, double scoreSum) {
+        resolution.pendingDeltas.compute(key, (k, delta) -> {
+            Delta updated = delta == null ? new Delta() : delta;
+            updated.count += count;
+            updated.scoreSum += scoreSum;
+            return updated;
+        });
+    }
+
+    /**
+     * The first hour recomputed from raw rows on startup and on every resync.
+     */
+    private LocalDateTime reconcileStart() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(reconcileHours);
+    }
+
+    /**
+     * The oldest hour that a restart during the next hour would still reconcile from raw rows.
+     */
+    private LocalDateTime reconcileBoundary() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(reconcileHours - 1L);
+    }
+
+    private LocalDateTime minuteCutoff() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusHours(minuteRetentionHours);
+    }
+
+    private static SentimentBucketDTO toBucket(LocalDateTime start, List<? extends Map<String, BucketCounter>> parts,
+                                               String labelFilter) {
+        Map<String, Long> counts = new HashMap<>();
+        double scoreSum = 0;
+        for (Map<String, BucketCounter> part : parts) {
+            for (Map.Entry<String, BucketCounter> entry : part.entrySet()) {
+                if (labelFilter != null && !labelFilter.equals(entry.getKey())) {
+                    continue;
+                }
+                counts.merge(entry.getKey(), entry.getValue().count.sum(), Long::sum);
+                scoreSum += entry.getValue().scoreSum.sum();
+            }
+        }
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        long scored = total - counts.getOrDefault(UNCLASSIFIED, 0L);
+        return new SentimentBucketDTO(start, counts, total, scored > 0 ? scoreSum / scored : null);
+    }
+
+    private static String labelOf(String label) {
+        return label == null ? UNCLASSIFIED : label;
+    }
+
+    private static double scoreOf(Double score) {
+        return score == null ? 0.0 : score;
+    }
+}
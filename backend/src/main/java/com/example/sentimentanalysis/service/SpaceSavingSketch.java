@@ -0,0 +1,155 @@
+package com.example.sentimentanalysis.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Space-Saving top-k sketch: the most frequent keys of a stream, with at most
+ * {@code capacity} counters.
+ *
+ * A key that is not monitored while all counters are taken replaces the key with the
+ * smallest count and inherits that count as its error. Every monitored count is an upper
+ * bound on the key's true count and count - error a lower bound, and any key more frequent
+ * than total / capacity is monitored. Sketches can be merged; a key missing from a full
+ * sketch is assumed to have that sketch's smallest count there, which keeps both bounds.
+ * Not thread-safe.
+ */
+public final class SpaceSavingSketch {
+
+    /**
+     * A monitored key with its count (an upper bound) and the overestimation it may contain.
+     *
+     * @param key   The key
+     * @param count Upper bound on the key's count
+     * @param error Most by which count may exceed the true count
+     */
+    public record Counter(String key, long count, long error) {
+    }
+
+    private static final Comparator<Counter> LARGEST_FIRST =
+            Comparator.comparingLong(Counter::count).reversed().thenComparing(Counter::key);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+
+    /**
+     * Monitored keys grouped by count, so the smallest one is found without a scan.
+     */
+    private final TreeMap<Long, Set<String>> keysByCount = new TreeMap<>();
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Space-Saving capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds a count for a key.
+     *
+     * @param key   The key
+     * @param count The count to add
+     */
+    public void add(String key, long count) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            unindex(counter);
+            put(new Counter(key, counter.count() + count, counter.error()));
+        } else if (counters.size() < capacity) {
+            put(new Counter(key, count, 0));
+        } else {
+            Map.Entry<Long, Set<String>> smallest = keysByCount.firstEntry();
+            Counter evicted = counters.remove(smallest.getValue().iterator().next());
+            unindex(evicted);
+            put(new Counter(key, evicted.count() + count, evicted.count()));
+        }
+    }
+
+    /**
+     * Adds another sketch's counts to this one and keeps the largest {@code capacity} counters.
+     *
+     * @param other The sketch to add
+     */
+    public void merge(SpaceSavingSketch other) {
+        long missingHere = missingKeyBound();
+        long missingThere = other.missingKeyBound();
+        Map<String, Counter> merged = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            Counter theirs = other.counters.get(counter.key());
+            merged.put(counter.key(), theirs != null
+                    ? new Counter(counter.key(), counter.count() + theirs.count(), counter.error() + theirs.error())
+                    : new Counter(counter.key(), counter.count() + missingThere, counter.error() + missingThere));
+        }
+        for (Counter theirs : other.counters.values()) {
+            if (!counters.containsKey(theirs.key())) {
+                merged.put(theirs.key(), new Counter(theirs.key(), theirs.count() + missingHere,
+                        theirs.error() + missingHere));
+            }
+        }
+        counters.clear();
+        keysByCount.clear();
+        merged.values().stream().sorted(LARGEST_FIRST).limit(capacity).forEach(this::put);
+    }
+
+    /**
+     * @param limit Maximum number of keys to return
+     * @return The monitored keys with the largest counts, largest first
+     */
+    public List<Counter> top(int limit) {
+        return counters.values().stream().sorted(LARGEST_FIRST).limit(limit).toList();
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        out.writeInt(counters.size());
+        for (Counter counter : counters.values()) {
+            out.writeUTF(counter.key());
+            out.writeLong(counter.count());
+            out.writeLong(counter.error());
+        }
+    }
+
+    public static SpaceSavingSketch read(DataInput in) throws IOException {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(in.readInt());
+        int size = in.readInt();
+        List<Counter> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(new Counter(in.readUTF(), in.readLong(), in.readLong()));
+        }
+        counters.stream().sorted(LARGEST_FIRST).limit(sketch.capacity).forEach(sketch::put);
+        return sketch;
+    }
+
+    /**
+     * @return The most an unmonitored key can have been counted: the smallest count once full, else 0
+     */
+    private long missingKeyBound() {
+        return counters.size() < capacity || keysByCount.isEmpty() ? 0 : keysByCount.firstKey();
+    }
+
+    private void put(Counter counter) {
+        counters.put(counter.key(), counter);
+        keysByCount.computeIfAbsent(counter.count(), c -> new LinkedHashSet<>()).add(counter.key());
+    }
+
+    private void unindex(Counter counter) {
+        Set<String> keys = keysByCount.get(counter.count());
+        keys.remove(counter.key());
+        if (keys.isEmpty()) {
+            keysByCount.remove(counter.count());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.sentimentanalysis.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logs a recurring message from a hot path at most once per interval.
+ *
+ * When a dependency goes down, the same warning would otherwise be written once per request,
+ * which at high request rates costs more than the work being logged. Occurrences in between
+ * are only counted, and the count is appended to the next message that gets through.
+ */
+class ThrottledLog {
+
+    private final Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextAllowed = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong suppressed = new AtomicLong();
+
+    ThrottledLog(Logger logger, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Logs the message if the interval has passed since the last one, otherwise counts it.
+     * The message supplier is only called when the message is actually written.
+     *
+     * @param level   The level to log at
+     * @param message Supplies the message text
+     * @param thrown  Exception to attach, or null
+     */
+    void log(Level level, Supplier<String> message, Throwable thrown) {
+        if (!logger.isLoggable(level)) {
+            return;
+        }
+        long now = System.nanoTime();
+        long allowed = nextAllowed.get();
+        if ((allowed != Long.MIN_VALUE && now - allowed < 0) || !nextAllowed.compareAndSet(allowed, now + intervalNanos)) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        long skipped = suppressed.getAndSet(0);
+        String text = skipped > 0 ? message.get() + " (" + skipped + " similar messages suppressed)" : message.get();
+        logger.log(level, text, thrown);
+    }
+
+    void log(Level level, Supplier<String> message) {
+        log(level, message, null);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.sentimentanalysis.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Java port of the uncased BERT tokenizer (BasicTokenizer followed by WordPiece), producing
+ * the same token IDs as the Hugging Face tokenizer the ML service uses for DistilBERT.
+ *
+ * Basic tokenization drops control characters, lowercases, strips accents, and splits on
+ * whitespace, punctuation and around CJK ideographs. Each resulting word is then split into
+ * the longest vocabulary pieces from the left, continuation pieces carrying a "##" prefix;
+ * a word that cannot be covered, or is longer than {@value #MAX_WORD_CHARS} characters,
+ * becomes [UNK]. Instances are immutable and thread-safe.
+ */
+public final class WordPieceTokenizer {
+
+    private static final int MAX_WORD_CHARS = 100;
+
+    private final Map<String, Integer> vocab;
+    private final int clsId;
+    private final int sepId;
+    private final int unkId;
+    private final int padId;
+
+    /**
+     * @param vocab Token to ID, as listed in vocab.txt
+     */
+    public WordPieceTokenizer(Map<String, Integer> vocab) {
+        this.vocab = Map.copyOf(vocab);
+        this.clsId = requireToken("[CLS]");
+        this.sepId = requireToken("[SEP]");
+        this.unkId = requireToken("[UNK]");
+        this.padId = requireToken("[PAD]");
+    }
+
+    /**
+     * Loads a vocab.txt file: one token per line, the zero-based line number being its ID.
+     * Like the Hugging Face loader, every line counts (blank ones included) and a token listed
+     * twice gets the ID of its last line, so the IDs match the ones the model was trained with.
+     *
+     * @param vocabFile The file
+     * @return The tokenizer
+     * @throws IOException if the file cannot be read
+     */
+    public static WordPieceTokenizer load(Path vocabFile) throws IOException {
+        Map<String, Integer> vocab = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(vocabFile, StandardCharsets.UTF_8)) {
+            String line;
+            int id = 0;
+            while ((line = reader.readLine()) != null) {
+                vocab.put(line, id++);
+            }
+        }
+        return new WordPieceTokenizer(vocab);
+    }
+
+    private int requireToken(String token) {
+        Integer id = vocab.get(token);
+        if (id == null) {
+            throw new IllegalArgumentException("Vocabulary has no " + token + " token");
+        }
+        return id;
+    }
+
+    /**
+     * @return ID of the [PAD] token, used to fill shorter sequences of a batch
+     */
+    public int padId() {
+        return padId;
+    }
+
+    /**
+     * Encodes a text as [CLS] pieces... [SEP], truncating the pieces so the whole sequence
+     * fits in maxLength.
+     *
+     * @param text      The text
+     * @param maxLength Maximum sequence length including [CLS] and [SEP]; at least 2
+     * @return The token IDs
+     */
+    public int[] encode(String text, int maxLength) {
+        List<Integer> ids = new ArrayList<>();
+        ids.add(clsId);
+        int limit = maxLength - 1;
+        for (String word : basicTokenize(text)) {
+            if (!wordPiece(word, ids, limit)) {
+                break;
+            }
+        }
+        ids.add(sepId);
+        int[] encoded = new int[ids.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = ids.get(i);
+        }
+        return encoded;
+    }
+
+    /**
+     * Appends the pieces of one word.
+     *
+     * @return False once the sequence is full
+     */
+    private boolean wordPiece(String word, List<Integer> ids, int limit) {
+        if (word.codePointCount(0, word.length()) > MAX_WORD_CHARS) {
+            return append(ids, unkId, limit);
+        }
+        List<Integer> pieces = new ArrayList<>();
+        int start = 0;
+        while (start < word.length()) {
+            int end = word.length();
+            Integer piece = null;
+            while (start < end) {
+                String candidate = start > 0 ? "##" + word.substring(start, end) : word.substring(start, end);
+                piece = vocab.get(candidate);
+                if (piece != null) {
+                    break;
+                }
+                end = Character.isLowSurrogate(word.charAt(end - 1)) && end - 2 > start ? end - 2 : end - 1;
+            }
+            if (piece == null) {
+                return append(ids, unkId, limit);
+            }
+            pieces.add(piece);
+            start = end;
+        }
+        for (int piece : pieces) {
+            if (!append(ids, piece, limit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean append(List<Integer> ids, int id, int limit) {
+        if (ids.size() >= limit) {
+            return false;
+        }
+        ids.add(id);
+        return true;
+    }
+
+    /**
+     * Cleans, lowercases and splits a text into words and punctuation marks.
+     */
+    static List<String> basicTokenize(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        String normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        for (int i = 0; i < normalized.length(); ) {
+            int c = normalized.codePointAt(i);
+            i += Character.charCount(c);
+            if (c == 0 || c == 0xFFFD || Character.getType(c) == Character.NON_SPACING_MARK
+                    || (isControl(c) && !isWhitespace(c))) {
+                continue;
+            }
+            if (isWhitespace(c)) {
+                flush(word, words);
+            } else if (isPunctuation(c) || isCjk(c)) {
+                flush(word, words);
+                words.add(new String(Character.toChars(c)));
+            } else {
+                word.appendCodePoint(c);
+            }
+        }
+        flush(word, words);
+        return words;
+    }
+
+    private static void flush(StringBuilder word, List<String> words) {
+        if (word.length() > 0) {
+            words.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || Character.getType(c) == Character.SPACE_SEPARATOR;
+    }
+
+    private static boolean isControl(int c) {
+        int type = Character.getType(c);
+        return type == Character.CONTROL || type == Character.FORMAT || type == Character.UNASSIGNED
+                || type == Character.PRIVATE_USE || type == Character.SURROGATE;
+    }
+
+    private static boolean isPunctuation(int c) {
+        // BERT treats all non-letter/number ASCII as punctuation, plus Unicode P* categories
+        if ((c >= 33 && c <= 47) || (c >= 58 && c <= 64) || (c >= 91 && c <= 96) || (c >= 123 && c <= 126)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.CONNECTOR_PUNCTUATION || type == Character.DASH_PUNCTUATION
+                || type == Character.START_PUNCTUATION || type == Character.END_PUNCTUATION
+                || type == Character.INITIAL_QUOTE_PUNCTUATION || type == Character.FINAL_QUOTE_PUNCTUATION
+                || type == Character.OTHER_PUNCTUATION;
+    }
+
+    private static boolean isCjk(int c) {
+        return (c >= 0x4E00 && c <= 0x9FFF) || (c >= 0x3400 && c <= 0x4DBF) || (c >= 0x20000 && c <= 0x2A6DF)
+                || (c >= 0x2A700 && c <= 0x2B73F) || (c >= 0x2B740 && c <= 0x2B81F)
+                || (c >= 0x2B820 && c <= 0x2CEAF) || (c >= 0xF900 && c <= 0xFAFF) || (c >= 0x2F800 && c <= 0x2FA1F);
+    }
+}
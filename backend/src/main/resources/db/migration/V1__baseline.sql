@@ -0,0 +1,11 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Databases created that way are baselined at this version and start with V2.
+
+CREATE TABLE feedback (
+    id              BIGINT        NOT NULL AUTO_INCREMENT,
+    created_at      DATETIME(6),
+    sentiment_label VARCHAR(255),
+    sentiment_score DOUBLE,
+    text            VARCHAR(1000) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
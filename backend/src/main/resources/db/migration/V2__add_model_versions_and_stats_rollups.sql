@@ -0,0 +1,43 @@
+-- Sentiment status and model version of each row, the indexes behind keyset pagination and
+-- the recovery sweep, the pre-aggregated sentiment statistics and the re-classification job.
+-- Rows that predate this migration have neither a status nor a model version; the
+-- re-classification job treats them as outdated.
+
+ALTER TABLE feedback
+    ADD COLUMN sentiment_status VARCHAR(16) AFTER sentiment_score,
+    ADD COLUMN model_version VARCHAR(100) AFTER sentiment_status,
+    ADD INDEX idx_feedback_created_id (created_at, id),
+    ADD INDEX idx_feedback_label_created_id (sentiment_label, created_at, id),
+    ADD INDEX idx_feedback_status_id (sentiment_status, id);
+
+CREATE TABLE sentiment_rollup_hourly (
+    bucket_start    DATETIME(6) NOT NULL,
+    sentiment_label VARCHAR(16) NOT NULL,
+    feedback_count  BIGINT      NOT NULL,
+    score_sum       DOUBLE      NOT NULL,
+    PRIMARY KEY (bucket_start, sentiment_label)
+) ENGINE = InnoDB;
+
+CREATE TABLE sentiment_rollup_minute (
+    bucket_start    DATETIME(6) NOT NULL,
+    sentiment_label VARCHAR(16) NOT NULL,
+    feedback_count  BIGINT      NOT NULL,
+    score_sum       DOUBLE      NOT NULL,
+    PRIMARY KEY (bucket_start, sentiment_label)
+) ENGINE = InnoDB;
+
+CREATE TABLE reclassification_job (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    target_version VARCHAR(100) NOT NULL,
+    status         VARCHAR(16)  NOT NULL,
+    last_id        BIGINT       NOT NULL,
+    total_rows     BIGINT       NOT NULL,
+    processed_rows BIGINT       NOT NULL,
+    changed_rows   BIGINT       NOT NULL,
+    failed_rows    BIGINT       NOT NULL,
+    message        VARCHAR(500),
+    started_at     DATETIME(6)  NOT NULL,
+    updated_at     DATETIME(6)  NOT NULL,
+    finished_at    DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,19 @@
+-- Range-partitions feedback on created_at. MySQL requires every unique key of a partitioned
+-- table to contain the partitioning column, so the primary key becomes (id, created_at);
+-- IDs stay unique because they are still generated by AUTO_INCREMENT.
+--
+-- Everything starts in the catch-all p_future partition. FeedbackPartitionService splits it
+-- into one partition per month (p202401, p202402, ...) on startup and keeps months ahead of
+-- the clock, so old months can later be moved to the archive with a cheap DROP PARTITION.
+
+UPDATE feedback SET created_at = NOW(6) WHERE created_at IS NULL;
+
+ALTER TABLE feedback
+    MODIFY created_at DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+
+ALTER TABLE feedback
+    PARTITION BY RANGE (TO_DAYS(created_at)) (
+        PARTITION p_future VALUES LESS THAN MAXVALUE
+    );
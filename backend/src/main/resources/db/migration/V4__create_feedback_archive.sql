@@ -0,0 +1,15 @@
+-- Cold tier for months that have left the hot window. Rows are immutable once archived,
+-- so the table is compressed and only keeps the indexes needed for lookups by ID and
+-- newest-first listings; label-filtered listings scan the (created_at, id) range.
+
+CREATE TABLE feedback_archive (
+    id               BIGINT        NOT NULL,
+    text             VARCHAR(1000) NOT NULL,
+    sentiment_label  VARCHAR(255),
+    sentiment_score  DOUBLE,
+    sentiment_status VARCHAR(16),
+    model_version    VARCHAR(100),
+    created_at       DATETIME(6)   NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_feedback_archive_created_id (created_at, id)
+) ENGINE = InnoDB ROW_FORMAT = COMPRESSED KEY_BLOCK_SIZE = 8;
@@ -0,0 +1,42 @@
+-- Content-addressed feedback text. Each distinct text is stored once in feedback_text, keyed by
+-- the hex-encoded first 128 bits of the SHA-256 of its UTF-8 bytes, and feedback rows reference
+-- it by text_hash. The application deflates long texts as it stores them; texts moved here by
+-- this migration are kept uncompressed. There are no foreign keys, since partitioned tables
+-- cannot have them; texts are written before the rows that reference them.
+
+CREATE TABLE feedback_text (
+    hash                 CHAR(32) CHARACTER SET ascii NOT NULL,
+    content              VARBINARY(4000) NOT NULL,
+    compressed           BOOLEAN         NOT NULL,
+    text_length          INT             NOT NULL,
+    result_label         VARCHAR(255),
+    result_score         DOUBLE,
+    result_model_version VARCHAR(100),
+    PRIMARY KEY (hash)
+) ENGINE = InnoDB;
+
+-- Hot rows
+ALTER TABLE feedback ADD COLUMN text_hash CHAR(32) CHARACTER SET ascii NULL AFTER id;
+
+UPDATE feedback SET text_hash = LEFT(SHA2(CONVERT(text USING utf8mb4), 256), 32);
+
+INSERT IGNORE INTO feedback_text (hash, content, compressed, text_length)
+SELECT text_hash, CAST(CONVERT(text USING utf8mb4) AS BINARY), FALSE, CHAR_LENGTH(text)
+FROM feedback;
+
+ALTER TABLE feedback
+    MODIFY text_hash CHAR(32) CHARACTER SET ascii NOT NULL,
+    DROP COLUMN text;
+
+-- Archived rows
+ALTER TABLE feedback_archive ADD COLUMN text_hash CHAR(32) CHARACTER SET ascii NULL AFTER id;
+
+UPDATE feedback_archive SET text_hash = LEFT(SHA2(CONVERT(text USING utf8mb4), 256), 32);
+
+INSERT IGNORE INTO feedback_text (hash, content, compressed, text_length)
+SELECT text_hash, CAST(CONVERT(text USING utf8mb4) AS BINARY), FALSE, CHAR_LENGTH(text)
+FROM feedback_archive;
+
+ALTER TABLE feedback_archive
+    MODIFY text_hash CHAR(32) CHARACTER SET ascii NOT NULL,
+    DROP COLUMN text;
@@ -0,0 +1,32 @@
+-- Idempotency keys of feedback submissions. A submission claims its key by inserting the row
+-- before it is processed, so the primary key lets only one of several concurrent retries
+-- through; the row then records the feedback it created. Rows are purged after the retention
+-- period.
+
+CREATE TABLE feedback_idempotency_key (
+    idempotency_key VARCHAR(128) CHARACTER SET ascii NOT NULL,
+    request_hash    CHAR(32)     CHARACTER SET ascii NOT NULL,
+    feedback_id     BIGINT,
+    completed       BOOLEAN      NOT NULL,
+    created_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (idempotency_key),
+    INDEX idx_feedback_idempotency_key_created (created_at)
+) ENGINE = InnoDB;
+
+-- Changes to feedback rows made by each instance, read by the other instances to keep their
+-- in-memory statistics, caches and search indexes in step. Rows are purged after a short
+-- retention period.
+
+CREATE TABLE cluster_event (
+    seq             BIGINT       NOT NULL AUTO_INCREMENT,
+    node_id         VARCHAR(100) NOT NULL,
+    feedback_id     BIGINT       NOT NULL,
+    created         BOOLEAN      NOT NULL,
+    sentiment_label VARCHAR(255),
+    sentiment_score DOUBLE,
+    previous_label  VARCHAR(255),
+    previous_score  DOUBLE,
+    created_at      DATETIME(6)  NOT NULL,
+    PRIMARY KEY (seq),
+    INDEX idx_cluster_event_created (created_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,60 @@
+package com.example.sentimentanalysis.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedbackTextRepositoryTest {
+
+	private JdbcTemplate jdbcTemplate;
+	private FeedbackTextRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+				"jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", ""));
+		jdbcTemplate.execute("CREATE TABLE feedback_text ("
+				+ "hash CHAR(32) NOT NULL, content VARBINARY(4000) NOT NULL, compressed BOOLEAN NOT NULL, "
+				+ "text_length INT NOT NULL, result_label VARCHAR(255), result_score DOUBLE, "
+				+ "result_model_version VARCHAR(100), PRIMARY KEY (hash))");
+		repository = new FeedbackTextRepository(jdbcTemplate, 256);
+	}
+
+	private void insert(String hash, String label, Double score, String modelVersion) {
+		jdbcTemplate.update("INSERT INTO feedback_text (hash, content, compressed, text_length, result_label, "
+				+ "result_score, result_model_version) VALUES (?, ?, FALSE, 4, ?, ?, ?)",
+				hash, new byte[]{'t', 'e', 'x', 't'}, label, score, modelVersion);
+	}
+
+	@Test
+	void nullScoreIsReturnedAsNull() {
+		insert("a", "positive", null, "v1");
+		insert("b", "negative", 0.25, "v1");
+
+		Map<String, Map<String, Object>> results = repository.findResults(List.of("a", "b"), "v1");
+
+		assertEquals("positive", results.get("a").get("label"));
+		assertTrue(results.get("a").containsKey("score"));
+		assertNull(results.get("a").get("score"));
+		assertEquals(0.25, results.get("b").get("score"));
+		assertEquals("v1", results.get("b").get("model_version"));
+	}
+
+	@Test
+	void resultOfAnotherModelVersionIsNotReturned() {
+		insert("a", "positive", 0.9, "v1");
+
+		assertFalse(repository.findResult("a", "v2").isPresent());
+		assertTrue(repository.findResult("a", "v1").isPresent());
+	}
+}
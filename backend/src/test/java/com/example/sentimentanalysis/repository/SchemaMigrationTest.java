@@ -0,0 +1,89 @@
+package com.example.sentimentanalysis.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the H2 versions of the Flyway migrations, which the benchmarks use and which mirror
+ * db/migration one for one.
+ */
+class SchemaMigrationTest {
+
+	private static final String MIGRATIONS = "src/main/resources/db/migration";
+	private static final String H2_MIGRATIONS = "src/jmh/resources/db/migration-h2";
+
+	private static DataSource newDatabase() {
+		return new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID()
+				+ ";DB_CLOSE_DELAY=-1;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE", "sa", "");
+	}
+
+	/**
+	 * Migrates the database the way application.properties configures Flyway.
+	 */
+	private static void migrate(DataSource dataSource) {
+		Flyway.configure()
+				.dataSource(dataSource)
+				.locations("filesystem:" + H2_MIGRATIONS)
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				.load()
+				.migrate();
+	}
+
+	private static Set<String> columns(JdbcTemplate jdbcTemplate, String table) {
+		return new TreeSet<>(jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns "
+				+ "WHERE table_schema = 'public' AND table_name = ?", String.class, table));
+	}
+
+	private static Set<String> tables(JdbcTemplate jdbcTemplate) {
+		return new TreeSet<>(jdbcTemplate.queryForList("SELECT table_name FROM information_schema.tables "
+				+ "WHERE table_schema = 'public' AND table_name <> 'flyway_schema_history'", String.class));
+	}
+
+	@Test
+	void everyMigrationHasAnH2Version() {
+		assertEquals(new TreeSet<>(Arrays.asList(new File(MIGRATIONS).list())),
+				new TreeSet<>(Arrays.asList(new File(H2_MIGRATIONS).list())));
+	}
+
+	@Test
+	void databaseCreatedByDdlAutoIsUpgradedToTheFullSchema() {
+		DataSource legacy = newDatabase();
+		JdbcTemplate legacyJdbc = new JdbcTemplate(legacy);
+		// The statement Hibernate issued for the original Feedback entity
+		legacyJdbc.execute("create table feedback (id bigint not null auto_increment, created_at datetime(6), "
+				+ "sentiment_label varchar(255), sentiment_score float(53), text varchar(1000) not null, "
+				+ "primary key (id)) engine=InnoDB");
+		legacyJdbc.update("INSERT INTO feedback (created_at, sentiment_label, sentiment_score, text) "
+				+ "VALUES (CURRENT_TIMESTAMP(6), 'positive', 0.9, 'Great service')");
+
+		migrate(legacy);
+
+		DataSource fresh = newDatabase();
+		JdbcTemplate freshJdbc = new JdbcTemplate(fresh);
+		migrate(fresh);
+
+		assertTrue(tables(legacyJdbc).containsAll(List.of("sentiment_rollup_hourly", "sentiment_rollup_minute",
+				"reclassification_job", "feedback_archive", "feedback_text")));
+		assertTrue(columns(legacyJdbc, "feedback").containsAll(List.of("sentiment_status", "model_version")));
+		assertEquals(tables(freshJdbc), tables(legacyJdbc));
+		for (String table : tables(freshJdbc)) {
+			assertEquals(columns(freshJdbc, table), columns(legacyJdbc, table), table);
+		}
+		assertEquals(Integer.valueOf(1), legacyJdbc.queryForObject("SELECT COUNT(*) FROM feedback f "
+				+ "JOIN feedback_text t ON t.hash = f.text_hash WHERE f.sentiment_status IS NULL", Integer.class));
+	}
+}
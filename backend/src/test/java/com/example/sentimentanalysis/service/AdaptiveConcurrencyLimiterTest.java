@@ -0,0 +1,100 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.CapacityExceededException;
+import com.example.sentimentanalysis.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdaptiveConcurrencyLimiterTest {
+
+	private static AdaptiveConcurrencyLimiter limiter(int minLimit, int maxLimit) {
+		// Calls slower than 20 ms halve the limit
+		return new AdaptiveConcurrencyLimiter("test", true, minLimit, maxLimit, 20, 0.5, 3, new SimpleMeterRegistry());
+	}
+
+	private static void slowCall(AdaptiveConcurrencyLimiter limiter) {
+		limiter.run(() -> {
+			try {
+				Thread.sleep(40);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+	}
+
+	@Test
+	void callsOverTheLimitAreRefused() {
+		AdaptiveConcurrencyLimiter limiter = limiter(1, 1);
+
+		TooManyRequestsException refused = assertThrows(TooManyRequestsException.class,
+				() -> limiter.run(() -> limiter.run(() -> { })));
+		assertEquals(3, refused.getRetryAfterSeconds());
+		// Being refused further down does not count against the stage
+		assertEquals(1.0, limiter.getLimit());
+		assertEquals("done", limiter.call(() -> "done"));
+	}
+
+	@Test
+	void slowCallsCutTheLimitOncePerPeriod() {
+		AdaptiveConcurrencyLimiter limiter = limiter(1, 8);
+
+		// The outer call is slow too, but ends within the period of the inner call's cut
+		limiter.run(() -> slowCall(limiter));
+		assertEquals(4.0, limiter.getLimit());
+
+		slowCall(limiter);
+		assertEquals(2.0, limiter.getLimit());
+	}
+
+	@Test
+	void limitNeverDropsBelowTheMinimum() {
+		AdaptiveConcurrencyLimiter limiter = limiter(3, 4);
+		slowCall(limiter);
+		slowCall(limiter);
+		assertEquals(3.0, limiter.getLimit());
+	}
+
+	@Test
+	void capacityFailuresDownstreamCutTheLimit() {
+		AdaptiveConcurrencyLimiter limiter = limiter(1, 8);
+		assertThrows(CapacityExceededException.class, () -> limiter.run(() -> {
+			throw new CapacityExceededException("Bulkhead full");
+		}));
+		assertEquals(4.0, limiter.getLimit());
+
+		// Other failures say nothing about capacity
+		assertThrows(IllegalStateException.class, () -> limiter.run(() -> {
+			throw new IllegalStateException("Bad input");
+		}));
+		assertEquals(4.0, limiter.getLimit());
+	}
+
+	@Test
+	void fastCallsGrowTheLimitOnlyWhileItIsUsed() {
+		AdaptiveConcurrencyLimiter limiter = limiter(1, 8);
+		slowCall(limiter);
+		slowCall(limiter);
+		assertEquals(2.0, limiter.getLimit());
+
+		// One call in flight uses half of a limit of 2, which adds 1/2
+		limiter.run(() -> { });
+		assertEquals(2.5, limiter.getLimit());
+		// One call in flight is less than half of 2.5, so the limit stays
+		limiter.run(() -> { });
+		assertEquals(2.5, limiter.getLimit());
+
+		// Two calls in flight use it again
+		limiter.run(() -> limiter.run(() -> { }));
+		assertEquals(2.9, limiter.getLimit(), 1e-9);
+	}
+
+	@Test
+	void disabledLimiterRunsEveryCall() {
+		AdaptiveConcurrencyLimiter limiter =
+				new AdaptiveConcurrencyLimiter("test", false, 1, 1, 20, 0.5, 3, new SimpleMeterRegistry());
+		assertEquals("inner", limiter.call(() -> limiter.call(() -> "inner")));
+	}
+}
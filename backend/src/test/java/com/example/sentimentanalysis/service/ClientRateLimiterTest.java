@@ -0,0 +1,76 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClientRateLimiterTest {
+
+	private static ClientRateLimiter limiter(double requestsPerSecond, int burst) {
+		return new ClientRateLimiter(new SimpleMeterRegistry(), true, "X-API-Key", "known-key", "X-Forwarded-For",
+				"10.0.0.0/8, 2001:db8::1", requestsPerSecond, burst, 1000);
+	}
+
+	@Test
+	void burstIsAllowedThenRefused() {
+		ClientRateLimiter limiter = limiter(1, 2);
+		limiter.acquire(null, "192.0.2.1", null);
+		limiter.acquire(null, "192.0.2.1", null);
+
+		TooManyRequestsException refused = assertThrows(TooManyRequestsException.class,
+				() -> limiter.acquire(null, "192.0.2.1", null));
+		assertEquals(1, refused.getRetryAfterSeconds());
+		// Other clients have their own buckets
+		assertDoesNotThrow(() -> limiter.acquire(null, "192.0.2.2", null));
+	}
+
+	@Test
+	void bucketRefillsOverTime() throws InterruptedException {
+		ClientRateLimiter limiter = limiter(20, 1);
+		limiter.acquire(null, "192.0.2.1", null);
+		assertThrows(TooManyRequestsException.class, () -> limiter.acquire(null, "192.0.2.1", null));
+
+		Thread.sleep(60);
+		assertDoesNotThrow(() -> limiter.acquire(null, "192.0.2.1", null));
+	}
+
+	@Test
+	void onlyConfiguredKeysGetTheirOwnBucket() {
+		ClientRateLimiter limiter = limiter(1, 1);
+		limiter.acquire("made-up-1", "192.0.2.1", null);
+		// A key that is not configured falls back to the address, which is used up
+		assertThrows(TooManyRequestsException.class, () -> limiter.acquire("made-up-2", "192.0.2.1", null));
+		assertDoesNotThrow(() -> limiter.acquire("known-key", "192.0.2.1", null));
+	}
+
+	@Test
+	void forwardedAddressIsOnlyTrustedFromProxies() {
+		ClientRateLimiter limiter = limiter(1, 1);
+
+		assertEquals("192.0.2.1", limiter.clientAddress("192.0.2.1", "198.51.100.7"));
+		assertEquals("198.51.100.7", limiter.clientAddress("10.1.2.3", "198.51.100.7"));
+		// Entries the client set itself are left of the first untrusted hop
+		assertEquals("198.51.100.7", limiter.clientAddress("10.1.2.3", "203.0.113.9, 198.51.100.7, 10.9.9.9"));
+		assertEquals("198.51.100.7", limiter.clientAddress("2001:db8::1", "198.51.100.7"));
+		// Garbage is never resolved or used as a key
+		assertEquals("10.1.2.3", limiter.clientAddress("10.1.2.3", "attacker.example"));
+		assertEquals("10.1.2.3", limiter.clientAddress("10.1.2.3", "300.1.1.1"));
+
+		limiter.acquire(null, "10.1.2.3", "198.51.100.7");
+		assertThrows(TooManyRequestsException.class, () -> limiter.acquire(null, "10.1.2.3", "198.51.100.7"));
+		assertDoesNotThrow(() -> limiter.acquire(null, "10.1.2.3", "198.51.100.8"));
+	}
+
+	@Test
+	void disabledLimiterAllowsEverything() {
+		ClientRateLimiter limiter = new ClientRateLimiter(new SimpleMeterRegistry(), false, "X-API-Key", "",
+				"X-Forwarded-For", "", 1, 1, 1000);
+		for (int i = 0; i < 5; i++) {
+			limiter.acquire(null, "192.0.2.1", null);
+		}
+	}
+}
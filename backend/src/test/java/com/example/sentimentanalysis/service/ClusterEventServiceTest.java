@@ -0,0 +1,163 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.event.ClusterResyncEvent;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.repository.ClusterEventRepository;
+import com.example.sentimentanalysis.repository.ClusterEventRepository.ClusterEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClusterEventServiceTest {
+
+	private final ClusterEventRepository repository = mock(ClusterEventRepository.class);
+	private final List<Object> published = Collections.synchronizedList(new ArrayList<>());
+	private final ApplicationEventPublisher publisher = published::add;
+	private final Map<Long, Feedback> rows = new HashMap<>();
+
+	/**
+	 * A service that skips gaps on the second sync that sees them and never resyncs on its own.
+	 */
+	private ClusterEventService service(long resyncIntervalMs) {
+		when(repository.findFeedback(anyCollection())).thenReturn(rows);
+		return new ClusterEventService(repository, publisher, new SimpleMeterRegistry(), true, "self", 250, 500, 0, 60,
+				resyncIntervalMs);
+	}
+
+	private ClusterEvent event(long seq, long feedbackId, String label) {
+		Feedback row = new Feedback();
+		row.setId(feedbackId);
+		row.setText("text " + feedbackId);
+		row.setSentimentLabel(label);
+		row.setSentimentScore(0.5);
+		rows.put(feedbackId, row);
+		return new ClusterEvent(seq, "other", feedbackId, true, label, 0.5, null, null);
+	}
+
+	private List<Long> appliedIds() {
+		List<Long> ids = new ArrayList<>();
+		for (Object event : published) {
+			if (event instanceof FeedbackChangedEvent) {
+				ids.add(((FeedbackChangedEvent) event).feedback().getId());
+			}
+		}
+		return ids;
+	}
+
+	@Test
+	void gapIsWaitedOnThenSkippedAndReReadUntilItFills() {
+		ClusterEventService service = service(Long.MAX_VALUE);
+		ClusterEvent first = event(1, 10, "positive");
+		ClusterEvent late = event(2, 20, "negative");
+		ClusterEvent third = event(3, 30, "neutral");
+		when(repository.findAfter(anyLong(), anyInt())).thenReturn(List.of(first, third));
+
+		service.sync();
+		// Event 2 has not committed yet, so event 3 waits
+		assertEquals(List.of(10L), appliedIds());
+
+		when(repository.findAfter(anyLong(), anyInt())).thenReturn(List.of(third), List.of());
+		when(repository.findInRanges(anyList())).thenReturn(List.of());
+		service.sync();
+		assertEquals(List.of(10L, 30L), appliedIds());
+
+		when(repository.findInRanges(anyList())).thenReturn(List.of(late));
+		service.sync();
+		assertEquals(List.of(10L, 30L, 20L), appliedIds());
+		FeedbackChangedEvent applied = (FeedbackChangedEvent) published.get(2);
+		assertTrue(applied.remote());
+		assertEquals("negative", applied.feedback().getSentimentLabel());
+
+		// The range is no longer re-read once filled
+		published.clear();
+		service.sync();
+		assertTrue(published.isEmpty());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void skippedRangesShrinkAroundLateEvents() {
+		ClusterEventService service = service(Long.MAX_VALUE);
+		ClusterEvent last = event(6, 60, "neutral");
+		when(repository.findAfter(anyLong(), anyInt())).thenReturn(List.of(last), List.of(last), List.of());
+		service.sync();
+		service.sync();
+
+		when(repository.findInRanges(anyList())).thenReturn(List.of(event(3, 30, "positive")), List.of());
+		service.sync();
+		service.sync();
+
+		ArgumentCaptor<List<long[]>> ranges = ArgumentCaptor.forClass(List.class);
+		verify(repository, times(3)).findInRanges(ranges.capture());
+		assertArrayEquals(new long[]{1, 5}, ranges.getAllValues().get(1).get(0));
+		List<long[]> remaining = ranges.getAllValues().get(2);
+		assertEquals(2, remaining.size());
+		assertArrayEquals(new long[]{1, 2}, remaining.get(0));
+		assertArrayEquals(new long[]{4, 5}, remaining.get(1));
+	}
+
+	@Test
+	void lateChangeLeavesListenersAtTheRowsCurrentState() {
+		ClusterEventService service = service(Long.MAX_VALUE);
+		ClusterEvent last = event(3, 30, "neutral");
+		when(repository.findAfter(anyLong(), anyInt())).thenReturn(List.of(last), List.of(last), List.of());
+		service.sync();
+		service.sync();
+		published.clear();
+
+		// The row has been re-classified again since the late change
+		ClusterEvent late = event(2, 20, "negative");
+		rows.get(20L).setSentimentLabel("positive");
+		when(repository.findInRanges(anyList())).thenReturn(List.of(late));
+		service.sync();
+
+		assertEquals(2, published.size());
+		FeedbackChangedEvent change = (FeedbackChangedEvent) published.get(0);
+		assertEquals("negative", change.feedback().getSentimentLabel());
+		FeedbackChangedEvent current = (FeedbackChangedEvent) published.get(1);
+		assertFalse(current.created());
+		assertEquals("positive", current.feedback().getSentimentLabel());
+		assertEquals("positive", current.previousLabel());
+	}
+
+	@Test
+	void ownChangesAreNotReapplied() {
+		ClusterEventService service = service(Long.MAX_VALUE);
+		when(repository.findAfter(anyLong(), anyInt()))
+				.thenReturn(List.of(new ClusterEvent(1, "self", 10, true, "positive", 0.5, null, null)));
+		service.sync();
+		assertTrue(published.isEmpty());
+		verify(repository, never()).findFeedback(anyCollection());
+	}
+
+	@Test
+	void resyncIsPublishedOnItsInterval() {
+		ClusterEventService service = service(0);
+		when(repository.findAfter(anyLong(), anyInt())).thenReturn(List.of());
+		service.sync();
+		assertEquals(1, published.size());
+		assertTrue(published.get(0) instanceof ClusterResyncEvent);
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.sentimentanalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+
+	private static final int KEYS = 2000;
+
+	/**
+	 * SplitMix64's finalizer, standing in for the term hash.
+	 */
+	private static long hash(long key) {
+		long z = key + 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Adds a skewed stream of keys to the sketch and the exact counts.
+	 */
+	private static void fill(CountMinSketch sketch, long[] counts, long seed) {
+		Random random = new Random(seed);
+		for (int i = 0; i < 50_000; i++) {
+			// Squaring a uniform number favours the low keys
+			double u = random.nextDouble();
+			int key = (int) (u * u * KEYS);
+			sketch.add(hash(key), 1);
+			counts[key]++;
+		}
+	}
+
+	@Test
+	void mergedEstimatesStayWithinTheErrorBound() {
+		CountMinSketch sketch = new CountMinSketch(4, 256);
+		CountMinSketch other = new CountMinSketch(4, 256);
+		long[] counts = new long[KEYS];
+		fill(sketch, counts, 1);
+		fill(other, counts, 2);
+
+		sketch.merge(other);
+
+		assertEquals(100_000, sketch.getTotal());
+		double bound = Math.E / sketch.getWidth() * sketch.getTotal();
+		int exceeded = 0;
+		for (int key = 0; key < KEYS; key++) {
+			long estimate = sketch.estimate(hash(key));
+			assertTrue(estimate >= counts[key], "Estimate below the true count of key " + key);
+			if (estimate > counts[key] + bound) {
+				exceeded++;
+			}
+		}
+		// The bound may fail for a key with probability e^-depth, under 2%
+		assertTrue(exceeded < KEYS / 50, exceeded + " keys over the bound");
+	}
+
+	@Test
+	void sketchesOfOtherDimensionsAreNotMerged() {
+		assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(4, 256).merge(new CountMinSketch(4, 128)));
+	}
+}
@@ -0,0 +1,146 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.FeedbackDTO;
+import com.example.sentimentanalysis.exception.IdempotencyConflictException;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.FeedbackText;
+import com.example.sentimentanalysis.repository.IdempotencyKeyRepository;
+import com.example.sentimentanalysis.repository.IdempotencyKeyRepository.StoredKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FeedbackIdempotencyServiceTest {
+
+	private final IdempotencyKeyRepository keyRepository = mock(IdempotencyKeyRepository.class);
+	private final FeedbackService feedbackService = mock(FeedbackService.class);
+	private final FeedbackIdempotencyService service = new FeedbackIdempotencyService(keyRepository, feedbackService,
+			new SimpleMeterRegistry(), true, 24, 1000, 128, 100);
+
+	private final FeedbackDTO request = request("Great service");
+	private final String requestHash = FeedbackText.hashOf("Great service");
+
+	private static FeedbackDTO request(String text) {
+		FeedbackDTO request = new FeedbackDTO();
+		request.setText(text);
+		return request;
+	}
+
+	private static Feedback saved(long id) {
+		Feedback feedback = new Feedback();
+		feedback.setId(id);
+		feedback.setText("Great service");
+		return feedback;
+	}
+
+	@Test
+	void newKeyIsCompletedInTheInsertingTransaction() {
+		when(keyRepository.claim(eq("key-1"), eq(requestHash), any())).thenReturn(true);
+		when(keyRepository.complete(eq("key-1"), any(), eq(7L))).thenReturn(true);
+		AtomicInteger completedBeforeReturn = new AtomicInteger();
+
+		FeedbackIdempotencyService.Result result = service.submit("key-1", request, onInsert -> {
+			Feedback feedback = saved(7);
+			onInsert.accept(feedback);
+			completedBeforeReturn.incrementAndGet();
+			return feedback;
+		});
+
+		assertFalse(result.replayed());
+		assertEquals(7L, result.feedback().getId());
+		assertEquals(1, completedBeforeReturn.get());
+		verify(keyRepository, never()).release(anyString(), any());
+
+		// A retry on this instance is answered from the cache
+		Feedback original = saved(7);
+		when(feedbackService.getFeedbackById(7L)).thenReturn(Optional.of(original));
+		FeedbackIdempotencyService.Result retry = service.submit("key-1", request, onInsert -> {
+			throw new AssertionError("Submitted twice");
+		});
+		assertTrue(retry.replayed());
+		assertSame(original, retry.feedback());
+		verify(keyRepository, never()).find(anyString());
+	}
+
+	@Test
+	void completedKeyIsReplayedFromAnotherInstance() {
+		when(keyRepository.claim(anyString(), anyString(), any())).thenReturn(false);
+		when(keyRepository.find("key-1")).thenReturn(Optional.of(
+				new StoredKey("key-1", requestHash, 7L, true, LocalDateTime.now())));
+		Feedback original = saved(7);
+		when(feedbackService.getFeedbackById(7L)).thenReturn(Optional.of(original));
+
+		FeedbackIdempotencyService.Claim claim = service.begin("key-1", request);
+
+		assertTrue(claim.isReplay());
+		assertSame(original, claim.replay());
+	}
+
+	@Test
+	void keyOfAnotherRequestOrInProgressConflicts() {
+		when(keyRepository.claim(anyString(), anyString(), any())).thenReturn(false);
+		when(keyRepository.find("other")).thenReturn(Optional.of(
+				new StoredKey("other", FeedbackText.hashOf("Different text"), 3L, true, LocalDateTime.now())));
+		when(keyRepository.find("running")).thenReturn(Optional.of(
+				new StoredKey("running", requestHash, null, false, LocalDateTime.now())));
+
+		assertThrows(IdempotencyConflictException.class, () -> service.begin("other", request));
+		assertThrows(IdempotencyConflictException.class, () -> service.begin("running", request));
+		verify(keyRepository, never()).takeOver(any(), any());
+	}
+
+	@Test
+	void staleClaimIsTakenOverAndFencesTheOriginal() {
+		LocalDateTime originalClaim = LocalDateTime.now().minusSeconds(5).truncatedTo(ChronoUnit.MICROS);
+		StoredKey stale = new StoredKey("key-1", requestHash, null, false, originalClaim);
+		when(keyRepository.claim(anyString(), anyString(), any())).thenReturn(false);
+		when(keyRepository.find("key-1")).thenReturn(Optional.of(stale));
+		when(keyRepository.takeOver(eq(stale), any())).thenReturn(true);
+
+		FeedbackIdempotencyService.Claim claim = service.begin("key-1", request);
+
+		assertFalse(claim.isReplay());
+		assertTrue(claim.claimedAt().isAfter(originalClaim));
+
+		// The original submission finishing late no longer holds the claim
+		FeedbackIdempotencyService.Claim original =
+				new FeedbackIdempotencyService.Claim("key-1", requestHash, originalClaim, null);
+		when(keyRepository.complete("key-1", originalClaim, 9L)).thenReturn(false);
+		assertThrows(IdempotencyConflictException.class, () -> service.complete(original, saved(9)));
+	}
+
+	@Test
+	void failedCompletionFailsTheSubmissionAndReleasesItsClaim() {
+		when(keyRepository.claim(eq("key-1"), eq(requestHash), any())).thenReturn(true);
+		when(keyRepository.complete(eq("key-1"), any(), anyLong())).thenReturn(false);
+		AtomicInteger committed = new AtomicInteger();
+
+		assertThrows(IdempotencyConflictException.class, () -> service.submit("key-1", request, onInsert -> {
+			// Stands in for the transaction: the hook throwing prevents the commit
+			onInsert.accept(saved(7));
+			committed.incrementAndGet();
+			return saved(7);
+		}));
+
+		assertEquals(0, committed.get());
+		verify(keyRepository).release(eq("key-1"), any(LocalDateTime.class));
+	}
+}
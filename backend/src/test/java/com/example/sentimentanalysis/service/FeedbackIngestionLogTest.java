@@ -0,0 +1,135 @@
+package com.example.sentimentanalysis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedbackIngestionLogTest {
+
+	@TempDir
+	Path directory;
+
+	private final List<FeedbackIngestionLog> opened = new ArrayList<>();
+	private final LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_789);
+
+	private FeedbackIngestionLog open(int segmentBytes) throws IOException {
+		FeedbackIngestionLog log = new FeedbackIngestionLog(new SimpleMeterRegistry(), "log", directory.toString(),
+				segmentBytes, 1 << 20, 0);
+		opened.add(log);
+		return log;
+	}
+
+	@AfterEach
+	void close() {
+		opened.forEach(FeedbackIngestionLog::close);
+	}
+
+	private static long appendDurably(FeedbackIngestionLog log, String text, LocalDateTime createdAt) {
+		long offset = log.append(text, createdAt);
+		log.awaitDurable(offset);
+		return offset;
+	}
+
+	private static List<String> texts(List<FeedbackIngestionLog.Entry> entries) {
+		return entries.stream().map(FeedbackIngestionLog.Entry::text).toList();
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+		}
+	}
+
+	@Test
+	void recordsSurviveARestart() throws Exception {
+		FeedbackIngestionLog log = open(4096);
+		appendDurably(log, "first", createdAt);
+		long end = appendDurably(log, "second\twith a tab", createdAt.plusSeconds(1));
+		log.close();
+
+		FeedbackIngestionLog reopened = open(4096);
+		List<FeedbackIngestionLog.Entry> entries = reopened.read(reopened.getCheckpoint(), 10, 0);
+		assertEquals(List.of("first", "second\twith a tab"), texts(entries));
+		assertEquals(createdAt, entries.get(0).createdAt());
+		assertEquals(end, entries.get(1).nextOffset());
+	}
+
+	@Test
+	void readingResumesAtTheCheckpoint() throws Exception {
+		FeedbackIngestionLog log = open(4096);
+		for (String text : List.of("a", "b", "c")) {
+			appendDurably(log, text, createdAt);
+		}
+		List<FeedbackIngestionLog.Entry> entries = log.read(log.getCheckpoint(), 2, 0);
+		assertEquals(List.of("a", "b"), texts(entries));
+		log.checkpoint(entries.get(1).nextOffset());
+		log.close();
+
+		FeedbackIngestionLog reopened = open(4096);
+		assertEquals(entries.get(1).nextOffset(), reopened.getCheckpoint());
+		assertEquals(List.of("c"), texts(reopened.read(reopened.getCheckpoint(), 10, 0)));
+	}
+
+	@Test
+	void tornRecordIsDiscardedOnRecovery() throws Exception {
+		FeedbackIngestionLog log = open(4096);
+		long firstEnd = appendDurably(log, "complete", createdAt);
+		appendDurably(log, "torn", createdAt);
+		log.close();
+
+		// Corrupt the last byte of the second record's text, as if its write had been cut short
+		try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{0}), firstEnd + 8 + 12 + 3);
+		}
+
+		FeedbackIngestionLog reopened = open(4096);
+		appendDurably(reopened, "after recovery", createdAt);
+		List<FeedbackIngestionLog.Entry> entries = reopened.read(reopened.getCheckpoint(), 10, 0);
+		assertEquals(List.of("complete", "after recovery"), texts(entries));
+	}
+
+	@Test
+	void consumedSegmentsAreDeleted() throws Exception {
+		FeedbackIngestionLog log = open(128);
+		for (int i = 0; i < 10; i++) {
+			appendDurably(log, "entry number " + i, createdAt);
+		}
+		assertTrue(segments().size() > 1);
+
+		List<FeedbackIngestionLog.Entry> entries = log.read(log.getCheckpoint(), 100, 0);
+		assertEquals(10, entries.size());
+		log.checkpoint(entries.get(entries.size() - 1).nextOffset());
+		assertEquals(1, segments().size());
+		log.close();
+
+		FeedbackIngestionLog reopened = open(128);
+		assertTrue(reopened.read(reopened.getCheckpoint(), 100, 0).isEmpty());
+		appendDurably(reopened, "new", createdAt);
+		assertEquals(List.of("new"), texts(reopened.read(reopened.getCheckpoint(), 100, 0)));
+	}
+
+	@Test
+	void deadLetteredEntriesAreEscaped() throws Exception {
+		FeedbackIngestionLog log = open(4096);
+		long end = appendDurably(log, "line one\nline\ttwo", createdAt);
+		log.deadLetter(log.read(0, 1, 0).get(0), "rejected");
+
+		List<String> lines = Files.readAllLines(directory.resolve("dead-letter.tsv"));
+		assertEquals(List.of(end + "\t" + createdAt + "\trejected\tline one\\nline\\ttwo"), lines);
+	}
+}
@@ -0,0 +1,114 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.model.Feedback;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FeedbackIngestionServiceTest {
+
+	@TempDir
+	Path directory;
+
+	private final FeedbackService feedbackService = mock(FeedbackService.class);
+	private final List<String> imported = Collections.synchronizedList(new ArrayList<>());
+	private FeedbackIngestionLog log;
+	private FeedbackIngestionService service;
+
+	@AfterEach
+	void shutdown() throws InterruptedException {
+		service.shutdown();
+		log.close();
+	}
+
+	/**
+	 * Appends the texts and starts consuming them, retrying after 1 ms and giving up on an
+	 * entry after two attempts.
+	 *
+	 * @return The offset after the last text
+	 */
+	private long consume(String... texts) throws Exception {
+		log = new FeedbackIngestionLog(new SimpleMeterRegistry(), "log", directory.toString(), 4096, 1 << 20, 0);
+		long end = 0;
+		for (String text : texts) {
+			end = log.append(text, LocalDateTime.now());
+		}
+		log.awaitDurable(end);
+		service = new FeedbackIngestionService(feedbackService, log, new SimpleMeterRegistry(), "log", 1, 10, 500, 0,
+				false, 500, 1, 2);
+		service.recoverOnStartup();
+		return end;
+	}
+
+	private static List<String> texts(List<Feedback> batch) {
+		return batch.stream().map(Feedback::getText).toList();
+	}
+
+	@Test
+	void rejectedEntryIsDeadLetteredWithoutHoldingUpTheOthers() throws Exception {
+		when(feedbackService.importFeedback(anyList())).thenAnswer(invocation -> {
+			List<Feedback> batch = invocation.getArgument(0);
+			if (texts(batch).contains("bad")) {
+				throw new DataIntegrityViolationException("Data too long");
+			}
+			imported.addAll(texts(batch));
+			return batch;
+		});
+
+		long end = consume("a", "b", "bad", "c", "d");
+
+		waitFor(() -> log.getCheckpoint() == end);
+		assertEquals(List.of("a", "b", "c", "d"), imported);
+		List<String> deadLetters = Files.readAllLines(directory.resolve("dead-letter.tsv"));
+		assertEquals(1, deadLetters.size());
+		assertTrue(deadLetters.get(0).endsWith("\tbad"));
+	}
+
+	@Test
+	void unavailableDatabaseIsRetriedWithoutUsingUpAttempts() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		when(feedbackService.importFeedback(anyList())).thenAnswer(invocation -> {
+			if (calls.incrementAndGet() <= 3) {
+				throw new DataAccessResourceFailureException("Connection refused");
+			}
+			List<Feedback> batch = invocation.getArgument(0);
+			imported.addAll(texts(batch));
+			return batch;
+		});
+
+		long end = consume("a", "b");
+
+		waitFor(() -> log.getCheckpoint() == end);
+		assertEquals(List.of("a", "b"), imported);
+		assertEquals(4, calls.get());
+		assertFalse(Files.exists(directory.resolve("dead-letter.tsv")));
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Timed out");
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.sentimentanalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HyperLogLogTest {
+
+	/**
+	 * SplitMix64's finalizer, standing in for the term hash.
+	 */
+	private static long hash(long key) {
+		long z = key + 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static HyperLogLog offered(int precision, long from, long to) {
+		HyperLogLog sketch = new HyperLogLog(precision);
+		for (long key = from; key < to; key++) {
+			sketch.offer(hash(key));
+		}
+		return sketch;
+	}
+
+	@Test
+	void mergeCountsTheUnionOnce() {
+		// Overlapping by 20,000 keys
+		HyperLogLog sketch = offered(11, 0, 60_000);
+		sketch.merge(offered(11, 40_000, 100_000));
+
+		// Merging is exact: the same registers as offering every key to one sketch
+		assertEquals(offered(11, 0, 100_000).cardinality(), sketch.cardinality());
+		// Three standard errors (1.04 / sqrt(2048) is 2.3%)
+		assertEquals(100_000, sketch.cardinality(), 100_000 * 0.069);
+	}
+
+	@Test
+	void smallCardinalitiesAreNearlyExact() {
+		HyperLogLog sketch = offered(11, 0, 300);
+		sketch.merge(offered(11, 200, 500));
+		assertEquals(500, sketch.cardinality(), 10);
+	}
+
+	@Test
+	void sketchesOfOtherPrecisionsAreNotMerged() {
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(11).merge(new HyperLogLog(12)));
+	}
+}
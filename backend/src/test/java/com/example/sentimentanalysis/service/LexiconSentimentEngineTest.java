@@ -0,0 +1,46 @@
+package com.example.sentimentanalysis.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LexiconSentimentEngineTest {
+
+	private final LexiconSentimentEngine engine =
+			new LexiconSentimentEngine(new ClassPathResource("lexicon/sentiment-lexicon.tsv"));
+
+	@Test
+	void labelsClearlyPolarTexts() {
+		assertEquals("positive", engine.analyze("Great product, I love it!").get("label"));
+		assertEquals("negative", engine.analyze("Terrible support and the app keeps crashing.").get("label"));
+		assertEquals("neutral", engine.analyze("I ordered it on Tuesday.").get("label"));
+	}
+
+	@Test
+	void matchesWholeWordsOnly() {
+		// "unlike" must not match "like", "badge" must not match "bad"
+		assertEquals(0.0, engine.compoundScore("Unlike the old badge reader"));
+	}
+
+	@Test
+	void negationFlipsWithinScopeAndStopsAtPunctuation() {
+		assertTrue(engine.compoundScore("not good") < 0);
+		assertTrue(engine.compoundScore("it isn't bad") > 0);
+		assertTrue(engine.compoundScore("not now. good") > 0);
+	}
+
+	@Test
+	void intensifiersScaleTheNextSentimentWord() {
+		assertTrue(engine.compoundScore("very good") > engine.compoundScore("good"));
+		assertTrue(engine.compoundScore("slightly good") < engine.compoundScore("good"));
+		assertEquals(engine.compoundScore("good"), engine.compoundScore("very big good"));
+	}
+
+	@Test
+	void ignoresCaseAndTypographicApostrophes() {
+		assertEquals(engine.compoundScore("not good"), engine.compoundScore("NOT Good"));
+		assertEquals(engine.compoundScore("don't like"), engine.compoundScore("don’t like"));
+	}
+}
@@ -0,0 +1,84 @@
+package com.example.sentimentanalysis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MlCircuitBreakerTest {
+
+	private static MlCircuitBreaker breaker(long openDurationMs) {
+		// Opens at 50% failures over a window of 4 calls, once 4 calls have been recorded
+		return new MlCircuitBreaker(new SimpleMeterRegistry(), true, 50, 4, 4, openDurationMs);
+	}
+
+	private static void record(MlCircuitBreaker breaker, boolean... outcomes) {
+		for (boolean success : outcomes) {
+			assertTrue(breaker.tryAcquirePermission());
+			breaker.recordCall("single", 1_000, success);
+		}
+	}
+
+	@Test
+	void opensOnceTheFailureRateIsReached() {
+		MlCircuitBreaker breaker = breaker(60_000);
+		record(breaker, false, false, true);
+		assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+
+		record(breaker, true);
+		assertEquals(MlCircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquirePermission());
+		assertFalse(breaker.isCallPermitted());
+	}
+
+	@Test
+	void halfOpenLetsASingleTrialThrough() {
+		MlCircuitBreaker breaker = breaker(0);
+		record(breaker, false, false, false, false);
+
+		// Asking without acquiring leaves the trial to whoever acquires it first
+		assertTrue(breaker.isCallPermitted());
+		assertTrue(breaker.isCallPermitted());
+		assertTrue(breaker.tryAcquirePermission());
+		assertEquals(MlCircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquirePermission());
+		assertFalse(breaker.isCallPermitted());
+	}
+
+	@Test
+	void successfulTrialCloses() {
+		MlCircuitBreaker breaker = breaker(0);
+		record(breaker, false, false, false, false);
+
+		assertTrue(breaker.tryAcquirePermission());
+		breaker.recordCall("batch", 1_000, true);
+		assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+
+		// The window starts over, so three failures out of four are needed again
+		record(breaker, false, false, true);
+		assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void failedTrialReopens() {
+		MlCircuitBreaker breaker = breaker(0);
+		record(breaker, false, false, false, false);
+
+		assertTrue(breaker.tryAcquirePermission());
+		breaker.recordCall("batch", 1_000, false);
+		assertEquals(MlCircuitBreaker.State.OPEN, breaker.getState());
+
+		// The open duration is zero, so the next caller gets the next trial
+		assertTrue(breaker.tryAcquirePermission());
+		assertEquals(MlCircuitBreaker.State.HALF_OPEN, breaker.getState());
+	}
+
+	@Test
+	void disabledBreakerAlwaysPermits() {
+		MlCircuitBreaker breaker = new MlCircuitBreaker(new SimpleMeterRegistry(), false, 50, 4, 4, 60_000);
+		record(breaker, false, false, false, false, false);
+		assertEquals(MlCircuitBreaker.State.CLOSED, breaker.getState());
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.sentimentanalysis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ReactiveSentimentAnalysisServiceTest {
+
+	private final LexiconSentimentEngine lexiconEngine =
+			new LexiconSentimentEngine(new ClassPathResource("lexicon/sentiment-lexicon.tsv"));
+	private final AtomicInteger requests = new AtomicInteger();
+	private ReactiveSentimentAnalysisService service;
+
+	private ReactiveSentimentAnalysisService service(MlCircuitBreaker breaker) {
+		// The ML service never answers, and only one batch of at most two texts is in flight at a time
+		WebClient webClient = WebClient.builder()
+				.exchangeFunction(request -> {
+					requests.incrementAndGet();
+					return Mono.never();
+				})
+				.build();
+		service = new ReactiveSentimentAnalysisService(webClient, mock(OnnxSentimentClassifier.class),
+				mock(SentimentResultCache.class), breaker, lexiconEngine, new SimpleMeterRegistry(),
+				"http://ml/analyze", "http://ml/analyze/batch", true, false, 0, 2, 1, 16, 1);
+		return service;
+	}
+
+	private static MlCircuitBreaker breaker(long openDurationMs) {
+		return new MlCircuitBreaker(new SimpleMeterRegistry(), true, 50, 2, 2, openDurationMs);
+	}
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	@Test
+	void shutdownAnswersQueuedAndInFlightTextsWithTheFallback() throws Exception {
+		service(breaker(60_000));
+		CompletableFuture<Map<String, Object>> inFlight = service.analyze("Great product").toFuture();
+		waitFor(() -> requests.get() == 1);
+		CompletableFuture<Map<String, Object>> queued = service.analyze("Terrible support").toFuture();
+		assertFalse(queued.isDone());
+
+		service.shutdown();
+
+		assertEquals("positive", inFlight.get(5, TimeUnit.SECONDS).get("label"));
+		assertEquals("negative", queued.get(5, TimeUnit.SECONDS).get("label"));
+		assertEquals("negative", service.analyze("Awful").toFuture().get(5, TimeUnit.SECONDS).get("label"));
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	void openBreakerFallsBackWithoutQueueing() throws Exception {
+		MlCircuitBreaker breaker = breaker(60_000);
+		for (int i = 0; i < 2; i++) {
+			breaker.tryAcquirePermission();
+			breaker.recordCall("batch", 1_000, false);
+		}
+		service(breaker);
+
+		assertEquals("positive", service.analyze("Great product").toFuture().get(5, TimeUnit.SECONDS).get("label"));
+		assertEquals(0, requests.get());
+	}
+
+	@Test
+	void halfOpenTrialIsTakenByTheBatchNotTheText() throws Exception {
+		MlCircuitBreaker breaker = breaker(0);
+		for (int i = 0; i < 2; i++) {
+			breaker.tryAcquirePermission();
+			breaker.recordCall("batch", 1_000, false);
+		}
+		service(breaker);
+
+		service.analyze("Great product").toFuture();
+		waitFor(() -> requests.get() == 1);
+		assertEquals(MlCircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertFalse(breaker.isCallPermitted());
+
+		// Cancelling the trial batch on shutdown gives the permit back
+		service.shutdown();
+		assertTrue(breaker.isCallPermitted());
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Timed out");
+			Thread.sleep(5);
+		}
+	}
+}
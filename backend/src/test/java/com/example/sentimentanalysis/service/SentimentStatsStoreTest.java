@@ -0,0 +1,204 @@
+package com.example.sentimentanalysis.service;
+
+import com.example.sentimentanalysis.dto.SentimentBucketDTO;
+import com.example.sentimentanalysis.dto.TimeBucket;
+import com.example.sentimentanalysis.event.ClusterResyncEvent;
+import com.example.sentimentanalysis.event.FeedbackChangedEvent;
+import com.example.sentimentanalysis.model.Feedback;
+import com.example.sentimentanalysis.model.SentimentRollup;
+import com.example.sentimentanalysis.repository.FeedbackArchiveRepository;
+import com.example.sentimentanalysis.repository.SentimentMinuteRollupRepository;
+import com.example.sentimentanalysis.repository.SentimentRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SentimentStatsStoreTest {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final SentimentRollupRepository hourlyRepository = mock(SentimentRollupRepository.class);
+	private final SentimentStatsStore store = store(false);
+
+	private final LocalDateTime now = LocalDateTime.now();
+
+	private SentimentStatsStore store(boolean clustered) {
+		return new SentimentStatsStore(jdbcTemplate, mock(FeedbackArchiveRepository.class), hourlyRepository,
+				mock(SentimentMinuteRollupRepository.class), 2, 48, clustered);
+	}
+
+	private static Feedback feedback(LocalDateTime createdAt, String label, Double score) {
+		Feedback feedback = new Feedback();
+		feedback.setId(1L);
+		feedback.setCreatedAt(createdAt);
+		feedback.setSentimentLabel(label);
+		feedback.setSentimentScore(score);
+		return feedback;
+	}
+
+	@Test
+	void countsInsertsAndReclassifications() {
+		store.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, null, null), true, null, null));
+		store.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, "positive", 0.8), false, null, null));
+
+		assertEquals(1L, store.getTotals().get("positive"));
+		assertEquals(0L, store.getTotals().get(SentimentStatsStore.UNCLASSIFIED));
+
+		List<SentimentBucketDTO> buckets = store.getBuckets(TimeBucket.HOUR, now.truncatedTo(ChronoUnit.HOURS),
+				now.plusMinutes(1), null);
+		assertEquals(1, buckets.size());
+		assertEquals(1, buckets.get(0).getTotal());
+		assertEquals(0.8, buckets.get(0).getAverageScore(), 1e-9);
+	}
+
+	@Test
+	void versionChangesWithEveryUpdate() {
+		String before = store.getVersion();
+		store.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, "negative", -0.5), true, null, null));
+		assertNotEquals(before, store.getVersion());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void flushWritesTheNetDeltaOfRecentChanges() {
+		store.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, "positive", 0.5), true, null, null));
+		store.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, "positive", 0.25), true, null, null));
+		verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+
+		store.flush();
+
+		ArgumentCaptor<List<Object[]>> hourlyBatch = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate).batchUpdate(contains("sentiment_rollup_hourly"), hourlyBatch.capture());
+		assertEquals(1, hourlyBatch.getValue().size());
+		assertArrayEquals(new Object[]{now.truncatedTo(ChronoUnit.HOURS), "positive", 2L, 0.75},
+				hourlyBatch.getValue().get(0));
+		verify(jdbcTemplate).batchUpdate(contains("sentiment_rollup_minute"), anyList());
+
+		store.flush();
+		verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+	}
+
+	@Test
+	void remoteChangesAreNotPersisted() {
+		store.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, "neutral", 0.0), true, null, null, true));
+		store.flush();
+
+		assertEquals(1L, store.getTotals().get("neutral"));
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+	}
+
+	@Test
+	void changesOutsideTheReconcileWindowAreWrittenImmediately() {
+		LocalDateTime old = now.minusDays(30);
+		store.onFeedbackChanged(new FeedbackChangedEvent(feedback(old, "positive", 0.9), false, "negative", -0.4));
+
+		LocalDateTime hour = old.truncatedTo(ChronoUnit.HOURS);
+		verify(jdbcTemplate).update(contains("sentiment_rollup_hourly"), eq(hour), eq("negative"), eq(-1L), eq(0.4));
+		verify(jdbcTemplate).update(contains("sentiment_rollup_hourly"), eq(hour), eq("positive"), eq(1L), eq(0.9));
+
+		store.flush();
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void failedFlushesAreRetried() {
+		when(jdbcTemplate.batchUpdate(contains("sentiment_rollup_hourly"), anyList()))
+				.thenThrow(new DataAccessResourceFailureException("down"))
+				.thenReturn(new int[]{1});
+		store.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, "negative", -0.5), true, null, null));
+
+		store.flush();
+		store.flush();
+
+		ArgumentCaptor<List<Object[]>> hourlyBatch = ArgumentCaptor.forClass(List.class);
+		verify(jdbcTemplate, times(2)).batchUpdate(contains("sentiment_rollup_hourly"), hourlyBatch.capture());
+		assertArrayEquals(new Object[]{now.truncatedTo(ChronoUnit.HOURS), "negative", 1L, -0.5},
+				hourlyBatch.getAllValues().get(1).get(0));
+	}
+
+	@Test
+	void clusteredInstancesOnlyWriteChangesOutsideTheReconcileWindow() {
+		SentimentStatsStore clustered = store(true);
+		clustered.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, "positive", 0.5), true, null, null));
+		clustered.flush();
+		verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+		verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+
+		LocalDateTime old = now.minusDays(30);
+		clustered.onFeedbackChanged(new FeedbackChangedEvent(feedback(old, "positive", 0.9), true, null, null));
+		verify(jdbcTemplate).update(contains("sentiment_rollup_hourly"), eq(old.truncatedTo(ChronoUnit.HOURS)),
+				eq("positive"), eq(1L), eq(0.9));
+		assertEquals(2L, clustered.getTotals().get("positive"));
+	}
+
+	@Test
+	void resyncReloadsOlderHoursAndRecomputesTheWindowInMemory() {
+		SentimentStatsStore clustered = store(true);
+		LocalDateTime old = now.minusDays(3).truncatedTo(ChronoUnit.HOURS);
+		SentimentRollup rollup = new SentimentRollup();
+		rollup.setBucketStart(old);
+		rollup.setSentimentLabel("positive");
+		rollup.setFeedbackCount(5);
+		rollup.setScoreSum(4.0);
+		when(hourlyRepository.findAll()).thenReturn(List.of(rollup));
+		// Applied here, but neither in the rollup table nor among the raw rows of the window
+		clustered.onFeedbackChanged(new FeedbackChangedEvent(feedback(old, "neutral", 0.0), true, null, null, true));
+		clustered.onFeedbackChanged(new FeedbackChangedEvent(feedback(now, "neutral", 0.0), true, null, null, true));
+
+		// Another instance holds the rollup lock
+		clustered.onClusterResync(new ClusterResyncEvent(now));
+
+		assertEquals(5L, clustered.getTotals().get("positive"));
+		assertEquals(0L, clustered.getTotals().get("neutral"));
+		List<SentimentBucketDTO> buckets = clustered.getBuckets(TimeBucket.HOUR, old, old.plusHours(1), null);
+		assertEquals(1, buckets.size());
+		assertEquals(5, buckets.get(0).getTotal());
+		assertEquals(0.8, buckets.get(0).getAverageScore(), 1e-9);
+		verify(jdbcTemplate, never()).update(contains("DELETE"), any(LocalDateTime.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void resyncRewritesTheWindowOnlyUnderTheRollupLock() throws Exception {
+		Connection connection = mock(Connection.class);
+		PreparedStatement statement = mock(PreparedStatement.class);
+		ResultSet result = mock(ResultSet.class);
+		when(connection.prepareStatement(anyString())).thenReturn(statement);
+		when(statement.executeQuery()).thenReturn(result);
+		when(result.next()).thenReturn(true);
+		when(result.getInt(1)).thenReturn(1);
+		when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(invocation ->
+				invocation.<ConnectionCallback<Boolean>>getArgument(0).doInConnection(connection));
+
+		store(true).onClusterResync(new ClusterResyncEvent(now));
+
+		verify(connection).prepareStatement("SELECT GET_LOCK(?, ?)");
+		verify(jdbcTemplate).update(contains("DELETE FROM sentiment_rollup_hourly"), any(LocalDateTime.class));
+		verify(jdbcTemplate).update(contains("DELETE FROM sentiment_rollup_minute"), any(LocalDateTime.class));
+		verify(connection).prepareStatement("SELECT RELEASE_LOCK(?)");
+		verify(statement).execute();
+	}
+}
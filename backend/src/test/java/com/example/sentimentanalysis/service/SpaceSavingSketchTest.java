@@ -0,0 +1,83 @@
+package com.example.sentimentanalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchTest {
+
+	private static final int KEYS = 1000;
+
+	/**
+	 * Adds a skewed stream of keys to the sketch and the exact counts.
+	 */
+	private static void fill(SpaceSavingSketch sketch, long[] counts, long seed, int length) {
+		Random random = new Random(seed);
+		for (int i = 0; i < length; i++) {
+			// Cubing a uniform number makes a few low keys frequent
+			double u = random.nextDouble();
+			int key = (int) (u * u * u * KEYS);
+			sketch.add("k" + key, 1);
+			counts[key]++;
+		}
+	}
+
+	private static void assertBounds(SpaceSavingSketch sketch, long[] counts) {
+		for (SpaceSavingSketch.Counter counter : sketch.top(sketch.getCapacity())) {
+			long count = counts[Integer.parseInt(counter.key().substring(1))];
+			assertTrue(counter.count() >= count, counter + " is below the true count " + count);
+			assertTrue(counter.count() - counter.error() <= count, counter + " is above the true count " + count);
+		}
+	}
+
+	@Test
+	void countsBoundTheTrueCounts() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(50);
+		long[] counts = new long[KEYS];
+		fill(sketch, counts, 1, 20_000);
+
+		assertEquals(50, sketch.top(100).size());
+		assertBounds(sketch, counts);
+	}
+
+	@Test
+	void mergedCountsStillBoundTheTrueCounts() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(50);
+		SpaceSavingSketch other = new SpaceSavingSketch(50);
+		long[] counts = new long[KEYS];
+		fill(sketch, counts, 1, 20_000);
+		// Unequal sizes, so each side is missing keys the other monitors
+		fill(other, counts, 2, 5_000);
+
+		sketch.merge(other);
+
+		assertEquals(50, sketch.top(100).size());
+		assertBounds(sketch, counts);
+		// Keys well above total / capacity are still monitored
+		Set<String> monitored = sketch.top(50).stream().map(SpaceSavingSketch.Counter::key).collect(Collectors.toSet());
+		for (int key = 0; key < KEYS; key++) {
+			if (counts[key] > 2 * 25_000 / 50) {
+				assertTrue(monitored.contains("k" + key), "k" + key + " with " + counts[key] + " is not monitored");
+			}
+		}
+	}
+
+	@Test
+	void mergingIntoAnEmptySketchKeepsTheCounts() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+		SpaceSavingSketch other = new SpaceSavingSketch(3);
+		other.add("a", 5);
+		other.add("b", 2);
+
+		sketch.merge(other);
+
+		assertEquals(List.of(new SpaceSavingSketch.Counter("a", 5, 0), new SpaceSavingSketch.Counter("b", 2, 0)),
+				sketch.top(3));
+	}
+}
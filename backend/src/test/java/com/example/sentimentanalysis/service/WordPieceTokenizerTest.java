@@ -0,0 +1,46 @@
+package com.example.sentimentanalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WordPieceTokenizerTest {
+
+	// The fixture has a blank line at ID 2 and lists "the" at IDs 6 and 15
+	private static WordPieceTokenizer tokenizer() throws Exception {
+		return WordPieceTokenizer.load(Path.of(WordPieceTokenizerTest.class.getResource("/tokenizer/vocab.txt").toURI()));
+	}
+
+	@Test
+	void idsAreLineNumbers() throws Exception {
+		WordPieceTokenizer tokenizer = tokenizer();
+
+		assertEquals(0, tokenizer.padId());
+		assertArrayEquals(new int[]{4, 7, 3, 5}, tokenizer.encode("great xyz", 16));
+		assertArrayEquals(new int[]{4, 17, 5}, tokenizer.encode("service", 16));
+	}
+
+	@Test
+	void duplicateTokenTakesItsLastLine() throws Exception {
+		assertArrayEquals(new int[]{4, 15, 5}, tokenizer().encode("the", 16));
+	}
+
+	@Test
+	void splitsWordsIntoLongestPieces() throws Exception {
+		assertArrayEquals(new int[]{4, 15, 7, 8, 9, 16, 10, 11, 12, 13, 5},
+				tokenizer().encode("The great products, unbelievable!", 32));
+	}
+
+	@Test
+	void stripsAccents() throws Exception {
+		assertArrayEquals(new int[]{4, 14, 5}, tokenizer().encode("Café", 16));
+	}
+
+	@Test
+	void truncatesToTheMaximumLength() throws Exception {
+		assertArrayEquals(new int[]{4, 15, 5}, tokenizer().encode("the great product", 3));
+	}
+}
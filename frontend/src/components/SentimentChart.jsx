@@ -59,42 +59,16 @@ export const SentimentPieChart = ({ data }) => {
   );
 };
 
-// Component for sentiment trend over time
-export const SentimentTrendChart = ({ feedbackData }) => {
-  // Process data to create trend data
-  const processTrendData = () => {
-    if (!feedbackData || feedbackData.length === 0) return [];
-
-    // Group feedback by date
-    const groupedByDate = {};
-
-    feedbackData.forEach((item) => {
-      const date = new Date(item.createdAt).toLocaleDateString();
-
-      if (!groupedByDate[date]) {
-        groupedByDate[date] = {
-          date,
-          positive: 0,
-          neutral: 0,
-          negative: 0,
-          total: 0,
-        };
-      }
-
-      if (item.sentimentLabel) {
-        groupedByDate[date][item.sentimentLabel]++;
-      }
-
-      groupedByDate[date].total++;
-    });
-
-    // Convert to array and sort by date
-    return Object.values(groupedByDate).sort(
-      (a, b) => new Date(a.date) - new Date(b.date)
-    );
-  };
-
-  const trendData = processTrendData();
+// Component for sentiment trend over time.
+// trendBuckets are the server-side time series buckets from /feedback/stats/timeseries.
+export const SentimentTrendChart = ({ trendBuckets }) => {
+  const trendData = (trendBuckets || []).map((bucket) => ({
+    date: new Date(bucket.bucketStart).toLocaleDateString(),
+    positive: bucket.counts.positive || 0,
+    neutral: bucket.counts.neutral || 0,
+    negative: bucket.counts.negative || 0,
+    total: bucket.total,
+  }));
 
   return (
     <div className="chart-container">
@@ -178,16 +152,14 @@ export const SentimentScoreChart = ({ feedbackData }) => {
 };
 
 // Main component that combines all charts
-const SentimentChartDashboard = ({ feedbackData }) => {
-  // Calculate sentiment counts
-  const sentimentCounts = {
-    positive: feedbackData.filter((item) => item.sentimentLabel === "positive")
-      .length,
-    neutral: feedbackData.filter((item) => item.sentimentLabel === "neutral")
-      .length,
-    negative: feedbackData.filter((item) => item.sentimentLabel === "negative")
-      .length,
-  };
+const SentimentChartDashboard = ({ feedbackData, trendBuckets }) => {
+  // Sentiment counts over the whole filtered range, summed from the server-side buckets
+  const sentimentCounts = { positive: 0, neutral: 0, negative: 0 };
+  (trendBuckets || []).forEach((bucket) => {
+    Object.keys(sentimentCounts).forEach((label) => {
+      sentimentCounts[label] += bucket.counts[label] || 0;
+    });
+  });
 
   return (
     <div className="charts-dashboard">
@@ -196,7 +168,7 @@ const SentimentChartDashboard = ({ feedbackData }) => {
         <SentimentScoreChart feedbackData={feedbackData} />
       </div>
       <div className="charts-row">
-        <SentimentTrendChart feedbackData={feedbackData} />
+        <SentimentTrendChart trendBuckets={trendBuckets} />
       </div>
     </div>
   );
@@ -1,33 +1,234 @@
-import React, { useState, useEffect } from "react";
-import { getFeedbackList } from "../services/feedbackService";
+import React, { useState, useEffect, useCallback, useRef } from "react";
+import {
+  getFeedbackPage,
+  getSentimentStats,
+  getSentimentTimeseries,
+  openFeedbackStream,
+} from "../services/feedbackService";
 import SentimentChartDashboard from "../components/SentimentChart";
 import Loading from "../components/Loading";
 import ErrorMessage from "../components/ErrorMessage";
 import "./Dashboard.css";
 
+const PAGE_SIZE = 50;
+
+// Formats a Date as a local ISO-8601 date-time without a zone offset,
+// which is how the backend stores createdAt.
+const toLocalIsoString = (date) => {
+  const pad = (n) => String(n).padStart(2, "0");
+  return (
+    `${date.getFullYear()}-${pad(date.getMonth() + 1)}-${pad(date.getDate())}` +
+    `T${pad(date.getHours())}:${pad(date.getMinutes())}:${pad(date.getSeconds())}`
+  );
+};
+
+// Translates the dashboard filters into server-side query parameters
+const buildQuery = (filters) => {
+  const params = { limit: PAGE_SIZE };
+
+  if (filters.sentiment !== "all") {
+    params.label = filters.sentiment;
+  }
+
+  if (filters.dateRange !== "all") {
+    const from = new Date();
+    if (filters.dateRange === "today") {
+      from.setHours(0, 0, 0, 0);
+    } else if (filters.dateRange === "week") {
+      from.setDate(from.getDate() - 7);
+    } else if (filters.dateRange === "month") {
+      from.setMonth(from.getMonth() - 1);
+    }
+    params.from = toLocalIsoString(from);
+  }
+
+  return params;
+};
+
+// Streamed rows are inserted into the loaded list, so they may only grow it up to this many rows
+// (or as many as were loaded with "Load more") to keep a long-open dashboard from growing without bound
+const MAX_ITEMS = 500;
+
+// Whether a streamed feedback item belongs in the list for the current filters,
+// applying every filter the server applies to a page
+const matchesQuery = (item, query) =>
+  (!query.label || item.sentimentLabel === query.label) &&
+  (!query.from || item.createdAt >= query.from) &&
+  (!query.to || item.createdAt < query.to) &&
+  (query.minScore == null ||
+    (item.sentimentScore != null && item.sentimentScore >= query.minScore)) &&
+  (query.maxScore == null ||
+    (item.sentimentScore != null && item.sentimentScore <= query.maxScore));
+
+// Whether a comes before b in the server's (createdAt desc, id desc) order. The timestamps are
+// ISO-8601 strings of the same zone, so they compare correctly as strings.
+const isBefore = (a, b) =>
+  a.createdAt !== b.createdAt ? a.createdAt > b.createdAt : a.id > b.id;
+
+// Marks the last row of a page with the cursor that continues after it
+const withCursor = (page) =>
+  page.items.map((item, index) =>
+    index === page.items.length - 1 ? { ...item, cursor: page.nextCursor } : item
+  );
+
+// Cuts the list back to its capacity. It has to end on a row whose cursor is known (the last row of
+// a page, or a streamed row), so that "Load more" continues exactly where the list now ends.
+const capItems = (list) => {
+  if (list.items.length <= list.capacity) {
+    return list;
+  }
+  for (let index = list.capacity - 1; index >= 0; index--) {
+    if (list.items[index].cursor) {
+      return { ...list, items: list.items.slice(0, index + 1), hasMore: true };
+    }
+  }
+  return list;
+};
+
+// Applies a streamed change to the loaded list: updates the row in place, drops it if it
+// no longer matches the filters, or inserts it where the server would have listed it.
+// A row that sorts after the last loaded one while more pages remain is left for "Load more".
+const mergeStreamedItem = (list, { created, ...item }, query) => {
+  const index = list.items.findIndex((existing) => existing.id === item.id);
+  if (!matchesQuery(item, query)) {
+    if (index === -1) {
+      return list;
+    }
+    const items = list.items.filter((existing) => existing.id !== item.id);
+    const removed = list.items[index];
+    if (removed.cursor && index > 0 && !items[index - 1].cursor) {
+      // Continuing after the removed row skips nothing that still matches
+      items[index - 1] = { ...items[index - 1], cursor: removed.cursor };
+    }
+    return { ...list, items };
+  }
+  if (index !== -1) {
+    const items = [...list.items];
+    items[index] = item;
+    return { ...list, items };
+  }
+  // A reclassified row that is not loaded only belongs in the list if the label or score
+  // filters kept it out before; otherwise it lies outside the loaded range or was cut off
+  const filtered = query.label || query.minScore != null || query.maxScore != null;
+  if (!created && !filtered) {
+    return list;
+  }
+  const position = list.items.findIndex((existing) => isBefore(item, existing));
+  if (position === -1) {
+    return list.hasMore ? list : capItems({ ...list, items: [...list.items, item] });
+  }
+  const items = [...list.items];
+  items.splice(position, 0, item);
+  return capItems({ ...list, items });
+};
+
 const Dashboard = () => {
-  const [feedback, setFeedback] = useState([]);
+  // The loaded rows, newest first, and whether the server has more after the last one
+  const [list, setList] = useState({ items: [], hasMore: false, capacity: MAX_ITEMS });
+  const [stats, setStats] = useState({
+    positive: 0,
+    neutral: 0,
+    negative: 0,
+    total: 0,
+  });
+  const [trendBuckets, setTrendBuckets] = useState([]);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState(null);
   const [filters, setFilters] = useState({
     sentiment: "all",
     dateRange: "all",
   });
 
-  useEffect(() => {
-    const fetchFeedback = async () => {
-      try {
-        const data = await getFeedbackList();
-        setFeedback(data);
-        setLoading(false);
-      } catch (err) {
-        setError("Failed to load feedback data. Please try again later.");
-        setLoading(false);
-      }
-    };
+  // Loads the first page for the current filters, replacing anything already shown
+  const fetchFeedback = useCallback(async () => {
+    setLoading(true);
+    setError(null);
+    try {
+      const query = buildQuery(filters);
+      const [page, statsData, buckets] = await Promise.all([
+        getFeedbackPage(query),
+        getSentimentStats(),
+        getSentimentTimeseries({
+          bucket: "day",
+          label: query.label,
+          from: query.from,
+        }),
+      ]);
+      setList({ items: withCursor(page), hasMore: page.hasMore, capacity: MAX_ITEMS });
+      setStats(statsData);
+      setTrendBuckets(buckets);
+    } catch (err) {
+      setError("Failed to load feedback data. Please try again later.");
+    } finally {
+      setLoading(false);
+    }
+  }, [filters]);
 
+  useEffect(() => {
     fetchFeedback();
-  }, []);
+  }, [fetchFeedback]);
+
+  // The stream handlers outlive renders, so they read the latest query and loader through refs
+  const queryRef = useRef(buildQuery(filters));
+  const fetchFeedbackRef = useRef(fetchFeedback);
+  useEffect(() => {
+    queryRef.current = buildQuery(filters);
+    fetchFeedbackRef.current = fetchFeedback;
+  }, [filters, fetchFeedback]);
+
+  // Live updates: new and reclassified feedback and fresh counts are pushed by the server,
+  // so the dashboard only reloads when the server says it missed too much (reset)
+  useEffect(
+    () =>
+      openFeedbackStream({
+        onFeedback: (item) =>
+          setList((current) =>
+            mergeStreamedItem(current, item, queryRef.current)
+          ),
+        onStats: setStats,
+        onReset: () => fetchFeedbackRef.current(),
+      }),
+    []
+  );
+
+  const feedback = list.items;
+  const nextCursor =
+    list.hasMore && feedback.length > 0 ? feedback[feedback.length - 1].cursor : null;
+
+  // Appends the next page using the cursor of the last loaded row
+  const loadMore = async () => {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    try {
+      const page = await getFeedbackPage({
+        ...buildQuery(filters),
+        cursor: nextCursor,
+      });
+      setList((current) => {
+        // Streamed rows may have changed the list while the page loaded; only a list that
+        // still ends where the page starts can be extended by it
+        const last = current.items[current.items.length - 1];
+        if (!current.hasMore || !last || last.cursor !== nextCursor) {
+          return current;
+        }
+        const loaded = new Set(current.items.map((item) => item.id));
+        const items = [
+          ...current.items,
+          ...withCursor(page).filter((item) => !loaded.has(item.id)),
+        ];
+        return {
+          items,
+          hasMore: page.hasMore,
+          capacity: Math.max(current.capacity, items.length),
+        };
+      });
+    } catch (err) {
+      setError("Failed to load more feedback. Please try again later.");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   const handleFilterChange = (e) => {
     const { name, value } = e.target;
@@ -37,47 +238,13 @@ const Dashboard = () => {
     });
   };
 
-  const filteredFeedback = feedback.filter((item) => {
-    // Apply sentiment filter
-    if (
-      filters.sentiment !== "all" &&
-      item.sentimentLabel !== filters.sentiment
-    ) {
-      return false;
-    }
-
-    // Apply date range filter (simplified for now)
-    if (filters.dateRange !== "all") {
-      const itemDate = new Date(item.createdAt);
-      const now = new Date();
-
-      if (filters.dateRange === "today") {
-        const today = new Date(now.setHours(0, 0, 0, 0));
-        return itemDate >= today;
-      } else if (filters.dateRange === "week") {
-        const weekAgo = new Date(now.setDate(now.getDate() - 7));
-        return itemDate >= weekAgo;
-      } else if (filters.dateRange === "month") {
-        const monthAgo = new Date(now.setMonth(now.getMonth() - 1));
-        return itemDate >= monthAgo;
-      }
-    }
-
-    return true;
-  });
-
-  // Calculate sentiment distribution for visualization
+  // Sentiment distribution across all feedback, as reported by /stats
   const sentimentCounts = {
-    positive: filteredFeedback.filter(
-      (item) => item.sentimentLabel === "positive"
-    ).length,
-    neutral: filteredFeedback.filter(
-      (item) => item.sentimentLabel === "neutral"
-    ).length,
-    negative: filteredFeedback.filter(
-      (item) => item.sentimentLabel === "negative"
-    ).length,
+    positive: stats.positive || 0,
+    neutral: stats.neutral || 0,
+    negative: stats.negative || 0,
   };
+  const totalCount = stats.total || 0;
 
   const getSentimentColor = (sentiment) => {
     switch (sentiment) {
@@ -134,17 +301,15 @@ const Dashboard = () => {
       <div className="dashboard-stats">
         <div className="stat-card total">
           <h3>Total Feedback</h3>
-          <p className="stat-value">{filteredFeedback.length}</p>
+          <p className="stat-value">{totalCount}</p>
         </div>
 
         <div className="stat-card positive">
           <h3>Positive</h3>
           <p className="stat-value">{sentimentCounts.positive}</p>
           <p className="stat-percentage">
-            {filteredFeedback.length > 0
-              ? Math.round(
-                  (sentimentCounts.positive / filteredFeedback.length) * 100
-                )
+            {totalCount > 0
+              ? Math.round((sentimentCounts.positive / totalCount) * 100)
               : 0}
             %
           </p>
@@ -154,10 +319,8 @@ const Dashboard = () => {
           <h3>Neutral</h3>
           <p className="stat-value">{sentimentCounts.neutral}</p>
           <p className="stat-percentage">
-            {filteredFeedback.length > 0
-              ? Math.round(
-                  (sentimentCounts.neutral / filteredFeedback.length) * 100
-                )
+            {totalCount > 0
+              ? Math.round((sentimentCounts.neutral / totalCount) * 100)
               : 0}
             %
           </p>
@@ -167,18 +330,19 @@ const Dashboard = () => {
           <h3>Negative</h3>
           <p className="stat-value">{sentimentCounts.negative}</p>
           <p className="stat-percentage">
-            {filteredFeedback.length > 0
-              ? Math.round(
-                  (sentimentCounts.negative / filteredFeedback.length) * 100
-                )
+            {totalCount > 0
+              ? Math.round((sentimentCounts.negative / totalCount) * 100)
               : 0}
             %
           </p>
         </div>
       </div>
 
-      {/* Advanced Visualizations */}
-      <SentimentChartDashboard feedbackData={filteredFeedback} />
+      {/* Advanced Visualizations (filtering happens on the server, so every loaded row matches) */}
+      <SentimentChartDashboard
+        feedbackData={feedback}
+        trendBuckets={trendBuckets}
+      />
 
       {/* Basic Sentiment Distribution (for non-JavaScript fallback) */}
       <div className="sentiment-distribution">
@@ -192,10 +356,8 @@ const Dashboard = () => {
                   className="sentiment-bar"
                   style={{
                     width: `${
-                      filteredFeedback.length
-                        ? (sentimentCounts[sentiment] /
-                            filteredFeedback.length) *
-                          100
+                      totalCount
+                        ? (sentimentCounts[sentiment] / totalCount) * 100
                         : 0
                     }%`,
                     backgroundColor: getSentimentColor(sentiment),
@@ -215,25 +377,8 @@ const Dashboard = () => {
         {loading ? (
           <Loading message="Loading feedback data..." />
         ) : error ? (
-          <ErrorMessage
-            message={error}
-            onRetry={() => {
-              setLoading(true);
-              setError(null);
-              getFeedbackList()
-                .then((data) => {
-                  setFeedback(data);
-                  setLoading(false);
-                })
-                .catch((err) => {
-                  setError(
-                    "Failed to load feedback data. Please try again later."
-                  );
-                  setLoading(false);
-                });
-            }}
-          />
-        ) : filteredFeedback.length === 0 ? (
+          <ErrorMessage message={error} onRetry={fetchFeedback} />
+        ) : feedback.length === 0 ? (
           <div className="no-data">
             No feedback available with the selected filters.
           </div>
@@ -248,7 +393,7 @@ const Dashboard = () => {
               </tr>
             </thead>
             <tbody>
-              {filteredFeedback.map((item) => (
+              {feedback.map((item) => (
                 <tr key={item.id}>
                   <td>{new Date(item.createdAt).toLocaleDateString()}</td>
                   <td className="feedback-cell">{item.text}</td>
@@ -258,7 +403,8 @@ const Dashboard = () => {
                       color: getSentimentColor(item.sentimentLabel),
                     }}
                   >
-                    {item.sentimentLabel || "N/A"}
+                    {item.sentimentLabel ||
+                      (item.sentimentStatus === "PENDING" ? "pending" : "N/A")}
                   </td>
                   <td>
                     {item.sentimentScore
@@ -270,6 +416,15 @@ const Dashboard = () => {
             </tbody>
           </table>
         )}
+        {!loading && !error && nextCursor && (
+          <button
+            className="load-more"
+            onClick={loadMore}
+            disabled={loadingMore}
+          >
+            {loadingMore ? "Loading..." : "Load more"}
+          </button>
+        )}
       </div>
     </div>
   );
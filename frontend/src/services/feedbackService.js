@@ -10,12 +10,69 @@ export const submitFeedback = async (feedbackData) => {
   }
 };
 
-export const getFeedbackList = async () => {
+// Fetches one keyset-paginated page of feedback.
+// params: { cursor, limit, label, from, to, minScore, maxScore } - all optional.
+// Resolves to { items, nextCursor, hasMore }.
+export const getFeedbackPage = async (params = {}) => {
   try {
-    const response = await api.get("/feedback");
+    const response = await api.get("/feedback", { params });
     return response.data;
   } catch (error) {
-    console.error("Error fetching feedback list:", error);
+    console.error("Error fetching feedback page:", error);
+    throw error;
+  }
+};
+
+export const getSentimentStats = async () => {
+  try {
+    const response = await api.get("/feedback/stats");
+    return response.data;
+  } catch (error) {
+    console.error("Error fetching sentiment stats:", error);
+    throw error;
+  }
+};
+
+// Fetches sentiment counts per time bucket.
+// params: { bucket: "minute" | "hour" | "day", from, to, label } - all optional.
+// Resolves to [{ bucketStart, counts, total, averageScore }], including empty buckets.
+export const getSentimentTimeseries = async (params = {}) => {
+  try {
+    const response = await api.get("/feedback/stats/timeseries", { params });
+    return response.data;
+  } catch (error) {
+    console.error("Error fetching sentiment timeseries:", error);
+    throw error;
+  }
+};
+
+// Opens the live feedback stream (Server-Sent Events). The browser reconnects on its own
+// and resumes from the last event it received.
+// handlers: { onFeedback(item), onStats(stats), onReset() } - all optional. A feedback item also
+// carries created (new row rather than reclassified) and cursor (continues a list ending with it).
+// Returns a function that closes the stream.
+export const openFeedbackStream = (handlers = {}) => {
+  const source = new EventSource(`${api.defaults.baseURL}/feedback/stream`);
+  const parse = (handler) => (event) => {
+    if (handler) handler(JSON.parse(event.data));
+  };
+  source.addEventListener("feedback", parse(handlers.onFeedback));
+  source.addEventListener("stats", parse(handlers.onStats));
+  source.addEventListener("reset", () => {
+    if (handlers.onReset) handlers.onReset();
+  });
+  return () => source.close();
+};
+
+// Full-text search over feedback text.
+// params: { q, label, from, to, minScore, maxScore, sort: "relevance" | "newest", page, size } - q is required.
+// Resolves to { items, totalHits, totalHitsExact, page, size, hasMore, tookMs }.
+export const searchFeedback = async (params) => {
+  try {
+    const response = await api.get("/feedback/search", { params });
+    return response.data;
+  } catch (error) {
+    console.error("Error searching feedback:", error);
     throw error;
   }
 };
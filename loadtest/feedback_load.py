@@ -0,0 +1,189 @@
+"""
+Closed-loop load test for POST /api/feedback.
+
+Each of --concurrency clients keeps one keep-alive connection open and submits feedback
+back to back for --duration seconds, after a --warmup period that is not measured.
+Reports throughput, latency percentiles and response codes, and can save them as JSON
+so that two runs (for example platform threads vs virtual threads) can be compared:
+
+    python feedback_load.py --concurrency 800 --save platform.json
+    python feedback_load.py --concurrency 800 --save virtual.json
+    python feedback_load.py --compare platform.json virtual.json
+
+Several --url values spread the clients round-robin over several backend instances, and
+--idempotency-keys sends a fresh Idempotency-Key with every submission.
+
+Standard library only.
+"""
+import argparse
+import http.client
+import json
+import random
+import sys
+import threading
+import time
+import uuid
+from collections import Counter
+from urllib.parse import urlparse
+
+TEXTS = [
+    "The delivery was fast and the product is great",
+    "Support never answered my ticket, awful experience",
+    "It works as described",
+    "I love the new dashboard but the export is slow",
+    "Terrible battery life, I want a refund",
+    "Average quality for the price",
+]
+
+
+class Worker(threading.Thread):
+    def __init__(self, target, start_at, measure_from, stop_at, timeout, idempotency_keys=False):
+        super().__init__(daemon=True)
+        self.target = target
+        self.idempotency_keys = idempotency_keys
+        self.start_at = start_at
+        self.measure_from = measure_from
+        self.stop_at = stop_at
+        self.timeout = timeout
+        self.latencies = []
+        self.statuses = Counter()
+
+    def run(self):
+        connection = None
+        while time.time() < self.start_at:
+            time.sleep(0.01)
+        while True:
+            started = time.time()
+            if started >= self.stop_at:
+                break
+            # A unique suffix keeps the backend's result cache from answering every request
+            body = json.dumps({"text": f"{random.choice(TEXTS)} #{random.getrandbits(48)}"})
+            headers = {"Content-Type": "application/json"}
+            if self.idempotency_keys:
+                headers["Idempotency-Key"] = uuid.uuid4().hex
+            try:
+                if connection is None:
+                    connection = http.client.HTTPConnection(self.target.hostname, self.target.port,
+                                                            timeout=self.timeout)
+                connection.request("POST", self.target.path, body, headers)
+                response = connection.getresponse()
+                response.read()
+                status = str(response.status)
+            except (OSError, http.client.HTTPException) as e:
+                status = type(e).__name__
+                if connection is not None:
+                    connection.close()
+                connection = None
+            if started >= self.measure_from:
+                self.latencies.append(time.time() - started)
+                self.statuses[status] += 1
+        if connection is not None:
+            connection.close()
+
+
+def percentile(sorted_values, fraction):
+    if not sorted_values:
+        return 0.0
+    index = min(len(sorted_values) - 1, int(round(fraction * (len(sorted_values) - 1))))
+    return sorted_values[index]
+
+
+def run_load(args):
+    targets = [urlparse(url) for url in args.url]
+    now = time.time()
+    start_at = now + 1
+    measure_from = start_at + args.warmup
+    stop_at = measure_from + args.duration
+
+    workers = [Worker(targets[i % len(targets)], start_at, measure_from, stop_at, args.timeout,
+                      args.idempotency_keys)
+               for i in range(args.concurrency)]
+    for worker in workers:
+        worker.start()
+    for worker in workers:
+        worker.join()
+
+    latencies = sorted(latency for worker in workers for latency in worker.latencies)
+    statuses = Counter()
+    for worker in workers:
+        statuses.update(worker.statuses)
+    ok = sum(count for status, count in statuses.items() if status.startswith("2"))
+    return {
+        "label": args.label,
+        "url": " ".join(args.url),
+        "concurrency": args.concurrency,
+        "durationSeconds": args.duration,
+        "requests": len(latencies),
+        "successful": ok,
+        "throughput": ok / args.duration,
+        "latencyMs": {
+            "p50": percentile(latencies, 0.50) * 1000,
+            "p90": percentile(latencies, 0.90) * 1000,
+            "p99": percentile(latencies, 0.99) * 1000,
+            "max": (latencies[-1] if latencies else 0.0) * 1000,
+        },
+        "statuses": dict(statuses),
+    }
+
+
+def print_result(result):
+    latency = result["latencyMs"]
+    print(f"{result['label']}: {result['concurrency']} clients, {result['durationSeconds']} s")
+    print(f"  successful   {result['successful']} of {result['requests']} requests, "
+          f"{result['throughput']:.1f} req/s")
+    print(f"  latency ms   p50 {latency['p50']:.1f}  p90 {latency['p90']:.1f}  "
+          f"p99 {latency['p99']:.1f}  max {latency['max']:.1f}")
+    print(f"  responses    {', '.join(f'{status}: {count}' for status, count in sorted(result['statuses'].items()))}")
+
+
+def compare(baseline_path, candidate_path):
+    with open(baseline_path) as f:
+        baseline = json.load(f)
+    with open(candidate_path) as f:
+        candidate = json.load(f)
+
+    rows = [("throughput (req/s)", baseline["throughput"], candidate["throughput"])]
+    rows += [(f"{name} latency (ms)", baseline["latencyMs"][name], candidate["latencyMs"][name])
+             for name in ("p50", "p90", "p99", "max")]
+    rows.append(("error rate (%)", error_rate(baseline), error_rate(candidate)))
+
+    print(f"{'':22}{baseline['label']:>14}{candidate['label']:>14}{'change':>10}")
+    for name, before, after in rows:
+        change = f"{(after - before) / before * 100:+.1f}%" if before else "n/a"
+        print(f"{name:22}{before:14.1f}{after:14.1f}{change:>10}")
+
+
+def error_rate(result):
+    return (result["requests"] - result["successful"]) / result["requests"] * 100 if result["requests"] else 0.0
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Closed-loop load test for POST /api/feedback.")
+    parser.add_argument("--url", nargs="+", default=["http://localhost:8080/api/feedback"],
+                        help="one or more backend instances; clients are spread over them round-robin")
+    parser.add_argument("--concurrency", type=int, default=200, help="number of concurrent clients")
+    parser.add_argument("--duration", type=float, default=30, help="measured seconds")
+    parser.add_argument("--warmup", type=float, default=10, help="unmeasured seconds before measuring")
+    parser.add_argument("--timeout", type=float, default=30, help="per-request timeout in seconds")
+    parser.add_argument("--idempotency-keys", action="store_true",
+                        help="send a unique Idempotency-Key header with every submission")
+    parser.add_argument("--label", default="run", help="name of this run in reports")
+    parser.add_argument("--save", help="write the result to this JSON file")
+    parser.add_argument("--compare", nargs=2, metavar=("BASELINE", "CANDIDATE"),
+                        help="compare two saved results instead of running a test")
+    args = parser.parse_args()
+
+    if args.compare:
+        compare(*args.compare)
+        return 0
+
+    result = run_load(args)
+    print_result(result)
+    if args.save:
+        with open(args.save, "w") as f:
+            json.dump(result, f, indent=2)
+    return 0 if result["successful"] else 1
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,86 @@
+"""
+Stand-in for the ML service with a fixed, configurable latency.
+
+Serves /analyze, /analyze/batch and /health in the same shape as the real service, but
+answers from a few keywords after sleeping, so load tests measure how the backend
+handles a slow dependency rather than how fast the model is. Standard library only.
+"""
+import argparse
+import json
+import time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+
+def predict(text, model_version):
+    lowered = text.lower()
+    if any(word in lowered for word in ("good", "great", "love", "excellent")):
+        label = "positive"
+    elif any(word in lowered for word in ("bad", "awful", "hate", "terrible")):
+        label = "negative"
+    else:
+        label = "neutral"
+    return {
+        "label": label,
+        "score": 0.5 if label == "neutral" else 0.9,
+        "model_version": model_version,
+        "fallback": False,
+    }
+
+
+def make_handler(delay_seconds, model_version):
+    class Handler(BaseHTTPRequestHandler):
+        protocol_version = "HTTP/1.1"
+
+        def log_message(self, format, *args):
+            pass
+
+        def do_GET(self):
+            self._send({"status": "healthy", "model_version": model_version})
+
+        def do_POST(self):
+            body = json.loads(self._read_body() or b"{}")
+            time.sleep(delay_seconds)
+            if self.path.endswith("/batch"):
+                self._send({"results": [predict(text, model_version) for text in body.get("texts", [])]})
+            else:
+                self._send(predict(body.get("text", ""), model_version))
+
+        def _read_body(self):
+            if self.headers.get("Content-Length"):
+                return self.rfile.read(int(self.headers["Content-Length"]))
+            # Chunked request bodies, as sent by Apache HttpClient for streamed entities
+            body = b""
+            while True:
+                size = int(self.rfile.readline().strip(), 16)
+                if size == 0:
+                    self.rfile.readline()
+                    return body
+                body += self.rfile.read(size)
+                self.rfile.readline()
+
+        def _send(self, payload):
+            data = json.dumps(payload).encode()
+            self.send_response(200)
+            self.send_header("Content-Type", "application/json")
+            self.send_header("Content-Length", str(len(data)))
+            self.end_headers()
+            self.wfile.write(data)
+
+    return Handler
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.strip().splitlines()[0])
+    parser.add_argument("--port", type=int, default=5000)
+    parser.add_argument("--delay-ms", type=float, default=100, help="latency added to every request")
+    parser.add_argument("--model-version", default="stub-v1")
+    args = parser.parse_args()
+
+    server = ThreadingHTTPServer(("", args.port), make_handler(args.delay_ms / 1000, args.model_version))
+    server.daemon_threads = True
+    print(f"ML stub listening on port {args.port} with {args.delay_ms:g} ms latency")
+    server.serve_forever()
+
+
+if __name__ == "__main__":
+    main()
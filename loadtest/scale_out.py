@@ -0,0 +1,156 @@
+"""
+Scale-out test: throughput of POST /api/feedback with 1 to N backend instances.
+
+Starts --instances copies of the packaged backend on consecutive ports from --base-port, all
+sharing the database given in --spring-arg (or application.properties), with clustering
+enabled, their own node ids and their own local data directories under --work-dir. Unless
+--ml-url is given it also starts ml_stub.py. Then it runs feedback_load.py against the first
+1, 2, ... N instances, with --concurrency clients per instance, and reports the throughput
+and the scaling efficiency (throughput / (instances * single-instance throughput)):
+
+    cd backend && mvn -q package -DskipTests && cd ..
+    python loadtest/scale_out.py --instances 3 --concurrency 100 \\
+        --spring-arg=--spring.datasource.url=jdbc:mysql://db-host:3306/sentiment_analysis_db
+
+For meaningful numbers the instances need cores of their own (and the database and ML
+service must not be the bottleneck); on a single machine, give each instance a CPU set with
+--cpus-per-instance. Standard library only.
+"""
+import argparse
+import glob
+import http.client
+import json
+import os
+import subprocess
+import sys
+import time
+from argparse import Namespace
+
+import feedback_load
+
+HERE = os.path.dirname(os.path.abspath(__file__))
+
+
+def wait_healthy(port, timeout):
+    deadline = time.time() + timeout
+    while time.time() < deadline:
+        try:
+            connection = http.client.HTTPConnection("localhost", port, timeout=2)
+            connection.request("GET", "/actuator/health")
+            if connection.getresponse().status == 200:
+                return True
+        except (OSError, http.client.HTTPException):
+            pass
+        time.sleep(1)
+    return False
+
+
+def start_stub(args):
+    return subprocess.Popen([sys.executable, os.path.join(HERE, "ml_stub.py"),
+                             "--port", str(args.stub_port), "--delay-ms", str(args.stub_delay_ms)],
+                            stdout=subprocess.DEVNULL, stderr=subprocess.DEVNULL)
+
+
+def start_instance(args, index, ml_base_url):
+    node = f"node-{index + 1}"
+    port = args.base_port + index
+    data = os.path.join(args.work_dir, node)
+    os.makedirs(data, exist_ok=True)
+    command = []
+    if args.cpus_per_instance:
+        first = index * args.cpus_per_instance
+        command += ["taskset", "-c", f"{first}-{first + args.cpus_per_instance - 1}"]
+    command += ["java", "-jar", args.jar,
+                f"--server.port={port}",
+                "--feedback.cluster.enabled=true",
+                f"--feedback.cluster.node-id={node}",
+                f"--feedback.keywords.node-id={node}",
+                f"--feedback.keywords.snapshot-dir={os.path.join(args.work_dir, 'keyword-sketches')}",
+                f"--feedback.search.index-dir={os.path.join(data, 'search-index')}",
+                f"--feedback.ingestion.log.dir={os.path.join(data, 'ingestion-log')}",
+                f"--ml.service.url={ml_base_url}/analyze",
+                f"--ml.batch.url={ml_base_url}/analyze/batch",
+                f"--ml.health.url={ml_base_url}/health"]
+    command += args.spring_arg
+    log = open(os.path.join(data, "backend.log"), "w")
+    return subprocess.Popen(command, stdout=log, stderr=subprocess.STDOUT), port
+
+
+def main():
+    parser = argparse.ArgumentParser(description="Throughput of 1 to N backend instances behind one load generator.")
+    parser.add_argument("--jar", help="backend jar (default: backend/target/*.jar)")
+    parser.add_argument("--instances", type=int, default=3)
+    parser.add_argument("--base-port", type=int, default=8081)
+    parser.add_argument("--cpus-per-instance", type=int, default=0,
+                        help="pin each instance to this many CPUs with taskset (0: no pinning)")
+    parser.add_argument("--spring-arg", action="append", default=[],
+                        help="extra argument for every instance, e.g. --spring-arg=--spring.datasource.url=...")
+    parser.add_argument("--work-dir", default="scale-out", help="per-instance data directories and logs")
+    parser.add_argument("--ml-url", help="base URL of a running ML service (default: start ml_stub.py)")
+    parser.add_argument("--stub-port", type=int, default=5000)
+    parser.add_argument("--stub-delay-ms", type=float, default=20)
+    parser.add_argument("--concurrency", type=int, default=100, help="clients per instance")
+    parser.add_argument("--duration", type=float, default=30, help="measured seconds per step")
+    parser.add_argument("--warmup", type=float, default=10, help="unmeasured seconds per step")
+    parser.add_argument("--timeout", type=float, default=30, help="per-request timeout in seconds")
+    parser.add_argument("--idempotency-keys", action="store_true",
+                        help="send a unique Idempotency-Key header with every submission")
+    parser.add_argument("--save", help="write the results to this JSON file")
+    args = parser.parse_args()
+
+    if not args.jar:
+        jars = glob.glob(os.path.join(HERE, "..", "backend", "target", "*.jar"))
+        if not jars:
+            print("No backend jar found; run 'mvn package' in backend/ or pass --jar", file=sys.stderr)
+            return 1
+        args.jar = jars[0]
+
+    processes = []
+    try:
+        ml_base_url = args.ml_url
+        if not ml_base_url:
+            processes.append(start_stub(args))
+            ml_base_url = f"http://localhost:{args.stub_port}"
+        ports = []
+        for index in range(args.instances):
+            process, port = start_instance(args, index, ml_base_url)
+            processes.append(process)
+            ports.append(port)
+        for port in ports:
+            if not wait_healthy(port, 120):
+                print(f"Instance on port {port} did not become healthy; see {args.work_dir}/", file=sys.stderr)
+                return 1
+
+        results = []
+        for count in range(1, args.instances + 1):
+            load = Namespace(url=[f"http://localhost:{port}/api/feedback" for port in ports[:count]],
+                             concurrency=args.concurrency * count, duration=args.duration, warmup=args.warmup,
+                             timeout=args.timeout, idempotency_keys=args.idempotency_keys,
+                             label=f"{count} instance{'s' if count > 1 else ''}")
+            result = feedback_load.run_load(load)
+            result["instances"] = count
+            feedback_load.print_result(result)
+            results.append(result)
+
+        single = results[0]["throughput"]
+        print(f"\n{'instances':>10}{'req/s':>12}{'speedup':>10}{'efficiency':>12}{'p99 ms':>10}")
+        for result in results:
+            speedup = result["throughput"] / single if single else 0.0
+            print(f"{result['instances']:>10}{result['throughput']:>12.1f}{speedup:>10.2f}"
+                  f"{speedup / result['instances'] * 100:>11.0f}%{result['latencyMs']['p99']:>10.1f}")
+        if args.save:
+            with open(args.save, "w") as f:
+                json.dump(results, f, indent=2)
+        return 0
+    finally:
+        for process in processes:
+            process.terminate()
+        for process in processes:
+            try:
+                process.wait(timeout=30)
+            except subprocess.TimeoutExpired:
+                process.kill()
+
+
+if __name__ == "__main__":
+    sys.exit(main())
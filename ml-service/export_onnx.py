@@ -0,0 +1,56 @@
+"""
+Export the sentiment model to ONNX for the backend's in-process inference (ml.backend=onnx).
+
+Writes model.onnx and vocab.txt to the output directory and prints the backend settings
+that match the exported model.
+
+Usage:
+    python export_onnx.py [--model NAME] [--output DIR]
+"""
+import argparse
+import os
+
+import torch
+from transformers import AutoModelForSequenceClassification, AutoTokenizer
+
+DEFAULT_MODEL = "distilbert-base-uncased-finetuned-sst-2-english"
+
+
+def export(model_name, output_dir):
+    os.makedirs(output_dir, exist_ok=True)
+    tokenizer = AutoTokenizer.from_pretrained(model_name)
+    model = AutoModelForSequenceClassification.from_pretrained(model_name)
+    model.eval()
+
+    # Batch and sequence length stay dynamic so the backend can pad each batch to its longest text
+    sample = tokenizer(["an example text", "another one"], return_tensors="pt", padding=True)
+    dynamic_axes = {"input_ids": {0: "batch", 1: "sequence"},
+                    "attention_mask": {0: "batch", 1: "sequence"},
+                    "logits": {0: "batch"}}
+    torch.onnx.export(model,
+                      (sample["input_ids"], sample["attention_mask"]),
+                      os.path.join(output_dir, "model.onnx"),
+                      input_names=["input_ids", "attention_mask"],
+                      output_names=["logits"],
+                      dynamic_axes=dynamic_axes,
+                      opset_version=14)
+
+    vocab = sorted(tokenizer.get_vocab().items(), key=lambda item: item[1])
+    with open(os.path.join(output_dir, "vocab.txt"), "w", encoding="utf-8") as f:
+        for token, _ in vocab:
+            f.write(token + "\n")
+
+    labels = [model.config.id2label[i].lower() for i in range(model.config.num_labels)]
+    print(f"Exported {model_name} to {output_dir}. Backend settings:")
+    print("ml.backend=onnx")
+    print(f"ml.onnx.model-dir={os.path.abspath(output_dir)}")
+    print(f"ml.onnx.model-version={model_name}")
+    print(f"ml.onnx.labels={','.join(labels)}")
+
+
+if __name__ == '__main__':
+    parser = argparse.ArgumentParser(description=__doc__.strip().splitlines()[0])
+    parser.add_argument("--model", default=DEFAULT_MODEL)
+    parser.add_argument("--output", default=os.path.join("..", "backend", "models", "sentiment"))
+    args = parser.parse_args()
+    export(args.model, args.output)
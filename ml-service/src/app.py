@@ -89,16 +89,67 @@ def analyze_sentiment():
         logger.error(f"Error analyzing sentiment: {str(e)}")
         return jsonify({'error': str(e)}), 500
 
+# Upper bound on texts per batch request, so one caller cannot monopolize the model
+MAX_BATCH_SIZE = int(os.environ.get("MAX_BATCH_SIZE", 128))
+
+@app.route('/analyze/batch', methods=['POST'])
+def analyze_sentiment_batch():
+    """
+    Analyze the sentiment of several texts in one model pass.
+    Expected JSON input:
+    {
+        "texts": ["First text", "Second text", ...]
+    }
+    Returns JSON with one result per text, in request order:
+    {
+        "results": [{...}, {...}, ...]
+    }
+    """
+    start_time = time.time()
+    
+    try:
+        data = request.get_json()
+        
+        if not data or not isinstance(data.get('texts'), list):
+            return jsonify({'error': 'No texts provided'}), 400
+        
+        texts = data['texts']
+        if len(texts) > MAX_BATCH_SIZE:
+            return jsonify({'error': f'Batch too large (max {MAX_BATCH_SIZE} texts)'}), 413
+        if not all(isinstance(text, str) for text in texts):
+            return jsonify({'error': 'All texts must be strings'}), 400
+        
+        # Get analyzer (lazy initialization)
+        current_analyzer = get_analyzer()
+        
+        # Analyze the whole batch at once
+        results = current_analyzer.predict_batch(texts)
+        
+        # Log processing time
+        processing_time = time.time() - start_time
+        logger.info(f"Batch of {len(texts)} analyzed in {processing_time:.2f} seconds")
+        
+        return jsonify({'results': results})
+        
+    except Exception as e:
+        logger.error(f"Error analyzing sentiment batch: {str(e)}")
+        return jsonify({'error': str(e)}), 500
+
 @app.route('/health', methods=['GET'])
 def health_check():
     """
     Health check endpoint to verify the service is running.
     Returns JSON with status information.
     """
+    # Initializes the analyzer if no request has yet, so that the model version is reported
+    # right after a restart; clients read it to decide what needs re-classifying
+    current_analyzer = get_analyzer()
+
     return jsonify({
         'status': 'healthy',
         'service': 'sentiment-analysis',
-        'enhanced_model': os.environ.get("USE_ENHANCED_MODEL", "true").lower() == "true"
+        'enhanced_model': os.environ.get("USE_ENHANCED_MODEL", "true").lower() == "true",
+        'model_version': current_analyzer.model_version
     })
 
 @app.route('/', methods=['GET'])
@@ -113,6 +164,7 @@ def index():
         'model_type': 'transformer-based' if os.environ.get("USE_ENHANCED_MODEL", "true").lower() == "true" else 'rule-based',
         'endpoints': {
             '/analyze': 'POST - Analyze text sentiment',
+            '/analyze/batch': 'POST - Analyze the sentiment of several texts in one pass',
             '/health': 'GET - Check service health'
         }
     })
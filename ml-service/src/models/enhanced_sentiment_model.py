@@ -30,6 +30,8 @@ class EnhancedSentimentAnalyzer:
             model_name (str): Name of the pre-trained model from Hugging Face
         """
         self.model_name = model_name
+        # Reported with every result so clients can tell which model produced it
+        self.model_version = model_name
         self.labels = ["negative", "neutral", "positive"]
         
         try:
@@ -87,59 +89,109 @@ class EnhancedSentimentAnalyzer:
                 exp_scores = np.exp(scores - np.max(scores))
                 probs = exp_scores / exp_scores.sum()
                 
-                # Find index of highest probability (winning sentiment)
-                # Confidence score is the actual probability value
-                predicted_class = int(np.argmax(probs))
-                confidence = float(probs[predicted_class])
-                
-                # Map to our standard label set
-                if predicted_class in self.label_mapping:
-                    label = self.label_mapping[predicted_class]
-                else:
-                    # If prediction is 1 (positive)
-                    if len(probs) == 2 and predicted_class == 1:
-                        label = "positive"
-                    # If prediction is 0 (negative)
-                    elif len(probs) == 2 and predicted_class == 0:
-                        label = "negative"
-                    else:
-                        # Default case
-                        label = "neutral"
-                        
-                # Stores probabilities for each sentiment in a dictionary 
-                label_probs = {}
-                if len(probs) == 2:  # Binary model (common case)
-                    label_probs = {
-                        "negative": float(probs[0]),
-                        "neutral": 0.0,
-                        "positive": float(probs[1])
-                    }
-                else:
-                    # For models with different label sets, map to our standard labels
-                    for i, prob in enumerate(probs):
-                        mapped_label = self.label_mapping.get(i, "neutral")
-                        if mapped_label in label_probs:
-                            label_probs[mapped_label] += float(prob)
-                        else:
-                            label_probs[mapped_label] = float(prob)
-                
-                # Ensure we have all our standard labels
-                for std_label in self.labels:
-                    if std_label not in label_probs:
-                        label_probs[std_label] = 0.0
-                
-                return {
-                    "text": clean_text,
-                    "label": label,
-                    "score": confidence,
-                    "probabilities": label_probs
-                }
+                return self._build_result(clean_text, probs)
                 
         except Exception as e:
             print(f"Error in transformer prediction: {e}")
             # Fall back to simple analysis if transformer fails
             return self._fallback_predict(text)
     
+    def predict_batch(self, texts):
+        """
+        Predict sentiment for several texts with a single tokenizer call and forward pass.
+        
+        Args:
+            texts (list): The texts to analyze
+            
+        Returns:
+            list: One result dictionary per text, in the same order as the input
+        """
+        if not texts:
+            return []
+        
+        try:
+            clean_texts = [text.lower() for text in texts]
+            
+            # Pad to the longest text in the batch so everything runs as one tensor
+            inputs = self.tokenizer(clean_texts, return_tensors="pt", padding=True,
+                                    truncation=True, max_length=512)
+            
+            with torch.no_grad():
+                outputs = self.model(**inputs)
+                scores = outputs.logits.numpy()
+                
+                # Row-wise softmax
+                exp_scores = np.exp(scores - np.max(scores, axis=1, keepdims=True))
+                probs = exp_scores / exp_scores.sum(axis=1, keepdims=True)
+                
+                return [self._build_result(clean_text, row)
+                        for clean_text, row in zip(clean_texts, probs)]
+                
+        except Exception as e:
+            print(f"Error in batched transformer prediction: {e}")
+            return [self._fallback_predict(text) for text in texts]
+    
+    def _build_result(self, clean_text, probs):
+        """
+        Turn the class probabilities for one text into a result dictionary.
+        
+        Args:
+            clean_text (str): The preprocessed text
+            probs (numpy.ndarray): Softmax probabilities, one per model class
+            
+        Returns:
+            dict: A dictionary with the sentiment analysis results
+        """
+        # Find index of highest probability (winning sentiment)
+        # Confidence score is the actual probability value
+        predicted_class = int(np.argmax(probs))
+        confidence = float(probs[predicted_class])
+        
+        # Map to our standard label set
+        if predicted_class in self.label_mapping:
+            label = self.label_mapping[predicted_class]
+        else:
+            # If prediction is 1 (positive)
+            if len(probs) == 2 and predicted_class == 1:
+                label = "positive"
+            # If prediction is 0 (negative)
+            elif len(probs) == 2 and predicted_class == 0:
+                label = "negative"
+            else:
+                # Default case
+                label = "neutral"
+                
+        # Stores probabilities for each sentiment in a dictionary 
+        label_probs = {}
+        if len(probs) == 2:  # Binary model (common case)
+            label_probs = {
+                "negative": float(probs[0]),
+                "neutral": 0.0,
+                "positive": float(probs[1])
+            }
+        else:
+            # For models with different label sets, map to our standard labels
+            for i, prob in enumerate(probs):
+                mapped_label = self.label_mapping.get(i, "neutral")
+                if mapped_label in label_probs:
+                    label_probs[mapped_label] += float(prob)
+                else:
+                    label_probs[mapped_label] = float(prob)
+        
+        # Ensure we have all our standard labels
+        for std_label in self.labels:
+            if std_label not in label_probs:
+                label_probs[std_label] = 0.0
+        
+        return {
+            "text": clean_text,
+            "label": label,
+            "score": confidence,
+            "probabilities": label_probs,
+            "model_version": self.model_version,
+            "fallback": False
+        }
+    
     def _fallback_predict(self, text):
         """
         Simple rule-based sentiment analysis as a fallback.
@@ -196,7 +248,9 @@ class EnhancedSentimentAnalyzer:
             "text": text,
             "label": label,
             "score": score,
-            "probabilities": probabilities
+            "probabilities": probabilities,
+            "model_version": "rule-based",
+            "fallback": True
         }
 
 
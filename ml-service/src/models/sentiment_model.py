@@ -32,6 +32,8 @@ class SentimentAnalyzer:
         self.model_path = model_path
         self.model = None
         self.labels = ["negative", "neutral", "positive"]
+        # Reported with every result so clients can tell which model produced it
+        self.model_version = "rule-based"
         
         # Load pre-trained model if provided
         if model_path and os.path.exists(model_path):
@@ -154,9 +156,24 @@ class SentimentAnalyzer:
             "score": confidence,
             "probabilities": {
                 label: score for label, score in zip(self.labels, probabilities)
-            }
+            },
+            "model_version": self.model_version,
+            "fallback": False
         }
 
+    def predict_batch(self, texts):
+        """
+        Predict sentiment for several texts.
+        The rule-based model has no per-call setup cost, so this simply maps predict.
+        
+        Args:
+            texts (list): The texts to analyze
+            
+        Returns:
+            list: One result dictionary per text, in the same order as the input
+        """
+        return [self.predict(text) for text in texts]
+
 # Example usage
 if __name__ == "__main__":
     analyzer = SentimentAnalyzer()
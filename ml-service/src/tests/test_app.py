@@ -0,0 +1,32 @@
+"""
+Tests for the Flask application.
+"""
+import sys
+import os
+import pytest
+
+# Add the src directory to the Python path
+sys.path.insert(0, os.path.abspath(os.path.join(os.path.dirname(__file__), '..')))
+
+import src.app as service
+
+@pytest.fixture
+def client(monkeypatch):
+    """A test client for a freshly started service using the basic analyzer."""
+    monkeypatch.setenv("USE_ENHANCED_MODEL", "false")
+    monkeypatch.setattr(service, "analyzer", None)
+    return service.app.test_client()
+
+def test_health_reports_model_version_before_first_analysis(client):
+    """Test that /health reports the model version without a prior /analyze call."""
+    response = client.get('/health')
+
+    assert response.status_code == 200
+    assert response.get_json()["model_version"] == "rule-based"
+
+def test_health_reports_the_version_analyses_use(client):
+    """Test that /health and /analyze report the same model version."""
+    health = client.get('/health').get_json()
+    analysis = client.post('/analyze', json={"text": "This is great"}).get_json()
+
+    assert health["model_version"] == analysis["model_version"]